@@ -35,27 +35,55 @@ public abstract class AbstractRequest implements DispatchRequest {
             .getName() + ".FORCE_INCLUDE";
 
     /**
-     * Sets the flag to force inclusion at next dispatch.
+     * The dispatch state, created when first needed.
+     */
+    private DispatchState dispatchState;
+
+    /**
+     * Returns the dispatch state of this request. Wrappers return the state of
+     * the request they wrap, so that it is shared.
+     *
+     * @return The dispatch state.
+     */
+    protected DispatchState getDispatchState() {
+        if (dispatchState == null) {
+            dispatchState = new DispatchState();
+        }
+        return dispatchState;
+    }
+
+    /**
+     * Sets the flag to force inclusion at next dispatch. The request attribute
+     * is written only when the value changes.
      *
-     * @param forceInclude <code>true</code> means that, at the next dispatch, response
+     * @param forceInclude <code>true</code> means that, at next dispatch, response
      * will be included and never forwarded.
      */
     protected void setForceInclude(boolean forceInclude) {
+        DispatchState state = getDispatchState();
+        if (state.isSynchronizedWithAttribute() && state.isForceInclude() == forceInclude) {
+            return;
+        }
+        state.setForceInclude(forceInclude);
         getContext(REQUEST_SCOPE).put(FORCE_INCLUDE_ATTRIBUTE_NAME, forceInclude);
+        state.markSynchronizedWithAttribute();
     }
 
     /**
      * Checks if, when dispatching to a resource, the result must be included
-     * and not forwarded to.
+     * and not forwarded to. The request attribute is read only the first time,
+     * in case another request object on the same request has set it.
      *
      * @return <code>true</code> if inclusion is forced.
      */
     protected boolean isForceInclude() {
-        Boolean forceInclude = (Boolean) getContext(REQUEST_SCOPE).get(
-                FORCE_INCLUDE_ATTRIBUTE_NAME);
-        if (forceInclude != null) {
-            return forceInclude;
+        DispatchState state = getDispatchState();
+        if (!state.isSynchronizedWithAttribute()) {
+            Boolean forceInclude = (Boolean) getContext(REQUEST_SCOPE).get(
+                    FORCE_INCLUDE_ATTRIBUTE_NAME);
+            state.setForceInclude(forceInclude != null && forceInclude);
+            state.markSynchronizedWithAttribute();
         }
-        return false;
+        return state.isForceInclude();
     }
 }
@@ -60,6 +60,20 @@ public class DispatchRequestWrapper extends AbstractRequest implements
         return context;
     }
 
+    /**
+     * Returns the dispatch state of the wrapped request, if it is an
+     * {@link AbstractRequest}.
+     *
+     * @return The dispatch state.
+     */
+    @Override
+    protected DispatchState getDispatchState() {
+        if (context instanceof AbstractRequest) {
+            return ((AbstractRequest) context).getDispatchState();
+        }
+        return super.getDispatchState();
+    }
+
     /** {@inheritDoc} */
     public Map<String, String> getHeader() {
         return context.getHeader();
@@ -0,0 +1,146 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request;
+
+import org.apache.tiles.request.render.RenderDeadline;
+
+/**
+ * The dispatch state of a request, kept in memory and shared by the request
+ * and all the {@link DispatchRequestWrapper}s around it. It replaces most of
+ * the accesses to the {@link AbstractRequest#FORCE_INCLUDE_ATTRIBUTE_NAME}
+ * request attribute, which is still read once and written when the state
+ * changes, so that requests that do not share this object, for instance
+ * other request objects created on the same container request, see the same
+ * state.
+ * <p>
+ * It also keeps the {@link RenderDeadline} of the request, once read from
+ * its request attribute, since it is checked by every renderer.
+ * <p>
+ * Instances are not thread-safe: they are confined to the thread serving the
+ * request.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class DispatchState {
+
+    /**
+     * Whether inclusion is forced at next dispatch.
+     */
+    private boolean forceInclude = false;
+
+    /**
+     * Whether {@link #forceInclude} is known to be equal to the value of the
+     * request attribute.
+     */
+    private boolean synchronizedWithAttribute = false;
+
+    /**
+     * The render deadline, if {@link #renderDeadlineResolved}.
+     */
+    private RenderDeadline renderDeadline;
+
+    /**
+     * Whether {@link #renderDeadline} has been read from the request
+     * attribute.
+     */
+    private boolean renderDeadlineResolved = false;
+
+    /**
+     * Returns the dispatch state of a request, or of the request it wraps.
+     *
+     * @param request The request.
+     * @return The dispatch state, or <code>null</code> if the request is not
+     * an {@link AbstractRequest} nor wraps one.
+     */
+    public static DispatchState get(Request request) {
+        Request current = request;
+        while (!(current instanceof AbstractRequest) && current instanceof RequestWrapper) {
+            current = ((RequestWrapper) current).getWrappedRequest();
+        }
+        return current instanceof AbstractRequest ? ((AbstractRequest) current).getDispatchState() : null;
+    }
+
+    /**
+     * Checks if, when dispatching to a resource, the result must be included
+     * and not forwarded to. It does not read the request attribute.
+     *
+     * @return <code>true</code> if inclusion is forced.
+     */
+    public boolean isForceInclude() {
+        return forceInclude;
+    }
+
+    /**
+     * Sets the flag to force inclusion at next dispatch. It does not write the
+     * request attribute.
+     *
+     * @param forceInclude <code>true</code> means that, at the next dispatch,
+     * response will be included and never forwarded.
+     */
+    void setForceInclude(boolean forceInclude) {
+        this.forceInclude = forceInclude;
+    }
+
+    /**
+     * Checks if the state is known to be equal to the request attribute.
+     *
+     * @return <code>true</code> if the attribute has been read or written.
+     */
+    boolean isSynchronizedWithAttribute() {
+        return synchronizedWithAttribute;
+    }
+
+    /**
+     * Marks the state as equal to the request attribute.
+     */
+    void markSynchronizedWithAttribute() {
+        synchronizedWithAttribute = true;
+    }
+
+    /**
+     * Checks if the render deadline has been read from the request attribute.
+     *
+     * @return <code>true</code> if {@link #getRenderDeadline()} can be used.
+     */
+    public boolean isRenderDeadlineResolved() {
+        return renderDeadlineResolved;
+    }
+
+    /**
+     * Returns the render deadline, as read from the request attribute.
+     *
+     * @return The deadline, or <code>null</code> if none.
+     */
+    public RenderDeadline getRenderDeadline() {
+        return renderDeadline;
+    }
+
+    /**
+     * Sets the render deadline, as read from or written to the request
+     * attribute.
+     *
+     * @param renderDeadline The deadline, or <code>null</code> if none.
+     */
+    public void setRenderDeadline(RenderDeadline renderDeadline) {
+        this.renderDeadline = renderDeadline;
+        renderDeadlineResolved = true;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request;
+
+import java.io.IOException;
+
+/**
+ * Utilities to flush the response early, so that the client receives the
+ * beginning of a page, and can fetch its resources, while the rest is still
+ * rendering.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class FlushUtil {
+
+    /**
+     * Constructor.
+     */
+    private FlushUtil() {
+
+    }
+
+    /**
+     * Flushes the writer of a request, committing the response. Before
+     * flushing, the request is marked so that its later dispatches include
+     * instead of forwarding, as a committed response cannot be forwarded.
+     * <p>
+     * Once the response is committed, response headers cannot be set anymore,
+     * and sessions cannot be created: they must be created before flushing.
+     *
+     * @param request The request.
+     * @throws IOException If the writer cannot be flushed.
+     */
+    public static void flush(Request request) throws IOException {
+        AbstractRequest abstractRequest = getAbstractRequest(request);
+        if (abstractRequest != null) {
+            abstractRequest.setForceInclude(true);
+        }
+        request.getWriter().flush();
+    }
+
+    /**
+     * Returns the first {@link AbstractRequest} in a chain of wrapped requests.
+     * Wrappers share the dispatch state of the request they wrap.
+     *
+     * @param request The request.
+     * @return The abstract request, or <code>null</code> if none.
+     */
+    private static AbstractRequest getAbstractRequest(Request request) {
+        Request result = request;
+        while (!(result instanceof AbstractRequest) && result instanceof RequestWrapper) {
+            result = ((RequestWrapper) result).getWrappedRequest();
+        }
+        return result instanceof AbstractRequest ? (AbstractRequest) result : null;
+    }
+}
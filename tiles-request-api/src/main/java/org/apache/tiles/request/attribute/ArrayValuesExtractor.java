@@ -0,0 +1,39 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.attribute;
+
+/**
+ * Allows to get values from multi-valued attributes that are already stored
+ * as arrays, so that they can be returned without copying them.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface ArrayValuesExtractor extends EnumeratedValuesExtractor {
+
+    /**
+     * Returns the values stored at the given key. The returned array is shared
+     * and must not be modified.
+     *
+     * @param key The key of the attribute.
+     * @return The values of the attribute, an empty array if there are none.
+     */
+    String[] getValueArray(String key);
+}
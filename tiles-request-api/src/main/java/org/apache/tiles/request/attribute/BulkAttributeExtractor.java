@@ -0,0 +1,60 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.attribute;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An {@link AttributeExtractor} that can also set, remove and read many
+ * attributes at once. Implement it when the underlying scope can do so with
+ * less work than one call per attribute, for example by looking up the scope
+ * object only once.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface BulkAttributeExtractor extends AttributeExtractor {
+
+    /**
+     * Sets many attributes, as {@link #setValue(String, Object)} does for each
+     * one.
+     *
+     * @param values The values to set, by key.
+     */
+    void setValues(Map<? extends String, ?> values);
+
+    /**
+     * Removes many attributes, as {@link #removeValue(String)} does for each
+     * one.
+     *
+     * @param keys The keys of the attributes to remove.
+     */
+    void removeValues(Collection<String> keys);
+
+    /**
+     * Returns a copy of all the attributes. Later changes to the scope are not
+     * reflected in the returned map, and changes to the map are not reflected
+     * in the scope.
+     *
+     * @return The attributes, by key.
+     */
+    Map<String, Object> getAllValues();
+}
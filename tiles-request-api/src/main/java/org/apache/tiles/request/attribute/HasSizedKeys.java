@@ -0,0 +1,41 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.attribute;
+
+/**
+ * Allows to get attributes, and to count them without enumerating them.
+ * Implement it when the number of keys is known in constant time, typically
+ * when the attributes are kept in a {@link java.util.Map}: the maps and sets in
+ * {@link org.apache.tiles.request.collection} then answer <code>size()</code> and
+ * <code>isEmpty()</code> without walking {@link #getKeys()}.
+ *
+ * @version $Rev$ $Date$
+ * @param <V> The type of the value of the attribute.
+ */
+public interface HasSizedKeys<V> extends HasKeys<V> {
+
+    /**
+     * Returns the number of the stored attributes.
+     *
+     * @return The number of keys.
+     */
+    int getKeyCount();
+}
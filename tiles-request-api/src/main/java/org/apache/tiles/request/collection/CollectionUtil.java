@@ -22,6 +22,9 @@ package org.apache.tiles.request.collection;
 
 import java.util.Enumeration;
 
+import org.apache.tiles.request.attribute.HasKeys;
+import org.apache.tiles.request.attribute.HasSizedKeys;
+
 /**
  * Utilities for requests.
  *
@@ -67,4 +70,34 @@ public final class CollectionUtil {
         }
         return n;
     }
+
+    /**
+     * Returns the number of keys of an extractor. If it implements
+     * {@link HasSizedKeys} it is asked directly, otherwise its keys are
+     * enumerated.
+     *
+     * @param extractor The extractor.
+     * @return The number of keys.
+     */
+    public static int keyCount(HasKeys<?> extractor) {
+        if (extractor instanceof HasSizedKeys) {
+            return ((HasSizedKeys<?>) extractor).getKeyCount();
+        }
+        return enumerationSize(extractor.getKeys());
+    }
+
+    /**
+     * Checks whether an extractor has at least one key. If it implements
+     * {@link HasSizedKeys} it is asked for the number of keys, otherwise the
+     * first key is looked for.
+     *
+     * @param extractor The extractor.
+     * @return <code>true</code> if there is at least one key.
+     */
+    public static boolean hasKeys(HasKeys<?> extractor) {
+        if (extractor instanceof HasSizedKeys) {
+            return ((HasSizedKeys<?>) extractor).getKeyCount() > 0;
+        }
+        return extractor.getKeys().hasMoreElements();
+    }
 }
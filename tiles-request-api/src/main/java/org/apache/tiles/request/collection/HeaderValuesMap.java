@@ -25,17 +25,27 @@ import static org.apache.tiles.request.collection.CollectionUtil.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import org.apache.tiles.request.attribute.ArrayValuesExtractor;
 import org.apache.tiles.request.attribute.EnumeratedValuesExtractor;
 
 
 /**
- * Exposes an {@link EnumeratedValuesExtractor} object as a read-only map.
+ * Exposes an {@link EnumeratedValuesExtractor} object as a read-only map. If
+ * the extractor is an {@link ArrayValuesExtractor}, the values are returned
+ * as stored by the extractor, without copying them. Otherwise the array of
+ * values of a header is built the first time it is requested, and returned
+ * again on later requests, whatever the case of its name. In both cases the
+ * arrays are shared and must not be modified.
+ * <p>
+ * Since request headers do not change, the hash code is computed once. As the
+ * order of the values of a header does not matter, this map is only equal to
+ * other {@link HeaderValuesMap}s.
  *
  * @version $Rev$ $Date$
  */
@@ -46,6 +56,23 @@ public class HeaderValuesMap implements Map<String, String[]> {
      */
     private EnumeratedValuesExtractor request;
 
+    /**
+     * The arrays of values already built, by header name, ignoring case.
+     * <code>null</code> if the extractor is an {@link ArrayValuesExtractor},
+     * or until the first array is built.
+     */
+    private Map<String, String[]> valueArrays;
+
+    /**
+     * The hash code, if {@link #hashed} is <code>true</code>.
+     */
+    private int hashCode;
+
+    /**
+     * Whether {@link #hashCode} has been computed.
+     */
+    private boolean hashed;
+
     /**
      * Constructor.
      *
@@ -64,7 +91,14 @@ public class HeaderValuesMap implements Map<String, String[]> {
 
     /** {@inheritDoc} */
     public boolean containsKey(Object key) {
-        return (request.getValue(key(key)) != null);
+        String name = key(key);
+        if (valueArrays != null) {
+            String[] values = valueArrays.get(name);
+            if (values != null) {
+                return values.length > 0;
+            }
+        }
+        return (request.getValue(name) != null);
     }
 
 
@@ -76,8 +110,7 @@ public class HeaderValuesMap implements Map<String, String[]> {
         String[] test = (String[]) value;
         Enumeration<String> names = request.getKeys();
         while (names.hasMoreElements()) {
-            String name = names.nextElement();
-            if (compareHeaders(name, array2set(test))) {
+            if (sameValues(getHeaderValues(names.nextElement()), test)) {
                 return true;
             }
         }
@@ -94,14 +127,23 @@ public class HeaderValuesMap implements Map<String, String[]> {
     /** {@inheritDoc} */
     @Override
     public boolean equals(Object o) {
-        EnumeratedValuesExtractor otherRequest = ((HeaderValuesMap) o).request;
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof HeaderValuesMap)) {
+            return false;
+        }
+        HeaderValuesMap otherMap = (HeaderValuesMap) o;
+        if (size() != otherMap.size()) {
+            return false;
+        }
         boolean retValue = true;
         for (Enumeration<String> attribs = request.getKeys(); attribs
                 .hasMoreElements()
                 && retValue;) {
             String parameterName = attribs.nextElement();
-            Set<String> valueSet = enumeration2set(otherRequest.getValues(parameterName));
-            retValue = compareHeaders(parameterName, valueSet);
+            retValue = sameValues(getHeaderValues(parameterName),
+                    otherMap.getHeaderValues(parameterName));
         }
 
         return retValue;
@@ -116,24 +158,30 @@ public class HeaderValuesMap implements Map<String, String[]> {
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        int retValue = 0;
-        for (Enumeration<String> attribs = request.getKeys(); attribs
-                .hasMoreElements();) {
-            String parameterName = attribs.nextElement();
-            Enumeration<String> values = request.getValues(parameterName);
-            int valueHash = 0;
-            while (values.hasMoreElements()) {
-                valueHash += values.nextElement().hashCode();
+        if (!hashed) {
+            int retValue = 0;
+            for (Enumeration<String> attribs = request.getKeys(); attribs
+                    .hasMoreElements();) {
+                String parameterName = attribs.nextElement();
+                String[] values = getHeaderValues(parameterName);
+                int valueHash = 0;
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        valueHash += values[i].hashCode();
+                    }
+                }
+                retValue += parameterName.hashCode() ^ valueHash;
             }
-            retValue += parameterName.hashCode() ^ valueHash;
+            hashCode = retValue;
+            hashed = true;
         }
-        return retValue;
+        return hashCode;
     }
 
 
     /** {@inheritDoc} */
     public boolean isEmpty() {
-        return !request.getKeys().hasMoreElements();
+        return !hasKeys(request);
     }
 
 
@@ -164,7 +212,7 @@ public class HeaderValuesMap implements Map<String, String[]> {
 
     /** {@inheritDoc} */
     public int size() {
-        return enumerationSize(request.getKeys());
+        return keyCount(request);
     }
 
 
@@ -174,67 +222,87 @@ public class HeaderValuesMap implements Map<String, String[]> {
     }
 
     /**
-     * Extracts values enumeration of an attribute and returns the corresponding array of values.
+     * Returns the array of values of an attribute, building it from the values
+     * enumeration the first time.
      *
      * @param key The key of the attribute.
      * @return The values of the attribute.
      */
     private String[] getHeaderValues(String key) {
-        List<String> list = new ArrayList<String>();
-        Enumeration<String> values = request.getValues(key);
-        while (values.hasMoreElements()) {
-            list.add(values.nextElement());
+        if (request instanceof ArrayValuesExtractor) {
+            return ((ArrayValuesExtractor) request).getValueArray(key);
+        }
+        String[] retValue = null;
+        if (valueArrays == null) {
+            valueArrays = new TreeMap<String, String[]>(String.CASE_INSENSITIVE_ORDER);
+        } else {
+            retValue = valueArrays.get(key);
+        }
+        if (retValue == null) {
+            List<String> list = new ArrayList<String>();
+            Enumeration<String> values = request.getValues(key);
+            while (values.hasMoreElements()) {
+                list.add(values.nextElement());
+            }
+            retValue = list.toArray(new String[list.size()]);
+            valueArrays.put(key, retValue);
         }
-        String[] retValue = list.toArray(new String[list.size()]);
         return retValue;
     }
 
     /**
-     * Converts the content of a string enumeration to an array of strings.
+     * Checks if two arrays contain the same values, in any order, each value
+     * appearing the same number of times in both.
      *
-     * @param enumeration The enumeration to convert.
-     * @return The corresponding array.
+     * @param values The first array.
+     * @param test The second array.
+     * @return <code>true</code> if the values are the same.
      */
-    private Set<String> enumeration2set(Enumeration<String> enumeration) {
-        Set<String> retValue = new HashSet<String>();
-        while (enumeration.hasMoreElements()) {
-            retValue.add(enumeration.nextElement());
+    private static boolean sameValues(String[] values, String[] test) {
+        if (values == test) {
+            return true;
         }
-        return retValue;
+        if (values.length != test.length) {
+            return false;
+        }
+        int i = 0;
+        while (i < values.length && equal(values[i], test[i])) {
+            i++;
+        }
+        for (; i < values.length; i++) {
+            if (count(values, values[i]) != count(test, values[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Transforms a string array in a string set.
+     * Counts the occurrences of a value in an array.
      *
-     * @param valueArray The array to convert.
-     * @return The corresponding set.
+     * @param values The array.
+     * @param value The value to count.
+     * @return The number of occurrences.
      */
-    private Set<String> array2set(String[] valueArray) {
-        Set<String> values = new HashSet<String>();
-        for (int i = 0; i < valueArray.length; i++) {
-            values.add(valueArray[i]);
+    private static int count(String[] values, String value) {
+        int retValue = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (equal(values[i], value)) {
+                retValue++;
+            }
         }
-        return values;
+        return retValue;
     }
 
     /**
-     * Checks if values of a header attribute are the same as the one passed in
-     * the set.
+     * Checks if two values are equal, allowing <code>null</code> values.
      *
-     * @param name The name of the header.
-     * @param testSet The set of values it must contain.
-     * @return <code>true</code> if all the values, and only them, are present
-     * in the header values.
+     * @param value The first value.
+     * @param other The second value.
+     * @return <code>true</code> if the values are equal.
      */
-    private boolean compareHeaders(String name, Set<String> testSet) {
-        Enumeration<String> values = request.getValues(name);
-        boolean matched = true;
-        while (values.hasMoreElements() && matched) {
-            String currentValue = values.nextElement();
-            matched = testSet.remove(currentValue);
-        }
-        matched = matched && testSet.isEmpty();
-        return matched;
+    private static boolean equal(String value, String other) {
+        return value == null ? other == null : value.equals(other);
     }
 
     /**
@@ -324,15 +392,9 @@ public class HeaderValuesMap implements Map<String, String[]> {
          * @return <code></code> if the key and the values of the entry are present.
          */
         private boolean containsEntry(Map.Entry<String, String[]> entry) {
-            Enumeration<String> entryValues = request.getValues(key(entry.getKey()));
             String[] valueArray = entry.getValue();
-            Set<String> values = array2set(valueArray);
-            while (entryValues.hasMoreElements()) {
-                if (!values.remove(entryValues.nextElement())) {
-                    return false;
-                }
-            }
-            return values.isEmpty();
+            return valueArray != null
+                    && sameValues(getHeaderValues(key(entry.getKey())), valueArray);
         }
 
         /**
@@ -476,26 +538,11 @@ public class HeaderValuesMap implements Map<String, String[]> {
             List<String[]> entries = new ArrayList<String[]>();
             Enumeration<String> names = request.getKeys();
             while (names.hasMoreElements()) {
-                entries.add(enumeration2array(request.getValues(names.nextElement())));
+                entries.add(getHeaderValues(names.nextElement()));
             }
             return entries;
         }
 
-        /**
-         * Converts the content of a string enumeration to an array of strings.
-         *
-         * @param enumeration The enumeration to convert.
-         * @return The corresponding array.
-         */
-        private String[] enumeration2array(Enumeration<String> enumeration) {
-            List<String> list1 = new ArrayList<String>();
-            while (enumeration.hasMoreElements()) {
-                list1.add(enumeration.nextElement());
-            }
-
-            return list1.toArray(new String[list1.size()]);
-        }
-
         /**
          * Iterates elements of {@link HeaderValuesCollection}.
          */
@@ -513,7 +560,7 @@ public class HeaderValuesMap implements Map<String, String[]> {
 
             @Override
             public String[] next() {
-                return enumeration2array(request.getValues(namesEnumeration.nextElement()));
+                return getHeaderValues(namesEnumeration.nextElement());
             }
 
             @Override
@@ -86,7 +86,7 @@ public class KeySet implements Set<String> {
 
     @Override
     public boolean isEmpty() {
-        return !request.getKeys().hasMoreElements();
+        return !hasKeys(request);
     }
 
     @Override
@@ -111,7 +111,7 @@ public class KeySet implements Set<String> {
 
     @Override
     public int size() {
-        return enumerationSize(request.getKeys());
+        return keyCount(request);
     }
 
     @Override
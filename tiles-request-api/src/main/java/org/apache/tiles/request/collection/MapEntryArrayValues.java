@@ -25,7 +25,9 @@ import java.util.Map;
 
 
 /**
- * Multi-valued map entry.
+ * Multi-valued map entry. The hash code is computed once, and again only after
+ * {@link #setValue(Object)}: the array of values must not be modified while
+ * the entry is in use.
  *
  * @version $Rev$ $Date$
  * @param <K> The key type.
@@ -34,6 +36,16 @@ import java.util.Map;
 
 public class MapEntryArrayValues<K, V> extends MapEntry<K, V[]> {
 
+    /**
+     * The hash code, if {@link #hashed} is <code>true</code>.
+     */
+    private int hashCode;
+
+    /**
+     * Whether {@link #hashCode} has been computed.
+     */
+    private boolean hashed;
+
     /**
      * Constructor.
      *
@@ -45,6 +57,14 @@ public class MapEntryArrayValues<K, V> extends MapEntry<K, V[]> {
         super(key, value, modifiable);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public V[] setValue(V[] val) {
+        V[] retValue = super.setValue(val);
+        hashed = false;
+        return retValue;
+    }
+
 
     /**
      * <p>Returns the hashcode for this entry.</p>
@@ -53,16 +73,22 @@ public class MapEntryArrayValues<K, V> extends MapEntry<K, V[]> {
      */
     @Override
     public int hashCode() {
-        int valueHash = 0;
-        V[] value = getValue();
-        if (value != null) {
-            for (int i = 0; i < value.length; i++) {
-                valueHash += value[i].hashCode();
+        if (!hashed) {
+            int valueHash = 0;
+            V[] value = getValue();
+            if (value != null) {
+                for (int i = 0; i < value.length; i++) {
+                    if (value[i] != null) {
+                        valueHash += value[i].hashCode();
+                    }
+                }
             }
-        }
 
-        return (this.getKey() == null ? 0 : this.getKey().hashCode())
-                ^ valueHash;
+            hashCode = (this.getKey() == null ? 0 : this.getKey().hashCode())
+                    ^ valueHash;
+            hashed = true;
+        }
+        return hashCode;
     }
 
     /**
@@ -74,12 +100,18 @@ public class MapEntryArrayValues<K, V> extends MapEntry<K, V[]> {
     @Override
     @SuppressWarnings("unchecked")
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
         if (o != null && o instanceof Map.Entry) {
             Map.Entry<K, V[]> entry = (Map.Entry<K, V[]>) o;
             if (this.getKey() == null ? entry.getKey() == null : this
                     .getKey().equals(entry.getKey())) {
                 V[] values = getValue();
                 V[] otherValues = entry.getValue();
+                if (values == otherValues) {
+                    return true;
+                }
                 if (values != null) {
                     if (otherValues != null) {
                         if (values.length == otherValues.length) {
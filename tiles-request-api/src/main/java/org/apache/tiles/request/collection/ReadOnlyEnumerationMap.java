@@ -94,7 +94,7 @@ public class ReadOnlyEnumerationMap<V> implements Map<String, V> {
 
     /** {@inheritDoc} */
     public boolean isEmpty() {
-        return !request.getKeys().hasMoreElements();
+        return !hasKeys(request);
     }
 
 
@@ -124,7 +124,7 @@ public class ReadOnlyEnumerationMap<V> implements Map<String, V> {
 
     /** {@inheritDoc} */
     public int size() {
-        return enumerationSize(request.getKeys());
+        return keyCount(request);
     }
 
 
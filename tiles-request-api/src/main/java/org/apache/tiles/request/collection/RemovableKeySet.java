@@ -22,15 +22,21 @@ package org.apache.tiles.request.collection;
 
 import static org.apache.tiles.request.collection.CollectionUtil.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 import org.apache.tiles.request.attribute.HasRemovableKeys;
 
 /**
- * Wraps {@link HasRemovableKeys} keys as a set.
+ * Wraps {@link HasRemovableKeys} keys as a set. If the request is a
+ * {@link BulkAttributeExtractor}, the existing keys are enumerated once,
+ * instead of being read one by one, and removed with a single call.
  *
  * @version $Rev$ $Date$
  */
@@ -66,6 +72,24 @@ public class RemovableKeySet extends KeySet {
     @Override
     public boolean removeAll(Collection<?> c) {
         Collection<String> realCollection = (Collection<String>) c;
+        if (request instanceof BulkAttributeExtractor) {
+            Set<String> existingKeys = new HashSet<String>();
+            for (Enumeration<String> keys = request.getKeys(); keys.hasMoreElements();) {
+                existingKeys.add(keys.nextElement());
+            }
+            List<String> keysToRemove = new ArrayList<String>();
+            for (String entry : realCollection) {
+                String skey = key(entry);
+                if (existingKeys.contains(skey)) {
+                    keysToRemove.add(skey);
+                }
+            }
+            if (keysToRemove.isEmpty()) {
+                return false;
+            }
+            ((BulkAttributeExtractor) request).removeValues(keysToRemove);
+            return true;
+        }
         boolean retValue = false;
         for (String entry : realCollection) {
             retValue |= remove(entry);
@@ -86,6 +110,12 @@ public class RemovableKeySet extends KeySet {
                 keysToRemove.add(key);
             }
         }
+        if (request instanceof BulkAttributeExtractor) {
+            if (retValue) {
+                ((BulkAttributeExtractor) request).removeValues(keysToRemove);
+            }
+            return retValue;
+        }
         for (String key : keysToRemove) {
             request.removeValue(key);
         }
@@ -22,17 +22,22 @@ package org.apache.tiles.request.collection;
 
 import static org.apache.tiles.request.collection.CollectionUtil.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 
 /**
- * Exposes a scope context as a <String, Object> map.
+ * Exposes a scope context as a <String, Object> map. If the context is a
+ * {@link BulkAttributeExtractor}, operations on many attributes are delegated
+ * to it in a single call.
  *
  * @version $Rev$ $Date$
  */
@@ -58,6 +63,14 @@ public class ScopeMap extends ReadOnlyEnumerationMap<Object> {
     /** {@inheritDoc} */
     public void clear() {
         Enumeration<String> keys = context.getKeys();
+        if (context instanceof BulkAttributeExtractor) {
+            List<String> keyList = new ArrayList<String>();
+            while (keys.hasMoreElements()) {
+                keyList.add(keys.nextElement());
+            }
+            ((BulkAttributeExtractor) context).removeValues(keyList);
+            return;
+        }
         while (keys.hasMoreElements()) {
             context.removeValue(keys.nextElement());
         }
@@ -83,6 +96,10 @@ public class ScopeMap extends ReadOnlyEnumerationMap<Object> {
 
     /** {@inheritDoc} */
     public void putAll(Map<? extends String, ? extends Object> map) {
+        if (context instanceof BulkAttributeExtractor) {
+            ((BulkAttributeExtractor) context).setValues(map);
+            return;
+        }
         Iterator<? extends String> keys = map.keySet().iterator();
         while (keys.hasNext()) {
             String key = keys.next();
@@ -158,6 +175,21 @@ public class ScopeMap extends ReadOnlyEnumerationMap<Object> {
         @Override
         public boolean retainAll(Collection<?> c) {
             Collection<Map.Entry<String, Object>> realCollection = (Collection<java.util.Map.Entry<String, Object>>) c;
+            if (context instanceof BulkAttributeExtractor) {
+                BulkAttributeExtractor bulkContext = (BulkAttributeExtractor) context;
+                List<String> keysToRemove = new ArrayList<String>();
+                for (Map.Entry<String, Object> entry : bulkContext.getAllValues().entrySet()) {
+                    if (!realCollection.contains(new MapEntry<String, Object>(entry.getKey(),
+                            entry.getValue(), false))) {
+                        keysToRemove.add(entry.getKey());
+                    }
+                }
+                if (keysToRemove.isEmpty()) {
+                    return false;
+                }
+                bulkContext.removeValues(keysToRemove);
+                return true;
+            }
             boolean retValue = false;
             Set<String> keysToRemove = new LinkedHashSet<String>();
             for (Enumeration<String> keys = context.getKeys(); keys.hasMoreElements();) {
@@ -20,32 +20,64 @@
  */
 package org.apache.tiles.request.render;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
 
 /**
- * Basic renderer factory implementation.
+ * Basic renderer factory implementation. Renderers can be registered,
+ * replaced and removed while requests are served: the renderers are kept in
+ * an immutable snapshot, that is copied and replaced at each change, so that
+ * {@link #getRenderer(String)} needs no lock.
+ * <p>
+ * A renderer that is replaced or removed can be retired gracefully, with
+ * {@link #retireRenderer(String, Renderer, Runnable)}, if it has been
+ * registered wrapped in a {@link TrackedRenderer}.
+ * <p>
+ * The templates can be precompiled before the application takes traffic with
+ * {@link #warmUp(ApplicationContext, Collection)}, by the registered
+ * renderers that are {@link TemplatePrecompiler}s, possibly wrapped in a
+ * {@link TrackedRenderer} or a {@link LazyRenderer}.
  *
  * @version $Rev$ $Date$
  */
-public class BasicRendererFactory implements RendererFactory {
+public class BasicRendererFactory implements WarmableRendererFactory {
 
     /**
-     * The renderer name/renderer map.
+     * The renderer name/renderer map. It is an immutable snapshot, replaced at
+     * each change.
      */
-    protected Map<String, Renderer> renderers;
+    protected volatile Map<String, Renderer> renderers;
 
     /**
      * The default renderer.
      */
-    protected Renderer defaultRenderer;
+    protected volatile Renderer defaultRenderer;
+
+    /**
+     * The lock that serializes the changes to {@link #renderers}.
+     */
+    private final Object registrationLock = new Object();
 
     /**
      * Constructor.
      */
     public BasicRendererFactory() {
-        renderers = new HashMap<String, Renderer>();
+        renderers = Collections.emptyMap();
     }
 
     /** {@inheritDoc} */
@@ -73,12 +105,176 @@ public class BasicRendererFactory implements RendererFactory {
     }
 
     /**
-     * Registers a renderer.
+     * Registers a renderer, replacing the one with the same name, if any.
      *
      * @param name The name of the renderer.
      * @param renderer The renderer to register.
      */
     public void registerRenderer(String name, Renderer renderer) {
-        renderers.put(name, renderer);
+        replaceRenderer(name, renderer);
+    }
+
+    /**
+     * Atomically registers a renderer, replacing the one with the same name.
+     *
+     * @param name The name of the renderer.
+     * @param renderer The renderer to register.
+     * @return The replaced renderer, or <code>null</code> if there was none.
+     */
+    public Renderer replaceRenderer(String name, Renderer renderer) {
+        synchronized (registrationLock) {
+            Map<String, Renderer> newRenderers = new HashMap<String, Renderer>(renderers);
+            Renderer retValue = newRenderers.put(name, renderer);
+            renderers = Collections.unmodifiableMap(newRenderers);
+            return retValue;
+        }
+    }
+
+    /**
+     * Atomically removes a renderer.
+     *
+     * @param name The name of the renderer.
+     * @return The removed renderer, or <code>null</code> if there was none.
+     */
+    public Renderer unregisterRenderer(String name) {
+        synchronized (registrationLock) {
+            if (!renderers.containsKey(name)) {
+                return null;
+            }
+            Map<String, Renderer> newRenderers = new HashMap<String, Renderer>(renderers);
+            Renderer retValue = newRenderers.remove(name);
+            renderers = Collections.unmodifiableMap(newRenderers);
+            return retValue;
+        }
+    }
+
+    /**
+     * Atomically replaces or removes a renderer, and retires the old one.
+     * <p>
+     * If the old renderer is a {@link TrackedRenderer}, the callback is run
+     * when the renders it has in progress have finished, and the renders that
+     * obtained it before the replacement, but start afterwards, are passed to
+     * the new renderer, or rejected if it has been removed.
+     * <p>
+     * Otherwise the renders in progress cannot be known, and the callback is
+     * run immediately, possibly while the old renderer is still rendering: it
+     * must not release what the renders use. Register the renderers wrapped
+     * in a {@link TrackedRenderer} to retire them gracefully.
+     *
+     * @param name The name of the renderer.
+     * @param renderer The new renderer, or <code>null</code> to remove it.
+     * @param onRetired The callback to run when the old renderer is retired,
+     * for instance to release its resources. It may be <code>null</code>.
+     * @return The old renderer, or <code>null</code> if there was none.
+     */
+    public Renderer retireRenderer(String name, Renderer renderer, Runnable onRetired) {
+        Renderer retValue;
+        if (renderer != null) {
+            retValue = replaceRenderer(name, renderer);
+        } else {
+            retValue = unregisterRenderer(name);
+        }
+        if (retValue instanceof TrackedRenderer && retValue != renderer) {
+            ((TrackedRenderer) retValue).retire(onRetired, renderer);
+        } else if (onRetired != null) {
+            onRetired.run();
+        }
+        return retValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each template is compiled on its own virtual thread.
+     */
+    @Override
+    public WarmUpReport warmUp(ApplicationContext applicationContext, Collection<String> paths) {
+        long start = System.nanoTime();
+        Set<String> templates = new LinkedHashSet<String>();
+        for (String path : paths) {
+            for (ApplicationResource resource : applicationContext.getResources(path)) {
+                if (resource != null) {
+                    templates.add(resource.getLocalePath());
+                }
+            }
+        }
+        Map<String, TemplatePrecompiler> precompilers = getPrecompilers();
+        List<Future<WarmUpReport.Entry>> futures = new ArrayList<Future<WarmUpReport.Entry>>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String template : templates) {
+                for (Map.Entry<String, TemplatePrecompiler> entry : precompilers.entrySet()) {
+                    TemplatePrecompiler precompiler = entry.getValue();
+                    if (precompiler.getRenderablePaths().matches(template)) {
+                        futures.add(executor.submit(() -> precompile(entry.getKey(), precompiler,
+                                template)));
+                    }
+                }
+            }
+        }
+        List<WarmUpReport.Entry> entries = new ArrayList<WarmUpReport.Entry>();
+        for (Future<WarmUpReport.Entry> future : futures) {
+            entries.add(future.resultNow());
+        }
+        return new WarmUpReport(entries, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the registered renderers that can precompile templates, each
+     * once, by name.
+     *
+     * @return The precompilers, sorted by name.
+     */
+    private Map<String, TemplatePrecompiler> getPrecompilers() {
+        Map<String, TemplatePrecompiler> retValue = new TreeMap<String, TemplatePrecompiler>();
+        Set<Renderer> seen = Collections.newSetFromMap(new IdentityHashMap<Renderer, Boolean>());
+        for (Map.Entry<String, Renderer> entry : new TreeMap<String, Renderer>(renderers).entrySet()) {
+            Renderer renderer = unwrap(entry.getValue());
+            if (renderer instanceof TemplatePrecompiler && seen.add(renderer)) {
+                retValue.put(entry.getKey(), (TemplatePrecompiler) renderer);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the renderer decorated by a {@link TrackedRenderer} or a
+     * {@link LazyRenderer}, waiting for the latter to be initialized.
+     *
+     * @param renderer The renderer.
+     * @return The decorated renderer, or <code>null</code> if its
+     * initialization has failed.
+     */
+    private static Renderer unwrap(Renderer renderer) {
+        if (renderer instanceof TrackedRenderer) {
+            return unwrap(((TrackedRenderer) renderer).getRenderer());
+        }
+        if (renderer instanceof LazyRenderer) {
+            try {
+                return unwrap(((LazyRenderer) renderer).getRenderer());
+            } catch (CannotRenderException e) {
+                return null;
+            }
+        }
+        return renderer;
+    }
+
+    /**
+     * Precompiles a template, measuring the time it takes.
+     *
+     * @param rendererName The name of the renderer.
+     * @param precompiler The renderer.
+     * @param path The path of the template.
+     * @return The entry of the report.
+     */
+    private static WarmUpReport.Entry precompile(String rendererName, TemplatePrecompiler precompiler,
+            String path) {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            precompiler.precompile(path);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        return new WarmUpReport.Entry(path, rendererName, System.nanoTime() - start, failure);
     }
 }
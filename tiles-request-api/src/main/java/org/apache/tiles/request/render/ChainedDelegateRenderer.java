@@ -21,29 +21,29 @@
 package org.apache.tiles.request.render;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.tiles.request.Request;
 
 /**
  * Renders an attribute that has no associated renderer using delegation to
- * other renderers.
+ * other renderers. The delegate is chosen by a {@link RendererRouter}, so
+ * renderers implementing {@link PathMatchingRenderer} are not asked whether
+ * they can render each path.
  *
  * @version $Rev$ $Date$
  */
 public class ChainedDelegateRenderer implements Renderer {
 
     /**
-     * The list of chained renderers.
+     * The router of the chained renderers.
      */
-    private List<Renderer> renderers;
+    private RendererRouter router;
 
     /**
      * Constructor.
      */
     public ChainedDelegateRenderer() {
-        renderers = new ArrayList<Renderer>();
+        router = new RendererRouter();
     }
 
     /**
@@ -53,7 +53,7 @@ public class ChainedDelegateRenderer implements Renderer {
      * @param renderer The renderer to add.
      */
     public void addAttributeRenderer(Renderer renderer) {
-        renderers.add(renderer);
+        router.addRenderer(renderer);
     }
 
 
@@ -62,12 +62,12 @@ public class ChainedDelegateRenderer implements Renderer {
         if (value == null) {
             throw new NullPointerException("The attribute value is null");
         }
+        RenderDeadline.check(request);
 
-        for (Renderer renderer : renderers) {
-            if (renderer.isRenderable(value, request)) {
-                renderer.render(value, request);
-                return;
-            }
+        Renderer renderer = router.route(value, request);
+        if (renderer != null) {
+            renderer.render(value, request);
+            return;
         }
 
         throw new CannotRenderException("Cannot renderer value '" + value + "'");
@@ -75,11 +75,6 @@ public class ChainedDelegateRenderer implements Renderer {
 
     /** {@inheritDoc} */
     public boolean isRenderable(String value, Request request) {
-        for (Renderer renderer : renderers) {
-            if (renderer.isRenderable(value, request)) {
-                return true;
-            }
-        }
-        return false;
+        return router.route(value, request) != null;
     }
 }
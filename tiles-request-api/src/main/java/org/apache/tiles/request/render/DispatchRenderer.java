@@ -44,7 +44,12 @@ public class DispatchRenderer implements Renderer {
             throw new CannotRenderException("Cannot dispatch outside of a web environment");
         }
 
-        dispatchRequest.dispatch(path);
+        RenderDeadline.check(request);
+        try {
+            dispatchRequest.dispatch(path);
+        } catch (IOException e) {
+            throw RenderDeadline.translate(request, e);
+        }
     }
 
     /** {@inheritDoc} */
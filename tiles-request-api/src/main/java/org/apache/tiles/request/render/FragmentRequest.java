@@ -0,0 +1,288 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.NotAvailableFeatureException;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.attribute.Addable;
+
+/**
+ * A view of a request for rendering a fragment on another thread. The
+ * headers, parameters, locale and scopes of the request are copied when the
+ * view is created, on the thread owning the request, so that the fragment
+ * never touches the request, which is not thread safe. The session scope is
+ * copied too, since reading it goes through the request and through the
+ * pending changes of the request. Only the application scope, which is backed
+ * by the application context and shared by concurrent requests anyway, is
+ * read through. Header names are matched ignoring case. The scopes are
+ * read-only, and the output is written to a buffer.
+ *
+ * @version $Rev$ $Date$
+ */
+class FragmentRequest implements Request {
+
+    /**
+     * The application context.
+     */
+    private final ApplicationContext applicationContext;
+
+    /**
+     * The headers, derived from {@link #headerValues} when first requested.
+     */
+    private Map<String, String> header;
+
+    /**
+     * The header values.
+     */
+    private final Map<String, String[]> headerValues;
+
+    /**
+     * The parameters, derived from {@link #paramValues} when first requested.
+     */
+    private Map<String, String> param;
+
+    /**
+     * The parameter values.
+     */
+    private final Map<String, String[]> paramValues;
+
+    /**
+     * The locale.
+     */
+    private final Locale locale;
+
+    /**
+     * The available scopes.
+     */
+    private final List<String> availableScopes;
+
+    /**
+     * The scopes, by name.
+     */
+    private final Map<String, Map<String, Object>> contexts;
+
+    /**
+     * The buffer the output is written to.
+     */
+    private final StringWriter buffer = new StringWriter();
+
+    /**
+     * The writer on the buffer.
+     */
+    private final PrintWriter writer = new PrintWriter(buffer);
+
+    /**
+     * Constructor. It must be called by the thread owning the request.
+     *
+     * @param request The request.
+     */
+    FragmentRequest(Request request) {
+        applicationContext = request.getApplicationContext();
+        headerValues = Collections.unmodifiableMap(copyInto(request.getHeaderValues(),
+                new TreeMap<String, String[]>(String.CASE_INSENSITIVE_ORDER)));
+        paramValues = copy(request.getParamValues());
+        locale = request.getRequestLocale();
+        availableScopes = Collections.unmodifiableList(new ArrayList<String>(request.getAvailableScopes()));
+        contexts = new HashMap<String, Map<String, Object>>();
+        for (String scope : availableScopes) {
+            Map<String, Object> context = request.getContext(scope);
+            if (APPLICATION_SCOPE.equals(scope)) {
+                contexts.put(scope, Collections.unmodifiableMap(context));
+            } else {
+                contexts.put(scope, copy(context));
+            }
+        }
+    }
+
+    /**
+     * Constructor for another fragment of the same request, sharing the copies
+     * of an existing view but with its own buffer.
+     *
+     * @param view The existing view.
+     */
+    FragmentRequest(FragmentRequest view) {
+        applicationContext = view.applicationContext;
+        headerValues = view.headerValues;
+        paramValues = view.paramValues;
+        locale = view.locale;
+        availableScopes = view.availableScopes;
+        contexts = view.contexts;
+    }
+
+    /**
+     * Returns the output written so far.
+     *
+     * @return The output.
+     */
+    String getContent() {
+        writer.flush();
+        return buffer.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, String> getHeader() {
+        if (header == null) {
+            header = Collections.unmodifiableMap(copyFirstValues(headerValues,
+                    new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER)));
+        }
+        return header;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, String[]> getHeaderValues() {
+        return headerValues;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Addable<String> getResponseHeaders() {
+        throw new NotAvailableFeatureException("Response headers cannot be set by a parallel fragment");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Object> getContext(String scope) {
+        Map<String, Object> context = contexts.get(scope);
+        if (context == null) {
+            throw new IllegalArgumentException(scope + " does not exist. Call getAvailableScopes() first to check.");
+        }
+        return context;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> getAvailableScopes() {
+        return availableScopes;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public OutputStream getOutputStream() {
+        throw new NotAvailableFeatureException("A parallel fragment can only write characters");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Writer getWriter() {
+        return writer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PrintWriter getPrintWriter() {
+        return writer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isResponseCommitted() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, String> getParam() {
+        if (param == null) {
+            param = Collections.unmodifiableMap(copyFirstValues(paramValues,
+                    new HashMap<String, String>()));
+        }
+        return param;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, String[]> getParamValues() {
+        return paramValues;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Locale getRequestLocale() {
+        return locale;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isUserInRole(String role) {
+        throw new NotAvailableFeatureException("Roles cannot be checked by a parallel fragment");
+    }
+
+    /**
+     * Copies a map into a read-only map.
+     *
+     * @param <V> The type of the values.
+     * @param map The map to copy.
+     * @return The copy.
+     */
+    private static <V> Map<String, V> copy(Map<String, V> map) {
+        return Collections.unmodifiableMap(new HashMap<String, V>(map));
+    }
+
+    /**
+     * Copies a map into another map.
+     *
+     * @param <V> The type of the values.
+     * @param map The map to copy.
+     * @param target The map to copy into.
+     * @return The target map.
+     */
+    private static <V> Map<String, V> copyInto(Map<String, V> map, Map<String, V> target) {
+        target.putAll(map);
+        return target;
+    }
+
+    /**
+     * Copies the first of the values of each key of a map into another map.
+     *
+     * @param map The map of the values.
+     * @param target The map to copy into.
+     * @return The target map.
+     */
+    private static Map<String, String> copyFirstValues(Map<String, String[]> map,
+            Map<String, String> target) {
+        for (Map.Entry<String, String[]> entry : map.entrySet()) {
+            String[] values = entry.getValue();
+            target.put(entry.getKey(), values != null && values.length > 0 ? values[0] : null);
+        }
+        return target;
+    }
+}
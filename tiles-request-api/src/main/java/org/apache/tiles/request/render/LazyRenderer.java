@@ -0,0 +1,303 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.tiles.request.Request;
+
+/**
+ * A proxy of a renderer that is created on first need, or in the background
+ * with {@link #start(Executor)}, so that engines that take long to initialize
+ * do not delay the startup of the application.
+ * <p>
+ * The paths the renderer can render are given at registration, so that
+ * {@link #isRenderable(String, Request)} answers without initializing it, and
+ * {@link RendererRouter} indexes the proxy like any
+ * {@link PathMatchingRenderer}. The first render waits for the
+ * initialization to finish; if it has not started yet, it runs it in the
+ * calling thread. Later renders go straight to the renderer. If the
+ * initialization fails, each render throws a {@link CannotRenderException}
+ * with the failure as cause: it is not retried.
+ * <p>
+ * The time spent waiting for a thread and initializing is recorded, see
+ * {@link RendererStartup#getTimeline()}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class LazyRenderer implements PathMatchingRenderer {
+
+    /**
+     * The name of the renderer.
+     */
+    private final String name;
+
+    /**
+     * The paths the renderer can render.
+     */
+    private final RenderablePaths renderablePaths;
+
+    /**
+     * The task that creates the renderer.
+     */
+    private final FutureTask<Renderer> task;
+
+    /**
+     * Whether the initialization has been submitted to an executor.
+     */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * The renderer, once created.
+     */
+    private volatile Renderer renderer;
+
+    /**
+     * The time the initialization was submitted, in nanoseconds.
+     */
+    private volatile long submittedAt;
+
+    /**
+     * The time spent waiting for a thread, in nanoseconds, or -1 if the
+     * initialization has not started.
+     */
+    private volatile long waitNanos = -1L;
+
+    /**
+     * The time spent initializing, in nanoseconds, or -1 if the
+     * initialization has not finished.
+     */
+    private volatile long initializationNanos = -1L;
+
+    /**
+     * The name of the thread that initialized the renderer.
+     */
+    private volatile String initializingThread;
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of the renderer, used in messages and in the
+     * startup timeline.
+     * @param renderablePaths The paths the renderer can render: the renderer,
+     * once created, must be able to render exactly these paths.
+     * @param initializer Creates the renderer, for instance
+     * <code>builder::build</code>.
+     */
+    public LazyRenderer(String name, RenderablePaths renderablePaths,
+            Callable<? extends Renderer> initializer) {
+        this.name = name;
+        this.renderablePaths = renderablePaths;
+        task = new FutureTask<Renderer>(() -> initialize(initializer));
+    }
+
+    /**
+     * Returns the name of the renderer.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts the initialization in the background. Calling it again has no
+     * effect. If the executor rejects the task, the renderer is initialized by
+     * its first caller.
+     *
+     * @param executor The executor that initializes the renderer.
+     * @return This object.
+     */
+    public LazyRenderer start(Executor executor) {
+        if (started.compareAndSet(false, true)) {
+            submittedAt = System.nanoTime();
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The first caller will initialize it.
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Waits for the initialization to finish, successfully or not. It does
+     * not start it.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return <code>true</code> if the initialization has finished.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            task.get(timeout, unit);
+        } catch (ExecutionException e) {
+            // Finished, with a failure.
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the initialization has finished, successfully or not.
+     *
+     * @return <code>true</code> if finished.
+     */
+    public boolean isInitialized() {
+        return task.isDone();
+    }
+
+    /**
+     * Returns the cause of the failure of the initialization.
+     *
+     * @return The cause, or <code>null</code> if the initialization has not
+     * finished or has succeeded.
+     */
+    public Throwable getFailure() {
+        if (!task.isDone()) {
+            return null;
+        }
+        try {
+            task.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the time spent waiting for a thread of the executor.
+     *
+     * @param unit The unit of the result.
+     * @return The time, or -1 if the initialization has not started.
+     */
+    public long getWaitTime(TimeUnit unit) {
+        long nanos = waitNanos;
+        return nanos < 0L ? -1L : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the time spent initializing the renderer.
+     *
+     * @param unit The unit of the result.
+     * @return The time, or -1 if the initialization has not finished.
+     */
+    public long getInitializationTime(TimeUnit unit) {
+        long nanos = initializationNanos;
+        return nanos < 0L ? -1L : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the name of the thread that initialized the renderer.
+     *
+     * @return The name of the thread, or <code>null</code> if the
+     * initialization has not started.
+     */
+    public String getInitializingThread() {
+        return initializingThread;
+    }
+
+    /**
+     * Returns the renderer, waiting for its initialization, or running it if
+     * it has not started.
+     *
+     * @return The renderer.
+     * @throws CannotRenderException If the initialization has failed, or the
+     * thread has been interrupted while waiting.
+     */
+    public Renderer getRenderer() {
+        Renderer retValue = renderer;
+        if (retValue == null) {
+            task.run();
+            try {
+                retValue = task.get();
+            } catch (ExecutionException e) {
+                throw new CannotRenderException("Cannot initialize the renderer '" + name + "'",
+                        e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotRenderException("Interrupted while waiting for the renderer '"
+                        + name + "'", e);
+            }
+            renderer = retValue;
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String path, Request request) throws IOException {
+        getRenderer().render(path, request);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It answers from the renderable paths given at registration, without
+     * initializing the renderer.
+     */
+    @Override
+    public boolean isRenderable(String path, Request request) {
+        return renderablePaths.matches(path);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RenderablePaths getRenderablePaths() {
+        return renderablePaths;
+    }
+
+    /**
+     * Creates the renderer, recording the times.
+     *
+     * @param initializer Creates the renderer.
+     * @return The renderer.
+     * @throws Exception If the renderer cannot be created.
+     */
+    private Renderer initialize(Callable<? extends Renderer> initializer) throws Exception {
+        long start = System.nanoTime();
+        waitNanos = started.get() ? Math.max(start - submittedAt, 0L) : 0L;
+        initializingThread = Thread.currentThread().getName();
+        try {
+            Renderer retValue = initializer.call();
+            if (retValue == null) {
+                throw new CannotRenderException("The initializer of the renderer '" + name
+                        + "' returned null");
+            }
+            return retValue;
+        } finally {
+            initializationNanos = System.nanoTime() - start;
+        }
+    }
+}
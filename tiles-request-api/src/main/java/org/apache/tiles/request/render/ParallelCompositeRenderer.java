@@ -0,0 +1,366 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.tiles.request.FlushUtil;
+import org.apache.tiles.request.Request;
+
+/**
+ * Renders compositions: ordered lists of fragments, each rendered by its own
+ * renderer. The independent fragments of a composition are rendered
+ * concurrently, by default on virtual threads, each into its own buffer, so
+ * that the latencies of slow fragments overlap instead of adding up. The
+ * output is written to the request in document order, as soon as each prefix
+ * of the composition is complete. At most a given number of the fragments of
+ * a render are rendered at a time, in document order, whatever the number of
+ * fragments of the composition.
+ * <p>
+ * Requests are not thread safe, so an independent fragment is rendered with
+ * a view of the request, created on the calling thread, that copies its
+ * headers, parameters, locale and scopes, except the application scope,
+ * which it reads through. The view cannot modify the scopes,
+ * set response headers, check roles or write to the output stream. Fragments
+ * that need the request itself, for instance to dispatch to a JSP page, must
+ * not be declared independent: they are rendered on the calling thread,
+ * directly to the request, when their turn comes.
+ * <p>
+ * A fragment can also be a flush boundary: once it is written, the response
+ * is flushed with {@link FlushUtil#flush(Request)}, for instance after the
+ * <code>&lt;head&gt;</code> of the page, so that the client starts fetching
+ * stylesheets and scripts while the body is still rendering. The later
+ * dispatches of the request then include instead of forwarding.
+ * <p>
+ * The {@link RenderDeadline} of the request is checked before each fragment,
+ * and bounds the wait for the independent ones: once it has passed, or the
+ * client has disconnected, the render stops with a
+ * {@link RenderCancelledException} and the pending fragments are cancelled.
+ *
+ * @version $Rev$ $Date$
+ */
+public class ParallelCompositeRenderer implements Renderer {
+
+    /**
+     * The default maximum number of fragments of a render rendered at a time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_FRAGMENTS = 8;
+
+    /**
+     * The executor of the independent fragments.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The maximum number of fragments of a render rendered at a time.
+     */
+    private final int maxConcurrentFragments;
+
+    /**
+     * The compositions, by path.
+     */
+    private final Map<String, List<Fragment>> compositions = new ConcurrentHashMap<String, List<Fragment>>();
+
+    /**
+     * Constructor, rendering the independent fragments on virtual threads,
+     * {@link #DEFAULT_MAX_CONCURRENT_FRAGMENTS} at a time per render.
+     */
+    public ParallelCompositeRenderer() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Constructor, rendering {@link #DEFAULT_MAX_CONCURRENT_FRAGMENTS}
+     * fragments at a time per render.
+     *
+     * @param executor The executor of the independent fragments.
+     */
+    public ParallelCompositeRenderer(ExecutorService executor) {
+        this(executor, DEFAULT_MAX_CONCURRENT_FRAGMENTS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor The executor of the independent fragments.
+     * @param maxConcurrentFragments The maximum number of fragments of a
+     * render rendered at a time. The others wait for a permit on their own
+     * thread.
+     * @throws IllegalArgumentException If the maximum is less than 1.
+     */
+    public ParallelCompositeRenderer(ExecutorService executor, int maxConcurrentFragments) {
+        if (maxConcurrentFragments < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent fragments must be positive: "
+                    + maxConcurrentFragments);
+        }
+        this.executor = executor;
+        this.maxConcurrentFragments = maxConcurrentFragments;
+    }
+
+    /**
+     * Registers a composition.
+     *
+     * @param path The path of the composition.
+     * @param fragments The fragments, in document order.
+     */
+    public void addComposition(String path, List<Fragment> fragments) {
+        compositions.put(path, Collections.unmodifiableList(new ArrayList<Fragment>(fragments)));
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String path, Request request) throws IOException {
+        if (path == null) {
+            throw new CannotRenderException("Cannot render a null path");
+        }
+        List<Fragment> fragments = compositions.get(path);
+        if (fragments == null) {
+            throw new CannotRenderException("Unknown composition: " + path);
+        }
+        RenderDeadline deadline = RenderDeadline.get(request);
+        if (deadline != null) {
+            deadline.check();
+        }
+        int size = fragments.size();
+        List<Future<String>> futures = new ArrayList<Future<String>>(size);
+        // fair, so that the fragments get their permits in document order
+        Semaphore permits = new Semaphore(maxConcurrentFragments, true);
+        try {
+            FragmentRequest snapshot = null;
+            for (int i = 0; i < size; i++) {
+                Fragment fragment = fragments.get(i);
+                if (fragment.isIndependent()) {
+                    FragmentRequest view;
+                    if (snapshot == null) {
+                        snapshot = new FragmentRequest(request);
+                        view = snapshot;
+                    } else {
+                        view = new FragmentRequest(snapshot);
+                    }
+                    futures.add(executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            fragment.getRenderer().render(fragment.getPath(), view);
+                            return view.getContent();
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } else {
+                    futures.add(null);
+                }
+            }
+            Writer writer = null;
+            for (int i = 0; i < size; i++) {
+                Fragment fragment = fragments.get(i);
+                Future<String> future = futures.get(i);
+                if (future != null) {
+                    String content = await(future, deadline);
+                    if (writer == null) {
+                        writer = request.getWriter();
+                    }
+                    writer.write(content);
+                } else {
+                    if (deadline != null) {
+                        deadline.check();
+                    }
+                    fragment.getRenderer().render(fragment.getPath(), request);
+                }
+                if (fragment.isFlushAfter()) {
+                    FlushUtil.flush(request);
+                }
+            }
+        } catch (IOException e) {
+            throw RenderDeadline.translate(request, e);
+        } finally {
+            for (Future<String> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRenderable(String path, Request request) {
+        return path != null && compositions.containsKey(path);
+    }
+
+    /**
+     * Waits for the output of a fragment.
+     *
+     * @param future The render of the fragment.
+     * @param deadline The deadline of the request, or <code>null</code>.
+     * @return The output.
+     * @throws IOException If the fragment failed with an I/O error, if the
+     * deadline has passed, or if the thread was interrupted.
+     */
+    private static String await(Future<String> future, RenderDeadline deadline) throws IOException {
+        try {
+            if (deadline == null) {
+                return future.get();
+            }
+            deadline.check();
+            return future.get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new RenderCancelledException(RenderCancelledException.Reason.DEADLINE_EXCEEDED,
+                    "The render deadline has passed while waiting for a fragment", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a fragment");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RenderException("Cannot render a fragment", cause);
+        }
+    }
+
+    /**
+     * A fragment of a composition.
+     */
+    public static final class Fragment {
+
+        /**
+         * The renderer.
+         */
+        private final Renderer renderer;
+
+        /**
+         * The path.
+         */
+        private final String path;
+
+        /**
+         * Whether the fragment can be rendered with a view of the request.
+         */
+        private final boolean independent;
+
+        /**
+         * Whether the response is flushed after the fragment.
+         */
+        private final boolean flushAfter;
+
+        /**
+         * Constructor for an independent fragment.
+         *
+         * @param renderer The renderer.
+         * @param path The path.
+         */
+        public Fragment(Renderer renderer, String path) {
+            this(renderer, path, true);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param renderer The renderer.
+         * @param path The path.
+         * @param independent <code>true</code> if the fragment can be
+         * rendered concurrently, with a view of the request.
+         */
+        public Fragment(Renderer renderer, String path, boolean independent) {
+            this(renderer, path, independent, false);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param renderer The renderer.
+         * @param path The path.
+         * @param independent <code>true</code> if the fragment can be
+         * rendered concurrently, with a view of the request.
+         * @param flushAfter <code>true</code> if the response must be flushed
+         * after the fragment.
+         */
+        public Fragment(Renderer renderer, String path, boolean independent, boolean flushAfter) {
+            this.renderer = renderer;
+            this.path = path;
+            this.independent = independent;
+            this.flushAfter = flushAfter;
+        }
+
+        /**
+         * Returns the renderer.
+         *
+         * @return The renderer.
+         */
+        public Renderer getRenderer() {
+            return renderer;
+        }
+
+        /**
+         * Returns the path.
+         *
+         * @return The path.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Checks if the fragment can be rendered concurrently.
+         *
+         * @return <code>true</code> if independent.
+         */
+        public boolean isIndependent() {
+            return independent;
+        }
+
+        /**
+         * Checks if the response is flushed after the fragment.
+         *
+         * @return <code>true</code> if the fragment is a flush boundary.
+         */
+        public boolean isFlushAfter() {
+            return flushAfter;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+/**
+ * A renderer whose capability to render a path depends only on the path, and
+ * is described by {@link RenderablePaths}. It allows {@link RendererRouter} to
+ * choose it without calling {@link #isRenderable(String, org.apache.tiles.request.Request)}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface PathMatchingRenderer extends Renderer {
+
+    /**
+     * Returns the paths that this renderer can render. For any request,
+     * {@link #isRenderable(String, org.apache.tiles.request.Request)} must
+     * return the same as {@link RenderablePaths#matches(String)}. The same
+     * instance must be returned until the renderable paths change; then an
+     * instance created since must be returned, since {@link RendererRouter}
+     * checks the renderable paths again only after an instance has been
+     * created, and rebuilds its index when it gets another one.
+     *
+     * @return The renderable paths.
+     */
+    RenderablePaths getRenderablePaths();
+}
@@ -21,14 +21,18 @@
 package org.apache.tiles.request.render;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.tiles.request.Request;
 
 /**
  * Provides a Publisher-Subscriber implementation around the provided renderer to delegate to.
+ * <p>
+ * Listeners can be added and removed while rendering: each render notifies the
+ * listeners registered when it started, from an immutable snapshot.
+ * <p>
+ * A render whose {@link RenderDeadline} has passed fails with a
+ * {@link RenderCancelledException}, that listeners receive as any I/O error.
  *
  * @version $Rev: 1035784 $ $Date: 2010-11-16 20:24:12 +0000 (Tue, 16 Nov 2010) $
  */
@@ -43,9 +47,11 @@ public class PublisherRenderer implements Renderer {
         void handleIOException(IOException ex, Request request) throws IOException;
     }
 
+    private static final RendererListener[] NO_LISTENERS = new RendererListener[0];
+
     private final Renderer renderer;
-    private final List<RendererListener> listeners = new ArrayList<RendererListener>();
-    private final List<RendererListener> listenersReversed = new ArrayList<RendererListener>();
+    /** The listeners, in registration order. The array is never modified once published. */
+    private volatile RendererListener[] listeners = NO_LISTENERS;
 
     public PublisherRenderer(Renderer renderer){
         this.renderer = renderer;
@@ -56,16 +62,18 @@ public class PublisherRenderer implements Renderer {
         if (path == null) {
             throw new CannotRenderException("Cannot dispatch a null path");
         }
+        RendererListener[] current = listeners;
         try{
-            for(RendererListener listener : listeners){
-                listener.start(path, request);
+            for(int i = 0; i < current.length; i++){
+                current[i].start(path, request);
             }
+            RenderDeadline.check(request);
             renderer.render(path, request);
         }catch(IOException ex){
-            handleIOException(ex, request);
+            handleIOException(current, ex, request);
         }finally{
-            for(RendererListener wrapper : listenersReversed){
-                wrapper.end(path, request);
+            for(int i = current.length - 1; i >= 0; i--){
+                current[i].end(path, request);
             }
         }
     }
@@ -75,19 +83,40 @@ public class PublisherRenderer implements Renderer {
         return renderer.isRenderable(path, request);
     }
 
-    public void addListener(RendererListener listener){
-        listeners.add(listener);
-        listenersReversed.clear();
-        listenersReversed.addAll(listeners);
-        Collections.reverse(listenersReversed);
+    public synchronized void addListener(RendererListener listener){
+        RendererListener[] current = listeners;
+        RendererListener[] newListeners = Arrays.copyOf(current, current.length + 1);
+        newListeners[current.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * Removes a listener. Renders already in progress still notify it.
+     *
+     * @param listener The listener to remove.
+     * @return <code>true</code> if the listener was registered.
+     */
+    public synchronized boolean removeListener(RendererListener listener){
+        RendererListener[] current = listeners;
+        for(int i = current.length - 1; i >= 0; i--){
+            if(current[i] == listener){
+                RendererListener[] newListeners = new RendererListener[current.length - 1];
+                System.arraycopy(current, 0, newListeners, 0, i);
+                System.arraycopy(current, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners.length > 0 ? newListeners : NO_LISTENERS;
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void handleIOException(IOException exception, Request request) throws IOException{
+    private void handleIOException(RendererListener[] current, IOException exception, Request request)
+            throws IOException{
         IOException ex = exception;
-        boolean throwIt = listeners.isEmpty();
-        for(RendererListener listener : listenersReversed){
+        boolean throwIt = current.length == 0;
+        for(int i = current.length - 1; i >= 0; i--){
             try{
-                listener.handleIOException(ex, request);
+                current[i].handleIOException(ex, request);
                 throwIt = false;
             }catch(IOException newEx){
                 ex = newEx;
@@ -0,0 +1,88 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a render is stopped early, because its {@link RenderDeadline}
+ * has passed or because the client has gone away. It is an
+ * {@link IOException}, so that it goes through the usual error handling of
+ * renders, for instance the listeners of {@link PublisherRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderCancelledException extends IOException {
+
+    /**
+     * The reasons to cancel a render.
+     */
+    public enum Reason {
+
+        /**
+         * The deadline of the render has passed.
+         */
+        DEADLINE_EXCEEDED,
+
+        /**
+         * The client has disconnected, or the response has been closed.
+         */
+        CLIENT_ABORTED
+    }
+
+    /**
+     * The reason.
+     */
+    private final Reason reason;
+
+    /**
+     * Constructor.
+     *
+     * @param reason The reason.
+     * @param message The detail message.
+     */
+    public RenderCancelledException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param reason The reason.
+     * @param message The detail message.
+     * @param cause The cause, for instance the I/O error of a disconnected
+     * client.
+     */
+    public RenderCancelledException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the reason.
+     *
+     * @return The reason.
+     */
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.DispatchState;
+import org.apache.tiles.request.Request;
+
+/**
+ * The deadline of the renders of a request. It is carried by the request, as
+ * a request-scope attribute, so that renderers can stop early, between
+ * fragments, when it has passed or when the client has gone away, instead of
+ * rendering a page nobody will receive. Renderers call
+ * {@link #check(Request)} before rendering, and pass the I/O errors of the
+ * response through {@link #translate(Request, IOException)}; both throw a
+ * {@link RenderCancelledException}.
+ * <p>
+ * A request without a deadline is never cancelled, except when an I/O error
+ * shows that the client has disconnected.
+ * <p>
+ * The attribute is read once per request, and then kept in its
+ * {@link DispatchState}, if it has one, so it must be set with
+ * {@link #start(Request, long, TimeUnit)}.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class RenderDeadline {
+
+    /**
+     * The name of the request-scope attribute holding the deadline.
+     */
+    public static final String ATTRIBUTE_NAME = RenderDeadline.class.getName();
+
+    /**
+     * The simple names of the exceptions thrown by containers when the client
+     * has disconnected, or of their superclasses.
+     */
+    private static final String[] CLIENT_ABORT_EXCEPTIONS = {"ClientAbortException", "EofException",
+            "ClosedChannelException", "AsynchronousCloseException"};
+
+    /**
+     * The longest supported timeout, in nanoseconds.
+     */
+    private static final long MAX_TIMEOUT = Long.MAX_VALUE / 2;
+
+    /**
+     * The deadline, in the time of {@link System#nanoTime()}.
+     */
+    private final long deadline;
+
+    /**
+     * Whether the client has gone away.
+     */
+    private volatile boolean aborted = false;
+
+    /**
+     * Constructor.
+     *
+     * @param timeout The time, from now, the renders can take.
+     * @param unit The unit of the timeout.
+     */
+    public RenderDeadline(long timeout, TimeUnit unit) {
+        deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), MAX_TIMEOUT);
+    }
+
+    /**
+     * Sets a deadline on a request.
+     *
+     * @param request The request.
+     * @param timeout The time, from now, the renders can take.
+     * @param unit The unit of the timeout.
+     * @return The deadline.
+     */
+    public static RenderDeadline start(Request request, long timeout, TimeUnit unit) {
+        RenderDeadline retValue = new RenderDeadline(timeout, unit);
+        request.getContext(Request.REQUEST_SCOPE).put(ATTRIBUTE_NAME, retValue);
+        DispatchState state = DispatchState.get(request);
+        if (state != null) {
+            state.setRenderDeadline(retValue);
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the deadline of a request.
+     *
+     * @param request The request.
+     * @return The deadline, or <code>null</code> if none.
+     */
+    public static RenderDeadline get(Request request) {
+        DispatchState state = DispatchState.get(request);
+        if (state == null) {
+            return read(request);
+        }
+        if (!state.isRenderDeadlineResolved()) {
+            state.setRenderDeadline(read(request));
+        }
+        return state.getRenderDeadline();
+    }
+
+    /**
+     * Reads the deadline of a request from its attribute.
+     *
+     * @param request The request.
+     * @return The deadline, or <code>null</code> if none.
+     */
+    private static RenderDeadline read(Request request) {
+        Object value = request.getContext(Request.REQUEST_SCOPE).get(ATTRIBUTE_NAME);
+        return value instanceof RenderDeadline ? (RenderDeadline) value : null;
+    }
+
+    /**
+     * Checks that the renders of a request can go on.
+     *
+     * @param request The request.
+     * @throws RenderCancelledException If the deadline has passed or the
+     * client has gone away.
+     */
+    public static void check(Request request) throws RenderCancelledException {
+        RenderDeadline deadline = get(request);
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+
+    /**
+     * Translates an I/O error of a render: if it shows that the client has
+     * disconnected, the deadline of the request is aborted, so that the other
+     * fragments stop too, and a {@link RenderCancelledException} is returned.
+     *
+     * @param request The request.
+     * @param exception The I/O error.
+     * @return The exception to throw.
+     */
+    public static IOException translate(Request request, IOException exception) {
+        if (exception instanceof RenderCancelledException || !isClientAbort(exception)) {
+            return exception;
+        }
+        RenderDeadline deadline = get(request);
+        if (deadline != null) {
+            deadline.abort();
+        }
+        return new RenderCancelledException(RenderCancelledException.Reason.CLIENT_ABORTED,
+                "The client has disconnected", exception);
+    }
+
+    /**
+     * Checks if an exception, or one of its causes, shows that the client has
+     * disconnected, by its type. The messages of the exceptions are not
+     * matched, since they depend on the platform and the locale.
+     *
+     * @param throwable The exception.
+     * @return <code>true</code> if the client has disconnected.
+     */
+    public static boolean isClientAbort(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (isClientAbortType(current.getClass())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an exception type, or one of its superclasses, is thrown by
+     * containers when the client has disconnected.
+     *
+     * @param type The exception type.
+     * @return <code>true</code> if the type shows that the client has
+     * disconnected.
+     */
+    private static boolean isClientAbortType(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            String name = current.getSimpleName();
+            for (String abortName : CLIENT_ABORT_EXCEPTIONS) {
+                if (abortName.equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time left before the deadline.
+     *
+     * @param unit The unit of the result.
+     * @return The time left, not negative.
+     */
+    public long getRemaining(TimeUnit unit) {
+        return unit.convert(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checks if the deadline has passed.
+     *
+     * @return <code>true</code> if the deadline has passed.
+     */
+    public boolean isExpired() {
+        return deadline - System.nanoTime() <= 0L;
+    }
+
+    /**
+     * Marks the client as gone away, for instance when the asynchronous
+     * context of the request is closed.
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Checks if the client has gone away.
+     *
+     * @return <code>true</code> if aborted.
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Checks that the renders can go on.
+     *
+     * @throws RenderCancelledException If the deadline has passed or the
+     * client has gone away.
+     */
+    public void check() throws RenderCancelledException {
+        if (aborted) {
+            throw new RenderCancelledException(RenderCancelledException.Reason.CLIENT_ABORTED,
+                    "The client has disconnected");
+        }
+        if (isExpired()) {
+            throw new RenderCancelledException(RenderCancelledException.Reason.DEADLINE_EXCEEDED,
+                    "The render deadline has passed");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Describes the paths a {@link PathMatchingRenderer} can render: a path
+ * matches if it is not <code>null</code> and satisfies all the criteria that
+ * are specified among a prefix, a suffix and a pattern.
+ * <p>
+ * Each instance created advances a generation, that {@link RendererRouter}
+ * watches to know when to ask the renderers for their renderable paths again.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class RenderablePaths {
+
+    /**
+     * The number of instances created.
+     */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    /**
+     * Matches all the paths that are not <code>null</code>.
+     */
+    public static final RenderablePaths ALL = new RenderablePaths(null, null, null);
+
+    /**
+     * The prefix, or <code>null</code>.
+     */
+    private final String prefix;
+
+    /**
+     * The suffix, or <code>null</code>.
+     */
+    private final String suffix;
+
+    /**
+     * The pattern, or <code>null</code>.
+     */
+    private final Pattern pattern;
+
+    /**
+     * Constructor.
+     *
+     * @param prefix The prefix the paths must start with, or <code>null</code>.
+     * @param suffix The suffix the paths must end with, or <code>null</code>.
+     * @param pattern The pattern the paths must match entirely, or
+     * <code>null</code>.
+     */
+    public RenderablePaths(String prefix, String suffix, Pattern pattern) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.pattern = pattern;
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Returns the generation of the renderable paths, which changes each time
+     * an instance is created.
+     *
+     * @return The generation.
+     */
+    static long getGeneration() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Returns the prefix the paths must start with.
+     *
+     * @return The prefix, or <code>null</code>.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the suffix the paths must end with.
+     *
+     * @return The suffix, or <code>null</code>.
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Returns the pattern the paths must match entirely.
+     *
+     * @return The pattern, or <code>null</code>.
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Checks if a path matches.
+     *
+     * @param path The path.
+     * @return <code>true</code> if the path matches.
+     */
+    public boolean matches(String path) {
+        return path != null
+                && (prefix == null || path.startsWith(prefix))
+                && (suffix == null || path.endsWith(suffix))
+                && (pattern == null || pattern.matcher(path).matches());
+    }
+}
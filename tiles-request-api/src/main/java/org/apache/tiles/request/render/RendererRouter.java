@@ -0,0 +1,379 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.cache.TinyLfuCache;
+
+/**
+ * Chooses, among an ordered list of renderers, the first one that can render a
+ * path.
+ * <p>
+ * Renderers that implement {@link PathMatchingRenderer} are indexed by the
+ * extension in their suffix. When the first of them that matches a path is
+ * indexed by extension, its position is remembered in a bounded memo, that
+ * evicts the least used paths; other paths, such as the bodies of string
+ * attributes, are not remembered. The other renderers are asked with
+ * {@link Renderer#isRenderable(String, Request)} every time, in order, but
+ * only if they come before the matching path-matching renderer. So is a
+ * path-matching renderer whose class overrides
+ * {@link Renderer#isRenderable(String, Request)} below the class that
+ * implements {@link PathMatchingRenderer#getRenderablePaths()}, since its
+ * renderable paths may not describe it any more.
+ * <p>
+ * The index is built at the first routing after the renderers change, and
+ * rebuilt when a path-matching renderer returns other renderable paths than
+ * the indexed ones. The renderers are asked for their renderable paths again
+ * only after a {@link RenderablePaths} has been created, so routing does not
+ * depend on the number of renderers. This class is thread-safe.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RendererRouter {
+
+    /**
+     * The default maximum number of paths in the memo.
+     */
+    public static final int DEFAULT_MEMO_SIZE = 4096;
+
+    /**
+     * The position of the renderer matching a path no path-matching renderer
+     * matches.
+     */
+    private static final int NO_MATCH = -1;
+
+    /**
+     * The renderers, in order.
+     */
+    private final List<Renderer> renderers = new ArrayList<Renderer>();
+
+    /**
+     * The maximum number of paths in the memo.
+     */
+    private final int memoSize;
+
+    /**
+     * The index, <code>null</code> if it must be built.
+     */
+    private volatile Index index;
+
+    /**
+     * Constructor, with a memo of {@link #DEFAULT_MEMO_SIZE} paths.
+     */
+    public RendererRouter() {
+        this(DEFAULT_MEMO_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoSize The maximum number of paths in the memo. When it is
+     * full, the least used paths are evicted.
+     * @throws IllegalArgumentException If the size is less than 1.
+     */
+    public RendererRouter(int memoSize) {
+        if (memoSize < 1) {
+            throw new IllegalArgumentException("The memo size must be positive: " + memoSize);
+        }
+        this.memoSize = memoSize;
+    }
+
+    /**
+     * Adds a renderer at the end of the list.
+     *
+     * @param renderer The renderer to add.
+     */
+    public synchronized void addRenderer(Renderer renderer) {
+        renderers.add(renderer);
+        index = null;
+    }
+
+    /**
+     * Returns the first renderer that can render a path.
+     *
+     * @param path The path to render.
+     * @param request The request context.
+     * @return The renderer, or <code>null</code> if none can render the path.
+     */
+    public Renderer route(String path, Request request) {
+        Index currentIndex = index;
+        if (currentIndex == null || currentIndex.checkedGeneration != RenderablePaths.getGeneration()) {
+            currentIndex = refreshIndex();
+        }
+        return currentIndex.route(path, request);
+    }
+
+    /**
+     * Builds the index, if it has not been built in the meantime, or rebuilds
+     * it if the renderable paths of a renderer have changed.
+     *
+     * @return The index.
+     */
+    private synchronized Index refreshIndex() {
+        // read before checking, so that paths created while checking are checked again
+        long generation = RenderablePaths.getGeneration();
+        if (index == null || index.isStale()) {
+            index = new Index(renderers.toArray(new Renderer[renderers.size()]), memoSize);
+        }
+        index.checkedGeneration = generation;
+        return index;
+    }
+
+    /**
+     * Returns the extension of a path, i.e. the part starting at the last dot
+     * after the last slash.
+     *
+     * @param path The path.
+     * @return The extension, or <code>null</code> if there is none.
+     */
+    private static String getExtension(String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || path.indexOf('/', dot) >= 0) {
+            return null;
+        }
+        return path.substring(dot);
+    }
+
+    /**
+     * Checks if a renderer can be chosen by its renderable paths, i.e. if it
+     * is path-matching and its class does not override
+     * {@link Renderer#isRenderable(String, Request)} below the class that
+     * implements {@link PathMatchingRenderer#getRenderablePaths()}.
+     *
+     * @param renderer The renderer.
+     * @return <code>true</code> if the renderer can be indexed.
+     */
+    private static boolean isIndexable(Renderer renderer) {
+        if (!(renderer instanceof PathMatchingRenderer)) {
+            return false;
+        }
+        Class<?> clazz = renderer.getClass();
+        try {
+            Class<?> matchingClass = clazz.getMethod("isRenderable", String.class,
+                    Request.class).getDeclaringClass();
+            Class<?> describingClass = clazz.getMethod("getRenderablePaths").getDeclaringClass();
+            return matchingClass.isAssignableFrom(describingClass);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * An immutable index of the renderers, with its memo.
+     */
+    private static final class Index {
+
+        /**
+         * The renderers, in order.
+         */
+        private final Renderer[] renderers;
+
+        /**
+         * The positions of the renderers that are not indexable.
+         */
+        private final int[] probed;
+
+        /**
+         * Maps an extension to the positions of the path-matching renderers
+         * whose suffix is that extension.
+         */
+        private final Map<String, int[]> byExtension;
+
+        /**
+         * The positions of the path-matching renderers that are not indexed
+         * by extension.
+         */
+        private final int[] unindexed;
+
+        /**
+         * The renderable paths, parallel to {@link #renderers}, <code>null</code>
+         * for renderers that are not indexable.
+         */
+        private final RenderablePaths[] renderablePaths;
+
+        /**
+         * Whether the renderers at each position are indexed by extension.
+         */
+        private final boolean[] extensionIndexed;
+
+        /**
+         * Maps a path to the position of the first path-matching renderer
+         * that can render it, if that renderer is indexed by extension.
+         */
+        private final TinyLfuCache<String, Integer> memo;
+
+        /**
+         * The generation of {@link RenderablePaths} up to which this index is
+         * known not to be stale.
+         */
+        private volatile long checkedGeneration = -1L;
+
+        /**
+         * Constructor.
+         *
+         * @param renderers The renderers, in order.
+         * @param memoSize The maximum number of paths in the memo.
+         */
+        private Index(Renderer[] renderers, int memoSize) {
+            this.renderers = renderers;
+            memo = new TinyLfuCache<String, Integer>(memoSize);
+            renderablePaths = new RenderablePaths[renderers.length];
+            extensionIndexed = new boolean[renderers.length];
+            List<Integer> probedList = new ArrayList<Integer>();
+            List<Integer> unindexedList = new ArrayList<Integer>();
+            Map<String, List<Integer>> extensionLists = new HashMap<String, List<Integer>>();
+            for (int i = 0; i < renderers.length; i++) {
+                if (isIndexable(renderers[i])) {
+                    RenderablePaths paths = ((PathMatchingRenderer) renderers[i]).getRenderablePaths();
+                    renderablePaths[i] = paths;
+                    String suffix = paths.getSuffix();
+                    if (suffix != null && suffix.equals(getExtension(suffix))) {
+                        List<Integer> positions = extensionLists.get(suffix);
+                        if (positions == null) {
+                            positions = new ArrayList<Integer>();
+                            extensionLists.put(suffix, positions);
+                        }
+                        positions.add(i);
+                        extensionIndexed[i] = true;
+                    } else {
+                        unindexedList.add(i);
+                    }
+                } else {
+                    probedList.add(i);
+                }
+            }
+            probed = toArray(probedList);
+            unindexed = toArray(unindexedList);
+            byExtension = new HashMap<String, int[]>();
+            for (Map.Entry<String, List<Integer>> entry : extensionLists.entrySet()) {
+                byExtension.put(entry.getKey(), toArray(entry.getValue()));
+            }
+        }
+
+        /**
+         * Checks if a path-matching renderer returns other renderable paths
+         * than the indexed ones.
+         *
+         * @return <code>true</code> if the index must be rebuilt.
+         */
+        private boolean isStale() {
+            for (int i = 0; i < renderers.length; i++) {
+                if (renderablePaths[i] != null
+                        && ((PathMatchingRenderer) renderers[i]).getRenderablePaths() != renderablePaths[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the first renderer that can render a path.
+         *
+         * @param path The path to render.
+         * @param request The request context.
+         * @return The renderer, or <code>null</code> if none can render the path.
+         */
+        private Renderer route(String path, Request request) {
+            int matching = NO_MATCH;
+            if (path != null) {
+                Integer memoized = memo.get(path);
+                if (memoized != null) {
+                    matching = memoized;
+                } else {
+                    matching = findMatching(path);
+                    if (matching >= 0 && extensionIndexed[matching]) {
+                        memo.put(path, matching);
+                    }
+                }
+            }
+            int limit = matching >= 0 ? matching : renderers.length;
+            for (int position : probed) {
+                if (position >= limit) {
+                    break;
+                }
+                if (renderers[position].isRenderable(path, request)) {
+                    return renderers[position];
+                }
+            }
+            return matching >= 0 ? renderers[matching] : null;
+        }
+
+        /**
+         * Finds the first path-matching renderer that can render a path.
+         *
+         * @param path The path.
+         * @return The position of the renderer, or {@link #NO_MATCH}.
+         */
+        private int findMatching(String path) {
+            int retValue = Integer.MAX_VALUE;
+            String extension = getExtension(path);
+            if (extension != null) {
+                int[] positions = byExtension.get(extension);
+                if (positions != null) {
+                    retValue = findMatching(path, positions, retValue);
+                }
+            }
+            retValue = findMatching(path, unindexed, retValue);
+            return retValue < Integer.MAX_VALUE ? retValue : NO_MATCH;
+        }
+
+        /**
+         * Finds the first renderer that can render a path among some
+         * path-matching renderers.
+         *
+         * @param path The path.
+         * @param positions The positions of the renderers, in ascending order.
+         * @param limit The position of a renderer already known to match.
+         * @return The position of the first renderer that matches, or
+         * <code>limit</code> if none comes before it.
+         */
+        private int findMatching(String path, int[] positions, int limit) {
+            for (int position : positions) {
+                if (position >= limit) {
+                    break;
+                }
+                if (renderablePaths[position].matches(path)) {
+                    return position;
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * Converts a list of integers to an array.
+         *
+         * @param list The list.
+         * @return The array.
+         */
+        private static int[] toArray(List<Integer> list) {
+            int[] retValue = new int[list.size()];
+            for (int i = 0; i < retValue.length; i++) {
+                retValue[i] = list.get(i);
+            }
+            return retValue;
+        }
+    }
+}
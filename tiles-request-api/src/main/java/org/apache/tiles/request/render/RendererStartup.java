@@ -0,0 +1,157 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Initializes renderers in parallel, in the background, while they are
+ * registered as {@link LazyRenderer}s, so that the application can start
+ * serving requests before all the template engines are ready. For instance:
+ * <pre>
+ * RendererStartup startup = new RendererStartup();
+ * startup.register(factory, "freemarker", new RenderablePaths("/", ".ftl", null),
+ *         freemarkerBuilder::build);
+ * startup.register(factory, "mustache", RenderablePaths.ALL, MustacheRenderer::new);
+ * </pre>
+ * {@link #awaitInitialization(long, TimeUnit)} can be used as a readiness
+ * check, and {@link #getTimeline()} reports what each renderer cost.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RendererStartup {
+
+    /**
+     * The executor of the initializations.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The registered renderers, in registration order.
+     */
+    private final List<LazyRenderer> renderers = new CopyOnWriteArrayList<LazyRenderer>();
+
+    /**
+     * Constructor, initializing on daemon threads, one per processor.
+     */
+    public RendererStartup() {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                Thread.ofPlatform().name("tiles-renderer-init-", 0).daemon().factory()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor The executor of the initializations.
+     */
+    public RendererStartup(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a renderer that is initialized in the background.
+     *
+     * @param factory The factory to register the renderer into.
+     * @param name The name of the renderer.
+     * @param renderablePaths The paths the renderer can render.
+     * @param initializer Creates the renderer.
+     * @return The registered proxy.
+     * @see LazyRenderer#LazyRenderer(String, RenderablePaths, Callable)
+     */
+    public LazyRenderer register(BasicRendererFactory factory, String name,
+            RenderablePaths renderablePaths, Callable<? extends Renderer> initializer) {
+        LazyRenderer retValue = new LazyRenderer(name, renderablePaths, initializer);
+        renderers.add(retValue);
+        factory.registerRenderer(name, retValue);
+        return retValue.start(executor);
+    }
+
+    /**
+     * Waits for all the registered renderers to be initialized, successfully
+     * or not.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return <code>true</code> if all are initialized.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public boolean awaitInitialization(long timeout, TimeUnit unit) throws InterruptedException {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        for (LazyRenderer renderer : renderers) {
+            if (!renderer.await(end - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the registered renderers.
+     *
+     * @return The renderers, in registration order.
+     */
+    public List<LazyRenderer> getRenderers() {
+        return Collections.unmodifiableList(new ArrayList<LazyRenderer>(renderers));
+    }
+
+    /**
+     * Returns the startup timeline: for each renderer, in registration order,
+     * the time waited for a thread, the initialization time and the thread
+     * that ran it, one renderer per line.
+     *
+     * @return The timeline.
+     */
+    public String getTimeline() {
+        StringBuilder builder = new StringBuilder();
+        for (LazyRenderer renderer : renderers) {
+            builder.append(renderer.getName()).append(": ");
+            long initializationTime = renderer.getInitializationTime(TimeUnit.MILLISECONDS);
+            if (initializationTime < 0L) {
+                builder.append(renderer.getWaitTime(TimeUnit.MILLISECONDS) < 0L ? "pending"
+                        : "initializing");
+            } else {
+                builder.append("waited ").append(renderer.getWaitTime(TimeUnit.MILLISECONDS))
+                        .append(" ms, initialized in ").append(initializationTime)
+                        .append(" ms on ").append(renderer.getInitializingThread());
+                Throwable failure = renderer.getFailure();
+                if (failure != null) {
+                    builder.append(", failed: ").append(failure);
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Shuts the executor down, once the pending initializations have run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
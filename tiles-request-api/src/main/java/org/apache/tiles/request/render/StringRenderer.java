@@ -29,7 +29,7 @@ import org.apache.tiles.request.Request;
  *
  * @version $Rev$ $Date$
  */
-public class StringRenderer implements Renderer {
+public class StringRenderer implements PathMatchingRenderer {
 
     /** {@inheritDoc} */
     @Override
@@ -44,4 +44,10 @@ public class StringRenderer implements Renderer {
     public boolean isRenderable(String value, Request request) {
         return value != null;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public RenderablePaths getRenderablePaths() {
+        return RenderablePaths.ALL;
+    }
 }
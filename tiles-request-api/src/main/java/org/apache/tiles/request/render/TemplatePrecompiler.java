@@ -0,0 +1,42 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+
+/**
+ * A renderer that can parse and cache a template before it is first
+ * rendered, so that the first request does not pay for it. It is used by
+ * {@link WarmableRendererFactory#warmUp(org.apache.tiles.request.ApplicationContext, java.util.Collection)}
+ * for the paths described by {@link #getRenderablePaths()}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface TemplatePrecompiler extends PathMatchingRenderer {
+
+    /**
+     * Parses a template and puts it in the cache of the engine.
+     *
+     * @param path The path of the template.
+     * @throws IOException If the template cannot be read or parsed.
+     */
+    void precompile(String path) throws IOException;
+}
@@ -0,0 +1,197 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.tiles.request.Request;
+
+/**
+ * Decorates a renderer, counting the renders in progress, so that it can be
+ * retired gracefully: {@link #retire(Runnable, Renderer)} runs a callback once
+ * no render is in progress anymore. It is used by
+ * {@link BasicRendererFactory#retireRenderer(String, Renderer, Runnable)}.
+ * <p>
+ * The count of the renders and the retired flag are a single atomic state, so
+ * that a render either starts before the retirement, and is waited for, or
+ * after it, and is passed to the successor, if any, or rejected with a
+ * {@link CannotRenderException}. A render that has obtained this renderer
+ * before it was replaced never runs on a released renderer.
+ *
+ * @version $Rev$ $Date$
+ */
+public class TrackedRenderer implements Renderer {
+
+    /**
+     * The bit of {@link #state} that is set when retired.
+     */
+    private static final int RETIRED = 1;
+
+    /**
+     * The increment of {@link #state} for a render in progress.
+     */
+    private static final int ONE_RENDER = 2;
+
+    /**
+     * The decorated renderer.
+     */
+    private final Renderer renderer;
+
+    /**
+     * The number of renders in progress, shifted left by one, and the
+     * {@link #RETIRED} bit.
+     */
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * The callback to run when retired, until it is run.
+     */
+    private final AtomicReference<Runnable> onRetired = new AtomicReference<Runnable>();
+
+    /**
+     * The renderer that renders in place of this one once retired, if any.
+     */
+    private volatile Renderer successor;
+
+    /**
+     * Constructor.
+     *
+     * @param renderer The renderer to decorate.
+     */
+    public TrackedRenderer(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Returns the decorated renderer.
+     *
+     * @return The decorated renderer.
+     */
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Once retired, the successor renders instead.
+     *
+     * @throws CannotRenderException If retired without a successor.
+     */
+    @Override
+    public void render(String path, Request request) throws IOException {
+        int current;
+        do {
+            current = state.get();
+            if ((current & RETIRED) != 0) {
+                renderBySuccessor(path, request);
+                return;
+            }
+        } while (!state.compareAndSet(current, current + ONE_RENDER));
+        try {
+            renderer.render(path, request);
+        } finally {
+            if (state.addAndGet(-ONE_RENDER) == RETIRED) {
+                runOnRetired();
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRenderable(String path, Request request) {
+        return renderer.isRenderable(path, request);
+    }
+
+    /**
+     * Returns the number of renders in progress.
+     *
+     * @return The number of renders in progress.
+     */
+    public int getRendersInProgress() {
+        return state.get() >>> 1;
+    }
+
+    /**
+     * Checks if this renderer has been retired.
+     *
+     * @return <code>true</code> if retired.
+     */
+    public boolean isRetired() {
+        return (state.get() & RETIRED) != 0;
+    }
+
+    /**
+     * Retires this renderer, without successor: the renders that start
+     * afterwards are rejected.
+     *
+     * @param callback The callback, possibly <code>null</code>.
+     * @see #retire(Runnable, Renderer)
+     */
+    public void retire(Runnable callback) {
+        retire(callback, null);
+    }
+
+    /**
+     * Retires this renderer. The callback is run once, when no render is in
+     * progress: immediately, or by the thread finishing the last render. The
+     * renders that start afterwards are passed to the successor.
+     *
+     * @param callback The callback, possibly <code>null</code>.
+     * @param successor The renderer that renders in place of this one, or
+     * <code>null</code> to reject the renders.
+     */
+    public void retire(Runnable callback, Renderer successor) {
+        this.successor = successor;
+        onRetired.set(callback);
+        if (state.getAndUpdate(current -> current | RETIRED) < ONE_RENDER) {
+            runOnRetired();
+        }
+    }
+
+    /**
+     * Renders a path with the successor of this retired renderer.
+     *
+     * @param path The path to render.
+     * @param request The request context.
+     * @throws IOException If something goes wrong during rendition.
+     */
+    private void renderBySuccessor(String path, Request request) throws IOException {
+        Renderer next = successor;
+        if (next == null) {
+            throw new CannotRenderException("The renderer has been retired, cannot render '"
+                    + path + "'");
+        }
+        next.render(path, request);
+    }
+
+    /**
+     * Runs the callback, if it has not been run yet.
+     */
+    private void runOnRetired() {
+        Runnable callback = onRetired.getAndSet(null);
+        if (callback != null) {
+            callback.run();
+        }
+    }
+}
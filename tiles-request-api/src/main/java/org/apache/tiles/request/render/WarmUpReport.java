@@ -0,0 +1,191 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a warm-up of templates, see {@link WarmableRendererFactory}:
+ * the compile time of each template, and its failure, if any.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class WarmUpReport {
+
+    /**
+     * The entries, in the order of the paths.
+     */
+    private final List<Entry> entries;
+
+    /**
+     * The time the whole warm-up took, in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param entries The entries.
+     * @param elapsedNanos The time the whole warm-up took, in nanoseconds.
+     */
+    public WarmUpReport(List<Entry> entries, long elapsedNanos) {
+        this.entries = Collections.unmodifiableList(new ArrayList<Entry>(entries));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the entries, one for each template and renderer.
+     *
+     * @return The entries.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the entries of the templates that failed to compile.
+     *
+     * @return The failed entries.
+     */
+    public List<Entry> getFailures() {
+        List<Entry> retValue = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (entry.getFailure() != null) {
+                retValue.add(entry);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the time the whole warm-up took.
+     *
+     * @param unit The unit of the result.
+     * @return The time.
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(entries.size()).append(" templates warmed up in ")
+                .append(getElapsedTime(TimeUnit.MILLISECONDS)).append(" ms, ")
+                .append(getFailures().size()).append(" failed\n");
+        for (Entry entry : entries) {
+            builder.append(entry).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The compilation of a template by a renderer.
+     */
+    public static final class Entry {
+
+        /**
+         * The path of the template.
+         */
+        private final String path;
+
+        /**
+         * The name of the renderer.
+         */
+        private final String rendererName;
+
+        /**
+         * The compile time, in nanoseconds.
+         */
+        private final long compileNanos;
+
+        /**
+         * The failure, or <code>null</code>.
+         */
+        private final Throwable failure;
+
+        /**
+         * Constructor.
+         *
+         * @param path The path of the template.
+         * @param rendererName The name of the renderer.
+         * @param compileNanos The compile time, in nanoseconds.
+         * @param failure The failure, or <code>null</code> if the template
+         * has been compiled.
+         */
+        public Entry(String path, String rendererName, long compileNanos, Throwable failure) {
+            this.path = path;
+            this.rendererName = rendererName;
+            this.compileNanos = compileNanos;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns the path of the template.
+         *
+         * @return The path.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the name of the renderer.
+         *
+         * @return The name of the renderer.
+         */
+        public String getRendererName() {
+            return rendererName;
+        }
+
+        /**
+         * Returns the compile time.
+         *
+         * @param unit The unit of the result.
+         * @return The time.
+         */
+        public long getCompileTime(TimeUnit unit) {
+            return unit.convert(compileNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the failure.
+         *
+         * @return The failure, or <code>null</code> if the template has been
+         * compiled.
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return path + " (" + rendererName + "): "
+                    + (failure != null ? "failed: " + failure
+                            : getCompileTime(TimeUnit.MICROSECONDS) + " us");
+        }
+    }
+}
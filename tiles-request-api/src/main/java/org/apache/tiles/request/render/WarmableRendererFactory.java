@@ -0,0 +1,47 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import java.util.Collection;
+
+import org.apache.tiles.request.ApplicationContext;
+
+/**
+ * A renderer factory whose renderers can precompile their templates before
+ * the application takes traffic.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface WarmableRendererFactory extends RendererFactory {
+
+    /**
+     * Precompiles, in parallel, the templates matching some paths with the
+     * renderers that are {@link TemplatePrecompiler}s and can render them.
+     * It returns when all the templates have been processed.
+     *
+     * @param applicationContext The application context, resolving the paths
+     * through {@link ApplicationContext#getResources(String)}.
+     * @param paths The paths of the templates, or the patterns that the
+     * application context supports.
+     * @return The report of the compilation of each template.
+     */
+    WarmUpReport warmUp(ApplicationContext applicationContext, Collection<String> paths);
+}
@@ -0,0 +1,531 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.apache.tiles.request.DefaultRequestWrapper;
+import org.apache.tiles.request.DispatchRequest;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.RequestWrapper;
+import org.apache.tiles.request.render.Renderer;
+
+/**
+ * Decorates a renderer, caching the output it renders. The output is cached
+ * for a path and for the request inputs that are declared to change it: the
+ * locale, headers, parameters and scope attributes. Fragments that do not
+ * depend on the request, such as headers, footers and menus, are then
+ * rendered once and copied afterwards.
+ * <p>
+ * The output is captured through the writers of the request passed to the
+ * decorated renderer, so it must write through {@link Request#getWriter()} or
+ * {@link Request#getPrintWriter()}. Output written to
+ * {@link Request#getOutputStream()} is not captured, and the render is not
+ * cached then. Neither is a render that dispatches or includes through
+ * {@link DispatchRequest}, such as with a
+ * {@link org.apache.tiles.request.render.DispatchRenderer}, since the
+ * container writes the output: what has been captured before is written
+ * first, to keep the order. Response headers set by the render are not
+ * replayed either.
+ * <p>
+ * The cache is bounded with W-TinyLFU eviction. An entry is fresh for the time
+ * to live, then stale for the stale-while-revalidate window: a request that
+ * finds it stale renders it again, while the other requests keep getting the
+ * stale output instead of waiting. Failed renders are not cached.
+ * <p>
+ * The inputs must be declared before rendering, and the attribute values
+ * used as inputs should be immutable and implement <code>equals</code>.
+ *
+ * @version $Rev$ $Date$
+ */
+public class CachingRenderer implements Renderer {
+
+    /**
+     * No names.
+     */
+    private static final String[] NO_NAMES = new String[0];
+
+    /**
+     * The decorated renderer.
+     */
+    private final Renderer renderer;
+
+    /**
+     * The rendered fragments.
+     */
+    private final TinyLfuCache<FragmentKey, CachedFragment> cache;
+
+    /**
+     * The time to live, in nanoseconds.
+     */
+    private final long timeToLive;
+
+    /**
+     * The stale-while-revalidate window, in nanoseconds.
+     */
+    private final long staleWhileRevalidate;
+
+    /**
+     * Returns the current time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * Whether the locale is an input.
+     */
+    private boolean varyByLocale = false;
+
+    /**
+     * The headers that are inputs.
+     */
+    private String[] headers = NO_NAMES;
+
+    /**
+     * The parameters that are inputs.
+     */
+    private String[] params = NO_NAMES;
+
+    /**
+     * The scopes of the attributes that are inputs.
+     */
+    private String[] attributeScopes = NO_NAMES;
+
+    /**
+     * The names of the attributes that are inputs.
+     */
+    private String[] attributeNames = NO_NAMES;
+
+    /**
+     * Constructor.
+     *
+     * @param renderer The renderer to decorate.
+     * @param maximumSize The maximum number of cached fragments.
+     * @param timeToLive The time a fragment is fresh.
+     * @param staleWhileRevalidate The time a fragment can be served stale
+     * while it is rendered again, after the time to live.
+     * @param unit The unit of the times.
+     */
+    public CachingRenderer(Renderer renderer, int maximumSize, long timeToLive,
+            long staleWhileRevalidate, TimeUnit unit) {
+        this(renderer, maximumSize, timeToLive, staleWhileRevalidate, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param renderer The renderer to decorate.
+     * @param maximumSize The maximum number of cached fragments.
+     * @param timeToLive The time a fragment is fresh.
+     * @param staleWhileRevalidate The time a fragment can be served stale
+     * while it is rendered again, after the time to live.
+     * @param unit The unit of the times.
+     * @param ticker Returns the current time, in nanoseconds.
+     */
+    CachingRenderer(Renderer renderer, int maximumSize, long timeToLive,
+            long staleWhileRevalidate, TimeUnit unit, LongSupplier ticker) {
+        this.renderer = renderer;
+        this.cache = new TinyLfuCache<FragmentKey, CachedFragment>(maximumSize);
+        this.timeToLive = unit.toNanos(timeToLive);
+        this.staleWhileRevalidate = unit.toNanos(staleWhileRevalidate);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Sets whether the output depends on {@link Request#getRequestLocale()}.
+     *
+     * @param varyByLocale <code>true</code> if the locale is an input.
+     */
+    public void setVaryByLocale(boolean varyByLocale) {
+        this.varyByLocale = varyByLocale;
+    }
+
+    /**
+     * Sets the request headers the output depends on.
+     *
+     * @param names The names of the headers.
+     */
+    public void setVaryByHeaders(String... names) {
+        this.headers = names.clone();
+    }
+
+    /**
+     * Sets the request parameters the output depends on.
+     *
+     * @param names The names of the parameters.
+     */
+    public void setVaryByParams(String... names) {
+        this.params = names.clone();
+    }
+
+    /**
+     * Adds attributes of a scope the output depends on.
+     *
+     * @param scope The scope, as in {@link Request#getContext(String)}.
+     * @param names The names of the attributes.
+     */
+    public void addVaryByAttributes(String scope, String... names) {
+        int length = attributeNames.length;
+        String[] newScopes = Arrays.copyOf(attributeScopes, length + names.length);
+        String[] newNames = Arrays.copyOf(attributeNames, length + names.length);
+        for (int i = 0; i < names.length; i++) {
+            newScopes[length + i] = scope;
+            newNames[length + i] = names[i];
+        }
+        attributeScopes = newScopes;
+        attributeNames = newNames;
+    }
+
+    /**
+     * Removes all the cached fragments.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void render(String path, Request request) throws IOException {
+        FragmentKey key = createKey(path, request);
+        CachedFragment fragment = cache.get(key);
+        // the fragment whose revalidation this request has started, if any
+        CachedFragment revalidated = null;
+        if (fragment != null) {
+            long age = ticker.getAsLong() - fragment.renderedAt;
+            if (age < timeToLive) {
+                request.getWriter().write(fragment.content);
+                return;
+            }
+            if (age - timeToLive < staleWhileRevalidate) {
+                if (!fragment.startRevalidation()) {
+                    request.getWriter().write(fragment.content);
+                    return;
+                }
+                revalidated = fragment;
+            }
+        }
+        CapturingRequest capturingRequest = createCapturingRequest(request);
+        try {
+            renderer.render(path, capturingRequest);
+        } catch (IOException | RuntimeException e) {
+            if (revalidated != null) {
+                revalidated.endRevalidation();
+            }
+            throw e;
+        }
+        String content = capturingRequest.getContent();
+        if (capturingRequest.isBypassed()) {
+            if (revalidated != null) {
+                revalidated.endRevalidation();
+            }
+        } else {
+            cache.put(key, new CachedFragment(content, ticker.getAsLong()));
+        }
+        if (!content.isEmpty()) {
+            request.getWriter().write(content);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRenderable(String path, Request request) {
+        return renderer.isRenderable(path, request);
+    }
+
+    /**
+     * Creates the request that captures the output of a render, that can
+     * dispatch if the request can.
+     *
+     * @param request The request.
+     * @return The capturing request.
+     */
+    private static CapturingRequest createCapturingRequest(Request request) {
+        Request current = request;
+        while (!(current instanceof DispatchRequest) && current instanceof RequestWrapper) {
+            current = ((RequestWrapper) current).getWrappedRequest();
+        }
+        if (current instanceof DispatchRequest) {
+            return new CapturingDispatchRequest(request, (DispatchRequest) current);
+        }
+        return new CapturingRequest(request);
+    }
+
+    /**
+     * Creates the key of a render from the declared inputs.
+     *
+     * @param path The path to render.
+     * @param request The request.
+     * @return The key.
+     */
+    private FragmentKey createKey(String path, Request request) {
+        Object[] parts = new Object[1 + (varyByLocale ? 1 : 0) + headers.length + params.length
+                + attributeNames.length];
+        int i = 0;
+        parts[i++] = path;
+        if (varyByLocale) {
+            parts[i++] = request.getRequestLocale();
+        }
+        if (headers.length > 0) {
+            Map<String, String> header = request.getHeader();
+            for (String name : headers) {
+                parts[i++] = header.get(name);
+            }
+        }
+        if (params.length > 0) {
+            Map<String, String> param = request.getParam();
+            for (String name : params) {
+                parts[i++] = param.get(name);
+            }
+        }
+        for (int j = 0; j < attributeNames.length; j++) {
+            parts[i++] = request.getContext(attributeScopes[j]).get(attributeNames[j]);
+        }
+        return new FragmentKey(parts);
+    }
+
+    /**
+     * The key of a cached fragment: the path and the values of the inputs.
+     */
+    private static final class FragmentKey {
+
+        /**
+         * The path and the values of the inputs.
+         */
+        private final Object[] parts;
+
+        /**
+         * The hash code.
+         */
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param parts The path and the values of the inputs.
+         */
+        private FragmentKey(Object[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof FragmentKey && hash == ((FragmentKey) obj).hash
+                    && Arrays.equals(parts, ((FragmentKey) obj).parts);
+        }
+    }
+
+    /**
+     * A rendered fragment.
+     */
+    private static final class CachedFragment {
+
+        /**
+         * The output.
+         */
+        private final String content;
+
+        /**
+         * When the output was rendered, in nanoseconds.
+         */
+        private final long renderedAt;
+
+        /**
+         * Whether a request is rendering this fragment again.
+         */
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        /**
+         * Constructor.
+         *
+         * @param content The output.
+         * @param renderedAt When the output was rendered, in nanoseconds.
+         */
+        private CachedFragment(String content, long renderedAt) {
+            this.content = content;
+            this.renderedAt = renderedAt;
+        }
+
+        /**
+         * Marks this fragment as being rendered again.
+         *
+         * @return <code>true</code> if it was not already.
+         */
+        private boolean startRevalidation() {
+            return revalidating.compareAndSet(false, true);
+        }
+
+        /**
+         * Marks this fragment as not being rendered again anymore.
+         */
+        private void endRevalidation() {
+            revalidating.set(false);
+        }
+    }
+
+    /**
+     * Captures what is written to the writers of a request.
+     */
+    private static class CapturingRequest extends DefaultRequestWrapper {
+
+        /**
+         * The captured output.
+         */
+        private final StringWriter buffer = new StringWriter();
+
+        /**
+         * The writer on the captured output.
+         */
+        private final PrintWriter writer = new PrintWriter(buffer);
+
+        /**
+         * Whether some output has bypassed the capture.
+         */
+        private boolean bypassed = false;
+
+        /**
+         * Constructor.
+         *
+         * @param request The request to wrap.
+         */
+        private CapturingRequest(Request request) {
+            super(request);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Writer getWriter() {
+            return writer;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public PrintWriter getPrintWriter() {
+            return writer;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            bypass();
+            return super.getOutputStream();
+        }
+
+        /**
+         * Checks if some output has bypassed the capture, through the output
+         * stream or a dispatch.
+         *
+         * @return <code>true</code> if the captured output is not the whole
+         * output.
+         */
+        private boolean isBypassed() {
+            return bypassed;
+        }
+
+        /**
+         * Writes what has been captured so far to the wrapped request, before
+         * some output bypasses the capture. Nothing is written if nothing has
+         * been captured, so that a render that only uses the output stream
+         * never opens the writer.
+         *
+         * @throws IOException If something goes wrong when writing.
+         */
+        void bypass() throws IOException {
+            bypassed = true;
+            String content = getContent();
+            if (!content.isEmpty()) {
+                getWrappedRequest().getWriter().write(content);
+                buffer.getBuffer().setLength(0);
+            }
+        }
+
+        /**
+         * Returns the captured output.
+         *
+         * @return The captured output.
+         */
+        private String getContent() {
+            writer.flush();
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * Captures what is written to the writers of a request that can
+     * dispatch, without capturing what the container writes when
+     * dispatching.
+     */
+    private static final class CapturingDispatchRequest extends CapturingRequest
+            implements DispatchRequest {
+
+        /**
+         * The request that dispatches.
+         */
+        private final DispatchRequest dispatchRequest;
+
+        /**
+         * Constructor.
+         *
+         * @param request The request to wrap.
+         * @param dispatchRequest The request that dispatches, wrapped by
+         * <code>request</code>.
+         */
+        private CapturingDispatchRequest(Request request, DispatchRequest dispatchRequest) {
+            super(request);
+            this.dispatchRequest = dispatchRequest;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void dispatch(String path) throws IOException {
+            bypass();
+            dispatchRequest.dispatch(path);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void include(String path) throws IOException {
+            bypass();
+            dispatchRequest.include(path);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void setContentType(String contentType) {
+            dispatchRequest.setContentType(contentType);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+/**
+ * Estimates how often keys have been seen recently, with a count-min sketch
+ * of 4-bit counters. Counters are halved periodically, so that old
+ * popularity fades. Not thread safe.
+ *
+ * @version $Rev$ $Date$
+ */
+class FrequencySketch {
+
+    /**
+     * The seeds of the four hash functions.
+     */
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    /**
+     * The mask to halve all the counters of a slot.
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * The largest value of a counter.
+     */
+    private static final int MAX_COUNT = 15;
+
+    /**
+     * The slots, each holding sixteen counters.
+     */
+    private final long[] table;
+
+    /**
+     * The mask to select a slot.
+     */
+    private final int tableMask;
+
+    /**
+     * The number of increments after which counters are halved.
+     */
+    private final int sampleSize;
+
+    /**
+     * The number of increments since the last halving.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize The maximum number of entries of the cache.
+     */
+    FrequencySketch(int maximumSize) {
+        int capacity = Math.max(maximumSize, 8);
+        int length = Integer.highestOneBit(Math.min(capacity, 1 << 30) * 2 - 1);
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the estimated frequency of a key.
+     *
+     * @param key The key.
+     * @return The frequency, between 0 and 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the frequency of a key.
+     *
+     * @param key The key.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != (long) MAX_COUNT << offset) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves all the counters.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    /**
+     * Returns the slot of a key for a hash function.
+     *
+     * @param hash The spread hash code of the key.
+     * @param i The index of the hash function.
+     * @return The index of the slot.
+     */
+    private int indexOf(int hash, int i) {
+        long result = (hash + SEEDS[i]) * SEEDS[i];
+        result += result >>> 32;
+        return (int) result & tableMask;
+    }
+
+    /**
+     * Improves the distribution of a hash code.
+     *
+     * @param hashCode The hash code.
+     * @return The spread hash code.
+     */
+    private static int spread(int hashCode) {
+        int hash = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size-bounded cache with W-TinyLFU eviction: new entries go to a small LRU
+ * window; an entry evicted from the window is admitted to the main segmented
+ * LRU only if it has been requested more often, according to a
+ * {@link FrequencySketch}, than the entry it would evict. A scan of keys seen
+ * once therefore does not flush popular entries.
+ * <p>
+ * Lookups do not block nor take the policy lock: they read a concurrent map,
+ * and record the access in a read buffer, chosen by thread among stripes
+ * allocated on first use. A full buffer is drained into the policy by the
+ * thread that fills it, if the policy lock is free; the buffers are also
+ * drained by each write. Accesses are dropped when a buffer is full or
+ * contended, as the policy tolerates lost accesses.
+ * <p>
+ * This class is supported API, shared by {@link CachingRenderer} and the
+ * caches of the template engine modules. It is thread-safe. It neither loads
+ * nor expires entries: callers put the values they have computed, and
+ * invalidate them when they change. Keys and values must not be
+ * <code>null</code>.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @version $Rev$ $Date$
+ */
+public final class TinyLfuCache<K, V> {
+
+    /**
+     * Queue of the entries that are not in the cache anymore.
+     */
+    private static final int REMOVED = 0;
+
+    /**
+     * Queue of the entries in the window.
+     */
+    private static final int WINDOW = 1;
+
+    /**
+     * Queue of the entries in the main space accessed once.
+     */
+    private static final int PROBATION = 2;
+
+    /**
+     * Queue of the entries in the main space accessed more than once.
+     */
+    private static final int PROTECTED = 3;
+
+    /**
+     * The maximum number of read buffers, a power of two.
+     */
+    private static final int MAXIMUM_READ_BUFFERS = 64;
+
+    /**
+     * The number of read buffers, a power of two.
+     */
+    private static final int READ_BUFFER_COUNT = Math.min(MAXIMUM_READ_BUFFERS,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    /**
+     * The entries.
+     */
+    private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<K, Node<K, V>>();
+
+    /**
+     * Guards the policy.
+     */
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    /**
+     * The access frequencies.
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * The read buffers, allocated on first use.
+     */
+    private final AtomicReferenceArray<ReadBuffer> readBuffers =
+            new AtomicReferenceArray<ReadBuffer>(READ_BUFFER_COUNT);
+
+    /**
+     * The window, from the least to the most recently used.
+     */
+    private final Node<K, V> window = Node.sentinel();
+
+    /**
+     * The probation segment, from the least to the most recently used.
+     */
+    private final Node<K, V> probation = Node.sentinel();
+
+    /**
+     * The protected segment, from the least to the most recently used.
+     */
+    private final Node<K, V> protectedSegment = Node.sentinel();
+
+    /**
+     * The maximum size of the window.
+     */
+    private final int windowMaximum;
+
+    /**
+     * The maximum size of the main space.
+     */
+    private final int mainMaximum;
+
+    /**
+     * The maximum size of the protected segment.
+     */
+    private final int protectedMaximum;
+
+    /**
+     * The size of the window.
+     */
+    private int windowSize;
+
+    /**
+     * The size of the main space.
+     */
+    private int mainSize;
+
+    /**
+     * The size of the protected segment.
+     */
+    private int protectedSize;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize The maximum number of entries, at least 1.
+     * @throws IllegalArgumentException If the maximum size is less than 1.
+     */
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        windowMaximum = Math.max(1, maximumSize / 100);
+        mainMaximum = maximumSize - windowMaximum;
+        protectedMaximum = mainMaximum * 4 / 5;
+        sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the value of a key, recording the access.
+     *
+     * @param key The key.
+     * @return The value, or <code>null</code> if not cached.
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (getReadBuffer().offer(key) && policyLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Stores the value of a key, possibly evicting entries, including this one.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    public void put(K key, V value) {
+        policyLock.lock();
+        try {
+            drainReadBuffers();
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.value = value;
+                onHit(node);
+                return;
+            }
+            node = new Node<K, V>(key, value);
+            data.put(key, node);
+            node.queue = WINDOW;
+            node.linkLast(window);
+            windowSize++;
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     */
+    public void invalidate(K key) {
+        policyLock.lock();
+        try {
+            drainReadBuffers();
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            drainReadBuffers();
+            for (Node<K, V> node : data.values()) {
+                remove(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Checks if a key is cached, without recording an access.
+     *
+     * @param key The key.
+     * @return <code>true</code> if cached.
+     */
+    public boolean containsKey(K key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * Returns the read buffer of the current thread, allocating it if needed.
+     *
+     * @return The read buffer.
+     */
+    private ReadBuffer getReadBuffer() {
+        long threadId = Thread.currentThread().threadId();
+        int index = (int) (threadId ^ (threadId >>> 16)) & (READ_BUFFER_COUNT - 1);
+        ReadBuffer retValue = readBuffers.get(index);
+        if (retValue == null) {
+            retValue = new ReadBuffer();
+            if (!readBuffers.compareAndSet(index, null, retValue)) {
+                retValue = readBuffers.get(index);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Records the accesses of the read buffers in the policy. It must be
+     * called with the policy lock held.
+     */
+    @SuppressWarnings("unchecked")
+    private void drainReadBuffers() {
+        for (int i = 0; i < READ_BUFFER_COUNT; i++) {
+            ReadBuffer buffer = readBuffers.get(i);
+            if (buffer != null) {
+                // at most one buffer's worth, so that readers cannot keep the lock held
+                Object key;
+                for (int n = 0; n < ReadBuffer.SIZE && (key = buffer.poll()) != null; n++) {
+                    sketch.increment(key);
+                    Node<K, V> node = data.get((K) key);
+                    if (node != null && node.queue != REMOVED) {
+                        onHit(node);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves an accessed entry.
+     *
+     * @param node The entry.
+     */
+    private void onHit(Node<K, V> node) {
+        node.unlink();
+        switch (node.queue) {
+        case WINDOW:
+            node.linkLast(window);
+            break;
+        case PROBATION:
+            node.queue = PROTECTED;
+            node.linkLast(protectedSegment);
+            protectedSize++;
+            if (protectedSize > protectedMaximum) {
+                Node<K, V> demoted = protectedSegment.next;
+                demoted.unlink();
+                demoted.queue = PROBATION;
+                demoted.linkLast(probation);
+                protectedSize--;
+            }
+            break;
+        default:
+            node.linkLast(protectedSegment);
+            break;
+        }
+    }
+
+    /**
+     * Moves the entries overflowing the window to the main space, if they are
+     * more popular than the entries they replace.
+     */
+    private void evict() {
+        while (windowSize > windowMaximum) {
+            Node<K, V> candidate = window.next;
+            candidate.unlink();
+            windowSize--;
+            if (mainSize < mainMaximum) {
+                admit(candidate);
+                continue;
+            }
+            Node<K, V> victim = probation.next != probation ? probation.next : protectedSegment.next;
+            if (victim != protectedSegment
+                    && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+                admit(candidate);
+            } else {
+                data.remove(candidate.key, candidate);
+                candidate.queue = REMOVED;
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the probation segment.
+     *
+     * @param node The entry.
+     */
+    private void admit(Node<K, V> node) {
+        node.queue = PROBATION;
+        node.linkLast(probation);
+        mainSize++;
+    }
+
+    /**
+     * Removes an entry from the cache.
+     *
+     * @param node The entry.
+     */
+    private void remove(Node<K, V> node) {
+        data.remove(node.key, node);
+        node.unlink();
+        switch (node.queue) {
+        case WINDOW:
+            windowSize--;
+            break;
+        case PROBATION:
+            mainSize--;
+            break;
+        case PROTECTED:
+            mainSize--;
+            protectedSize--;
+            break;
+        default:
+            break;
+        }
+        node.queue = REMOVED;
+    }
+
+    /**
+     * A lossy ring buffer of the keys read, written by any thread and read by
+     * the holder of the policy lock.
+     */
+    private static final class ReadBuffer {
+
+        /**
+         * The number of slots, a power of two.
+         */
+        private static final int SIZE = 16;
+
+        /**
+         * The keys read.
+         */
+        private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<Object>(SIZE);
+
+        /**
+         * The number of keys written.
+         */
+        private final AtomicLong writeCount = new AtomicLong();
+
+        /**
+         * The number of keys read, written only by the holder of the policy
+         * lock.
+         */
+        private volatile long readCount;
+
+        /**
+         * Records a key read. The key is dropped if the buffer is full, or if
+         * another thread is recording at the same time.
+         *
+         * @param key The key.
+         * @return <code>true</code> if the buffer is full and should be
+         * drained.
+         */
+        private boolean offer(Object key) {
+            long tail = writeCount.get();
+            long size = tail - readCount;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) tail & (SIZE - 1), key);
+                return size + 1 >= SIZE;
+            }
+            return false;
+        }
+
+        /**
+         * Removes the oldest key recorded. It must be called with the policy
+         * lock held.
+         *
+         * @return The key, or <code>null</code> if the buffer is empty, or if
+         * the oldest key is being recorded.
+         */
+        private Object poll() {
+            long head = readCount;
+            if (head == writeCount.get()) {
+                return null;
+            }
+            int index = (int) head & (SIZE - 1);
+            Object retValue = slots.get(index);
+            if (retValue != null) {
+                slots.lazySet(index, null);
+                readCount = head + 1;
+            }
+            return retValue;
+        }
+    }
+
+    /**
+     * An entry, linked in the queue of its segment.
+     *
+     * @param <K> The type of the key.
+     * @param <V> The type of the value.
+     */
+    private static final class Node<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private volatile V value;
+
+        /**
+         * The queue of the entry.
+         */
+        private volatile int queue;
+
+        /**
+         * The previous entry.
+         */
+        private Node<K, V> previous;
+
+        /**
+         * The next entry.
+         */
+        private Node<K, V> next;
+
+        /**
+         * Constructor.
+         *
+         * @param key The key.
+         * @param value The value.
+         */
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Creates the sentinel of an empty queue.
+         *
+         * @param <K> The type of the key.
+         * @param <V> The type of the value.
+         * @return The sentinel.
+         */
+        private static <K, V> Node<K, V> sentinel() {
+            Node<K, V> sentinel = new Node<K, V>(null, null);
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        /**
+         * Appends this entry to a queue.
+         *
+         * @param sentinel The sentinel of the queue.
+         */
+        private void linkLast(Node<K, V> sentinel) {
+            previous = sentinel.previous;
+            next = sentinel;
+            previous.next = this;
+            sentinel.previous = this;
+        }
+
+        /**
+         * Removes this entry from its queue, if any.
+         */
+        private void unlink() {
+            if (previous != null) {
+                previous.next = next;
+                next.previous = previous;
+                previous = null;
+                next = null;
+            }
+        }
+    }
+}
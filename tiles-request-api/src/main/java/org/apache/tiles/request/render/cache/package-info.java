@@ -0,0 +1,28 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+/**
+ * Render caching: {@link org.apache.tiles.request.render.cache.CachingRenderer}
+ * decorates a renderer and reuses the output it rendered for the same path and
+ * request inputs. {@link org.apache.tiles.request.render.cache.TinyLfuCache}
+ * is the size-bounded cache it is built on, supported for use by template
+ * engines and other renderers.
+ */
+package org.apache.tiles.request.render.cache;
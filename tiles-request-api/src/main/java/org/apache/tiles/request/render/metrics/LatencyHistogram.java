@@ -0,0 +1,200 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A histogram of latencies, in nanoseconds, that takes a fixed amount of
+ * memory and records without locks.
+ * <p>
+ * Buckets are log-linear, as in HdrHistogram: each power of two is divided
+ * into {@value #SUB_BUCKET_COUNT} sub-buckets, so the value reported for a
+ * percentile is at most about 3% above the recorded one. Values larger than
+ * about 36 minutes are counted in the last bucket.
+ * <p>
+ * Counts are striped across several arrays, chosen by thread, so that threads
+ * recording at the same time seldom update the same cache lines.
+ *
+ * @version $Rev$ $Date$
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of the sub-bucket index.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of sub-buckets each power of two is divided into.
+     */
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest exponent of two that has its own buckets.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The number of buckets.
+     */
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    /**
+     * The stripes of counts, each with {@link #BUCKET_COUNT} buckets.
+     */
+    private final AtomicLongArray[] stripes;
+
+    /**
+     * The mask to select a stripe.
+     */
+    private final int stripeMask;
+
+    /**
+     * The largest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Constructor.
+     *
+     * @param stripeCount The number of stripes. It is rounded up to a power of
+     * two. Each stripe takes about 10KB.
+     */
+    public LatencyHistogram(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+        stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        stripeMask = count - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency, in nanoseconds. Negative values are recorded
+     * as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        long threadId = Thread.currentThread().threadId();
+        int stripe = (int) (threadId ^ (threadId >>> 16)) & stripeMask;
+        stripes[stripe].incrementAndGet(bucketIndex(value));
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the statistics of the recorded latencies. It can be called while
+     * latencies are being recorded: the result is then approximate.
+     *
+     * @return The statistics.
+     */
+    public LatencyStatistics getStatistics() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = stripe.get(i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        long maxValue = max.get();
+        return new LatencyStatistics(total, valueAtPercentile(counts, total, 50.0, maxValue),
+                valueAtPercentile(counts, total, 95.0, maxValue),
+                valueAtPercentile(counts, total, 99.0, maxValue), maxValue);
+    }
+
+    /**
+     * Forgets all the recorded latencies. Latencies recorded while resetting
+     * may be lost.
+     */
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                stripe.set(i, 0L);
+            }
+        }
+        max.reset();
+    }
+
+    /**
+     * Returns the index of the bucket of a value.
+     *
+     * @param value The value, not negative.
+     * @return The index of the bucket.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The largest value.
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the value at a percentile.
+     *
+     * @param counts The counts of the buckets.
+     * @param total The sum of the counts.
+     * @param percentile The percentile, between 0 and 100.
+     * @param maxValue The largest recorded value.
+     * @return The largest value of the bucket containing the percentile, but
+     * not more than <code>maxValue</code>; zero if there are no values.
+     */
+    private static long valueAtPercentile(long[] counts, long total, double percentile,
+            long maxValue) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max((long) Math.ceil(total * percentile / 100.0), 1L);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+/**
+ * Statistics of latencies recorded in a {@link LatencyHistogram}, in
+ * nanoseconds. Percentiles are the upper bounds of the buckets that contain
+ * them.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class LatencyStatistics {
+
+    /**
+     * The number of latencies.
+     */
+    private final long count;
+
+    /**
+     * The median.
+     */
+    private final long p50;
+
+    /**
+     * The 95th percentile.
+     */
+    private final long p95;
+
+    /**
+     * The 99th percentile.
+     */
+    private final long p99;
+
+    /**
+     * The largest latency.
+     */
+    private final long max;
+
+    /**
+     * Constructor.
+     *
+     * @param count The number of latencies.
+     * @param p50 The median.
+     * @param p95 The 95th percentile.
+     * @param p99 The 99th percentile.
+     * @param max The largest latency.
+     */
+    public LatencyStatistics(long count, long p50, long p95, long p99, long max) {
+        this.count = count;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * Returns the number of latencies.
+     *
+     * @return The number of latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the median.
+     *
+     * @return The median, in nanoseconds.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Returns the 95th percentile.
+     *
+     * @return The 95th percentile, in nanoseconds.
+     */
+    public long getP95() {
+        return p95;
+    }
+
+    /**
+     * Returns the 99th percentile.
+     *
+     * @return The 99th percentile, in nanoseconds.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Returns the largest latency.
+     *
+     * @return The largest latency, in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "count=" + count + ", p50=" + p50 + "ns, p95=" + p95 + "ns, p99=" + p99
+                + "ns, max=" + max + "ns";
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.PublisherRenderer;
+import org.apache.tiles.request.render.RenderCancelledException;
+
+/**
+ * Records the latency of the renders of a {@link PublisherRenderer}, for each
+ * path and for the renderer as a whole, in {@link LatencyHistogram}s.
+ * Recording does not lock and, once a path has been seen, does not allocate.
+ * <p>
+ * The statistics can be pulled with {@link #getRendererStatistics()} and
+ * {@link #getPathStatistics()}, or through JMX, registering this object as an
+ * MXBean, for instance:
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(listener,
+ *         new ObjectName("org.apache.tiles:type=RenderLatency,renderer=freemarker"));
+ * </pre>
+ * To bound memory, at most a given number of paths are tracked; the renders
+ * of the other paths are recorded only for the renderer as a whole.
+ * <p>
+ * Renders cancelled with a {@link RenderCancelledException} are also counted,
+ * by reason.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderLatencyListener implements PublisherRenderer.RendererListener,
+        RenderLatencyMXBean {
+
+    /**
+     * The default maximum number of tracked paths.
+     */
+    public static final int DEFAULT_MAX_PATHS = 256;
+
+    /**
+     * The number of stripes of the histograms of the paths.
+     */
+    private static final int PATH_STRIPES = 2;
+
+    /**
+     * The name of the renderer.
+     */
+    private final String rendererName;
+
+    /**
+     * The maximum number of tracked paths.
+     */
+    private final int maxPaths;
+
+    /**
+     * The histogram of all the renders.
+     */
+    private final LatencyHistogram rendererHistogram;
+
+    /**
+     * The histograms of the paths.
+     */
+    private final ConcurrentMap<String, LatencyHistogram> pathHistograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    /**
+     * The number of renders whose deadline passed.
+     */
+    private final LongAdder deadlineExceeded = new LongAdder();
+
+    /**
+     * The number of renders whose client had gone away.
+     */
+    private final LongAdder clientAborted = new LongAdder();
+
+    /**
+     * The start times of the renders in progress in the current thread.
+     */
+    private final ThreadLocal<StartTimes> startTimes = new ThreadLocal<StartTimes>() {
+
+        @Override
+        protected StartTimes initialValue() {
+            return new StartTimes();
+        }
+    };
+
+    /**
+     * Constructor, tracking at most {@link #DEFAULT_MAX_PATHS} paths.
+     *
+     * @param rendererName The name of the renderer.
+     */
+    public RenderLatencyListener(String rendererName) {
+        this(rendererName, DEFAULT_MAX_PATHS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rendererName The name of the renderer.
+     * @param maxPaths The maximum number of tracked paths.
+     */
+    public RenderLatencyListener(String rendererName, int maxPaths) {
+        this.rendererName = rendererName;
+        this.maxPaths = maxPaths;
+        rendererHistogram = new LatencyHistogram(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void start(String template, Request request) throws IOException {
+        startTimes.get().push(System.nanoTime());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void end(String template, Request request) throws IOException {
+        StartTimes times = startTimes.get();
+        if (times.isEmpty()) {
+            return;
+        }
+        long latency = System.nanoTime() - times.pop();
+        rendererHistogram.record(latency);
+        LatencyHistogram pathHistogram = getPathHistogram(template);
+        if (pathHistogram != null) {
+            pathHistogram.record(latency);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void handleIOException(IOException ex, Request request) throws IOException {
+        if (ex instanceof RenderCancelledException) {
+            if (((RenderCancelledException) ex).getReason()
+                    == RenderCancelledException.Reason.DEADLINE_EXCEEDED) {
+                deadlineExceeded.increment();
+            } else {
+                clientAborted.increment();
+            }
+        }
+        throw ex;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getRendererName() {
+        return rendererName;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LatencyStatistics getRendererStatistics() {
+        return rendererHistogram.getStatistics();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, LatencyStatistics> getPathStatistics() {
+        Map<String, LatencyStatistics> retValue = new TreeMap<String, LatencyStatistics>();
+        for (Map.Entry<String, LatencyHistogram> entry : pathHistograms.entrySet()) {
+            retValue.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the statistics of the renders of a path.
+     *
+     * @param path The path.
+     * @return The statistics, or <code>null</code> if the path is not tracked.
+     */
+    public LatencyStatistics getPathStatistics(String path) {
+        LatencyHistogram histogram = pathHistograms.get(path);
+        return histogram != null ? histogram.getStatistics() : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getDeadlineExceededCount() {
+        return deadlineExceeded.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getClientAbortedCount() {
+        return clientAborted.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() {
+        rendererHistogram.reset();
+        pathHistograms.clear();
+        deadlineExceeded.reset();
+        clientAborted.reset();
+    }
+
+    /**
+     * Returns the histogram of a path, creating it if there is room.
+     *
+     * @param path The path.
+     * @return The histogram, or <code>null</code> if the path is not tracked.
+     */
+    private LatencyHistogram getPathHistogram(String path) {
+        LatencyHistogram retValue = pathHistograms.get(path);
+        if (retValue == null && pathHistograms.size() < maxPaths) {
+            retValue = pathHistograms.computeIfAbsent(path, key -> new LatencyHistogram(PATH_STRIPES));
+        }
+        return retValue;
+    }
+
+    /**
+     * A stack of start times, for nested renders.
+     */
+    private static final class StartTimes {
+
+        /**
+         * The start times.
+         */
+        private long[] times = new long[8];
+
+        /**
+         * The number of start times.
+         */
+        private int size;
+
+        /**
+         * Pushes a start time.
+         *
+         * @param time The start time.
+         */
+        private void push(long time) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+            }
+            times[size++] = time;
+        }
+
+        /**
+         * Pops the last start time.
+         *
+         * @return The start time.
+         */
+        private long pop() {
+            return times[--size];
+        }
+
+        /**
+         * Checks if there are no start times.
+         *
+         * @return <code>true</code> if empty.
+         */
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link RenderLatencyListener}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface RenderLatencyMXBean {
+
+    /**
+     * Returns the name of the renderer whose latencies are recorded.
+     *
+     * @return The name of the renderer.
+     */
+    String getRendererName();
+
+    /**
+     * Returns the statistics of all the renders.
+     *
+     * @return The statistics.
+     */
+    LatencyStatistics getRendererStatistics();
+
+    /**
+     * Returns the statistics of the renders of each path.
+     *
+     * @return The statistics, by path.
+     */
+    Map<String, LatencyStatistics> getPathStatistics();
+
+    /**
+     * Returns the number of renders cancelled because their deadline passed.
+     *
+     * @return The number of renders.
+     */
+    long getDeadlineExceededCount();
+
+    /**
+     * Returns the number of renders cancelled because the client had gone
+     * away.
+     *
+     * @return The number of renders.
+     */
+    long getClientAbortedCount();
+
+    /**
+     * Forgets all the recorded latencies and counts.
+     */
+    void reset();
+}
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.Test;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createMockBuilder;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -55,4 +56,46 @@ class AbstractRequestTest {
         assertTrue(request.isForceInclude());
         verify(request);
     }
+
+    /**
+     * Tests that the force-include attribute is read once, and written only
+     * when the value changes.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testForceIncludeAttributeAccess() {
+        AbstractRequest request = createMockBuilder(AbstractRequest.class).createMock();
+        Map<String, Object> scope = createMock(Map.class);
+
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(scope).times(2);
+        expect(scope.get(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME)).andReturn(null);
+        expect(scope.put(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME, true)).andReturn(null);
+
+        replay(request, scope);
+        assertFalse(request.isForceInclude());
+        assertFalse(request.isForceInclude());
+        request.setForceInclude(true);
+        request.setForceInclude(true);
+        assertTrue(request.isForceInclude());
+        verify(request, scope);
+    }
+
+    /**
+     * Tests that the force-include attribute set by another request object is
+     * honored.
+     */
+    @Test
+    void testIsForceIncludeFromAttribute() {
+        AbstractRequest request = createMockBuilder(AbstractRequest.class).createMock();
+        Map<String, Object> scope = new HashMap<String, Object>();
+        scope.put(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME, true);
+
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(scope);
+
+        replay(request);
+        assertTrue(request.isForceInclude());
+        request.setForceInclude(true);
+        assertTrue(request.isForceInclude());
+        verify(request);
+    }
 }
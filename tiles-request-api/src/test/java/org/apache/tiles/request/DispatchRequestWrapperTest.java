@@ -23,8 +23,11 @@ package org.apache.tiles.request;
 import org.junit.jupiter.api.Test;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createMockBuilder;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 
@@ -93,4 +96,23 @@ class DispatchRequestWrapperTest extends DefaultRequestWrapperTest {
         request.setContentType("text/html");
         verify(wrappedRequest);
     }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.DispatchRequestWrapper#getDispatchState()}.
+     */
+    @Test
+    void testGetDispatchState() {
+        AbstractRequest wrappedRequest = createMockBuilder(AbstractRequest.class).createMock();
+        DispatchRequest foreignRequest = createMockRequest();
+
+        replay(wrappedRequest, foreignRequest);
+        DispatchRequestWrapper request = createRequestWrapper(wrappedRequest);
+        assertSame(wrappedRequest.getDispatchState(), request.getDispatchState());
+        assertSame(wrappedRequest.getDispatchState(),
+                createRequestWrapper(request).getDispatchState());
+        DispatchRequestWrapper foreignWrapper = createRequestWrapper(foreignRequest);
+        assertNotSame(wrappedRequest.getDispatchState(), foreignWrapper.getDispatchState());
+        assertSame(foreignWrapper.getDispatchState(), foreignWrapper.getDispatchState());
+        verify(wrappedRequest, foreignRequest);
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request;
+
+import org.apache.tiles.request.render.RenderDeadline;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link DispatchState}.
+ *
+ * @version $Rev$ $Date$
+ */
+class DispatchStateTest {
+
+    /**
+     * Test method for {@link org.apache.tiles.request.DispatchState#setForceInclude(boolean)}.
+     */
+    @Test
+    void testSetForceInclude() {
+        DispatchState state = new DispatchState();
+        assertFalse(state.isForceInclude());
+        assertFalse(state.isSynchronizedWithAttribute());
+        state.setForceInclude(true);
+        assertTrue(state.isForceInclude());
+        assertFalse(state.isSynchronizedWithAttribute());
+        state.markSynchronizedWithAttribute();
+        assertTrue(state.isSynchronizedWithAttribute());
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.DispatchState#setRenderDeadline(RenderDeadline)}.
+     */
+    @Test
+    void testSetRenderDeadline() {
+        DispatchState state = new DispatchState();
+        assertFalse(state.isRenderDeadlineResolved());
+        state.setRenderDeadline(null);
+        assertTrue(state.isRenderDeadlineResolved());
+        assertNull(state.getRenderDeadline());
+        RenderDeadline deadline = new RenderDeadline(1, TimeUnit.HOURS);
+        state.setRenderDeadline(deadline);
+        assertSame(deadline, state.getRenderDeadline());
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.DispatchState#get(Request)}.
+     */
+    @Test
+    void testGet() {
+        DispatchRequest request = createMock(DispatchRequest.class);
+
+        replay(request);
+        DispatchRequestWrapper wrapper = new DispatchRequestWrapper(request);
+        DispatchState state = DispatchState.get(wrapper);
+        assertSame(state, DispatchState.get(new DefaultRequestWrapper(wrapper)));
+        assertNull(DispatchState.get(request));
+        assertNull(DispatchState.get(new DefaultRequestWrapper(request)));
+        verify(request);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createMockBuilder;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FlushUtil}.
+ *
+ * @version $Rev$ $Date$
+ */
+class FlushUtilTest {
+
+    /**
+     * Tests {@link FlushUtil#flush(Request)} on a wrapped request.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testFlush() throws IOException {
+        AbstractRequest request = createMockBuilder(AbstractRequest.class).createMock();
+        Writer writer = createMock(Writer.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(scope).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+        writer.flush();
+
+        replay(request, writer);
+        FlushUtil.flush(new DefaultRequestWrapper(request));
+        assertEquals(Boolean.TRUE, scope.get(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME));
+        assertTrue(request.isForceInclude());
+        verify(request, writer);
+    }
+
+    /**
+     * Tests {@link FlushUtil#flush(Request)} on a request with no dispatch
+     * state.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testFlushPlainRequest() throws IOException {
+        Request request = createMock(Request.class);
+        Writer writer = createMock(Writer.class);
+
+        expect(request.getWriter()).andReturn(writer);
+        writer.flush();
+
+        replay(request, writer);
+        FlushUtil.flush(request);
+        verify(request, writer);
+    }
+}
@@ -24,10 +24,15 @@ import org.junit.jupiter.api.Test;
 
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Enumeration;
 
+import org.apache.tiles.request.attribute.HasKeys;
+import org.apache.tiles.request.attribute.HasSizedKeys;
+
 
 /**
  * Test {@link RequestUtil}.
@@ -71,4 +76,43 @@ public class CollectionUtilTest {
         verify(enumeration);
     }
 
+    /**
+     * Test method for {@link CollectionUtil#keyCount(HasKeys)}.
+     */
+    @Test
+    public void testKeyCount() {
+        HasKeys<Object> extractor = createMock(HasKeys.class);
+        Enumeration<String> keys = createMock(Enumeration.class);
+        HasSizedKeys<Object> sizedExtractor = createMock(HasSizedKeys.class);
+
+        expect(extractor.getKeys()).andReturn(keys);
+        expect(keys.hasMoreElements()).andReturn(true);
+        expect(keys.nextElement()).andReturn("one");
+        expect(keys.hasMoreElements()).andReturn(false);
+        expect(sizedExtractor.getKeyCount()).andReturn(3);
+
+        replay(extractor, keys, sizedExtractor);
+        assertEquals(1, CollectionUtil.keyCount(extractor));
+        assertEquals(3, CollectionUtil.keyCount(sizedExtractor));
+        verify(extractor, keys, sizedExtractor);
+    }
+
+    /**
+     * Test method for {@link CollectionUtil#hasKeys(HasKeys)}.
+     */
+    @Test
+    public void testHasKeys() {
+        HasKeys<Object> extractor = createMock(HasKeys.class);
+        Enumeration<String> keys = createMock(Enumeration.class);
+        HasSizedKeys<Object> sizedExtractor = createMock(HasSizedKeys.class);
+
+        expect(extractor.getKeys()).andReturn(keys);
+        expect(keys.hasMoreElements()).andReturn(true);
+        expect(sizedExtractor.getKeyCount()).andReturn(0);
+
+        replay(extractor, keys, sizedExtractor);
+        assertTrue(CollectionUtil.hasKeys(extractor));
+        assertFalse(CollectionUtil.hasKeys(sizedExtractor));
+        verify(extractor, keys, sizedExtractor);
+    }
 }
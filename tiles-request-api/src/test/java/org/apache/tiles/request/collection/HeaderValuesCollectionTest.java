@@ -181,10 +181,7 @@ class HeaderValuesCollectionTest {
         expect(keys.hasMoreElements()).andReturn(true);
         expect(keys.nextElement()).andReturn("two");
 
-        expect(extractor.getValues("one")).andReturn(values1).times(2);
-        expect(values1.hasMoreElements()).andReturn(true);
-        expect(values1.nextElement()).andReturn("value1");
-        expect(values1.hasMoreElements()).andReturn(false);
+        expect(extractor.getValues("one")).andReturn(values1);
         expect(values1.hasMoreElements()).andReturn(true);
         expect(values1.nextElement()).andReturn("value1");
         expect(values1.hasMoreElements()).andReturn(false);
@@ -229,6 +226,8 @@ class HeaderValuesCollectionTest {
         expect(values2.hasMoreElements()).andReturn(true);
         expect(values2.nextElement()).andReturn("value2");
         expect(values2.hasMoreElements()).andReturn(true);
+        expect(values2.nextElement()).andReturn("value3");
+        expect(values2.hasMoreElements()).andReturn(false);
 
         replay(extractor, keys, values1, values2);
         List<String[]> coll = new ArrayList<String[]>();
@@ -169,6 +169,7 @@ class HeaderValuesMapEntrySetTest {
         expect(extractor.getValues("one")).andReturn(values1);
         expect(values1.hasMoreElements()).andReturn(true);
         expect(values1.nextElement()).andReturn("value1");
+        expect(values1.hasMoreElements()).andReturn(false);
 
         replay(extractor, values1, entry1);
         List<Map.Entry<String, String[]>> coll = new ArrayList<Map.Entry<String, String[]>>();
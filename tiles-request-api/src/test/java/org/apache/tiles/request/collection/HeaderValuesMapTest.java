@@ -20,10 +20,13 @@
  */
 package org.apache.tiles.request.collection;
 
+import org.apache.tiles.request.attribute.ArrayValuesExtractor;
 import org.apache.tiles.request.attribute.EnumeratedValuesExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 
@@ -34,6 +37,7 @@ import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -201,6 +205,8 @@ class HeaderValuesMapTest {
         Enumeration<String> otherValues1 = createMock(Enumeration.class);
         Enumeration<String> otherValues2 = createMock(Enumeration.class);
 
+        expect(extractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("one", "two")));
+        expect(otherExtractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("two", "one")));
         expect(extractor.getKeys()).andReturn(keys);
         expect(keys.hasMoreElements()).andReturn(true);
         expect(keys.nextElement()).andReturn("one");
@@ -257,6 +263,85 @@ class HeaderValuesMapTest {
         verify(extractor, values2);
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.HeaderValuesMap#equals(java.lang.Object)},
+     * with values in another order, and with a map of another type.
+     */
+    @Test
+    void testEqualsOtherMap() {
+        EnumeratedValuesExtractor otherExtractor = createMock(EnumeratedValuesExtractor.class);
+
+        expect(extractor.getKeys()).andAnswer(() -> Collections.enumeration(Arrays.asList("one", "two")))
+                .anyTimes();
+        expect(extractor.getValues("one")).andReturn(Collections.enumeration(Arrays.asList("value1")));
+        expect(extractor.getValues("two")).andReturn(
+                Collections.enumeration(Arrays.asList("value2", "value3", "value2")));
+        expect(otherExtractor.getKeys()).andAnswer(() -> Collections.enumeration(Arrays.asList("two", "one")))
+                .anyTimes();
+        expect(otherExtractor.getValues("one")).andReturn(Collections.enumeration(Arrays.asList("value1")));
+        expect(otherExtractor.getValues("two")).andReturn(
+                Collections.enumeration(Arrays.asList("value2", "value2", "value3")));
+
+        replay(extractor, otherExtractor);
+        HeaderValuesMap otherMap = new HeaderValuesMap(otherExtractor);
+        assertTrue(map.equals(otherMap));
+        assertTrue(otherMap.equals(map));
+        HashMap<String, String[]> hashMap = new HashMap<String, String[]>();
+        hashMap.put("one", map.get("one").clone());
+        hashMap.put("two", map.get("two").clone());
+        assertFalse(map.equals(hashMap));
+        assertFalse(hashMap.equals(map));
+        assertFalse(map.equals("one"));
+        verify(extractor, otherExtractor);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.HeaderValuesMap#get(java.lang.Object)},
+     * checking that the values are read once, whatever the case of the name.
+     */
+    @Test
+    void testGetIgnoreCase() {
+        expect(extractor.getValues("Accept")).andReturn(Collections.enumeration(Arrays.asList("text/html")));
+
+        replay(extractor);
+        String[] values = map.get("Accept");
+        assertArrayEquals(new String[] {"text/html"}, values);
+        assertSame(values, map.get("accept"));
+        assertTrue(map.containsKey("ACCEPT"));
+        verify(extractor);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.HeaderValuesMap#get(java.lang.Object)},
+     * checking that the values are read once.
+     */
+    @Test
+    void testGetTwice() {
+        expect(extractor.getValues("two")).andReturn(Collections.enumeration(Arrays.asList("value2")));
+
+        replay(extractor);
+        String[] values = map.get("two");
+        assertArrayEquals(new String[] {"value2"}, values);
+        assertSame(values, map.get("two"));
+        verify(extractor);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.HeaderValuesMap#get(java.lang.Object)},
+     * with an {@link ArrayValuesExtractor}.
+     */
+    @Test
+    void testGetArrayValues() {
+        ArrayValuesExtractor arrayExtractor = createMock(ArrayValuesExtractor.class);
+        String[] values = new String[] {"value2", "value3"};
+
+        expect(arrayExtractor.getValueArray("two")).andReturn(values);
+
+        replay(arrayExtractor);
+        assertSame(values, new HeaderValuesMap(arrayExtractor).get("two"));
+        verify(arrayExtractor);
+    }
+
     /**
      * Test method for {@link org.apache.tiles.request.collection.HeaderValuesMap#isEmpty()}.
      */
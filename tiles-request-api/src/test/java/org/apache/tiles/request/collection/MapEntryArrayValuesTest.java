@@ -94,4 +94,17 @@ class MapEntryArrayValuesTest {
         assertFalse(entry.equals(entry2));
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.MapEntryArrayValues#setValue(Object[])}.
+     */
+    @Test
+    void testHashCodeAfterSetValue() {
+        MapEntryArrayValues<String, String> entry = new MapEntryArrayValues<String, String>(
+                "key", new String[] {null, "value1"}, true);
+        assertEquals("key".hashCode() ^ "value1".hashCode(), entry.hashCode());
+        entry.setValue(new String[] {"value2"});
+        assertEquals("key".hashCode() ^ "value2".hashCode(), entry.hashCode());
+        assertTrue(entry.equals(entry));
+    }
+
 }
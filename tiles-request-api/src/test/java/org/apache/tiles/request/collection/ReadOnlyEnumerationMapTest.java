@@ -21,6 +21,7 @@
 package org.apache.tiles.request.collection;
 
 import org.apache.tiles.request.attribute.HasKeys;
+import org.apache.tiles.request.attribute.HasSizedKeys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -223,6 +224,23 @@ class ReadOnlyEnumerationMapTest {
         verify(extractor, keys);
     }
 
+    /**
+     * Tests {@link ReadOnlyEnumerationMap#size()} and {@link ReadOnlyEnumerationMap#isEmpty()}
+     * when the extractor knows the number of its keys.
+     */
+    @Test
+    void testSizeWithSizedKeys() {
+        HasSizedKeys<Integer> sizedExtractor = createMock(HasSizedKeys.class);
+        ReadOnlyEnumerationMap<Integer> sizedMap = new ReadOnlyEnumerationMap<Integer>(sizedExtractor);
+
+        expect(sizedExtractor.getKeyCount()).andReturn(2).times(2);
+
+        replay(sizedExtractor);
+        assertEquals(2, sizedMap.size());
+        assertFalse(sizedMap.isEmpty());
+        verify(sizedExtractor);
+    }
+
     /**
      * Test method for {@link org.apache.tiles.extractor.collection.AbstractEnumerationMap#hashCode()}.
      */
@@ -25,9 +25,13 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
 import java.util.List;
 
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 import org.apache.tiles.request.attribute.HasRemovableKeys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -129,4 +133,37 @@ class RemovableKeySetTest {
         verify(extractor, keys);
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.RemovableKeySet#removeAll(java.util.Collection)},
+     * with a {@link BulkAttributeExtractor}.
+     */
+    @Test
+    void testRemoveAllBulk() {
+        BulkAttributeExtractor bulkExtractor = createMock(BulkAttributeExtractor.class);
+        expect(bulkExtractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("one", "three")));
+        bulkExtractor.removeValues(Arrays.asList("one"));
+        expect(bulkExtractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("three")));
+
+        replay(bulkExtractor);
+        RemovableKeySet keySet = new RemovableKeySet(bulkExtractor);
+        assertTrue(keySet.removeAll(Arrays.asList("one", "two")));
+        assertFalse(keySet.removeAll(Arrays.asList("two")));
+        verify(bulkExtractor);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.RemovableKeySet#retainAll(java.util.Collection)},
+     * with a {@link BulkAttributeExtractor}.
+     */
+    @Test
+    void testRetainAllBulk() {
+        BulkAttributeExtractor bulkExtractor = createMock(BulkAttributeExtractor.class);
+        expect(bulkExtractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("one", "two", "three")));
+        bulkExtractor.removeValues(new LinkedHashSet<String>(Arrays.asList("one", "three")));
+
+        replay(bulkExtractor);
+        RemovableKeySet keySet = new RemovableKeySet(bulkExtractor);
+        assertTrue(keySet.retainAll(Arrays.asList("two")));
+        verify(bulkExtractor);
+    }
 }
@@ -21,20 +21,26 @@
 package org.apache.tiles.request.collection;
 
 import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests {@link ScopeMap}.
@@ -137,4 +143,57 @@ class ScopeMapTest {
         assertEquals(new Integer(1), map.remove("one"));
         verify(extractor);
     }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.ScopeMap#putAll(java.util.Map)},
+     * with a {@link BulkAttributeExtractor}.
+     */
+    @Test
+    void testPutAllBulk() {
+        BulkAttributeExtractor bulkExtractor = createMock(BulkAttributeExtractor.class);
+        Map<String, Object> items = new LinkedHashMap<String, Object>();
+        items.put("one", 1);
+        items.put("two", 2);
+        bulkExtractor.setValues(items);
+
+        replay(bulkExtractor);
+        new ScopeMap(bulkExtractor).putAll(items);
+        verify(bulkExtractor);
+    }
+
+    /**
+     * Test method for {@link org.apache.tiles.request.collection.ScopeMap#clear()},
+     * with a {@link BulkAttributeExtractor}.
+     */
+    @Test
+    void testClearBulk() {
+        BulkAttributeExtractor bulkExtractor = createMock(BulkAttributeExtractor.class);
+        expect(bulkExtractor.getKeys()).andReturn(Collections.enumeration(Arrays.asList("one", "two")));
+        bulkExtractor.removeValues(Arrays.asList("one", "two"));
+
+        replay(bulkExtractor);
+        new ScopeMap(bulkExtractor).clear();
+        verify(bulkExtractor);
+    }
+
+    /**
+     * Tests the <code>retainAll</code> method of the entry set of
+     * {@link org.apache.tiles.request.collection.ScopeMap}, with a
+     * {@link BulkAttributeExtractor}.
+     */
+    @Test
+    void testEntrySetRetainAllBulk() {
+        BulkAttributeExtractor bulkExtractor = createMock(BulkAttributeExtractor.class);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("one", 1);
+        values.put("two", 2);
+        expect(bulkExtractor.getAllValues()).andReturn(values).times(2);
+        bulkExtractor.removeValues(Arrays.asList("two"));
+
+        replay(bulkExtractor);
+        Set<Map.Entry<String, Object>> entrySet = new ScopeMap(bulkExtractor).entrySet();
+        assertTrue(entrySet.retainAll(Arrays.asList(new MapEntry<String, Object>("one", 1, false))));
+        assertFalse(entrySet.retainAll(values.entrySet()));
+        verify(bulkExtractor);
+    }
 }
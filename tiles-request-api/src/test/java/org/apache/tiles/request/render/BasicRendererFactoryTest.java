@@ -21,14 +21,31 @@
 package org.apache.tiles.request.render;
 
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.Request;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Basic renderer factory implementation.
@@ -111,4 +128,221 @@ class BasicRendererFactoryTest {
     void testInitializeRenderer() {
         // TODO This will be removed in future, only named renderers should be available.
     }
+
+    /**
+     * Tests {@link BasicRendererFactory#replaceRenderer(String, Renderer)} and
+     * {@link BasicRendererFactory#unregisterRenderer(String)}.
+     */
+    @Test
+    void testReplaceAndUnregisterRenderer() {
+        Renderer renderer1 = createMock(Renderer.class);
+        Renderer renderer2 = createMock(Renderer.class);
+
+        replay(renderer1, renderer2);
+        assertNull(rendererFactory.replaceRenderer("test", renderer1));
+        assertSame(renderer1, rendererFactory.replaceRenderer("test", renderer2));
+        assertSame(renderer2, rendererFactory.getRenderer("test"));
+        assertSame(renderer2, rendererFactory.unregisterRenderer("test"));
+        assertNull(rendererFactory.unregisterRenderer("test"));
+        assertThrows(NoSuchRendererException.class, () -> rendererFactory.getRenderer("test"));
+        verify(renderer1, renderer2);
+    }
+
+    /**
+     * Tests {@link BasicRendererFactory#retireRenderer(String, Renderer, Runnable)}
+     * with a {@link TrackedRenderer} rendering while being retired.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRetireRendererTracked() throws IOException {
+        Renderer renderer1 = createMock(Renderer.class);
+        Renderer renderer2 = createMock(Renderer.class);
+        Request request = createMock(Request.class);
+        AtomicInteger retirements = new AtomicInteger();
+        TrackedRenderer tracked = new TrackedRenderer(renderer1);
+
+        renderer1.render("/path", request);
+        expectLastCall().andAnswer(() -> {
+            assertSame(tracked, rendererFactory.retireRenderer("test", renderer2,
+                    retirements::incrementAndGet));
+            assertSame(renderer2, rendererFactory.getRenderer("test"));
+            assertEquals(0, retirements.get());
+            return null;
+        });
+
+        replay(renderer1, renderer2, request);
+        rendererFactory.registerRenderer("test", tracked);
+        rendererFactory.getRenderer("test").render("/path", request);
+        assertEquals(1, retirements.get());
+        verify(renderer1, renderer2, request);
+    }
+
+    /**
+     * Tests {@link BasicRendererFactory#retireRenderer(String, Renderer, Runnable)}
+     * with a {@link TrackedRenderer} obtained before being retired, that
+     * renders with the new renderer afterwards.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRetireRendererSnapshot() throws IOException {
+        Renderer renderer1 = createMock(Renderer.class);
+        Renderer renderer2 = createMock(Renderer.class);
+        Request request = createMock(Request.class);
+        AtomicInteger retirements = new AtomicInteger();
+
+        renderer2.render("/path", request);
+
+        replay(renderer1, renderer2, request);
+        rendererFactory.registerRenderer("test", new TrackedRenderer(renderer1));
+        Renderer snapshot = rendererFactory.getRenderer("test");
+        rendererFactory.retireRenderer("test", renderer2, retirements::incrementAndGet);
+        assertEquals(1, retirements.get());
+        snapshot.render("/path", request);
+        verify(renderer1, renderer2, request);
+    }
+
+    /**
+     * Tests {@link BasicRendererFactory#retireRenderer(String, Renderer, Runnable)}
+     * while other threads obtain the renderer and render with it: no render
+     * runs on the old renderer once it has been released.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testRetireRendererConcurrent() throws Exception {
+        CheckingRenderer renderer1 = new CheckingRenderer();
+        CheckingRenderer renderer2 = new CheckingRenderer();
+        int threads = 4;
+        int rendersPerThread = 5000;
+        rendererFactory.registerRenderer("test", new TrackedRenderer(renderer1));
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < rendersPerThread; j++) {
+                        rendererFactory.getRenderer("test").render("/path", null);
+                    }
+                    return null;
+                }));
+            }
+            while (renderer1.renders.get() < threads && !futures.get(0).isDone()) {
+                Thread.yield();
+            }
+            rendererFactory.retireRenderer("test", renderer2, () -> renderer1.released = true);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertTrue(renderer1.released);
+        assertEquals(0, renderer1.violations.get());
+        assertEquals(threads * rendersPerThread, renderer1.renders.get() + renderer2.renders.get());
+    }
+
+    /**
+     * Tests {@link BasicRendererFactory#retireRenderer(String, Renderer, Runnable)}
+     * with a renderer that is not tracked.
+     */
+    @Test
+    void testRetireRendererUntracked() {
+        Renderer renderer1 = createMock(Renderer.class);
+        AtomicInteger retirements = new AtomicInteger();
+
+        replay(renderer1);
+        rendererFactory.registerRenderer("test", renderer1);
+        assertSame(renderer1, rendererFactory.retireRenderer("test", null,
+                retirements::incrementAndGet));
+        assertEquals(1, retirements.get());
+        assertNull(rendererFactory.retireRenderer("test", null, null));
+        verify(renderer1);
+    }
+
+    /**
+     * Tests {@link BasicRendererFactory#warmUp(ApplicationContext, java.util.Collection)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testWarmUp() throws IOException {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource mustacheResource = createMock(ApplicationResource.class);
+        ApplicationResource freemarkerResource = createMock(ApplicationResource.class);
+        TemplatePrecompiler mustache = createMock(TemplatePrecompiler.class);
+        TemplatePrecompiler freemarker = createMock(TemplatePrecompiler.class);
+        Renderer plain = createMock(Renderer.class);
+        IOException exception = new IOException("parse error");
+        expect(applicationContext.getResources("/templates/*"))
+                .andReturn(Arrays.asList(mustacheResource, freemarkerResource, null));
+        expect(applicationContext.getResources("/missing.ftl"))
+                .andReturn(Collections.<ApplicationResource>singletonList(null));
+        expect(mustacheResource.getLocalePath()).andReturn("/templates/a.html");
+        expect(freemarkerResource.getLocalePath()).andReturn("/templates/b.ftl");
+        expect(mustache.getRenderablePaths()).andReturn(new RenderablePaths(null, ".html", null))
+                .anyTimes();
+        expect(freemarker.getRenderablePaths()).andReturn(new RenderablePaths(null, ".ftl", null))
+                .anyTimes();
+        mustache.precompile("/templates/a.html");
+        freemarker.precompile("/templates/b.ftl");
+        expectLastCall().andThrow(exception);
+
+        replay(applicationContext, mustacheResource, freemarkerResource, mustache, freemarker, plain);
+        rendererFactory.registerRenderer("mustache", new TrackedRenderer(mustache));
+        rendererFactory.registerRenderer("mustacheAlias", mustache);
+        rendererFactory.registerRenderer("freemarker", new LazyRenderer("freemarker",
+                new RenderablePaths(null, ".ftl", null), () -> freemarker));
+        rendererFactory.registerRenderer("plain", plain);
+        WarmUpReport report = rendererFactory.warmUp(applicationContext,
+                Arrays.asList("/templates/*", "/missing.ftl"));
+        List<WarmUpReport.Entry> entries = report.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("/templates/a.html", entries.get(0).getPath());
+        assertEquals("mustache", entries.get(0).getRendererName());
+        assertNull(entries.get(0).getFailure());
+        assertEquals("/templates/b.ftl", entries.get(1).getPath());
+        assertEquals("freemarker", entries.get(1).getRendererName());
+        assertSame(exception, entries.get(1).getFailure());
+        assertEquals(Collections.singletonList(entries.get(1)), report.getFailures());
+        assertTrue(report.toString().startsWith("2 templates warmed up in "));
+        verify(applicationContext, mustacheResource, freemarkerResource, mustache, freemarker, plain);
+    }
+
+    /**
+     * A renderer that counts the renders, and those that run after it has
+     * been released.
+     */
+    private static class CheckingRenderer implements Renderer {
+
+        /**
+         * The number of renders.
+         */
+        private final AtomicInteger renders = new AtomicInteger();
+
+        /**
+         * The number of renders that ran after the release.
+         */
+        private final AtomicInteger violations = new AtomicInteger();
+
+        /**
+         * Whether the renderer has been released.
+         */
+        private volatile boolean released;
+
+        @Override
+        public void render(String path, Request request) {
+            if (released) {
+                violations.incrementAndGet();
+            }
+            Thread.yield();
+            if (released) {
+                violations.incrementAndGet();
+            }
+            renders.incrementAndGet();
+        }
+
+        @Override
+        public boolean isRenderable(String path, Request request) {
+            return true;
+        }
+    }
 }
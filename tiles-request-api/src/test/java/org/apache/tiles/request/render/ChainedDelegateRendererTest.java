@@ -27,12 +27,14 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Collections;
 
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests {@link ChainedDelegateRenderer}.
@@ -86,6 +88,8 @@ class ChainedDelegateRendererTest {
     void testWriteDefinition() throws IOException {
         Request requestContext = EasyMock
                 .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
 
         expect(
                 definitionRenderer.isRenderable("my.definition",
@@ -111,6 +115,8 @@ class ChainedDelegateRendererTest {
         StringWriter writer = new StringWriter();
         Request requestContext = EasyMock
                 .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
 
         replay(requestContext, stringRenderer, templateRenderer,
                 definitionRenderer);
@@ -135,6 +141,8 @@ class ChainedDelegateRendererTest {
         StringWriter writer = new StringWriter();
         Request requestContext = EasyMock
                 .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
 
         expect(
                 definitionRenderer.isRenderable("Result",
@@ -167,6 +175,8 @@ class ChainedDelegateRendererTest {
     void testWriteString() throws IOException {
         Request requestContext = EasyMock
                 .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         expect(
                 definitionRenderer.isRenderable("Result",
                         requestContext)).andReturn(Boolean.FALSE);
@@ -197,6 +207,8 @@ class ChainedDelegateRendererTest {
         StringWriter writer = new StringWriter();
         Request requestContext = EasyMock
                 .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         templateRenderer.render("/myTemplate.jsp", requestContext);
         expect(
                 definitionRenderer.isRenderable("/myTemplate.jsp",
@@ -212,4 +224,35 @@ class ChainedDelegateRendererTest {
         verify(requestContext, stringRenderer, templateRenderer,
                 definitionRenderer);
     }
+
+    /**
+     * Tests
+     * {@link ChainedDelegateRenderer#render(String, Request)}
+     * with a {@link PathMatchingRenderer}, that is not asked whether it can
+     * render a path.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testWritePathMatching() throws IOException {
+        Request requestContext = EasyMock
+                .createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        PathMatchingRenderer pathMatchingRenderer = createMock(PathMatchingRenderer.class);
+        ChainedDelegateRenderer chainedRenderer = new ChainedDelegateRenderer();
+        chainedRenderer.addAttributeRenderer(pathMatchingRenderer);
+        chainedRenderer.addAttributeRenderer(stringRenderer);
+
+        expect(pathMatchingRenderer.getRenderablePaths()).andReturn(
+                new RenderablePaths("/", ".ftl", null)).anyTimes();
+        pathMatchingRenderer.render("/myTemplate.ftl", requestContext);
+        pathMatchingRenderer.render("/myTemplate.ftl", requestContext);
+
+        replay(requestContext, stringRenderer, pathMatchingRenderer);
+        assertTrue(chainedRenderer.isRenderable("/myTemplate.ftl", requestContext));
+        chainedRenderer.render("/myTemplate.ftl", requestContext);
+        chainedRenderer.render("/myTemplate.ftl", requestContext);
+        verify(requestContext, stringRenderer, pathMatchingRenderer);
+    }
 }
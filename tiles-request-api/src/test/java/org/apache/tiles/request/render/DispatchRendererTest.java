@@ -26,11 +26,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -61,6 +70,8 @@ class DispatchRendererTest {
     @Test
     void testWrite() throws IOException {
         DispatchRequest requestContext = createMock(DispatchRequest.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         requestContext.dispatch("/myTemplate.jsp");
         replay(requestContext);
         renderer.render("/myTemplate.jsp", requestContext);
@@ -76,6 +87,8 @@ class DispatchRendererTest {
     @Test
     public void testWriteNull() throws IOException {
         DispatchRequest requestContext = createMock(DispatchRequest.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         replay(requestContext);
         assertThrows(CannotRenderException.class, () -> renderer.render(null, requestContext));
         verify(requestContext);
@@ -88,9 +101,35 @@ class DispatchRendererTest {
     @Test
     void testIsRenderable() {
         Request requestContext = createMock(DispatchRequest.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         replay(requestContext);
         assertTrue(renderer.isRenderable("/myTemplate.jsp", requestContext));
         assertFalse(renderer.isRenderable(null, requestContext));
         verify(requestContext);
     }
+
+    /**
+     * Tests that a failure caused by the client going away is reported as a
+     * cancellation, and that the deadline of the request is aborted.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testWriteClientAborted() throws IOException {
+        DispatchRequest requestContext = createMock(DispatchRequest.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope).anyTimes();
+        IOException exception = new ClosedChannelException();
+        requestContext.dispatch("/myTemplate.jsp");
+        expectLastCall().andThrow(exception);
+        replay(requestContext);
+        RenderDeadline deadline = RenderDeadline.start(requestContext, 1, TimeUnit.HOURS);
+        RenderCancelledException cancelled = assertThrows(RenderCancelledException.class,
+                () -> renderer.render("/myTemplate.jsp", requestContext));
+        assertEquals(RenderCancelledException.Reason.CLIENT_ABORTED, cancelled.getReason());
+        assertSame(exception, cancelled.getCause());
+        assertTrue(deadline.isAborted());
+        verify(requestContext);
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.NotAvailableFeatureException;
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link FragmentRequest}.
+ *
+ * @version $Rev$ $Date$
+ */
+class FragmentRequestTest {
+
+    /**
+     * Tests that the request is copied, including the session scope but not
+     * the application scope, and that output is buffered.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSnapshot() throws IOException {
+        Request request = createMock(Request.class);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put("one", 1);
+        Map<String, Object> sessionScope = new HashMap<String, Object>();
+        sessionScope.put("user", "joe");
+        Map<String, Object> applicationScope = new HashMap<String, Object>();
+        expect(request.getApplicationContext()).andReturn(applicationContext);
+        expect(request.getHeaderValues()).andReturn(
+                Collections.singletonMap("accept", new String[] {"text/html", "text/plain"}));
+        expect(request.getParamValues()).andReturn(Collections.singletonMap("p", new String[] {"v"}));
+        expect(request.getRequestLocale()).andReturn(Locale.ITALY);
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList("request", "session", "application"));
+        expect(request.getContext("request")).andReturn(requestScope);
+        expect(request.getContext("session")).andReturn(sessionScope);
+        expect(request.getContext("application")).andReturn(applicationScope);
+
+        replay(request, applicationContext);
+        FragmentRequest view = new FragmentRequest(request);
+        FragmentRequest other = new FragmentRequest(view);
+        requestScope.put("two", 2);
+        sessionScope.put("user", "jane");
+        applicationScope.put("version", "1.0");
+        assertSame(applicationContext, view.getApplicationContext());
+        assertEquals("text/html", view.getHeader().get("Accept"));
+        assertEquals("text/plain", view.getHeaderValues().get("Accept")[1]);
+        assertEquals("text/html", other.getHeader().get("ACCEPT"));
+        assertEquals("v", view.getParam().get("p"));
+        assertEquals("v", view.getParamValues().get("p")[0]);
+        assertEquals(Locale.ITALY, other.getRequestLocale());
+        assertEquals(Arrays.asList("request", "session", "application"), other.getAvailableScopes());
+        assertEquals(Collections.singletonMap("one", 1), other.getContext("request"));
+        assertEquals("joe", other.getContext("session").get("user"));
+        assertEquals("1.0", view.getContext("application").get("version"));
+        assertThrows(UnsupportedOperationException.class, () -> view.getContext("request").put("three", 3));
+        assertThrows(UnsupportedOperationException.class, () -> view.getContext("session").put("three", 3));
+        assertThrows(IllegalArgumentException.class, () -> view.getContext("page"));
+        view.getWriter().write("Hello");
+        view.getPrintWriter().print(" world");
+        other.getPrintWriter().print("Other");
+        assertEquals("Hello world", view.getContent());
+        assertEquals("Other", other.getContent());
+        assertFalse(view.isResponseCommitted());
+        assertThrows(NotAvailableFeatureException.class, () -> view.getOutputStream());
+        assertThrows(NotAvailableFeatureException.class, () -> view.getResponseHeaders());
+        assertThrows(NotAvailableFeatureException.class, () -> view.isUserInRole("admin"));
+        verify(request, applicationContext);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link LazyRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+class LazyRendererTest {
+
+    /**
+     * The paths the renderers can render.
+     */
+    private static final RenderablePaths PATHS = new RenderablePaths("/", null, null);
+
+    /**
+     * Tests that a renderer that is not started is initialized once, by its
+     * first caller.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testInitializeOnFirstCall() throws IOException {
+        Renderer renderer = createMock(Renderer.class);
+        Request request = createMock(Request.class);
+        AtomicInteger initializations = new AtomicInteger();
+        renderer.render("/path", request);
+
+        replay(renderer, request);
+        LazyRenderer lazyRenderer = new LazyRenderer("test", PATHS, () -> {
+            initializations.incrementAndGet();
+            return renderer;
+        });
+        assertEquals("test", lazyRenderer.getName());
+        assertFalse(lazyRenderer.isInitialized());
+        assertEquals(-1L, lazyRenderer.getInitializationTime(TimeUnit.NANOSECONDS));
+        assertEquals(-1L, lazyRenderer.getWaitTime(TimeUnit.NANOSECONDS));
+        assertTrue(lazyRenderer.isRenderable("/path", request));
+        assertFalse(lazyRenderer.isRenderable("path", request));
+        assertSame(PATHS, lazyRenderer.getRenderablePaths());
+        assertFalse(lazyRenderer.isInitialized());
+        lazyRenderer.render("/path", request);
+        assertSame(renderer, lazyRenderer.getRenderer());
+        assertEquals(1, initializations.get());
+        assertTrue(lazyRenderer.isInitialized());
+        assertNull(lazyRenderer.getFailure());
+        assertEquals(0L, lazyRenderer.getWaitTime(TimeUnit.NANOSECONDS));
+        assertTrue(lazyRenderer.getInitializationTime(TimeUnit.NANOSECONDS) >= 0L);
+        assertEquals(Thread.currentThread().getName(), lazyRenderer.getInitializingThread());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests that a started renderer is initialized in the background, and that
+     * the first caller waits for it.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testStart() throws Exception {
+        Renderer renderer = createMock(Renderer.class);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            replay(renderer);
+            LazyRenderer lazyRenderer = new LazyRenderer("test", PATHS, () -> {
+                release.await();
+                return renderer;
+            });
+            assertSame(lazyRenderer, lazyRenderer.start(executor));
+            lazyRenderer.start(executor);
+            assertFalse(lazyRenderer.await(10, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertSame(renderer, lazyRenderer.getRenderer());
+            assertTrue(lazyRenderer.await(0, TimeUnit.SECONDS));
+            assertTrue(lazyRenderer.getInitializationTime(TimeUnit.NANOSECONDS) >= 0L);
+            assertFalse(Thread.currentThread().getName().equals(lazyRenderer.getInitializingThread()));
+            verify(renderer);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the initialization is run by the first caller if the executor
+     * rejects it.
+     */
+    @Test
+    void testStartRejected() {
+        Renderer renderer = createMock(Renderer.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        replay(renderer);
+        LazyRenderer lazyRenderer = new LazyRenderer("test", PATHS, () -> renderer).start(executor);
+        assertFalse(lazyRenderer.isInitialized());
+        assertSame(renderer, lazyRenderer.getRenderer());
+        verify(renderer);
+    }
+
+    /**
+     * Tests that a failed initialization is reported to each caller.
+     */
+    @Test
+    void testInitializationFailure() {
+        Request request = createMock(Request.class);
+        IllegalStateException exception = new IllegalStateException("failure");
+
+        replay(request);
+        LazyRenderer lazyRenderer = new LazyRenderer("test", PATHS, () -> {
+            throw exception;
+        });
+        CannotRenderException thrown = assertThrows(CannotRenderException.class,
+                () -> lazyRenderer.render("/path", request));
+        assertSame(exception, thrown.getCause());
+        assertTrue(lazyRenderer.isRenderable("/path", request));
+        assertSame(exception, lazyRenderer.getFailure());
+        assertTrue(lazyRenderer.isInitialized());
+        assertThrows(CannotRenderException.class,
+                () -> new LazyRenderer("null", PATHS, () -> null).getRenderer());
+        verify(request);
+    }
+}
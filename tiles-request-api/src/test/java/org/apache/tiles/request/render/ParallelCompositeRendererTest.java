@@ -0,0 +1,310 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.ParallelCompositeRenderer.Fragment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.Writer;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link ParallelCompositeRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+class ParallelCompositeRendererTest {
+
+    /**
+     * The renderer to test.
+     */
+    private ParallelCompositeRenderer renderer;
+
+    /**
+     * The request.
+     */
+    private Request request;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        renderer = new ParallelCompositeRenderer();
+        request = createMock(Request.class);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        expect(request.getApplicationContext()).andReturn(null).anyTimes();
+        expect(request.getHeaderValues()).andReturn(Collections.<String, String[]>emptyMap()).anyTimes();
+        expect(request.getParamValues()).andReturn(Collections.<String, String[]>emptyMap()).anyTimes();
+        expect(request.getRequestLocale()).andReturn(null).anyTimes();
+        expect(request.getAvailableScopes()).andReturn(Collections.<String>emptyList()).anyTimes();
+    }
+
+    /**
+     * Tears down the test.
+     */
+    @AfterEach
+    void tearDown() {
+        renderer.shutdown();
+    }
+
+    /**
+     * Tests that the independent fragments are rendered concurrently, and
+     * written in document order.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRender() throws IOException {
+        CountDownLatch allStarted = new CountDownLatch(2);
+        Renderer slow = new Renderer() {
+
+            @Override
+            public void render(String path, Request fragmentRequest) throws IOException {
+                allStarted.countDown();
+                try {
+                    assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                fragmentRequest.getWriter().write(path);
+            }
+
+            @Override
+            public boolean isRenderable(String path, Request fragmentRequest) {
+                return true;
+            }
+        };
+        Renderer dependent = createMock(Renderer.class);
+        StringWriter writer = new StringWriter();
+        dependent.render("/menu", request);
+        expectLastCall().andAnswer(() -> {
+            ((Request) getCurrentArgument(1)).getWriter().write("/menu");
+            return null;
+        });
+        expect(request.getWriter()).andReturn(writer).times(2);
+
+        replay(request, dependent);
+        renderer.addComposition("/page", Arrays.asList(new Fragment(slow, "/header"),
+                new Fragment(dependent, "/menu", false), new Fragment(slow, "/body")));
+        assertTrue(renderer.isRenderable("/page", request));
+        assertFalse(renderer.isRenderable("/other", request));
+        assertFalse(renderer.isRenderable(null, request));
+        renderer.render("/page", request);
+        assertEquals("/header/menu/body", writer.toString());
+        verify(request, dependent);
+    }
+
+    /**
+     * Tests that at most the given number of fragments of a render are
+     * rendered at a time.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderMaxConcurrentFragments() throws IOException {
+        renderer.shutdown();
+        renderer = new ParallelCompositeRenderer(Executors.newVirtualThreadPerTaskExecutor(), 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Renderer counting = new Renderer() {
+
+            @Override
+            public void render(String path, Request fragmentRequest) throws IOException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                fragmentRequest.getWriter().write(path);
+            }
+
+            @Override
+            public boolean isRenderable(String path, Request fragmentRequest) {
+                return true;
+            }
+        };
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer);
+
+        replay(request);
+        renderer.addComposition("/page", Arrays.asList(new Fragment(counting, "/a"),
+                new Fragment(counting, "/b"), new Fragment(counting, "/c"),
+                new Fragment(counting, "/d"), new Fragment(counting, "/e")));
+        renderer.render("/page", request);
+        assertEquals("/a/b/c/d/e", writer.toString());
+        assertTrue(maxRunning.get() <= 2, "Too many concurrent fragments: " + maxRunning.get());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelCompositeRenderer(Executors.newVirtualThreadPerTaskExecutor(), 0));
+        verify(request);
+    }
+
+    /**
+     * Tests that the failure of a fragment is propagated.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderFailure() throws IOException {
+        Renderer failing = createMock(Renderer.class);
+        IOException exception = new IOException("failure");
+        failing.render(eq("/body"), anyObject(Request.class));
+        expectLastCall().andThrow(exception);
+        RuntimeException runtimeException = new IllegalStateException("failure");
+        failing.render(eq("/footer"), anyObject(Request.class));
+        expectLastCall().andThrow(runtimeException);
+
+        replay(request, failing);
+        renderer.addComposition("/page", Arrays.asList(new Fragment(failing, "/body")));
+        assertSame(exception, assertThrows(IOException.class, () -> renderer.render("/page", request)));
+        renderer.addComposition("/other", Arrays.asList(new Fragment(failing, "/footer")));
+        assertSame(runtimeException, assertThrows(IllegalStateException.class,
+                () -> renderer.render("/other", request)));
+        verify(failing);
+    }
+
+    /**
+     * Tests rendering an unknown composition.
+     */
+    @Test
+    void testRenderUnknown() {
+        replay(request);
+        assertThrows(CannotRenderException.class, () -> renderer.render("/unknown", request));
+        assertThrows(CannotRenderException.class, () -> renderer.render(null, request));
+    }
+
+    /**
+     * Tests that the response is flushed after the flush boundaries, once the
+     * preceding fragments are written.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderFlush() throws IOException {
+        StringBuilder events = new StringBuilder();
+        Writer writer = new Writer() {
+
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                events.append(cbuf, off, len);
+            }
+
+            @Override
+            public void flush() {
+                events.append("|flush|");
+            }
+
+            @Override
+            public void close() {
+                // Nothing to close.
+            }
+        };
+        Renderer fragmentRenderer = new StringRenderer();
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+
+        replay(request);
+        renderer.addComposition("/page", Arrays.asList(
+                new Fragment(fragmentRenderer, "<head/>", true, true),
+                new Fragment(fragmentRenderer, "<body/>", false, false),
+                new Fragment(fragmentRenderer, "<footer/>", true, false)));
+        renderer.render("/page", request);
+        assertEquals("<head/>|flush|<body/><footer/>", events.toString());
+        verify(request);
+    }
+
+    /**
+     * Tests that the render stops when the deadline passes while waiting for
+     * a fragment.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderDeadlineExceeded() throws IOException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Renderer stuck = new Renderer() {
+
+            @Override
+            public void render(String path, Request fragmentRequest) throws IOException {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+
+            @Override
+            public boolean isRenderable(String path, Request fragmentRequest) {
+                return true;
+            }
+        };
+        Request deadlineRequest = createMock(Request.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        expect(deadlineRequest.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope).anyTimes();
+        expect(deadlineRequest.getApplicationContext()).andReturn(null).anyTimes();
+        expect(deadlineRequest.getHeaderValues()).andReturn(Collections.<String, String[]>emptyMap()).anyTimes();
+        expect(deadlineRequest.getParamValues()).andReturn(Collections.<String, String[]>emptyMap()).anyTimes();
+        expect(deadlineRequest.getRequestLocale()).andReturn(null).anyTimes();
+        expect(deadlineRequest.getAvailableScopes()).andReturn(Collections.<String>emptyList()).anyTimes();
+
+        replay(deadlineRequest);
+        RenderDeadline.start(deadlineRequest, 50, TimeUnit.MILLISECONDS);
+        renderer.addComposition("/page", Arrays.asList(new Fragment(stuck, "/body")));
+        RenderCancelledException exception = assertThrows(RenderCancelledException.class,
+                () -> renderer.render("/page", deadlineRequest));
+        assertEquals(RenderCancelledException.Reason.DEADLINE_EXCEEDED, exception.getReason());
+        try {
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        verify(deadlineRequest);
+    }
+}
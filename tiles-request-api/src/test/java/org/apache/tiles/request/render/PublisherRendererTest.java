@@ -27,11 +27,26 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -63,6 +78,8 @@ class PublisherRendererTest {
     void testWrite() throws IOException {
         StringWriter writer = new StringWriter();
         Request requestContext = createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         RendererListener listener = createMock(RendererListener.class);
 
         listener.start("Result", requestContext);
@@ -84,10 +101,143 @@ class PublisherRendererTest {
     @Test
     void testIsRenderable() {
         Request requestContext = createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         RendererListener listener = createMock(RendererListener.class);
         replay(requestContext);
         renderer.addListener(listener);
         assertTrue(renderer.isRenderable("Result", requestContext));
         verify(requestContext);
     }
+
+    /**
+     * Tests the order of the notifications and
+     * {@link PublisherRenderer#removeListener(RendererListener)}.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testRemoveListener() throws IOException {
+        Renderer internal = createMock(Renderer.class);
+        Request requestContext = createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        RendererListener listener1 = createMock(RendererListener.class);
+        RendererListener listener2 = createMock(RendererListener.class);
+        List<String> calls = new ArrayList<String>();
+        listener1.start("/path", requestContext);
+        expectLastCall().andAnswer(() -> calls.add("start1")).times(2);
+        listener2.start("/path", requestContext);
+        expectLastCall().andAnswer(() -> calls.add("start2"));
+        internal.render("/path", requestContext);
+        expectLastCall().times(2);
+        listener2.end("/path", requestContext);
+        expectLastCall().andAnswer(() -> calls.add("end2"));
+        listener1.end("/path", requestContext);
+        expectLastCall().andAnswer(() -> calls.add("end1")).times(2);
+
+        replay(internal, requestContext, listener1, listener2);
+        PublisherRenderer publisher = new PublisherRenderer(internal);
+        publisher.addListener(listener1);
+        publisher.addListener(listener2);
+        publisher.render("/path", requestContext);
+        assertTrue(publisher.removeListener(listener2));
+        assertFalse(publisher.removeListener(listener2));
+        publisher.render("/path", requestContext);
+        assertEquals(Arrays.asList("start1", "start2", "end2", "end1", "start1", "end1"), calls);
+        verify(internal, requestContext, listener1, listener2);
+    }
+
+    /**
+     * Tests that a listener added during a render is notified only by the
+     * following renders.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testAddListenerDuringRender() throws IOException {
+        Renderer internal = createMock(Renderer.class);
+        Request requestContext = createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        RendererListener listener = createMock(RendererListener.class);
+        PublisherRenderer publisher = new PublisherRenderer(internal);
+        internal.render("/path", requestContext);
+        expectLastCall().andAnswer(() -> {
+            publisher.addListener(listener);
+            return null;
+        });
+        internal.render("/path", requestContext);
+        listener.start("/path", requestContext);
+        listener.end("/path", requestContext);
+
+        replay(internal, requestContext, listener);
+        publisher.render("/path", requestContext);
+        publisher.render("/path", requestContext);
+        verify(internal, requestContext, listener);
+    }
+
+    /**
+     * Tests that exceptions are passed to the listeners in reverse order.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testHandleIOException() throws IOException {
+        Renderer internal = createMock(Renderer.class);
+        Request requestContext = createMock(Request.class);
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        RendererListener listener1 = createMock(RendererListener.class);
+        RendererListener listener2 = createMock(RendererListener.class);
+        IOException exception = new IOException("first");
+        IOException translated = new IOException("second");
+        listener1.start("/path", requestContext);
+        listener2.start("/path", requestContext);
+        internal.render("/path", requestContext);
+        expectLastCall().andThrow(exception);
+        listener2.handleIOException(exception, requestContext);
+        expectLastCall().andThrow(translated);
+        listener1.handleIOException(translated, requestContext);
+        expectLastCall().andThrow(translated);
+        listener2.end("/path", requestContext);
+        listener1.end("/path", requestContext);
+
+        replay(internal, requestContext, listener1, listener2);
+        PublisherRenderer publisher = new PublisherRenderer(internal);
+        publisher.addListener(listener1);
+        publisher.addListener(listener2);
+        assertSame(translated, assertThrows(IOException.class, () -> publisher.render("/path", requestContext)));
+        verify(internal, requestContext, listener1, listener2);
+    }
+
+    /**
+     * Tests that a render whose deadline has passed is not performed, and that
+     * the listeners are notified of the cancellation.
+     *
+     * @throws IOException If something goes wrong during rendition.
+     */
+    @Test
+    void testRenderDeadlineExceeded() throws IOException {
+        Renderer internal = createMock(Renderer.class);
+        Request requestContext = createMock(Request.class);
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        expect(requestContext.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope).anyTimes();
+        RendererListener listener = createMock(RendererListener.class);
+        listener.start("/path", requestContext);
+        listener.handleIOException(anyObject(RenderCancelledException.class), eq(requestContext));
+        expectLastCall().andAnswer(() -> {
+            throw (IOException) getCurrentArgument(0);
+        });
+        listener.end("/path", requestContext);
+
+        replay(internal, requestContext, listener);
+        RenderDeadline.start(requestContext, 0, TimeUnit.SECONDS);
+        PublisherRenderer publisher = new PublisherRenderer(internal);
+        publisher.addListener(listener);
+        RenderCancelledException exception = assertThrows(RenderCancelledException.class,
+                () -> publisher.render("/path", requestContext));
+        assertEquals(RenderCancelledException.Reason.DEADLINE_EXCEEDED, exception.getReason());
+        verify(internal, requestContext, listener);
+    }
 }
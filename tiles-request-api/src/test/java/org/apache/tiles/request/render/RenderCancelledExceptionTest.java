@@ -0,0 +1,59 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests {@link RenderCancelledException}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RenderCancelledExceptionTest {
+
+    /**
+     * Test method for {@link RenderCancelledException#RenderCancelledException(RenderCancelledException.Reason, String)}.
+     */
+    @Test
+    void testRenderCancelledExceptionString() {
+        RenderCancelledException exception = new RenderCancelledException(
+                RenderCancelledException.Reason.DEADLINE_EXCEEDED, "my message");
+        assertEquals(RenderCancelledException.Reason.DEADLINE_EXCEEDED, exception.getReason());
+        assertEquals("my message", exception.getMessage());
+        assertNull(exception.getCause());
+    }
+
+    /**
+     * Test method for {@link RenderCancelledException#RenderCancelledException(RenderCancelledException.Reason, String, Throwable)}.
+     */
+    @Test
+    void testRenderCancelledExceptionStringThrowable() {
+        Throwable cause = new Throwable();
+        RenderCancelledException exception = new RenderCancelledException(
+                RenderCancelledException.Reason.CLIENT_ABORTED, "my message", cause);
+        assertEquals(RenderCancelledException.Reason.CLIENT_ABORTED, exception.getReason());
+        assertEquals("my message", exception.getMessage());
+        assertEquals(cause, exception.getCause());
+    }
+}
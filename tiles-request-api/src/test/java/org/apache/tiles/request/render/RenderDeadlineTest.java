@@ -0,0 +1,180 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.DefaultRequestWrapper;
+import org.apache.tiles.request.DispatchRequest;
+import org.apache.tiles.request.DispatchRequestWrapper;
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RenderDeadline}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RenderDeadlineTest {
+
+    /**
+     * Tests setting and getting the deadline of a request.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testStart() throws IOException {
+        Request request = createMock(Request.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(scope).anyTimes();
+
+        replay(request);
+        assertNull(RenderDeadline.get(request));
+        RenderDeadline.check(request);
+        RenderDeadline deadline = RenderDeadline.start(request, 1, TimeUnit.HOURS);
+        assertSame(deadline, scope.get(RenderDeadline.ATTRIBUTE_NAME));
+        assertSame(deadline, RenderDeadline.get(request));
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.getRemaining(TimeUnit.MINUTES) > 58);
+        RenderDeadline.check(request);
+        verify(request);
+    }
+
+    /**
+     * Tests that the deadline of a request is read once, and kept in its
+     * dispatch state.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGetCached() throws IOException {
+        DispatchRequest dispatchRequest = createMock(DispatchRequest.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+        RenderDeadline deadline = new RenderDeadline(1, TimeUnit.HOURS);
+        scope.put(RenderDeadline.ATTRIBUTE_NAME, deadline);
+        expect(dispatchRequest.getContext(Request.REQUEST_SCOPE)).andReturn(scope).once();
+
+        replay(dispatchRequest);
+        DispatchRequestWrapper request = new DispatchRequestWrapper(new DispatchRequestWrapper(dispatchRequest));
+        Request wrapper = new DefaultRequestWrapper(new DispatchRequestWrapper(request));
+        assertSame(deadline, RenderDeadline.get(request));
+        assertSame(deadline, RenderDeadline.get(wrapper));
+        RenderDeadline.check(wrapper);
+        verify(dispatchRequest);
+    }
+
+    /**
+     * Tests {@link RenderDeadline#check()}.
+     */
+    @Test
+    void testCheck() {
+        RenderDeadline expired = new RenderDeadline(0, TimeUnit.SECONDS);
+        assertTrue(expired.isExpired());
+        assertEquals(0L, expired.getRemaining(TimeUnit.NANOSECONDS));
+        assertEquals(RenderCancelledException.Reason.DEADLINE_EXCEEDED,
+                assertThrows(RenderCancelledException.class, expired::check).getReason());
+        RenderDeadline aborted = new RenderDeadline(Long.MAX_VALUE, TimeUnit.DAYS);
+        assertFalse(aborted.isExpired());
+        aborted.abort();
+        assertTrue(aborted.isAborted());
+        assertEquals(RenderCancelledException.Reason.CLIENT_ABORTED,
+                assertThrows(RenderCancelledException.class, aborted::check).getReason());
+    }
+
+    /**
+     * Tests {@link RenderDeadline#translate(Request, IOException)}.
+     */
+    @Test
+    void testTranslate() {
+        Request request = createMock(Request.class);
+        Map<String, Object> scope = new HashMap<String, Object>();
+        RenderDeadline deadline = new RenderDeadline(1, TimeUnit.HOURS);
+        scope.put(RenderDeadline.ATTRIBUTE_NAME, deadline);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(scope).anyTimes();
+
+        replay(request);
+        IOException notFound = new IOException("Template not found");
+        assertSame(notFound, RenderDeadline.translate(request, notFound));
+        assertFalse(deadline.isAborted());
+        IOException brokenPipe = new IOException("Write failed", new ClosedChannelException());
+        IOException translated = RenderDeadline.translate(request, brokenPipe);
+        assertInstanceOf(RenderCancelledException.class, translated);
+        assertSame(brokenPipe, translated.getCause());
+        assertTrue(deadline.isAborted());
+        assertSame(translated, RenderDeadline.translate(request, translated));
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RenderDeadline#isClientAbort(Throwable)}.
+     */
+    @Test
+    void testIsClientAbort() {
+        assertTrue(RenderDeadline.isClientAbort(new ClientAbortException()));
+        assertTrue(RenderDeadline.isClientAbort(new IOException(new ClientAbortException())));
+        assertTrue(RenderDeadline.isClientAbort(new IOException(new ContainerClientAbortException())));
+        assertTrue(RenderDeadline.isClientAbort(new ClosedChannelException()));
+        assertFalse(RenderDeadline.isClientAbort(new SocketException("Connection reset by peer")));
+        assertFalse(RenderDeadline.isClientAbort(new IOException("Broken pipe")));
+        assertFalse(RenderDeadline.isClientAbort(new IOException("Disk full")));
+        assertFalse(RenderDeadline.isClientAbort(null));
+    }
+
+    /**
+     * Mimics the exception of a container when the client disconnects.
+     */
+    private static class ClientAbortException extends IOException {
+
+        /**
+         * The serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Mimics a subclass of the exception of a container when the client
+     * disconnects.
+     */
+    private static class ContainerClientAbortException extends ClientAbortException {
+
+        /**
+         * The serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+    }
+}
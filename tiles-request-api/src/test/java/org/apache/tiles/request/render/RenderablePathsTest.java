@@ -0,0 +1,65 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RenderablePaths}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RenderablePathsTest {
+
+    /**
+     * Test method for {@link RenderablePaths#matches(String)}.
+     */
+    @Test
+    void testMatches() {
+        Pattern pattern = Pattern.compile(".*/fragments/.*");
+        RenderablePaths paths = new RenderablePaths("/", ".ftl", pattern);
+        assertEquals("/", paths.getPrefix());
+        assertEquals(".ftl", paths.getSuffix());
+        assertSame(pattern, paths.getPattern());
+        assertTrue(paths.matches("/fragments/header.ftl"));
+        assertFalse(paths.matches("fragments/header.ftl"));
+        assertFalse(paths.matches("/fragments/header.vm"));
+        assertFalse(paths.matches("/layouts/main.ftl"));
+        assertFalse(paths.matches(null));
+    }
+
+    /**
+     * Tests {@link RenderablePaths#ALL}.
+     */
+    @Test
+    void testAll() {
+        assertTrue(RenderablePaths.ALL.matches(""));
+        assertTrue(RenderablePaths.ALL.matches("Some text"));
+        assertFalse(RenderablePaths.ALL.matches(null));
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link RendererRouter}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RendererRouterTest {
+
+    /**
+     * The request.
+     */
+    private Request request;
+
+    /**
+     * A path-matching renderer for <code>.ftl</code> paths.
+     */
+    private PathMatchingRenderer ftlRenderer;
+
+    /**
+     * A path-matching renderer for paths matching a pattern.
+     */
+    private PathMatchingRenderer patternRenderer;
+
+    /**
+     * A renderer that declares nothing.
+     */
+    private Renderer probedRenderer;
+
+    /**
+     * A path-matching renderer for all paths.
+     */
+    private PathMatchingRenderer allRenderer;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        request = createMock(Request.class);
+        ftlRenderer = createMock(PathMatchingRenderer.class);
+        patternRenderer = createMock(PathMatchingRenderer.class);
+        probedRenderer = createMock(Renderer.class);
+        allRenderer = createMock(PathMatchingRenderer.class);
+        expect(ftlRenderer.getRenderablePaths()).andReturn(new RenderablePaths("/", ".ftl", null))
+                .anyTimes();
+        expect(patternRenderer.getRenderablePaths()).andReturn(
+                new RenderablePaths(null, null, Pattern.compile(".+\\.mustache"))).anyTimes();
+        expect(allRenderer.getRenderablePaths()).andReturn(RenderablePaths.ALL).anyTimes();
+    }
+
+    /**
+     * Tests that path-matching renderers are chosen without probing, and that
+     * the result is memoized.
+     */
+    @Test
+    void testRouteIndexed() {
+        expect(probedRenderer.isRenderable("/page.jsp", request)).andReturn(false).times(2);
+
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(ftlRenderer);
+        router.addRenderer(patternRenderer);
+        router.addRenderer(probedRenderer);
+        router.addRenderer(allRenderer);
+        assertSame(ftlRenderer, router.route("/page.ftl", request));
+        assertSame(ftlRenderer, router.route("/page.ftl", request));
+        assertSame(patternRenderer, router.route("/page.mustache", request));
+        assertSame(allRenderer, router.route("/page.jsp", request));
+        assertSame(allRenderer, router.route("/page.jsp", request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that renderers that declare nothing are probed, in order, and
+     * that a path no renderer can render is routed to nothing.
+     */
+    @Test
+    void testRouteProbed() {
+        expect(probedRenderer.isRenderable("/page.jsp", request)).andReturn(true);
+        expect(probedRenderer.isRenderable("page.ftl", request)).andReturn(false).times(2);
+        expect(probedRenderer.isRenderable(null, request)).andReturn(false);
+
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(ftlRenderer);
+        router.addRenderer(patternRenderer);
+        router.addRenderer(probedRenderer);
+        assertSame(probedRenderer, router.route("/page.jsp", request));
+        assertNull(router.route("page.ftl", request));
+        assertNull(router.route("page.ftl", request));
+        assertNull(router.route(null, request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that a renderer that declares nothing comes first if it is
+     * added first.
+     */
+    @Test
+    void testRouteOrder() {
+        expect(probedRenderer.isRenderable("/page.ftl", request)).andReturn(true);
+
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(probedRenderer);
+        router.addRenderer(ftlRenderer);
+        router.addRenderer(patternRenderer);
+        assertSame(probedRenderer, router.route("/page.ftl", request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that adding a renderer rebuilds the index, and that routing goes
+     * on when the memo is full.
+     */
+    @Test
+    void testAddRendererAndMemoSize() {
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        RendererRouter router = new RendererRouter(1);
+        router.addRenderer(ftlRenderer);
+        router.addRenderer(patternRenderer);
+        assertNull(router.route("/page.jsp", request));
+        assertSame(ftlRenderer, router.route("/page.ftl", request));
+        assertSame(patternRenderer, router.route("/page.mustache", request));
+        router.addRenderer(allRenderer);
+        assertSame(allRenderer, router.route("/page.jsp", request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that the index is rebuilt when a renderer changes its renderable
+     * paths.
+     */
+    @Test
+    void testRouteRenderablePathsChanged() {
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        ConfigurableRenderer renderer = new ConfigurableRenderer();
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(renderer);
+        assertSame(renderer, router.route("/page.ftl", request));
+        renderer.renderablePaths = new RenderablePaths(null, ".mustache", null);
+        assertNull(router.route("/page.ftl", request));
+        assertSame(renderer, router.route("/page.mustache", request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that the renderable paths are not asked for at each routing.
+     */
+    @Test
+    void testRouteRenderablePathsUnchanged() {
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        ConfigurableRenderer renderer = new ConfigurableRenderer();
+        renderer.renderablePaths = new RenderablePaths(null, ".ftl", null);
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(renderer);
+        assertSame(renderer, router.route("/page.ftl", request));
+        assertSame(renderer, router.route("/other.ftl", request));
+        assertNull(router.route("some text", request));
+        assertEquals(1, renderer.calls);
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * Tests that the memo size must be positive.
+     */
+    @Test
+    void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new RendererRouter(0));
+    }
+
+    /**
+     * Tests that a path-matching renderer whose class overrides
+     * {@link Renderer#isRenderable(String, Request)} is probed.
+     */
+    @Test
+    void testRouteOverridingRenderer() {
+        replay(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+        ConfigurableRenderer renderer = new ConfigurableRenderer() {
+
+            @Override
+            public boolean isRenderable(String path, Request request) {
+                return "/page.jsp".equals(path);
+            }
+        };
+        RendererRouter router = new RendererRouter();
+        router.addRenderer(renderer);
+        router.addRenderer(ftlRenderer);
+        assertSame(renderer, router.route("/page.jsp", request));
+        assertSame(ftlRenderer, router.route("/page.ftl", request));
+        verify(request, ftlRenderer, patternRenderer, probedRenderer, allRenderer);
+    }
+
+    /**
+     * A path-matching renderer whose renderable paths can change.
+     */
+    private static class ConfigurableRenderer implements PathMatchingRenderer {
+
+        /**
+         * The renderable paths.
+         */
+        private RenderablePaths renderablePaths = RenderablePaths.ALL;
+
+        /**
+         * The number of calls to {@link #getRenderablePaths()}.
+         */
+        private int calls;
+
+        @Override
+        public void render(String path, Request request) {
+            // nothing to render
+        }
+
+        @Override
+        public boolean isRenderable(String path, Request request) {
+            return renderablePaths.matches(path);
+        }
+
+        @Override
+        public RenderablePaths getRenderablePaths() {
+            calls++;
+            return renderablePaths;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RendererStartup}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RendererStartupTest {
+
+    /**
+     * Tests registering renderers, waiting for them and the timeline.
+     *
+     * @throws InterruptedException If something goes wrong.
+     */
+    @Test
+    void testRegister() throws InterruptedException {
+        Renderer renderer = createMock(Renderer.class);
+        CountDownLatch release = new CountDownLatch(1);
+        BasicRendererFactory factory = new BasicRendererFactory();
+        RendererStartup startup = new RendererStartup();
+        try {
+            replay(renderer);
+            LazyRenderer fast = startup.register(factory, "fast", RenderablePaths.ALL, () -> renderer);
+            LazyRenderer slow = startup.register(factory, "slow", RenderablePaths.ALL, () -> {
+                release.await();
+                return renderer;
+            });
+            startup.register(factory, "failing", RenderablePaths.ALL, () -> {
+                throw new IllegalStateException("no engine");
+            });
+            assertSame(fast, factory.getRenderer("fast"));
+            assertSame(slow, factory.getRenderer("slow"));
+            assertFalse(startup.awaitInitialization(10, TimeUnit.MILLISECONDS));
+            assertFalse(startup.getTimeline().contains("slow: waited"));
+            release.countDown();
+            assertTrue(startup.awaitInitialization(10, TimeUnit.SECONDS));
+            List<LazyRenderer> renderers = startup.getRenderers();
+            assertEquals(3, renderers.size());
+            assertSame(fast, renderers.get(0));
+            String[] timeline = startup.getTimeline().split("\n");
+            assertEquals(3, timeline.length);
+            assertTrue(timeline[0].startsWith("fast: waited "));
+            assertTrue(timeline[0].contains(" on tiles-renderer-init-"));
+            assertTrue(timeline[1].startsWith("slow: waited "));
+            assertTrue(timeline[2].endsWith("failed: java.lang.IllegalStateException: no engine"));
+            verify(renderer);
+        } finally {
+            startup.shutdown();
+        }
+    }
+}
@@ -81,4 +81,12 @@ class StringRendererTest {
         Assertions.assertTrue(renderer.isRenderable("Result", requestContext));
         verify(requestContext);
     }
+
+    /**
+     * Tests {@link StringRenderer#getRenderablePaths()}.
+     */
+    @Test
+    void testGetRenderablePaths() {
+        Assertions.assertSame(RenderablePaths.ALL, renderer.getRenderablePaths());
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TrackedRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+class TrackedRendererTest {
+
+    /**
+     * The decorated renderer.
+     */
+    private Renderer renderer;
+
+    /**
+     * The request.
+     */
+    private Request request;
+
+    /**
+     * The renderer to test.
+     */
+    private TrackedRenderer trackedRenderer;
+
+    /**
+     * The number of times the retirement callback has run.
+     */
+    private AtomicInteger retirements;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        renderer = createMock(Renderer.class);
+        request = createMock(Request.class);
+        trackedRenderer = new TrackedRenderer(renderer);
+        retirements = new AtomicInteger();
+    }
+
+    /**
+     * Tests {@link TrackedRenderer#isRenderable(String, Request)}.
+     */
+    @Test
+    void testIsRenderable() {
+        expect(renderer.isRenderable("/path", request)).andReturn(true);
+
+        replay(renderer, request);
+        assertSame(renderer, trackedRenderer.getRenderer());
+        assertTrue(trackedRenderer.isRenderable("/path", request));
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests {@link TrackedRenderer#retire(Runnable)} when no render is in
+     * progress.
+     */
+    @Test
+    void testRetireIdle() {
+        replay(renderer, request);
+        assertFalse(trackedRenderer.isRetired());
+        trackedRenderer.retire(retirements::incrementAndGet);
+        assertTrue(trackedRenderer.isRetired());
+        assertEquals(1, retirements.get());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests {@link TrackedRenderer#retire(Runnable)} during nested renders,
+     * the callback running after the outer one, once, even if it fails.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRetireInProgress() throws IOException {
+        renderer.render("/outer", request);
+        expectLastCall().andAnswer(() -> {
+            trackedRenderer.render("/inner", request);
+            assertEquals(0, retirements.get());
+            throw new IOException("failure");
+        });
+        renderer.render("/inner", request);
+        expectLastCall().andAnswer(() -> {
+            assertEquals(2, trackedRenderer.getRendersInProgress());
+            trackedRenderer.retire(retirements::incrementAndGet);
+            return null;
+        });
+
+        replay(renderer, request);
+        assertThrows(IOException.class, () -> trackedRenderer.render("/outer", request));
+        assertEquals(1, retirements.get());
+        assertEquals(0, trackedRenderer.getRendersInProgress());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests {@link TrackedRenderer#render(String, Request)} once retired,
+     * passing the render to the successor.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderRetiredSuccessor() throws IOException {
+        Renderer successor = createMock(Renderer.class);
+        successor.render("/path", request);
+
+        replay(renderer, request, successor);
+        trackedRenderer.retire(retirements::incrementAndGet, successor);
+        trackedRenderer.render("/path", request);
+        assertEquals(1, retirements.get());
+        assertEquals(0, trackedRenderer.getRendersInProgress());
+        verify(renderer, request, successor);
+    }
+
+    /**
+     * Tests {@link TrackedRenderer#render(String, Request)} once retired
+     * without successor.
+     */
+    @Test
+    void testRenderRetired() {
+        replay(renderer, request);
+        trackedRenderer.retire(retirements::incrementAndGet);
+        assertThrows(CannotRenderException.class, () -> trackedRenderer.render("/path", request));
+        trackedRenderer.retire(retirements::incrementAndGet);
+        assertEquals(2, retirements.get());
+        verify(renderer, request);
+    }
+}
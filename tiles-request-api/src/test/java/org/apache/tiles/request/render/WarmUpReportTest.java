@@ -0,0 +1,59 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link WarmUpReport}.
+ *
+ * @version $Rev$ $Date$
+ */
+class WarmUpReportTest {
+
+    /**
+     * Tests the report and its entries.
+     */
+    @Test
+    void testReport() {
+        WarmUpReport.Entry compiled = new WarmUpReport.Entry("/a.html", "mustache", 2500000L, null);
+        WarmUpReport.Entry failed = new WarmUpReport.Entry("/b.ftl", "freemarker", 1000L,
+                new IOException("parse error"));
+        WarmUpReport report = new WarmUpReport(Arrays.asList(compiled, failed), 3000000L);
+        assertEquals(2, report.getEntries().size());
+        assertEquals(Collections.singletonList(failed), report.getFailures());
+        assertEquals(3L, report.getElapsedTime(TimeUnit.MILLISECONDS));
+        assertEquals(2L, compiled.getCompileTime(TimeUnit.MILLISECONDS));
+        assertEquals("/a.html (mustache): 2500 us", compiled.toString());
+        assertEquals("/b.ftl (freemarker): failed: java.io.IOException: parse error", failed.toString());
+        assertEquals("2 templates warmed up in 3 ms, 1 failed\n" + compiled + "\n" + failed + "\n",
+                report.toString());
+        assertThrows(UnsupportedOperationException.class, () -> report.getEntries().clear());
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+import org.apache.tiles.request.DispatchRequest;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.DispatchRenderer;
+import org.apache.tiles.request.render.Renderer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link CachingRenderer}.
+ *
+ * @version $Rev$ $Date$
+ */
+class CachingRendererTest {
+
+    /**
+     * The decorated renderer.
+     */
+    private Renderer internal;
+
+    /**
+     * The current time, in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * The renderer to test.
+     */
+    private CachingRenderer renderer;
+
+    /**
+     * The number of renders of the decorated renderer.
+     */
+    private int renders;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        internal = createMock(Renderer.class);
+        renderer = new CachingRenderer(internal, 100, 10, 5, TimeUnit.SECONDS, () -> now);
+    }
+
+    /**
+     * Tests that the output is cached for a path.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRender() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer).times(3);
+        expectRenders("/header");
+        expectRenders("/footer");
+
+        replay(internal, request);
+        renderer.render("/header", request);
+        renderer.render("/header", request);
+        renderer.render("/footer", request);
+        assertEquals("/header#1/header#1/footer#2", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests that the declared inputs are part of the key.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testVaryBy() throws IOException {
+        renderer.setVaryByLocale(true);
+        renderer.setVaryByHeaders("Accept");
+        renderer.setVaryByParams("theme");
+        renderer.addVaryByAttributes("request", "user");
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        Map<String, String> header = Collections.singletonMap("Accept", "text/html");
+        Map<String, String> param = new HashMap<String, String>();
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        expect(request.getRequestLocale()).andReturn(Locale.ITALY).times(2);
+        expect(request.getRequestLocale()).andReturn(Locale.FRANCE).times(3);
+        expect(request.getHeader()).andReturn(header).times(5);
+        expect(request.getParam()).andReturn(param).times(5);
+        expect(request.getContext("request")).andReturn(requestScope).times(5);
+        expect(request.getWriter()).andReturn(writer).times(5);
+        expectRenders("/menu");
+        expectLastCall().times(4);
+
+        replay(internal, request);
+        renderer.render("/menu", request);
+        renderer.render("/menu", request);
+        renderer.render("/menu", request);
+        param.put("theme", "dark");
+        renderer.render("/menu", request);
+        requestScope.put("user", "john");
+        renderer.render("/menu", request);
+        assertEquals("/menu#1/menu#1/menu#2/menu#3/menu#4", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests the time to live and the stale-while-revalidate window.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testStaleWhileRevalidate() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+        internal.render(eq("/nav"), isA(Request.class));
+        expectLastCall().andAnswer(() -> {
+            int render = ++renders;
+            if (render == 2) {
+                // Another request during the revalidation gets the stale output.
+                renderer.render("/nav", request);
+            }
+            ((Request) getCurrentArgument(1)).getWriter().write("/nav#" + render);
+            return null;
+        }).times(3);
+
+        replay(internal, request);
+        renderer.render("/nav", request);
+        now = TimeUnit.SECONDS.toNanos(9);
+        renderer.render("/nav", request);
+        now = TimeUnit.SECONDS.toNanos(12);
+        renderer.render("/nav", request);
+        renderer.render("/nav", request);
+        now = TimeUnit.SECONDS.toNanos(30);
+        renderer.render("/nav", request);
+        assertEquals("/nav#1/nav#1/nav#1/nav#2/nav#2/nav#3", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests that failed renders are not cached.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderFailure() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        IOException exception = new IOException("failure");
+        expect(request.getWriter()).andReturn(writer);
+        internal.render(eq("/path"), isA(Request.class));
+        expectLastCall().andThrow(exception);
+        expectRenders("/path");
+
+        replay(internal, request);
+        assertSame(exception, assertThrows(IOException.class, () -> renderer.render("/path", request)));
+        renderer.render("/path", request);
+        assertEquals("/path#1", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests that renders writing to the output stream are not cached, that
+     * the text captured before is written before the stream is taken, and
+     * that the writer is not opened when there is no text.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderOutputStream() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        OutputStream outputStream = createMock(OutputStream.class);
+        expect(request.getWriter()).andReturn(writer);
+        expect(request.getOutputStream()).andAnswer(() -> {
+            assertEquals("before", writer.toString());
+            return outputStream;
+        });
+        expect(request.getOutputStream()).andReturn(outputStream);
+        internal.render(eq("/image"), isA(Request.class));
+        expectLastCall().andAnswer(() -> {
+            Request capturingRequest = (Request) getCurrentArgument(1);
+            if (++renders == 1) {
+                capturingRequest.getWriter().write("before");
+            }
+            capturingRequest.getOutputStream();
+            return null;
+        }).times(2);
+
+        replay(internal, request, outputStream);
+        renderer.render("/image", request);
+        renderer.render("/image", request);
+        assertEquals("before", writer.toString());
+        verify(internal, request, outputStream);
+    }
+
+    /**
+     * Tests that a render of an expired fragment that fails does not end the
+     * revalidation another request has started.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderFailureDoesNotEndOtherRevalidation() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+        internal.render(eq("/nav"), isA(Request.class));
+        expectLastCall().andAnswer(() -> {
+            int render = ++renders;
+            if (render == 2) {
+                // Another request, once the fragment expired, fails.
+                now = TimeUnit.SECONDS.toNanos(30);
+                assertThrows(IOException.class, () -> renderer.render("/nav", request));
+                // Another request in the window still gets the stale output.
+                now = TimeUnit.SECONDS.toNanos(12);
+                renderer.render("/nav", request);
+            } else if (render == 3) {
+                throw new IOException("failure");
+            }
+            ((Request) getCurrentArgument(1)).getWriter().write("/nav#" + render);
+            return null;
+        }).times(3);
+
+        replay(internal, request);
+        renderer.render("/nav", request);
+        now = TimeUnit.SECONDS.toNanos(12);
+        renderer.render("/nav", request);
+        assertEquals("/nav#1/nav#1/nav#2", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests that renders dispatching through the container, as with a
+     * {@link DispatchRenderer}, are not cached.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderDispatch() throws IOException {
+        renderer = new CachingRenderer(new DispatchRenderer(), 100, 10, 5, TimeUnit.SECONDS, () -> now);
+        DispatchRequest request = createMock(DispatchRequest.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+        request.dispatch("/page.jsp");
+        expectLastCall().andAnswer(() -> {
+            writer.write("page");
+            return null;
+        }).times(2);
+
+        replay(request);
+        renderer.render("/page.jsp", request);
+        renderer.render("/page.jsp", request);
+        assertEquals("pagepage", writer.toString());
+        verify(request);
+    }
+
+    /**
+     * Tests that the output captured before an include is written before the
+     * included output, and that the render is not cached.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderInclude() throws IOException {
+        DispatchRequest request = createMock(DispatchRequest.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+        request.include("/included.jsp");
+        expectLastCall().andAnswer(() -> {
+            writer.write("[included]");
+            return null;
+        }).times(2);
+        internal.render(eq("/page"), isA(DispatchRequest.class));
+        expectLastCall().andAnswer(() -> {
+            DispatchRequest capturingRequest = (DispatchRequest) getCurrentArgument(1);
+            capturingRequest.getWriter().write("before");
+            capturingRequest.include("/included.jsp");
+            capturingRequest.getWriter().write("after");
+            return null;
+        }).times(2);
+
+        replay(internal, request);
+        renderer.render("/page", request);
+        renderer.render("/page", request);
+        assertEquals("before[included]afterbefore[included]after", writer.toString());
+        verify(internal, request);
+    }
+
+    /**
+     * Tests {@link CachingRenderer#invalidateAll()} and
+     * {@link CachingRenderer#isRenderable(String, Request)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testInvalidateAll() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        expect(request.getWriter()).andReturn(writer).times(2);
+        expectRenders("/path");
+        expectLastCall().times(2);
+        expect(internal.isRenderable("/path", request)).andReturn(true);
+
+        replay(internal, request);
+        renderer.render("/path", request);
+        renderer.invalidateAll();
+        renderer.render("/path", request);
+        assertEquals("/path#1/path#2", writer.toString());
+        assertTrue(renderer.isRenderable("/path", request));
+        verify(internal, request);
+    }
+
+    /**
+     * Expects a render of the decorated renderer, writing the path and the
+     * number of the render.
+     *
+     * @param path The path.
+     * @throws IOException If something goes wrong.
+     */
+    private void expectRenders(String path) throws IOException {
+        internal.render(eq(path), anyObject(Request.class));
+        expectLastCall().andAnswer(() -> {
+            ((Request) getCurrentArgument(1)).getWriter().write(path + "#" + (++renders));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FrequencySketch}.
+ *
+ * @version $Rev$ $Date$
+ */
+class FrequencySketchTest {
+
+    /**
+     * Tests {@link FrequencySketch#increment(Object)} and
+     * {@link FrequencySketch#frequency(Object)}.
+     */
+    @Test
+    void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        assertEquals(0, sketch.frequency("key"));
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(5, sketch.frequency("key"));
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(15, sketch.frequency("key"));
+    }
+
+    /**
+     * Tests that the frequencies are halved after enough increments.
+     */
+    @Test
+    void testReset() {
+        FrequencySketch sketch = new FrequencySketch(8);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(10, sketch.frequency("key"));
+        for (int i = 0; i < 70; i++) {
+            sketch.increment(i);
+        }
+        assertTrue(sketch.frequency("key") <= 5);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TinyLfuCache}.
+ *
+ * @version $Rev$ $Date$
+ */
+class TinyLfuCacheTest {
+
+    /**
+     * Tests {@link TinyLfuCache#get(Object)} and
+     * {@link TinyLfuCache#put(Object, Object)}.
+     */
+    @Test
+    void testPutAndGet() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10);
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        cache.put("key", "value2");
+        assertEquals("value2", cache.get("key"));
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new TinyLfuCache<String, String>(0));
+    }
+
+    /**
+     * Tests that the size is bounded and that popular entries survive a scan.
+     */
+    @Test
+    void testEviction() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertEquals(Integer.valueOf(i), cache.get(i));
+            }
+        }
+        for (int i = 1000; i < 3000; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cache.containsKey(i), "Popular key evicted: " + i);
+        }
+    }
+
+    /**
+     * Tests {@link TinyLfuCache#invalidate(Object)} and
+     * {@link TinyLfuCache#invalidateAll()}.
+     */
+    @Test
+    void testInvalidate() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<String, String>(10);
+        cache.put("one", "1");
+        cache.put("two", "2");
+        cache.put("three", "3");
+        cache.get("two");
+        cache.invalidate("one");
+        assertNull(cache.get("one"));
+        assertEquals("2", cache.get("two"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, "value");
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+    /**
+     * Tests that concurrent reads, recorded in the read buffers, and writes
+     * keep the cache bounded and consistent.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testConcurrentReads() throws Exception {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 1000;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < 50; i++) {
+                            Integer value = cache.get(i);
+                            if (value != null) {
+                                assertEquals(Integer.valueOf(i), value);
+                            }
+                        }
+                        cache.put(10000 + offset + round, round);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 100);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cache.containsKey(i), "Popular key evicted: " + i);
+        }
+    }
+}
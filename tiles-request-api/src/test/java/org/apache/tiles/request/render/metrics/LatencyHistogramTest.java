@@ -0,0 +1,119 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ *
+ * @version $Rev$ $Date$
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Tests that buckets are contiguous and that each value falls in a bucket
+     * whose upper bound is at most about 3% above it.
+     */
+    @Test
+    void testBucketIndex() {
+        Random random = new Random(42L);
+        int previous = -1;
+        for (long value = 0; value < 10000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(LatencyHistogram.highestValue(index) >= value);
+            previous = index;
+        }
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextLong() >>> (24 + random.nextInt(40));
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    /**
+     * Tests {@link LatencyHistogram#getStatistics()}.
+     */
+    @Test
+    void testGetStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram(3);
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000L);
+        }
+        histogram.record(-5L);
+        LatencyStatistics statistics = histogram.getStatistics();
+        assertEquals(1001L, statistics.getCount());
+        assertClose(500000L, statistics.getP50());
+        assertClose(950000L, statistics.getP95());
+        assertClose(990000L, statistics.getP99());
+        assertEquals(1000000L, statistics.getMax());
+        histogram.reset();
+        statistics = histogram.getStatistics();
+        assertEquals(0L, statistics.getCount());
+        assertEquals(0L, statistics.getP99());
+        assertEquals(0L, statistics.getMax());
+    }
+
+    /**
+     * Tests recording from several threads.
+     *
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    void testRecordConcurrently() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyStatistics statistics = histogram.getStatistics();
+        assertEquals(80000L, statistics.getCount());
+        assertEquals(9999L, statistics.getMax());
+    }
+
+    /**
+     * Checks that a percentile is the expected value, within the precision of
+     * the histogram.
+     *
+     * @param expected The expected value.
+     * @param actual The actual value.
+     */
+    private static void assertClose(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKET_COUNT,
+                "Expected about " + expected + " but was " + actual);
+    }
+}
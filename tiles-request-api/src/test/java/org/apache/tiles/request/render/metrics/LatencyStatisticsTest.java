@@ -0,0 +1,47 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link LatencyStatistics}.
+ *
+ * @version $Rev$ $Date$
+ */
+class LatencyStatisticsTest {
+
+    /**
+     * Tests the getters and {@link LatencyStatistics#toString()}.
+     */
+    @Test
+    void testGetters() {
+        LatencyStatistics statistics = new LatencyStatistics(10L, 1L, 2L, 3L, 4L);
+        assertEquals(10L, statistics.getCount());
+        assertEquals(1L, statistics.getP50());
+        assertEquals(2L, statistics.getP95());
+        assertEquals(3L, statistics.getP99());
+        assertEquals(4L, statistics.getMax());
+        assertEquals("count=10, p50=1ns, p95=2ns, p99=3ns, max=4ns", statistics.toString());
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.render.metrics;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.render.PublisherRenderer;
+import org.apache.tiles.request.render.RenderCancelledException;
+import org.apache.tiles.request.render.Renderer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RenderLatencyListener}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RenderLatencyListenerTest {
+
+    /**
+     * The decorated renderer.
+     */
+    private Renderer renderer;
+
+    /**
+     * The request.
+     */
+    private Request request;
+
+    /**
+     * The listener to test.
+     */
+    private RenderLatencyListener listener;
+
+    /**
+     * The publisher renderer.
+     */
+    private PublisherRenderer publisherRenderer;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        renderer = createMock(Renderer.class);
+        request = createMock(Request.class);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
+        listener = new RenderLatencyListener("test", 2);
+        publisherRenderer = new PublisherRenderer(renderer);
+        publisherRenderer.addListener(listener);
+    }
+
+    /**
+     * Tests that nested renders are recorded by path and by renderer.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRecordNested() throws IOException {
+        renderer.render("/outer", request);
+        expectLastCall().andAnswer(() -> {
+            publisherRenderer.render("/inner", request);
+            Thread.sleep(2L);
+            return null;
+        });
+        renderer.render("/inner", request);
+        renderer.render("/third", request);
+
+        replay(renderer, request);
+        publisherRenderer.render("/outer", request);
+        publisherRenderer.render("/third", request);
+        assertEquals("test", listener.getRendererName());
+        assertEquals(3L, listener.getRendererStatistics().getCount());
+        LatencyStatistics outer = listener.getPathStatistics("/outer");
+        LatencyStatistics inner = listener.getPathStatistics("/inner");
+        assertEquals(1L, outer.getCount());
+        assertTrue(outer.getMax() >= 2000000L);
+        assertTrue(inner.getMax() < outer.getMax());
+        assertNull(listener.getPathStatistics("/third"));
+        Map<String, LatencyStatistics> pathStatistics = listener.getPathStatistics();
+        assertEquals(2, pathStatistics.size());
+        assertEquals(1L, pathStatistics.get("/inner").getCount());
+        listener.reset();
+        assertEquals(0L, listener.getRendererStatistics().getCount());
+        assertTrue(listener.getPathStatistics().isEmpty());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests that a failed render is recorded and the exception is propagated.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRecordFailure() throws IOException {
+        IOException exception = new IOException("failure");
+        renderer.render("/path", request);
+        expectLastCall().andThrow(exception);
+
+        replay(renderer, request);
+        assertSame(exception, assertThrows(IOException.class,
+                () -> publisherRenderer.render("/path", request)));
+        assertEquals(1L, listener.getPathStatistics("/path").getCount());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests that cancelled renders are counted by reason.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testCancelled() throws IOException {
+        renderer.render("/slow", request);
+        expectLastCall().andThrow(new RenderCancelledException(
+                RenderCancelledException.Reason.DEADLINE_EXCEEDED, "late"));
+        renderer.render("/gone", request);
+        expectLastCall().andThrow(new RenderCancelledException(
+                RenderCancelledException.Reason.CLIENT_ABORTED, "gone"));
+        renderer.render("/failed", request);
+        expectLastCall().andThrow(new IOException("failure"));
+
+        replay(renderer, request);
+        assertThrows(RenderCancelledException.class, () -> publisherRenderer.render("/slow", request));
+        assertThrows(RenderCancelledException.class, () -> publisherRenderer.render("/gone", request));
+        assertThrows(IOException.class, () -> publisherRenderer.render("/failed", request));
+        assertEquals(1L, listener.getDeadlineExceededCount());
+        assertEquals(1L, listener.getClientAbortedCount());
+        listener.reset();
+        assertEquals(0L, listener.getDeadlineExceededCount());
+        assertEquals(0L, listener.getClientAbortedCount());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests that an end without start is ignored.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testEndWithoutStart() throws IOException {
+        replay(renderer, request);
+        listener.end("/path", request);
+        assertEquals(0L, listener.getRendererStatistics().getCount());
+        verify(renderer, request);
+    }
+
+    /**
+     * Tests the exposure through JMX.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testMXBean() throws Exception {
+        renderer.render("/path", request);
+
+        replay(renderer, request);
+        publisherRenderer.render("/path", request);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.apache.tiles:type=RenderLatency,renderer=test");
+        server.registerMBean(listener, name);
+        try {
+            assertEquals("test", server.getAttribute(name, "RendererName"));
+            CompositeData rendererStatistics = (CompositeData) server.getAttribute(name,
+                    "RendererStatistics");
+            assertEquals(1L, rendererStatistics.get("count"));
+            assertEquals(0L, server.getAttribute(name, "DeadlineExceededCount"));
+            TabularData pathStatistics = (TabularData) server.getAttribute(name, "PathStatistics");
+            assertEquals(1, pathStatistics.size());
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, listener.getRendererStatistics().getCount());
+        } finally {
+            server.unregisterMBean(name);
+        }
+        verify(renderer, request);
+    }
+}
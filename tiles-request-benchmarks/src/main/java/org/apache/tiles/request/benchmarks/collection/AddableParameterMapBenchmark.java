@@ -0,0 +1,122 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.collection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.benchmarks.stub.Fixtures;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.apache.tiles.request.benchmarks.stub.StubServletContext;
+import org.apache.tiles.request.collection.AddableParameterMap;
+import org.apache.tiles.request.servlet.extractor.HeaderExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link AddableParameterMap} over the headers of a request, whose
+ * writes go to the response headers.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AddableParameterMapBenchmark {
+
+    /**
+     * The map under test.
+     */
+    private Map<String, String> map;
+
+    /**
+     * The headers written by {@link #putAll()}.
+     */
+    private Map<String, String> responseHeaders;
+
+    /**
+     * Creates the map.
+     */
+    @Setup
+    public void setUp() {
+        StubServletContext context = new StubServletContext("/webapp");
+        map = new AddableParameterMap(new HeaderExtractor(
+                Fixtures.browserRequest(context, 0), new StubHttpServletResponse()));
+        responseHeaders = new HashMap<String, String>();
+        responseHeaders.put("Cache-Control", "no-cache");
+        responseHeaders.put("Vary", "Accept-Language");
+        responseHeaders.put("X-Frame-Options", "DENY");
+    }
+
+    /**
+     * Gets an existing header.
+     *
+     * @return The value.
+     */
+    @Benchmark
+    public String get() {
+        return map.get("User-Agent");
+    }
+
+    /**
+     * Writes a header.
+     *
+     * @return The previous value.
+     */
+    @Benchmark
+    public String put() {
+        return map.put("Cache-Control", "no-cache");
+    }
+
+    /**
+     * Writes many headers.
+     */
+    @Benchmark
+    public void putAll() {
+        map.putAll(responseHeaders);
+    }
+
+    /**
+     * Iterates the entries.
+     *
+     * @param blackhole Consumes the entries.
+     */
+    @Benchmark
+    public void iterateEntries(Blackhole blackhole) {
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.collection;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.benchmarks.stub.Fixtures;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.apache.tiles.request.benchmarks.stub.StubServletContext;
+import org.apache.tiles.request.collection.HeaderValuesMap;
+import org.apache.tiles.request.attribute.EnumeratedValuesExtractor;
+import org.apache.tiles.request.servlet.extractor.HeaderExtractor;
+import org.apache.tiles.request.servlet.extractor.HeaderSnapshotExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link HeaderValuesMap} over the headers of a request, read from
+ * the container or from a {@link HeaderSnapshotExtractor}.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeaderValuesMapBenchmark {
+
+    /**
+     * Whether the headers are read from a snapshot.
+     */
+    @Param({"false", "true"})
+    private boolean snapshot;
+
+    /**
+     * The map under test.
+     */
+    private Map<String, String[]> map;
+
+    /**
+     * An equal map, over another request with the same headers.
+     */
+    private Map<String, String[]> other;
+
+    /**
+     * A value to search for.
+     */
+    private String[] cookies;
+
+    /**
+     * Creates the map.
+     */
+    @Setup
+    public void setUp() {
+        StubServletContext context = new StubServletContext("/webapp");
+        map = new HeaderValuesMap(createExtractor(context));
+        other = new HeaderValuesMap(createExtractor(context));
+        cookies = new String[] {"JSESSIONID=0123456789ABCDEF", "theme=dark"};
+    }
+
+    /**
+     * Creates the extractor of the headers of a new request.
+     *
+     * @param context The servlet context.
+     * @return The extractor.
+     */
+    private EnumeratedValuesExtractor createExtractor(StubServletContext context) {
+        if (snapshot) {
+            return new HeaderSnapshotExtractor(Fixtures.browserRequest(context, 0),
+                    new StubHttpServletResponse());
+        }
+        return new HeaderExtractor(Fixtures.browserRequest(context, 0), new StubHttpServletResponse());
+    }
+
+    /**
+     * Gets the values of a header.
+     *
+     * @return The values.
+     */
+    @Benchmark
+    public String[] get() {
+        return map.get("Cookie");
+    }
+
+    /**
+     * Searches for the values of a header.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean containsValue() {
+        return map.containsValue(cookies);
+    }
+
+    /**
+     * Counts the headers.
+     *
+     * @return The size.
+     */
+    @Benchmark
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Iterates the entries.
+     *
+     * @param blackhole Consumes the entries.
+     */
+    @Benchmark
+    public void iterateEntries(Blackhole blackhole) {
+        for (Map.Entry<String, String[]> entry : map.entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    /**
+     * Compares with an equal map.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean equalsOther() {
+        return map.equals(other);
+    }
+
+    /**
+     * Computes the hash code.
+     *
+     * @return The hash code.
+     */
+    @Benchmark
+    public int hashCodeOfMap() {
+        return map.hashCode();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.collection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.benchmarks.stub.Fixtures;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.apache.tiles.request.benchmarks.stub.StubServletContext;
+import org.apache.tiles.request.collection.KeySet;
+import org.apache.tiles.request.servlet.extractor.HeaderExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link KeySet} over the header names of a request.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeySetBenchmark {
+
+    /**
+     * The set under test.
+     */
+    private Set<String> set;
+
+    /**
+     * Header names to search for.
+     */
+    private List<String> names;
+
+    /**
+     * Creates the set.
+     */
+    @Setup
+    public void setUp() {
+        StubServletContext context = new StubServletContext("/webapp");
+        set = new KeySet(new HeaderExtractor(
+                Fixtures.browserRequest(context, 0), new StubHttpServletResponse()));
+        names = Arrays.asList("Host", "Accept", "Cookie", "Cache-Control");
+    }
+
+    /**
+     * Checks the presence of a header name.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean contains() {
+        return set.contains("Cache-Control");
+    }
+
+    /**
+     * Checks the presence of many header names.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean containsAll() {
+        return set.containsAll(names);
+    }
+
+    /**
+     * Counts the header names.
+     *
+     * @return The size.
+     */
+    @Benchmark
+    public int size() {
+        return set.size();
+    }
+
+    /**
+     * Checks whether there are headers at all.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean isEmpty() {
+        return set.isEmpty();
+    }
+
+    /**
+     * Iterates the header names.
+     *
+     * @param blackhole Consumes the names.
+     */
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (String name : set) {
+            blackhole.consume(name);
+        }
+    }
+
+    /**
+     * Copies the header names to an array.
+     *
+     * @return The array.
+     */
+    @Benchmark
+    public Object[] toArray() {
+        return set.toArray();
+    }
+}
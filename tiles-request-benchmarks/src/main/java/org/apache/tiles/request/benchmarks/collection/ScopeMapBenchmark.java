@@ -0,0 +1,189 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.benchmarks.stub.Fixtures;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletRequest;
+import org.apache.tiles.request.benchmarks.stub.StubServletContext;
+import org.apache.tiles.request.collection.ScopeMap;
+import org.apache.tiles.request.servlet.extractor.RequestScopeExtractor;
+import org.apache.tiles.request.servlet.extractor.DirtyTrackingSessionScopeExtractor;
+import org.apache.tiles.request.servlet.extractor.RequestScopeOverlayExtractor;
+import org.apache.tiles.request.servlet.extractor.SessionScopeExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link ScopeMap} over the request and the session scope.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScopeMapBenchmark {
+
+    /**
+     * The number of attributes written by the bulk benchmarks.
+     */
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * The scope to use, <code>request</code>, <code>requestOverlay</code> (the
+     * request scope behind a {@link RequestScopeOverlayExtractor}),
+     * <code>session</code> or <code>sessionDirtyTracking</code> (the session
+     * scope behind a {@link DirtyTrackingSessionScopeExtractor}).
+     */
+    @Param({"request", "requestOverlay", "session", "sessionDirtyTracking"})
+    private String scope;
+
+    /**
+     * The number of attributes already in scope.
+     */
+    @Param({"4", "32"})
+    private int attributeCount;
+
+    /**
+     * The map under test.
+     */
+    private Map<String, Object> map;
+
+    /**
+     * The attributes written by the bulk benchmarks.
+     */
+    private Map<String, Object> batch;
+
+    /**
+     * The keys of {@link #batch}.
+     */
+    private List<String> batchKeys;
+
+    /**
+     * Creates the map.
+     */
+    @Setup
+    public void setUp() {
+        StubServletContext context = new StubServletContext("/webapp");
+        StubHttpServletRequest request = Fixtures.browserRequest(context, attributeCount);
+        AttributeExtractor extractor;
+        if ("session".equals(scope)) {
+            extractor = new SessionScopeExtractor(request);
+        } else if ("sessionDirtyTracking".equals(scope)) {
+            extractor = new DirtyTrackingSessionScopeExtractor(request);
+        } else if ("requestOverlay".equals(scope)) {
+            extractor = new RequestScopeOverlayExtractor(request, Collections.<String>emptySet());
+        } else {
+            extractor = new RequestScopeExtractor(request);
+        }
+        map = new ScopeMap(extractor);
+        batch = new HashMap<String, Object>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.put("batch" + i, Integer.valueOf(i));
+        }
+        batchKeys = new ArrayList<String>(batch.keySet());
+    }
+
+    /**
+     * Gets an existing attribute.
+     *
+     * @return The value.
+     */
+    @Benchmark
+    public Object get() {
+        return map.get("attribute0");
+    }
+
+    /**
+     * Checks the presence of an attribute.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    public boolean containsKey() {
+        return map.containsKey("attribute0");
+    }
+
+    /**
+     * Overwrites an attribute.
+     *
+     * @return The previous value.
+     */
+    @Benchmark
+    public Object put() {
+        return map.put("attribute0", "new value");
+    }
+
+    /**
+     * Counts the attributes.
+     *
+     * @return The size.
+     */
+    @Benchmark
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Iterates the entries.
+     *
+     * @param blackhole Consumes the entries.
+     */
+    @Benchmark
+    public void iterateEntries(Blackhole blackhole) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a batch of attributes, then removes them.
+     *
+     * @return The size after the removal.
+     */
+    @Benchmark
+    public int putAllThenRemoveAll() {
+        map.putAll(batch);
+        map.keySet().removeAll(batchKeys);
+        return map.size();
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.render;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletRequest;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.apache.tiles.request.benchmarks.stub.StubHttpSession;
+import org.apache.tiles.request.benchmarks.stub.StubRequestDispatcher;
+import org.apache.tiles.request.benchmarks.stub.StubServletContext;
+import org.apache.tiles.request.freemarker.render.FreemarkerRenderer;
+import org.apache.tiles.request.freemarker.render.FreemarkerRendererBuilder;
+import org.apache.tiles.request.mustache.MustacheRenderer;
+import org.apache.tiles.request.render.BasicRendererFactory;
+import org.apache.tiles.request.render.ChainedDelegateRenderer;
+import org.apache.tiles.request.render.DispatchRenderer;
+import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.StringRenderer;
+import org.apache.tiles.request.servlet.ServletApplicationContext;
+import org.apache.tiles.request.servlet.ServletRequest;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+
+/**
+ * The page rendered by the render benchmarks: a header, a body and a footer,
+ * each rendered by a separate call to the default renderer, as Tiles does when
+ * inserting the attributes of a definition. The fragments produce the same
+ * markup whatever the engine, from the same request, session and application
+ * attributes.
+ *
+ * @version $Rev$ $Date$
+ */
+public class CompositePage {
+
+    /**
+     * The body text, shared by all the engines.
+     */
+    static final String BODY_TEXT = "<p>Tiles composes pages out of reusable fragments."
+            + " Each fragment is rendered by the view engine that owns it, and all of them"
+            + " write to the same response.</p>\n<p>This body is long enough to make the"
+            + " static text count, as it does in real pages, while the dynamic parts exercise"
+            + " the scope lookups of every engine.</p>\n";
+
+    /**
+     * The number of items listed in the body.
+     */
+    private static final int ITEM_COUNT = 10;
+
+    /**
+     * The view engines.
+     */
+    public enum Engine {
+
+        /**
+         * JSP pages, reached through {@link DispatchRenderer}.
+         */
+        JSP("/header.jsp", "/body.jsp", "/footer.jsp"),
+
+        /**
+         * FreeMarker templates.
+         */
+        FREEMARKER("/header.ftl", "/body.ftl", "/footer.ftl"),
+
+        /**
+         * Mustache templates.
+         */
+        MUSTACHE("/header.mustache", "/body.mustache", "/footer.mustache"),
+
+        /**
+         * Pre-rendered strings, the baseline.
+         */
+        STRING(header("Benchmarks", "jdoe"), body("Composite page", items()), footer("Benchmarks"));
+
+        /**
+         * The fragments of the page.
+         */
+        private final String[] fragments;
+
+        /**
+         * Constructor.
+         *
+         * @param fragments The fragments of the page.
+         */
+        private Engine(String... fragments) {
+            this.fragments = fragments;
+        }
+    }
+
+    /**
+     * The servlet context.
+     */
+    private final StubServletContext servletContext;
+
+    /**
+     * The application context.
+     */
+    private final ApplicationContext applicationContext;
+
+    /**
+     * The renderer factory.
+     */
+    private final BasicRendererFactory rendererFactory;
+
+    /**
+     * The session shared by all the requests.
+     */
+    private final StubHttpSession session;
+
+    /**
+     * The fragments to render.
+     */
+    private final String[] fragments;
+
+    /**
+     * The items listed in the body.
+     */
+    private final List<String> items = items();
+
+    /**
+     * Constructor.
+     *
+     * @param engine The engine rendering the fragments.
+     */
+    public CompositePage(Engine engine) {
+        servletContext = new StubServletContext("/webapp");
+        servletContext.setAttribute("siteName", "Benchmarks");
+        servletContext.addRequestDispatcher("/header.jsp", new StubRequestDispatcher(
+                (request, out) -> out.write(header(
+                        StubRequestDispatcher.findAttribute(request, "siteName"),
+                        StubRequestDispatcher.findAttribute(request, "user")))));
+        servletContext.addRequestDispatcher("/body.jsp", new StubRequestDispatcher(
+                (request, out) -> {
+                    out.write("<main><h2>");
+                    out.print(StubRequestDispatcher.findAttribute(request, "title"));
+                    out.write("</h2>\n");
+                    out.write(BODY_TEXT);
+                    out.write("<ul>");
+                    for (Object item : (List<?>) StubRequestDispatcher.findAttribute(request, "items")) {
+                        out.write("<li>");
+                        out.print(item);
+                        out.write("</li>");
+                    }
+                    out.write("</ul></main>\n");
+                }));
+        servletContext.addRequestDispatcher("/footer.jsp", new StubRequestDispatcher(
+                (request, out) -> out.write(footer(
+                        StubRequestDispatcher.findAttribute(request, "siteName")))));
+        applicationContext = new ServletApplicationContext(servletContext);
+        rendererFactory = createRendererFactory(applicationContext);
+        session = new StubHttpSession(servletContext);
+        session.setAttribute("user", "jdoe");
+        fragments = engine.fragments;
+    }
+
+    /**
+     * Returns the application context.
+     *
+     * @return The application context.
+     */
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    /**
+     * Returns the renderer factory.
+     *
+     * @return The renderer factory.
+     */
+    public BasicRendererFactory getRendererFactory() {
+        return rendererFactory;
+    }
+
+    /**
+     * Creates the request of a page view.
+     *
+     * @param response The response to write to.
+     * @return The request.
+     */
+    public Request createRequest(StubHttpServletResponse response) {
+        StubHttpServletRequest httpRequest = new StubHttpServletRequest(servletContext);
+        httpRequest.setSession(session);
+        httpRequest.setAttribute("title", "Composite page");
+        httpRequest.setAttribute("items", items);
+        return new ServletRequest(applicationContext, httpRequest, response);
+    }
+
+    /**
+     * Renders the page.
+     *
+     * @param request The request.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    public void render(Request request) throws IOException {
+        render(request, rendererFactory.getRenderer(null));
+    }
+
+    /**
+     * Renders the page with a given renderer.
+     *
+     * @param request The request.
+     * @param renderer The renderer of the fragments.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    public void render(Request request, Renderer renderer) throws IOException {
+        for (String fragment : fragments) {
+            renderer.render(fragment, request);
+        }
+    }
+
+    /**
+     * Creates the renderer factory. Each renderer is registered by name, and the
+     * default renderer chains them, so that the fragment paths select the engine.
+     *
+     * @param applicationContext The application context.
+     * @return The renderer factory.
+     */
+    private static BasicRendererFactory createRendererFactory(ApplicationContext applicationContext) {
+        FreemarkerRenderer freemarkerRenderer = FreemarkerRendererBuilder.createInstance()
+                .setApplicationContext(applicationContext)
+                .setParameter("TemplatePath", "/")
+                .setParameter("NoCache", "true")
+                .setParameter("ContentType", "text/html")
+                .setParameter("template_update_delay", "60")
+                .setParameter("default_encoding", "UTF-8")
+                .build();
+        MustacheRenderer mustacheRenderer = new MustacheRenderer(new DefaultMustacheFactory("webapp"));
+        mustacheRenderer.setAcceptPattern(Pattern.compile(".+\\.mustache"));
+        DispatchRenderer dispatchRenderer = new DispatchRenderer();
+        StringRenderer stringRenderer = new StringRenderer();
+
+        ChainedDelegateRenderer chainedRenderer = new ChainedDelegateRenderer();
+        chainedRenderer.addAttributeRenderer(freemarkerRenderer);
+        chainedRenderer.addAttributeRenderer(mustacheRenderer);
+        chainedRenderer.addAttributeRenderer(dispatchRenderer);
+        chainedRenderer.addAttributeRenderer(stringRenderer);
+
+        BasicRendererFactory rendererFactory = new BasicRendererFactory();
+        rendererFactory.registerRenderer("freemarker", freemarkerRenderer);
+        rendererFactory.registerRenderer("mustache", mustacheRenderer);
+        rendererFactory.registerRenderer("dispatch", dispatchRenderer);
+        rendererFactory.registerRenderer("string", stringRenderer);
+        rendererFactory.setDefaultRenderer(chainedRenderer);
+        return rendererFactory;
+    }
+
+    /**
+     * Returns the items listed in the body.
+     *
+     * @return The items.
+     */
+    private static List<String> items() {
+        List<String> items = new ArrayList<String>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add("Item " + i);
+        }
+        return items;
+    }
+
+    /**
+     * Renders the header.
+     *
+     * @param siteName The name of the site.
+     * @param user The user.
+     * @return The markup.
+     */
+    private static String header(Object siteName, Object user) {
+        return "<header><h1>" + siteName + "</h1><p>Welcome, " + user + "</p></header>\n";
+    }
+
+    /**
+     * Renders the body.
+     *
+     * @param title The title.
+     * @param items The listed items.
+     * @return The markup.
+     */
+    private static String body(String title, List<String> items) {
+        StringBuilder builder = new StringBuilder("<main><h2>").append(title).append("</h2>\n")
+                .append(BODY_TEXT).append("<ul>");
+        for (String item : items) {
+            builder.append("<li>").append(item).append("</li>");
+        }
+        return builder.append("</ul></main>\n").toString();
+    }
+
+    /**
+     * Renders the footer.
+     *
+     * @param siteName The name of the site.
+     * @return The markup.
+     */
+    private static String footer(Object siteName) {
+        return "<footer>&copy; " + siteName + "</footer>\n";
+    }
+}
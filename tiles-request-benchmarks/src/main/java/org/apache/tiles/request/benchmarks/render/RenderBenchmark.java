@@ -0,0 +1,90 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.render;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders a {@link CompositePage} end to end, from the creation of the request
+ * to the last character written, with every view engine.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+    /**
+     * The engine rendering the page.
+     */
+    @Param({"JSP", "FREEMARKER", "MUSTACHE", "STRING"})
+    private CompositePage.Engine engine;
+
+    /**
+     * The page.
+     */
+    private CompositePage page;
+
+    /**
+     * The response, reused between page views.
+     */
+    private StubHttpServletResponse response;
+
+    /**
+     * Creates the page.
+     */
+    @Setup
+    public void setUp() {
+        page = new CompositePage(engine);
+        response = new StubHttpServletResponse();
+    }
+
+    /**
+     * Renders the page once.
+     *
+     * @return The number of written characters.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    @Benchmark
+    public long renderPage() throws IOException {
+        response.recycle();
+        page.render(page.createRequest(response));
+        return response.getWrittenChars();
+    }
+}
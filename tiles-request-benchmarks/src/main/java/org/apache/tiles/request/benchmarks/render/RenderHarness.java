@@ -0,0 +1,149 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.render;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link RenderBenchmark} twice, once for throughput and once sampling the
+ * latency of every page view, then prints, for every engine, pages per second,
+ * median and 99th percentile latency and allocation rate. The command line
+ * accepts the usual JMH options, for example <code>-f 3</code>.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class RenderHarness {
+
+    /**
+     * The suffix of the allocation rate reported by the GC profiler, in MB/sec.
+     */
+    private static final String ALLOC_RATE = "gc.alloc.rate";
+
+    /**
+     * The suffix of the allocation per page view reported by the GC profiler, in bytes.
+     */
+    private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    /**
+     * Constructor.
+     */
+    private RenderHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args JMH command line options.
+     * @throws RunnerException If the benchmarks fail.
+     * @throws CommandLineOptionException If the options are not valid.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Map<String, double[]> rows = new TreeMap<String, double[]>();
+
+        Options throughput = new OptionsBuilder().parent(commandLine)
+                .include(RenderBenchmark.class.getName())
+                .mode(Mode.Throughput).timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class).build();
+        for (RunResult result : run(throughput)) {
+            double[] row = row(rows, result);
+            row[0] = result.getPrimaryResult().getScore();
+            row[3] = secondary(result, ALLOC_RATE);
+            row[4] = secondary(result, ALLOC_RATE_NORM);
+        }
+
+        Options latency = new OptionsBuilder().parent(commandLine)
+                .include(RenderBenchmark.class.getName())
+                .mode(Mode.SampleTime).timeUnit(TimeUnit.MICROSECONDS).build();
+        for (RunResult result : run(latency)) {
+            double[] row = row(rows, result);
+            row[1] = result.getPrimaryResult().getStatistics().getPercentile(50.0);
+            row[2] = result.getPrimaryResult().getStatistics().getPercentile(99.0);
+        }
+
+        System.out.println();
+        System.out.printf("%-12s %14s %12s %12s %14s %12s%n",
+                "Engine", "pages/sec", "p50 (us)", "p99 (us)", "alloc (MB/s)", "B/page");
+        for (Map.Entry<String, double[]> entry : rows.entrySet()) {
+            double[] row = entry.getValue();
+            System.out.printf("%-12s %14.0f %12.2f %12.2f %14.1f %12.0f%n",
+                    entry.getKey(), row[0], row[1], row[2], row[3], row[4]);
+        }
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param options The options.
+     * @return The results.
+     * @throws RunnerException If the benchmarks fail.
+     */
+    private static Collection<RunResult> run(Options options) throws RunnerException {
+        return new Runner(options).run();
+    }
+
+    /**
+     * Returns the row of the engine of a result, creating it if needed.
+     *
+     * @param rows The rows, by engine.
+     * @param result The result.
+     * @return The row.
+     */
+    private static double[] row(Map<String, double[]> rows, RunResult result) {
+        String engine = result.getParams().getParam("engine");
+        double[] row = rows.get(engine);
+        if (row == null) {
+            row = new double[] {Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+            rows.put(engine, row);
+        }
+        return row;
+    }
+
+    /**
+     * Returns the score of a secondary result, matched by the end of its label.
+     *
+     * @param result The result.
+     * @param suffix The end of the label.
+     * @return The score, or <code>NaN</code> if not found.
+     */
+    private static double secondary(RunResult result, String suffix) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+}
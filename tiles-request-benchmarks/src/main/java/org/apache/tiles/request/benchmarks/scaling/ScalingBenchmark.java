@@ -0,0 +1,228 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.scaling;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tiles.request.Request;
+import org.apache.tiles.request.benchmarks.render.CompositePage;
+import org.apache.tiles.request.benchmarks.stub.StubHttpServletResponse;
+import org.apache.tiles.request.render.PublisherRenderer;
+import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RendererFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Workloads whose throughput must grow with the number of threads: every
+ * thread works on its own request, and the renderers, the renderer factory and
+ * the application scope are shared, as in a servlet container. Run them with
+ * {@link ScalingHarness} to get the throughput curves, or with the JMH
+ * <code>-t</code> option for a single thread count.
+ *
+ * @version $Rev$ $Date$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+
+    /**
+     * The page rendered by FreeMarker.
+     */
+    private CompositePage freemarkerPage;
+
+    /**
+     * The page rendered by Mustache.
+     */
+    private CompositePage mustachePage;
+
+    /**
+     * The page made of strings, rendered through {@link #publisherRenderer}.
+     */
+    private CompositePage stringPage;
+
+    /**
+     * Publishes the rendering of {@link #stringPage} to two listeners.
+     */
+    private PublisherRenderer publisherRenderer;
+
+    /**
+     * The renderer factory shared by the threads.
+     */
+    private RendererFactory rendererFactory;
+
+    /**
+     * The application scope shared by the threads.
+     */
+    private Map<String, Object> applicationScope;
+
+    /**
+     * Creates the shared objects.
+     */
+    @Setup
+    public void setUp() {
+        freemarkerPage = new CompositePage(CompositePage.Engine.FREEMARKER);
+        mustachePage = new CompositePage(CompositePage.Engine.MUSTACHE);
+        stringPage = new CompositePage(CompositePage.Engine.STRING);
+        publisherRenderer = new PublisherRenderer(stringPage.getRendererFactory().getRenderer(null));
+        publisherRenderer.addListener(new CountingListener());
+        publisherRenderer.addListener(new CountingListener());
+        rendererFactory = mustachePage.getRendererFactory();
+        applicationScope = mustachePage.getApplicationContext().getApplicationScope();
+    }
+
+    /**
+     * The objects owned by a thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        /**
+         * The response, reused between page views.
+         */
+        private StubHttpServletResponse response;
+
+        /**
+         * Creates the response.
+         */
+        @Setup
+        public void setUp() {
+            response = new StubHttpServletResponse();
+        }
+
+        /**
+         * Creates the request of a page view.
+         *
+         * @param page The page to view.
+         * @return The request.
+         */
+        private Request createRequest(CompositePage page) {
+            response.recycle();
+            return page.createRequest(response);
+        }
+    }
+
+    /**
+     * Renders a page through {@link PublisherRenderer}.
+     *
+     * @param state The state of the thread.
+     * @return The number of written characters.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    @Benchmark
+    public long publisherRenderer(ThreadState state) throws IOException {
+        stringPage.render(state.createRequest(stringPage), publisherRenderer);
+        return state.response.getWrittenChars();
+    }
+
+    /**
+     * Looks up renderers in the shared factory.
+     *
+     * @param blackhole Consumes the renderers.
+     */
+    @Benchmark
+    public void rendererFactory(Blackhole blackhole) {
+        Renderer renderer = rendererFactory.getRenderer("mustache");
+        blackhole.consume(renderer);
+        blackhole.consume(rendererFactory.getRenderer(null));
+    }
+
+    /**
+     * Renders a page with FreeMarker, through the shared
+     * <code>AttributeValueFreemarkerServlet</code>.
+     *
+     * @param state The state of the thread.
+     * @return The number of written characters.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    @Benchmark
+    public long freemarkerRenderer(ThreadState state) throws IOException {
+        freemarkerPage.render(state.createRequest(freemarkerPage));
+        return state.response.getWrittenChars();
+    }
+
+    /**
+     * Renders a page with Mustache.
+     *
+     * @param state The state of the thread.
+     * @return The number of written characters.
+     * @throws IOException If something goes wrong when rendering.
+     */
+    @Benchmark
+    public long mustacheRenderer(ThreadState state) throws IOException {
+        mustachePage.render(state.createRequest(mustachePage));
+        return state.response.getWrittenChars();
+    }
+
+    /**
+     * Reads and writes the shared application scope.
+     *
+     * @param blackhole Consumes the values.
+     */
+    @Benchmark
+    public void applicationScope(Blackhole blackhole) {
+        blackhole.consume(applicationScope.get("siteName"));
+        blackhole.consume(applicationScope.containsKey("user"));
+        blackhole.consume(applicationScope.put("lastPage", "/index"));
+    }
+
+    /**
+     * Counts the events it receives.
+     */
+    private static class CountingListener implements PublisherRenderer.RendererListener {
+
+        /**
+         * The number of received events.
+         */
+        private final LongAdder events = new LongAdder();
+
+        @Override
+        public void start(String template, Request request) {
+            events.increment();
+        }
+
+        @Override
+        public void end(String template, Request request) {
+            events.increment();
+        }
+
+        @Override
+        public void handleIOException(IOException ex, Request request) throws IOException {
+            throw ex;
+        }
+    }
+}
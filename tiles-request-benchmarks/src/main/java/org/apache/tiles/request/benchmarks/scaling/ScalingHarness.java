@@ -0,0 +1,245 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.scaling;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every {@link ScalingBenchmark} workload at an increasing number of
+ * threads, then prints the throughput curves and, for every run, the monitors
+ * and locks threads waited on the longest, as recorded by Java Flight Recorder.
+ * <p>
+ * The thread counts are read from the <code>threads</code> system property, for
+ * example <code>-Dthreads=1,2,4,8,16,32,64</code>; they default to the powers
+ * of two up to the number of processors. The recordings are kept in the
+ * directory named by the <code>jfrDir</code> system property, by default
+ * <code>scaling-jfr</code>. The command line accepts the usual JMH options.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class ScalingHarness {
+
+    /**
+     * The number of contended locks printed per run.
+     */
+    private static final int TOP_LOCKS = 5;
+
+    /**
+     * The recorded lock events. Monitor waits are recorded from 1 ms, parking
+     * (<code>java.util.concurrent</code> locks) from 1 ms too.
+     */
+    private static final String JFR_EVENTS = "jdk.JavaMonitorEnter#enabled=true,"
+            + "jdk.JavaMonitorEnter#threshold=1ms,jdk.JavaMonitorEnter#stackTrace=true,"
+            + "jdk.ThreadPark#enabled=true,jdk.ThreadPark#threshold=1ms,jdk.ThreadPark#stackTrace=true";
+
+    /**
+     * Constructor.
+     */
+    private ScalingHarness() {
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args JMH command line options.
+     * @throws RunnerException If the benchmarks fail.
+     * @throws CommandLineOptionException If the options are not valid.
+     * @throws IOException If the recordings cannot be read.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException,
+            IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        int[] threadCounts = threadCounts(System.getProperty("threads"));
+        File jfrDir = new File(System.getProperty("jfrDir", "scaling-jfr"));
+        if (!jfrDir.isDirectory() && !jfrDir.mkdirs()) {
+            throw new IOException("Cannot create " + jfrDir);
+        }
+
+        Map<String, double[]> curves = new LinkedHashMap<String, double[]>();
+        StringBuilder contention = new StringBuilder();
+        for (String workload : workloads()) {
+            double[] curve = new double[threadCounts.length];
+            curves.put(workload, curve);
+            for (int i = 0; i < threadCounts.length; i++) {
+                File recording = new File(jfrDir, workload + "-" + threadCounts[i] + ".jfr");
+                Options options = new OptionsBuilder().parent(commandLine)
+                        .include(ScalingBenchmark.class.getName() + "." + workload + "$")
+                        .threads(threadCounts[i]).forks(1)
+                        .jvmArgsAppend("-XX:StartFlightRecording=filename="
+                                + recording.getAbsolutePath() + "," + JFR_EVENTS)
+                        .build();
+                for (RunResult result : new Runner(options).run()) {
+                    curve[i] = result.getPrimaryResult().getScore();
+                }
+                contention.append(String.format("%n%s, %d threads%n", workload, threadCounts[i]));
+                appendContention(contention, recording);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-20s %8s %16s %10s %12s%n", "Workload", "Threads", "ops/s",
+                "Speedup", "Efficiency");
+        for (Map.Entry<String, double[]> entry : curves.entrySet()) {
+            double[] curve = entry.getValue();
+            for (int i = 0; i < threadCounts.length; i++) {
+                double speedup = curve[i] / curve[0];
+                System.out.printf("%-20s %8d %16.0f %10.2f %11.0f%%%n", entry.getKey(),
+                        threadCounts[i], curve[i], speedup, 100 * speedup / threadCounts[i]);
+            }
+        }
+        System.out.println();
+        System.out.println("Longest lock waits (monitor or parked-on class, at the top application frame)");
+        System.out.print(contention);
+    }
+
+    /**
+     * Returns the names of the workloads, that is the benchmark methods.
+     *
+     * @return The names.
+     */
+    private static List<String> workloads() {
+        List<String> workloads = new ArrayList<String>();
+        for (Method method : ScalingBenchmark.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Benchmark.class)) {
+                workloads.add(method.getName());
+            }
+        }
+        workloads.sort(null);
+        return workloads;
+    }
+
+    /**
+     * Parses the thread counts.
+     *
+     * @param spec The comma-separated thread counts, or <code>null</code> for the
+     * powers of two up to the number of processors.
+     * @return The thread counts.
+     */
+    private static int[] threadCounts(String spec) {
+        if (spec != null) {
+            String[] parts = spec.split(",");
+            int[] counts = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                counts[i] = Integer.parseInt(parts[i].trim());
+            }
+            return counts;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int count = 1; count < processors; count *= 2) {
+            counts.add(count);
+        }
+        counts.add(processors);
+        int[] retValue = new int[counts.size()];
+        for (int i = 0; i < retValue.length; i++) {
+            retValue[i] = counts.get(i);
+        }
+        return retValue;
+    }
+
+    /**
+     * Appends the longest lock waits of a recording.
+     *
+     * @param builder The builder to append to.
+     * @param recording The recording.
+     * @throws IOException If the recording cannot be read.
+     */
+    private static void appendContention(StringBuilder builder, File recording) throws IOException {
+        Map<String, long[]> waits = new HashMap<String, long[]>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording.toPath())) {
+            String lockField;
+            if (event.getEventType().getName().equals("jdk.JavaMonitorEnter")) {
+                lockField = "monitorClass";
+            } else if (event.getEventType().getName().equals("jdk.ThreadPark")) {
+                lockField = "parkedClass";
+            } else {
+                continue;
+            }
+            String frame = topApplicationFrame(event.getStackTrace());
+            if (frame == null) {
+                continue;
+            }
+            RecordedClass lockClass = event.getValue(lockField);
+            String key = (lockClass != null ? lockClass.getName() : "?") + " at " + frame;
+            long[] wait = waits.computeIfAbsent(key, k -> new long[2]);
+            wait[0]++;
+            wait[1] += event.getDuration().toNanos();
+        }
+        if (waits.isEmpty()) {
+            builder.append("  no lock waits recorded\n");
+            return;
+        }
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<Map.Entry<String, long[]>>(waits.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        for (int i = 0; i < sorted.size() && i < TOP_LOCKS; i++) {
+            Map.Entry<String, long[]> entry = sorted.get(i);
+            builder.append(String.format("  %8d waits %10d ms  %s%n", entry.getValue()[0],
+                    Duration.ofNanos(entry.getValue()[1]).toMillis(), entry.getKey()));
+        }
+    }
+
+    /**
+     * Returns the topmost frame that does not belong to the JDK or to JMH,
+     * including the code JMH generates.
+     * Waits without such a frame come from the JMH infrastructure.
+     *
+     * @param stackTrace The stack trace.
+     * @return The frame, as <code>class.method</code>, or <code>null</code> if
+     * there is none.
+     */
+    private static String topApplicationFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.")
+                    && !type.startsWith("sun.") && !type.startsWith("org.openjdk.jmh.")
+                    && !type.contains(".jmh_generated.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return null;
+    }
+}
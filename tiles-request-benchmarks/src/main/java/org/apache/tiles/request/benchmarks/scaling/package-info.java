@@ -0,0 +1,28 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+/**
+ * Multi-core scaling benchmarks of the renderers and of the shared request
+ * objects. To get throughput curves and lock contention per thread count, run:
+ * <pre>
+ * java -Dthreads=1,2,4,8 -cp target/benchmarks.jar org.apache.tiles.request.benchmarks.scaling.ScalingHarness
+ * </pre>
+ */
+package org.apache.tiles.request.benchmarks.scaling;
@@ -0,0 +1,93 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+/**
+ * Builds the requests shared by the benchmarks.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class Fixtures {
+
+    /**
+     * The headers sent by a typical browser, as name/value pairs.
+     */
+    private static final String[] BROWSER_HEADERS = {
+        "Host", "www.example.com",
+        "User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0",
+        "Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+        "Accept-Language", "en-US,en;q=0.5",
+        "Accept-Encoding", "gzip, deflate, br",
+        "Connection", "keep-alive",
+        "Cookie", "JSESSIONID=0123456789ABCDEF",
+        "Cookie", "theme=dark",
+        "Upgrade-Insecure-Requests", "1",
+        "Sec-Fetch-Dest", "document",
+        "Sec-Fetch-Mode", "navigate",
+        "Sec-Fetch-Site", "none",
+        "Cache-Control", "max-age=0",
+        "X-Forwarded-For", "192.0.2.1",
+    };
+
+    /**
+     * Constructor.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a request carrying typical browser headers, a few parameters,
+     * the given number of request attributes and an existing session with the
+     * same number of attributes.
+     *
+     * @param context The servlet context.
+     * @param attributeCount The number of attributes in request and session scope.
+     * @return The request.
+     */
+    public static StubHttpServletRequest browserRequest(StubServletContext context,
+            int attributeCount) {
+        StubHttpServletRequest request = new StubHttpServletRequest(context);
+        for (int i = 0; i < BROWSER_HEADERS.length; i += 2) {
+            request.addHeader(BROWSER_HEADERS[i], BROWSER_HEADERS[i + 1]);
+        }
+        request.setParameter("page", "2");
+        request.setParameter("sort", "name");
+        request.setParameter("filter", "active", "recent");
+        StubHttpSession session = new StubHttpSession(context);
+        for (int i = 0; i < attributeCount; i++) {
+            request.setAttribute(attributeName(i), "request value " + i);
+            session.setAttribute(attributeName(i), "session value " + i);
+        }
+        request.setSession(session);
+        return request;
+    }
+
+    /**
+     * Returns the name of the i-th attribute put by
+     * {@link #browserRequest(StubServletContext, int)}.
+     *
+     * @param i The index of the attribute.
+     * @return The name.
+     */
+    public static String attributeName(int i) {
+        return "attribute" + i;
+    }
+}
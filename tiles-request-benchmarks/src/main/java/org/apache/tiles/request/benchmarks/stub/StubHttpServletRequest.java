@@ -0,0 +1,327 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * In-memory HTTP request. Only the methods reached by Tiles Request and the
+ * template engines are implemented; every other call fails fast. Headers are
+ * scanned linearly and case-insensitively, the way containers store them.
+ *
+ * @version $Rev$ $Date$
+ */
+public class StubHttpServletRequest extends HttpServletRequestWrapper {
+
+    /**
+     * The attributes. Containers must make them safe for concurrent access.
+     */
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The header names, as they were added.
+     */
+    private final List<String> headerNames = new ArrayList<String>();
+
+    /**
+     * The header values, parallel to {@link #headerNames}.
+     */
+    private final List<String> headerValues = new ArrayList<String>();
+
+    /**
+     * The distinct header names.
+     */
+    private final List<String> distinctHeaderNames = new ArrayList<String>();
+
+    /**
+     * The parameters.
+     */
+    private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+
+    /**
+     * The servlet context.
+     */
+    private final ServletContext servletContext;
+
+    /**
+     * The session, if created.
+     */
+    private HttpSession session;
+
+    /**
+     * The locale.
+     */
+    private Locale locale = Locale.US;
+
+    /**
+     * The servlet path.
+     */
+    private String servletPath = "/index";
+
+    /**
+     * The number of <code>setAttribute</code> and <code>removeAttribute</code> calls.
+     */
+    private long attributeWriteCount;
+
+    /**
+     * Constructor.
+     *
+     * @param servletContext The servlet context.
+     */
+    public StubHttpServletRequest(ServletContext servletContext) {
+        super(Unsupported.instance(HttpServletRequest.class));
+        this.servletContext = servletContext;
+    }
+
+    /**
+     * Adds a header value.
+     *
+     * @param name The name of the header.
+     * @param value The value to add.
+     */
+    public void addHeader(String name, String value) {
+        boolean found = false;
+        for (int i = 0; i < distinctHeaderNames.size() && !found; i++) {
+            found = distinctHeaderNames.get(i).equalsIgnoreCase(name);
+        }
+        if (!found) {
+            distinctHeaderNames.add(name);
+        }
+        headerNames.add(name);
+        headerValues.add(value);
+    }
+
+    /**
+     * Sets a parameter.
+     *
+     * @param name The name of the parameter.
+     * @param values Its values.
+     */
+    public void setParameter(String name, String... values) {
+        parameters.put(name, values);
+    }
+
+    /**
+     * Sets the session.
+     *
+     * @param session The session.
+     */
+    public void setSession(HttpSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Sets the locale.
+     *
+     * @param locale The locale.
+     */
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Sets the servlet path.
+     *
+     * @param servletPath The servlet path.
+     */
+    public void setServletPath(String servletPath) {
+        this.servletPath = servletPath;
+    }
+
+    /**
+     * Returns the number of attribute writes done on this request.
+     *
+     * @return The number of writes.
+     */
+    public long getAttributeWriteCount() {
+        return attributeWriteCount;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        attributeWriteCount++;
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributeWriteCount++;
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                return headerValues.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                values.add(headerValues.get(i));
+            }
+        }
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(distinctHeaderNames);
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (session == null && create) {
+            session = new StubHttpSession(servletContext);
+        }
+        return session;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return servletContext.getRequestDispatcher(path);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(Collections.singletonList(locale));
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return "UTF-8";
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getServletPath() {
+        return servletPath;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return servletPath;
+    }
+
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * In-memory HTTP response. The body is discarded, but the number of written
+ * characters and bytes is counted so that benchmarks can consume it.
+ *
+ * @version $Rev$ $Date$
+ */
+public class StubHttpServletResponse extends HttpServletResponseWrapper {
+
+    /**
+     * The writer, counting characters.
+     */
+    private final CountingWriter countingWriter = new CountingWriter();
+
+    /**
+     * The print writer.
+     */
+    private final PrintWriter printWriter = new PrintWriter(countingWriter);
+
+    /**
+     * The output stream, counting bytes.
+     */
+    private final CountingOutputStream outputStream = new CountingOutputStream();
+
+    /**
+     * Whether the response has been committed.
+     */
+    private boolean committed;
+
+    /**
+     * The content type.
+     */
+    private String contentType;
+
+    /**
+     * The character encoding.
+     */
+    private String characterEncoding = "UTF-8";
+
+    /**
+     * The locale.
+     */
+    private Locale locale = Locale.US;
+
+    /**
+     * Constructor.
+     */
+    public StubHttpServletResponse() {
+        super(Unsupported.instance(HttpServletResponse.class));
+    }
+
+    /**
+     * Clears the state, so that the response can be reused for another request.
+     */
+    public void recycle() {
+        printWriter.flush();
+        countingWriter.count = 0;
+        outputStream.count = 0;
+        committed = false;
+        contentType = null;
+    }
+
+    /**
+     * Returns the number of characters written to the writer.
+     *
+     * @return The number of characters.
+     */
+    public long getWrittenChars() {
+        printWriter.flush();
+        return countingWriter.count;
+    }
+
+    /**
+     * Returns the number of bytes written to the output stream.
+     *
+     * @return The number of bytes.
+     */
+    public long getWrittenBytes() {
+        return outputStream.count;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return printWriter;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void flushBuffer() {
+        printWriter.flush();
+        committed = true;
+    }
+
+    @Override
+    public void reset() {
+        if (committed) {
+            throw new IllegalStateException("The response is already committed");
+        }
+        resetBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (committed) {
+            throw new IllegalStateException("The response is already committed");
+        }
+        printWriter.flush();
+        countingWriter.count = 0;
+        outputStream.count = 0;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // The body is not buffered.
+    }
+
+    @Override
+    public int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        contentType = type;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        characterEncoding = charset;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        locale = loc;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        // Headers are not recorded.
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return false;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        // The status is not recorded.
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    /**
+     * Writer that counts and discards characters.
+     */
+    private static class CountingWriter extends Writer {
+
+        /**
+         * The number of written characters.
+         */
+        private long count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to flush.
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close.
+        }
+    }
+
+    /**
+     * Output stream that counts and discards bytes.
+     */
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        /**
+         * The number of written bytes.
+         */
+        private long count;
+
+        @Override
+        public void write(int b) throws IOException {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * In-memory HTTP session. Attributes are kept in a concurrent map, as containers do.
+ *
+ * @version $Rev$ $Date$
+ */
+public class StubHttpSession implements HttpSession {
+
+    /**
+     * The attributes.
+     */
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The servlet context.
+     */
+    private final ServletContext servletContext;
+
+    /**
+     * The creation time.
+     */
+    private final long creationTime = System.currentTimeMillis();
+
+    /**
+     * The number of <code>setAttribute</code> and <code>removeAttribute</code> calls.
+     * Replicating containers ship one delta per call.
+     */
+    private long writeCount;
+
+    /**
+     * Constructor.
+     *
+     * @param servletContext The servlet context.
+     */
+    public StubHttpSession(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    /**
+     * Returns the number of attribute writes done on this session.
+     *
+     * @return The number of writes.
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return "stub-session";
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return creationTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        // Sessions never expire here.
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return -1;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        writeCount++;
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        writeCount++;
+        attributes.remove(name);
+    }
+
+    @Override
+    public void invalidate() {
+        attributes.clear();
+    }
+
+    @Override
+    public boolean isNew() {
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Request dispatcher serving a {@link Page}, the in-process stand-in of a
+ * compiled JSP. Forwards and includes both write the page.
+ *
+ * @version $Rev$ $Date$
+ */
+public class StubRequestDispatcher implements RequestDispatcher {
+
+    /**
+     * The page to serve.
+     */
+    private final Page page;
+
+    /**
+     * Constructor.
+     *
+     * @param page The page to serve.
+     */
+    public StubRequestDispatcher(Page page) {
+        this.page = page;
+    }
+
+    @Override
+    public void forward(ServletRequest request, ServletResponse response) throws IOException {
+        page.service((HttpServletRequest) request, response.getWriter());
+    }
+
+    @Override
+    public void include(ServletRequest request, ServletResponse response) throws IOException {
+        page.service((HttpServletRequest) request, response.getWriter());
+    }
+
+    /**
+     * Looks up an attribute in request, session and application scope, in this
+     * order, as <code>PageContext.findAttribute</code> does.
+     *
+     * @param request The request.
+     * @param name The name of the attribute.
+     * @return The value, or <code>null</code> if not found.
+     */
+    public static Object findAttribute(HttpServletRequest request, String name) {
+        Object value = request.getAttribute(name);
+        if (value == null) {
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                value = session.getAttribute(name);
+            }
+            if (value == null) {
+                value = request.getServletContext().getAttribute(name);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The code that a JSP compiler would generate for a page.
+     */
+    public interface Page {
+
+        /**
+         * Writes the page.
+         *
+         * @param request The request.
+         * @param out The writer of the response.
+         * @throws IOException If something goes wrong when writing.
+         */
+        void service(HttpServletRequest request, PrintWriter out) throws IOException;
+    }
+}
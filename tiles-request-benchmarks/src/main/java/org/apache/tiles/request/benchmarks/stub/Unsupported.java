@@ -0,0 +1,83 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.benchmarks.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates objects whose every method throws {@link UnsupportedOperationException}.
+ * They are used as the wrapped object of the servlet API wrappers, so that the
+ * stubs only need to override the methods that the benchmarks actually hit.
+ *
+ * @version $Rev$ $Date$
+ */
+final class Unsupported {
+
+    /**
+     * The created objects, by interface. Creating a proxy is expensive and
+     * contended, so it must not happen for every request.
+     */
+    private static final ClassValue<Object> INSTANCES = new ClassValue<Object>() {
+
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    /**
+     * Constructor.
+     */
+    private Unsupported() {
+    }
+
+    /**
+     * Returns an object that throws {@link UnsupportedOperationException} on every call.
+     *
+     * @param <T> The type of the interface.
+     * @param type The interface to implement.
+     * @return The object.
+     */
+    static <T> T instance(Class<T> type) {
+        return type.cast(INSTANCES.get(type));
+    }
+
+    /**
+     * Creates an object that throws {@link UnsupportedOperationException} on every call.
+     *
+     * @param type The interface to implement.
+     * @return The object.
+     */
+    private static Object create(Class<?> type) {
+        InvocationHandler handler = new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "."
+                        + method.getName() + " is not supported by the benchmark stubs");
+            }
+        };
+        return Proxy.newProxyInstance(Unsupported.class.getClassLoader(),
+                new Class<?>[] {type}, handler);
+    }
+}
@@ -20,6 +20,8 @@
  */
 package org.apache.tiles.request.freemarker.render;
 
+import java.io.IOException;
+
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.apache.tiles.request.freemarker.servlet.SharedVariableLoaderFreemarkerServlet;
@@ -48,6 +50,18 @@ public class AttributeValueFreemarkerServlet extends SharedVariableLoaderFreemar
         valueHolder.set(value);
     }
 
+    /**
+     * Loads a template into the cache of the configuration, parsing it if
+     * needed, for the default locale of the configuration. The servlet must
+     * have been initialized.
+     *
+     * @param path The template name.
+     * @throws IOException If the template cannot be found or parsed.
+     */
+    public void loadTemplate(String path) throws IOException {
+        getConfiguration().getTemplate(path);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected String requestUrlToTemplatePath(HttpServletRequest request) {
@@ -30,7 +30,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.freemarker.FreemarkerRequestException;
 import org.apache.tiles.request.render.CannotRenderException;
-import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RenderDeadline;
+import org.apache.tiles.request.render.RenderablePaths;
+import org.apache.tiles.request.render.TemplatePrecompiler;
 import org.apache.tiles.request.servlet.ExternalWriterHttpServletResponse;
 import org.apache.tiles.request.servlet.ServletRequest;
 
@@ -43,7 +45,12 @@ import org.apache.tiles.request.servlet.ServletRequest;
  *
  * @version $Rev$ $Date$
  */
-public class FreemarkerRenderer implements Renderer {
+public class FreemarkerRenderer implements TemplatePrecompiler {
+
+    /**
+     * The paths this renderer can render.
+     */
+    private static final RenderablePaths RENDERABLE_PATHS = new RenderablePaths("/", ".ftl", null);
 
     /**
      * The servlet that is used to forward the request to.
@@ -65,21 +72,37 @@ public class FreemarkerRenderer implements Renderer {
         if (path == null) {
             throw new CannotRenderException("Cannot dispatch a null path");
         }
+        RenderDeadline.check(request);
         ServletRequest servletRequest = org.apache.tiles.request.servlet.ServletUtil.getServletRequest(request);
         HttpServletRequest httpRequest = servletRequest.getRequest();
         HttpServletResponse httpResponse = servletRequest.getResponse();
         servlet.setValue(path);
+        servletRequest.flushScopes();
         try {
             servlet.doGet(httpRequest,
                     new ExternalWriterHttpServletResponse(httpResponse,
                             request.getPrintWriter()));
         } catch (ServletException e) {
             throw new FreemarkerRequestException("Exception when rendering a FreeMarker attribute", e);
+        } catch (IOException e) {
+            throw RenderDeadline.translate(request, e);
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void precompile(String path) throws IOException {
+        servlet.loadTemplate(path);
+    }
+
     /** {@inheritDoc} */
     public boolean isRenderable(String path, Request request) {
-        return path != null && path.startsWith("/") && path.endsWith(".ftl");
+        return RENDERABLE_PATHS.matches(path);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RenderablePaths getRenderablePaths() {
+        return RENDERABLE_PATHS;
     }
 }
@@ -32,7 +32,9 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
+import org.apache.tiles.request.render.RenderablePaths;
 import org.apache.tiles.request.servlet.ServletApplicationContext;
 import org.apache.tiles.request.servlet.ServletRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +44,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Locale;
 
 import static org.easymock.EasyMock.createMock;
@@ -50,7 +53,9 @@ import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.startsWith;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -164,7 +169,10 @@ class FreemarkerRendererTest {
                 .setParameter("default_encoding", "ISO-8859-1")
                 .setParameter("number_format", "0.##########").build();
 
-        ServletRequest request = createMock(ServletRequest.class);
+        ServletRequest request = createMockBuilder(ServletRequest.class).addMockedMethods("getContext",
+                "getRequest", "getResponse", "flushScopes", "getPrintWriter").createMock();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         HttpServletRequest httpRequest = createMock(HttpServletRequest.class);
         HttpServletResponse response = createMock(HttpServletResponse.class);
         StringWriter stringWriter = new StringWriter();
@@ -174,6 +182,7 @@ class FreemarkerRendererTest {
 
         expect(request.getRequest()).andReturn(httpRequest);
         expect(request.getResponse()).andReturn(response);
+        request.flushScopes();
         expect(request.getPrintWriter()).andReturn(printWriter);
         expect(httpRequest.getLocale()).andReturn(Locale.ENGLISH).anyTimes();
         expect(httpRequest.getSession(false)).andReturn(null);
@@ -227,6 +236,8 @@ class FreemarkerRendererTest {
                 .setParameter("number_format", "0.##########").build();
 
         ServletRequest request = createMock(ServletRequest.class);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
 
         replay(request);
         try {
@@ -251,4 +262,49 @@ class FreemarkerRendererTest {
         verify(applicationContext, servletContext);
     }
 
+    /**
+     * Test method for {@link FreemarkerRenderer#getRenderablePaths()}.
+     */
+    @Test
+    void testGetRenderablePaths() {
+        RenderablePaths paths = renderer.getRenderablePaths();
+        assertEquals("/", paths.getPrefix());
+        assertEquals(".ftl", paths.getSuffix());
+        assertTrue(paths.matches("/my/template.ftl"));
+        assertFalse(paths.matches("/my/template.jsp"));
+        verify(applicationContext, servletContext);
+    }
+
+    /**
+     * Tests {@link FreemarkerRenderer#precompile(String)}.
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    void testPrecompile() throws IOException, ServletException {
+        ApplicationContext applicationContext = createMock(ServletApplicationContext.class);
+        ServletContext servletContext = createMock(ServletContext.class);
+        GenericServlet servlet = createMockBuilder(GenericServlet.class).createMock();
+        ServletConfig servletConfig = createMock(ServletConfig.class);
+
+        replay(servlet, servletConfig);
+        servlet.init(servletConfig);
+
+        expect(applicationContext.getContext()).andReturn(servletContext).anyTimes();
+        expect(servletContext.getRealPath(isA(String.class))).andReturn(null).anyTimes();
+        URL resource = getClass().getResource("/test.ftl");
+        expect(servletContext.getResource(startsWith("/test"))).andReturn(resource).anyTimes();
+        expect(servletContext.getResource(isA(String.class))).andReturn(null).anyTimes();
+
+        replay(applicationContext, servletContext);
+
+        FreemarkerRenderer renderer = FreemarkerRendererBuilder
+                .createInstance().setApplicationContext(applicationContext)
+                .setParameter("TemplatePath", "/")
+                .setParameter("default_encoding", "ISO-8859-1").build();
+
+        renderer.precompile("/test.ftl");
+        assertThrows(IOException.class, () -> renderer.precompile("/missing.ftl"));
+        verify(applicationContext, servletContext);
+    }
 }
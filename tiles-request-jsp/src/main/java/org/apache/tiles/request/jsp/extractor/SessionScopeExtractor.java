@@ -20,18 +20,24 @@
  */
 package org.apache.tiles.request.jsp.extractor;
 
+import java.util.Collection;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.jsp.PageContext;
 
-import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 
 /**
- * Extracts attributes from session scope from {@link PageContext}.
+ * Extracts attributes from session scope from {@link PageContext}. Bulk
+ * operations look up the session once, and then use it directly instead of
+ * going through the page context for each attribute.
  *
  * @version $Rev$ $Date$
  */
-public class SessionScopeExtractor implements AttributeExtractor {
+public class SessionScopeExtractor implements BulkAttributeExtractor {
 
     /**
      * The page context.
@@ -78,4 +84,41 @@ public class SessionScopeExtractor implements AttributeExtractor {
         }
         context.setAttribute(key, value, PageContext.SESSION_SCOPE);
     }
+
+    @Override
+    public void setValues(Map<? extends String, ?> values) {
+        HttpSession session = context.getSession();
+        if (session == null) {
+            return;
+        }
+        for (Map.Entry<? extends String, ?> entry : values.entrySet()) {
+            session.setAttribute(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeValues(Collection<String> keys) {
+        HttpSession session = context.getSession();
+        if (session == null) {
+            return;
+        }
+        for (String key : keys) {
+            session.removeAttribute(key);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAllValues() {
+        Map<String, Object> retValue = new LinkedHashMap<String, Object>();
+        HttpSession session = context.getSession();
+        if (session == null) {
+            return retValue;
+        }
+        Enumeration<String> keys = session.getAttributeNames();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            retValue.put(key, session.getAttribute(key));
+        }
+        return retValue;
+    }
 }
@@ -25,7 +25,11 @@ import org.junit.jupiter.api.Test;
 
 import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.jsp.PageContext;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
@@ -167,4 +171,53 @@ class SessionScopeExtractorTest {
         extractor.setValue("key", "value");
         verify(context, session);
     }
+
+    /**
+     * Test method for {@link SessionScopeExtractor#setValues(java.util.Map)}.
+     */
+    @Test
+    void testSetValues() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("one", 1);
+        expect(context.getSession()).andReturn(session);
+        session.setAttribute("one", 1);
+        expect(context.getSession()).andReturn(null);
+
+        replay(context, session);
+        extractor.setValues(values);
+        extractor.setValues(values);
+        verify(context, session);
+    }
+
+    /**
+     * Test method for {@link SessionScopeExtractor#removeValues(java.util.Collection)}.
+     */
+    @Test
+    void testRemoveValues() {
+        expect(context.getSession()).andReturn(session);
+        session.removeAttribute("one");
+        session.removeAttribute("two");
+        expect(context.getSession()).andReturn(null);
+
+        replay(context, session);
+        extractor.removeValues(Arrays.asList("one", "two"));
+        extractor.removeValues(Arrays.asList("one", "two"));
+        verify(context, session);
+    }
+
+    /**
+     * Test method for {@link SessionScopeExtractor#getAllValues()}.
+     */
+    @Test
+    void testGetAllValues() {
+        expect(context.getSession()).andReturn(session);
+        expect(session.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("one")));
+        expect(session.getAttribute("one")).andReturn(1);
+        expect(context.getSession()).andReturn(null);
+
+        replay(context, session);
+        assertEquals(1, extractor.getAllValues().get("one"));
+        assertEquals(0, extractor.getAllValues().size());
+        verify(context, session);
+    }
 }
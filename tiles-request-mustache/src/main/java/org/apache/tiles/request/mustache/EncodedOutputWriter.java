@@ -0,0 +1,200 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A writer that encodes characters to an output stream, and also accepts
+ * bytes that are already encoded in its charset, such as the static segments
+ * of the templates compiled by {@link PreEncodedMustacheFactory}.
+ * <p>
+ * The encoded bytes are buffered: {@link #flushBuffer()} writes them to the
+ * stream without flushing it. Closing the writer does not close the stream.
+ * Unmappable characters are replaced.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class EncodedOutputWriter extends Writer implements PreEncodedWriter {
+
+    /**
+     * The size of the buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The output stream.
+     */
+    private final OutputStream out;
+
+    /**
+     * The charset.
+     */
+    private final Charset charset;
+
+    /**
+     * The encoder of the charset.
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * The encoded bytes that have not been written yet.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * A high surrogate written last, waiting for its low surrogate, or 0.
+     */
+    private char leftover;
+
+    /**
+     * Constructor.
+     *
+     * @param out The output stream.
+     * @param charset The charset.
+     */
+    public EncodedOutputWriter(OutputStream out, Charset charset) {
+        this.out = out;
+        this.charset = charset;
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Returns the charset.
+     *
+     * @return The charset.
+     */
+    @Override
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (len <= 0) {
+            return;
+        }
+        CharBuffer in = CharBuffer.wrap(cbuf, off, len);
+        if (leftover != 0) {
+            encode(CharBuffer.wrap(new char[] {leftover, in.get()}));
+            leftover = 0;
+        }
+        encode(in);
+        if (in.hasRemaining()) {
+            leftover = in.get();
+        }
+    }
+
+    /**
+     * Writes bytes that are already encoded in the charset of this writer.
+     *
+     * @param bytes The encoded bytes.
+     * @throws IOException If the stream cannot be written.
+     */
+    @Override
+    public void writeEncoded(byte[] bytes) throws IOException {
+        writeLeftover();
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else {
+            flushBuffer();
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the stream, without flushing it. A high
+     * surrogate that is still waiting for its low surrogate is kept.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    public void flushBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It writes the buffered bytes, but neither flushes nor closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        writeLeftover();
+        flushBuffer();
+    }
+
+    /**
+     * Encodes characters into the buffer, writing it when full. A trailing
+     * high surrogate is left in the input.
+     *
+     * @param in The characters.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void encode(CharBuffer in) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    /**
+     * Replaces a high surrogate that is not followed by its low surrogate.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeLeftover() throws IOException {
+        if (leftover != 0) {
+            leftover = 0;
+            byte[] replacement = encoder.replacement();
+            if (replacement.length > buffer.remaining()) {
+                flushBuffer();
+            }
+            buffer.put(replacement);
+        }
+    }
+}
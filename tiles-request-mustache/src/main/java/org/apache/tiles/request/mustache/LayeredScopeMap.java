@@ -0,0 +1,196 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.request.Request;
+
+/**
+ * A read-through view of the scopes of a request, for Mustache templates. A
+ * name is looked up in the available scopes, innermost first, only when the
+ * template asks for it, so attributes that are not used, in the session for
+ * instance, are neither enumerated nor deserialized.
+ * <p>
+ * Values that are put or removed are kept in this map, masking the scopes,
+ * which are not modified. Enumerating the entries copies all the scopes, and
+ * should be avoided.
+ * <p>
+ * This map is meant for a single render, and is not thread-safe.
+ *
+ * @version $Rev$ $Date$
+ */
+public final class LayeredScopeMap extends AbstractMap<String, Object> {
+
+    /**
+     * Marks a removed name in {@link #local}.
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * The request.
+     */
+    private final Request request;
+
+    /**
+     * The names of the available scopes, innermost first.
+     */
+    private final List<String> scopes;
+
+    /**
+     * The contexts of the scopes, fetched on first use.
+     */
+    private final Map<String, Object>[] contexts;
+
+    /**
+     * The values put or removed in this map, or <code>null</code> if none.
+     */
+    private Map<String, Object> local;
+
+    /**
+     * Constructor.
+     *
+     * @param request The request whose scopes are looked up.
+     */
+    @SuppressWarnings("unchecked")
+    public LayeredScopeMap(Request request) {
+        this.request = request;
+        this.scopes = request.getAvailableScopes();
+        this.contexts = new Map[scopes.size()];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object get(Object key) {
+        if (local != null) {
+            Object value = local.get(key);
+            if (value != null || local.containsKey(key)) {
+                return value != REMOVED ? value : null;
+            }
+        }
+        for (int i = 0; i < contexts.length; i++) {
+            Map<String, Object> context = getContext(i);
+            Object value = context.get(key);
+            if (value != null || context.containsKey(key)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        if (local != null && local.containsKey(key)) {
+            return local.get(key) != REMOVED;
+        }
+        for (int i = 0; i < contexts.length; i++) {
+            if (getContext(i).containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object put(String key, Object value) {
+        Object retValue = get(key);
+        getLocal().put(key, value);
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Object retValue = get(key);
+        getLocal().put((String) key, REMOVED);
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        for (String key : keySet()) {
+            getLocal().put(key, REMOVED);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It is a copy of the merged scopes: modifying it does not modify this
+     * map.
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> merged = new HashMap<String, Object>();
+        for (int i = contexts.length - 1; i >= 0; --i) {
+            merged.putAll(getContext(i));
+        }
+        if (local != null) {
+            for (Map.Entry<String, Object> entry : local.entrySet()) {
+                if (entry.getValue() != REMOVED) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    merged.remove(entry.getKey());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(merged).entrySet();
+    }
+
+    /**
+     * Returns the context of a scope, fetching it if needed.
+     *
+     * @param index The index of the scope.
+     * @return The context.
+     */
+    private Map<String, Object> getContext(int index) {
+        Map<String, Object> retValue = contexts[index];
+        if (retValue == null) {
+            retValue = request.getContext(scopes.get(index));
+            contexts[index] = retValue;
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the values put or removed in this map, creating the map if
+     * needed.
+     *
+     * @return The local values.
+     */
+    private Map<String, Object> getLocal() {
+        if (local == null) {
+            local = new HashMap<String, Object>();
+        }
+        return local;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.MustacheResolver;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.LocaleUtil;
+import org.apache.tiles.request.render.cache.TinyLfuCache;
+
+/**
+ * Resolves Mustache templates through an {@link ApplicationContext}, with
+ * their localized variants. A template is looked up for a locale as a
+ * resource bundle is: for instance, for <code>/page.mustache</code> and
+ * <code>fr_CA</code>, <code>/page_fr_CA.mustache</code>, then
+ * <code>/page_fr.mustache</code>, then <code>/page.mustache</code>.
+ * <p>
+ * The variant chosen for each path and locale is remembered, including when
+ * there is none, so that each variant is looked up once. Since the locales
+ * come from the clients, the number of remembered templates, and of locales
+ * per template, is bounded; the least used are looked up again. The factory, built
+ * with this resolver, compiles and caches each variant once, by its
+ * localized path, however many locales use it: one factory serves all the
+ * locales. For instance:
+ * <pre>
+ * LocalizedMustacheResolver resolver = new LocalizedMustacheResolver(applicationContext);
+ * MustacheRenderer renderer = new MustacheRenderer(new DefaultMustacheFactory(resolver));
+ * renderer.setLocalizedResolver(resolver);
+ * </pre>
+ * Templates are read in UTF-8. Partials are read through this resolver too,
+ * but are not localized.
+ *
+ * @version $Rev$ $Date$
+ */
+public class LocalizedMustacheResolver implements MustacheResolver {
+
+    /**
+     * The default maximum number of templates whose variants are remembered.
+     */
+    public static final int DEFAULT_MAXIMUM_TEMPLATES = 1024;
+
+    /**
+     * The default maximum number of locales remembered per template.
+     */
+    public static final int DEFAULT_MAXIMUM_LOCALES = 64;
+
+    /**
+     * Marks a path and locale without any variant.
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * The application context that finds the templates.
+     */
+    private final ApplicationContext applicationContext;
+
+    /**
+     * The variants, or {@link #MISSING}, by path and locale.
+     */
+    private final TinyLfuCache<String, TinyLfuCache<Locale, Object>> variants;
+
+    /**
+     * The maximum number of locales remembered per template.
+     */
+    private final int maximumLocales;
+
+    /**
+     * Constructor, that remembers the variants of
+     * {@link #DEFAULT_MAXIMUM_TEMPLATES} templates in
+     * {@link #DEFAULT_MAXIMUM_LOCALES} locales each.
+     *
+     * @param applicationContext The application context that finds the
+     * templates.
+     */
+    public LocalizedMustacheResolver(ApplicationContext applicationContext) {
+        this(applicationContext, DEFAULT_MAXIMUM_TEMPLATES, DEFAULT_MAXIMUM_LOCALES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param applicationContext The application context that finds the
+     * templates.
+     * @param maximumTemplates The maximum number of templates whose variants
+     * are remembered.
+     * @param maximumLocales The maximum number of locales remembered per
+     * template.
+     * @throws IllegalArgumentException If a maximum is less than 1.
+     */
+    public LocalizedMustacheResolver(ApplicationContext applicationContext,
+            int maximumTemplates, int maximumLocales) {
+        if (maximumLocales < 1) {
+            throw new IllegalArgumentException("The maximum number of locales must be positive: "
+                    + maximumLocales);
+        }
+        this.applicationContext = applicationContext;
+        this.variants = new TinyLfuCache<String, TinyLfuCache<Locale, Object>>(maximumTemplates);
+        this.maximumLocales = maximumLocales;
+    }
+
+    /**
+     * Returns the variant of a template to use for a locale.
+     *
+     * @param path The path of the template, without locale.
+     * @param locale The locale, or <code>null</code> for the base template.
+     * @return The variant, or <code>null</code> if the template does not
+     * exist.
+     */
+    public ApplicationResource resolve(String path, Locale locale) {
+        TinyLfuCache<Locale, Object> pathVariants = variants.get(path);
+        if (pathVariants == null) {
+            // a concurrent lookup may put another one: both remember the same variants
+            pathVariants = new TinyLfuCache<Locale, Object>(maximumLocales);
+            variants.put(path, pathVariants);
+        }
+        return resolve(path, locale != null ? locale : LocaleUtil.NULL_LOCALE, pathVariants);
+    }
+
+    /**
+     * Returns the path of the variant of a template to use for a locale.
+     *
+     * @param path The path of the template, without locale.
+     * @param locale The locale, or <code>null</code> for the base template.
+     * @return The path of the variant, or <code>null</code> if the template
+     * does not exist.
+     */
+    public String getLocalizedPath(String path, Locale locale) {
+        ApplicationResource resource = resolve(path, locale);
+        return resource != null ? resource.getLocalePath() : null;
+    }
+
+    /**
+     * Forgets the variants of a template, including the missing ones, for
+     * instance after a variant has been added.
+     *
+     * @param path The path of the template, without locale.
+     */
+    public void invalidate(String path) {
+        variants.invalidate(path);
+    }
+
+    /**
+     * Forgets the variants of all the templates.
+     */
+    public void invalidateAll() {
+        variants.invalidateAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The name is a path, with locale, as returned by
+     * {@link #getLocalizedPath(String, Locale)}.
+     */
+    @Override
+    public Reader getReader(String resourceName) {
+        ApplicationResource resource = applicationContext.getResource(resourceName);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            return new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MustacheException("Cannot read the template " + resourceName, e);
+        }
+    }
+
+    /**
+     * Returns the variant of a template for a locale, falling back to the
+     * parent locales.
+     *
+     * @param path The path of the template.
+     * @param locale The locale.
+     * @param pathVariants The variants of the template, by locale.
+     * @return The variant, or <code>null</code> if the template does not
+     * exist.
+     */
+    private ApplicationResource resolve(String path, Locale locale,
+            TinyLfuCache<Locale, Object> pathVariants) {
+        Object retValue = pathVariants.get(locale);
+        if (retValue == null) {
+            ApplicationResource resource;
+            if (LocaleUtil.NULL_LOCALE.equals(locale)) {
+                resource = applicationContext.getResource(path);
+            } else {
+                ApplicationResource base = resolve(path, LocaleUtil.NULL_LOCALE, pathVariants);
+                resource = base != null ? applicationContext.getResource(base, locale) : null;
+                if (resource == null && base != null) {
+                    resource = resolve(path, LocaleUtil.getParentLocale(locale), pathVariants);
+                }
+            }
+            retValue = resource != null ? resource : MISSING;
+            pathVariants.put(locale, retValue);
+        }
+        return retValue != MISSING ? (ApplicationResource) retValue : null;
+    }
+}
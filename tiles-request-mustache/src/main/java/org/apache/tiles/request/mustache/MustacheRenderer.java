@@ -21,19 +21,27 @@
 
 package org.apache.tiles.request.mustache;
 
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.MustacheException;
+import org.apache.tiles.request.NotAvailableFeatureException;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
-import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RenderCancelledException;
+import org.apache.tiles.request.render.RenderDeadline;
+import org.apache.tiles.request.render.RenderablePaths;
+import org.apache.tiles.request.render.TemplatePrecompiler;
 
 /**
  * The Mustache-specific renderer.
@@ -42,13 +50,27 @@ import org.apache.tiles.request.render.Renderer;
  *
  * @version $Rev: 1215006 $ $Date: 2011-12-16 01:30:41 +0100 (Fri, 16 Dec 2011) $
  */
-public class MustacheRenderer implements Renderer {
+public class MustacheRenderer implements TemplatePrecompiler {
+
+    /**
+     * The name of the request attribute that declares the charset of a
+     * response written only as bytes.
+     *
+     * @see #declareByteOutput(Request, Charset)
+     */
+    public static final String BYTE_OUTPUT_CHARSET_ATTRIBUTE = MustacheRenderer.class.getName()
+            + ".BYTE_OUTPUT_CHARSET";
 
     // hack. exposes the tiles Request for MustacheFactory implementations.
     private static final ThreadLocal<Request> REQUEST_HOLDER = new ThreadLocal<Request>();
 
     private final MustacheFactory factory;
-    private Pattern acceptPattern;
+    private volatile RenderablePaths renderablePaths = RenderablePaths.ALL;
+    private MustacheTemplateCache templateCache;
+    private Charset outputCharset;
+    private MustacheValueExecutor valueExecutor;
+    private LocalizedMustacheResolver localizedResolver;
+    private long valueTimeoutNanos;
 
     /** Uses the {@link DefaultMustacheFactory} */
     public MustacheRenderer(){
@@ -64,16 +86,35 @@ public class MustacheRenderer implements Renderer {
         if (path == null) {
             throw new CannotRenderException("Cannot dispatch a null path");
         }
+        RenderDeadline.check(request);
 
+        Request previous = bindThreadLocalRequest(request);
         try {
-            REQUEST_HOLDER.set(request);
-            factory
-                    .compile(path)
-                    .execute(request.getWriter(), buildScope(request));
-            REQUEST_HOLDER.remove();
+            Writer writer = openWriter(request);
+            Mustache mustache = compile(localize(path, request));
+            if (valueExecutor != null) {
+                executeConcurrently(mustache, writer, request);
+            } else {
+                mustache.execute(writer, buildScope(request));
+            }
+            if (writer instanceof EncodedOutputWriter) {
+                ((EncodedOutputWriter) writer).close();
+            }
+
+        } catch(MustacheException ex) {
+            throw RenderDeadline.translate(request,
+                    new IOException("failed to MustacheRenderer.render(" + path + ",request)", ex));
+        } finally {
+            bindThreadLocalRequest(previous);
+        }
+    }
 
+    @Override
+    public void precompile(String path) throws IOException {
+        try {
+            compile(path);
         } catch(MustacheException ex) {
-            throw new IOException("failed to MustacheRenderer.render(" + path + ",request)", ex);
+            throw new IOException("failed to MustacheRenderer.precompile(" + path + ")", ex);
         }
     }
 
@@ -81,28 +122,296 @@ public class MustacheRenderer implements Renderer {
         return REQUEST_HOLDER.get();
     }
 
-    protected Map<String,Object> buildScope(Request request) {
-        Map<String,Object> scope = new HashMap<String,Object>();
-        List<String> availableScopes = request.getAvailableScopes();
-        for (int i = availableScopes.size() -1; i >= 0; --i) {
-            scope.putAll(request.getContext(availableScopes.get(i)));
+    /**
+     * Exposes a request to the current thread, as the one being rendered.
+     *
+     * @param request The request, or <code>null</code> to expose none.
+     * @return The request exposed before, or <code>null</code>.
+     * @see #getThreadLocalRequest()
+     */
+    static Request bindThreadLocalRequest(Request request) {
+        Request retValue = REQUEST_HOLDER.get();
+        if (request != null) {
+            REQUEST_HOLDER.set(request);
+        } else {
+            REQUEST_HOLDER.remove();
         }
-        return scope;
+        return retValue;
+    }
+
+    /**
+     * Declares that the response of a request is written only through its
+     * output stream, in a charset, for instance because the whole page is
+     * made of Mustache templates. Renderers with that output charset then
+     * write bytes; without the declaration, they write to the writer, since
+     * renderers writing characters, and the container when including, fail
+     * once the output stream has been taken.
+     *
+     * @param request The request.
+     * @param charset The character encoding of the response.
+     * @see #setOutputCharset(Charset)
+     */
+    public static void declareByteOutput(Request request, Charset charset) {
+        request.getContext(Request.REQUEST_SCOPE).put(BYTE_OUTPUT_CHARSET_ATTRIBUTE, charset);
+    }
+
+    /**
+     * Builds the scope of the template: a lazy view of the scopes of the
+     * request, innermost first, that copies nothing.
+     *
+     * @param request The request.
+     * @return The scope.
+     * @see LayeredScopeMap
+     */
+    protected Map<String,Object> buildScope(Request request) {
+        return new LayeredScopeMap(request);
+    }
+
+    /**
+     * Builds the scope of a template rendered with a value executor. The
+     * bodies of the sections whose value is a <code>Callable</code> are
+     * rendered on the threads of the executor, so the scope cannot read the
+     * request: it is an unmodifiable copy of the scopes of the request,
+     * innermost first, taken on the rendering thread.
+     *
+     * @param request The request.
+     * @return The scope.
+     * @see #setValueExecutor(MustacheValueExecutor, long, TimeUnit)
+     */
+    protected Map<String,Object> buildConcurrentScope(Request request) {
+        return Collections.unmodifiableMap(new HashMap<String,Object>(new LayeredScopeMap(request)));
     }
 
     @Override
     public boolean isRenderable(String path, Request request) {
-        if (path == null) {
-            return false;
+        return renderablePaths.matches(path);
+    }
+
+    @Override
+    public RenderablePaths getRenderablePaths() {
+        return renderablePaths;
+    }
+
+    public final void setAcceptPattern(Pattern acceptPattern) {
+        this.renderablePaths = new RenderablePaths(null, null, acceptPattern);
+    }
+
+    /**
+     * Sets the cache of the compiled templates. Without it, the templates are
+     * compiled, and cached, by the factory.
+     *
+     * @param templateCache The template cache, or <code>null</code>.
+     */
+    public final void setTemplateCache(MustacheTemplateCache templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    /**
+     * Sets the charset to render to {@link Request#getOutputStream()} with,
+     * instead of {@link Request#getWriter()}, for the requests whose response
+     * has been declared written only as bytes in that charset with
+     * {@link #declareByteOutput(Request, Charset)}. With a
+     * {@link PreEncodedMustacheFactory} of the same charset, the static text
+     * of the templates is written without being encoded again. Other
+     * requests, and requests whose output stream is not available, for
+     * instance because the writer of the response is already in use, are
+     * rendered to the writer.
+     *
+     * @param outputCharset The charset, or <code>null</code> to render to the
+     * writer.
+     */
+    public final void setOutputCharset(Charset outputCharset) {
+        this.outputCharset = outputCharset;
+    }
+
+    /**
+     * Sets the executor that resolves the <code>Callable</code> values of the
+     * scope concurrently, while the rest of the template is rendered. The
+     * executor is set on the factory, if it is a {@link DefaultMustacheFactory},
+     * and must be set on the factory of the template cache, if any; it applies
+     * to the templates compiled afterwards.
+     * <p>
+     * A render waits for its values at most for the given timeout, or until
+     * its {@link RenderDeadline}, if earlier. Then the values still resolving
+     * are cancelled and a {@link RenderCancelledException} is thrown.
+     * <p>
+     * The body of a section whose value is a <code>Callable</code> is
+     * rendered on the executor too: the template is therefore rendered with a
+     * copy of the scopes, see {@link #buildConcurrentScope(Request)}, which
+     * enumerates them all, the session included. The values see the request
+     * of the render through {@link #getThreadLocalRequest()}; the request is
+     * not thread-safe, and must not be used by them while the rendering
+     * thread uses it.
+     *
+     * @param valueExecutor The executor, or <code>null</code> to resolve the
+     * values in the rendering thread.
+     * @param timeout The maximum time to wait for the values of a render.
+     * @param unit The unit of the timeout.
+     */
+    public final void setValueExecutor(MustacheValueExecutor valueExecutor, long timeout,
+            TimeUnit unit) {
+        if (factory instanceof DefaultMustacheFactory) {
+            ((DefaultMustacheFactory) factory).setExecutorService(valueExecutor);
         }
-        if (acceptPattern != null) {
-            final Matcher matcher = acceptPattern.matcher(path);
-            return matcher.matches();
+        this.valueExecutor = valueExecutor;
+        this.valueTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets the resolver of the localized variants of the templates. The
+     * variant for {@link Request#getRequestLocale()} is rendered; it is
+     * compiled once, whatever the number of locales that use it. The factory
+     * must read the templates with the same resolver.
+     *
+     * @param localizedResolver The resolver, or <code>null</code> to render
+     * the paths as they are.
+     */
+    public final void setLocalizedResolver(LocalizedMustacheResolver localizedResolver) {
+        this.localizedResolver = localizedResolver;
+    }
+
+    private String localize(String path, Request request) {
+        if (localizedResolver == null) {
+            return path;
         }
-        return true;
+        String localizedPath = localizedResolver.getLocalizedPath(path, request.getRequestLocale());
+        return localizedPath != null ? localizedPath : path;
     }
 
-    public final void setAcceptPattern(Pattern acceptPattern) {
-        this.acceptPattern = acceptPattern;
+    /**
+     * Opens the writer to render to: an {@link EncodedOutputWriter} on the
+     * output stream, if the response is declared written only as bytes in
+     * the output charset and the stream is available, or the writer of the
+     * request.
+     *
+     * @param request The request.
+     * @return The writer.
+     * @throws IOException If the output cannot be opened.
+     */
+    private Writer openWriter(Request request) throws IOException {
+        if (outputCharset != null && outputCharset.equals(
+                request.getContext(Request.REQUEST_SCOPE).get(BYTE_OUTPUT_CHARSET_ATTRIBUTE))) {
+            try {
+                return new EncodedOutputWriter(request.getOutputStream(), outputCharset);
+            } catch (IllegalStateException | NotAvailableFeatureException e) {
+                // the writer is in use, or the request only has a writer
+            }
+        }
+        return request.getWriter();
+    }
+
+    private Mustache compile(String path) throws IOException {
+        return templateCache != null ? templateCache.get(path) : factory.compile(path);
+    }
+
+    /**
+     * Executes a template whose values may resolve in the value executor, and
+     * waits for them. If they do not resolve in time, they are cancelled and
+     * whatever they write afterwards is discarded.
+     *
+     * @param mustache The template.
+     * @param writer The writer to render to.
+     * @param request The request.
+     * @throws IOException If the values do not resolve in time or fail.
+     */
+    private void executeConcurrently(Mustache mustache, Writer writer, Request request)
+            throws IOException {
+        DetachableWriter target = new DetachableWriter(writer);
+        boolean completed = false;
+        try (MustacheValueExecutor.RenderTasks tasks = valueExecutor.begin()) {
+            try {
+                Writer result = mustache.execute(target, buildConcurrentScope(request));
+                long timeout = valueTimeoutNanos;
+                RenderDeadline deadline = RenderDeadline.get(request);
+                if (deadline != null) {
+                    timeout = Math.min(timeout, deadline.getRemaining(TimeUnit.NANOSECONDS));
+                }
+                if (!tasks.await(timeout, TimeUnit.NANOSECONDS)) {
+                    throw new RenderCancelledException(
+                            RenderCancelledException.Reason.DEADLINE_EXCEEDED,
+                            "Timed out resolving the values of the template");
+                }
+                // all the values are resolved: this only reports their failures
+                result.flush();
+                completed = true;
+            } finally {
+                if (!completed) {
+                    target.detach();
+                    tasks.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes to the writer of a render until detached, when the render gives
+     * up on its values. It does not flush nor close the writer, which the
+     * renderer does not own. It passes encoded bytes through to an
+     * {@link EncodedOutputWriter}.
+     */
+    private static final class DetachableWriter extends FilterWriter implements PreEncodedWriter {
+
+        private boolean detached;
+
+        private DetachableWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            synchronized (lock) {
+                if (!detached) {
+                    out.write(c);
+                }
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            synchronized (lock) {
+                if (!detached) {
+                    out.write(cbuf, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            synchronized (lock) {
+                if (!detached) {
+                    out.write(str, off, len);
+                }
+            }
+        }
+
+        @Override
+        public Charset getCharset() {
+            return out instanceof PreEncodedWriter ? ((PreEncodedWriter) out).getCharset() : null;
+        }
+
+        @Override
+        public void writeEncoded(byte[] bytes) throws IOException {
+            synchronized (lock) {
+                if (!detached) {
+                    ((PreEncodedWriter) out).writeEncoded(bytes);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            // the renderer does not own the writer
+        }
+
+        @Override
+        public void close() {
+            // the renderer does not own the writer
+        }
+
+        private void detach() {
+            synchronized (lock) {
+                detached = true;
+            }
+        }
     }
 }
@@ -22,9 +22,10 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.HasSizedKeys;
 
 
-public final class MustacheScopeExtractor  implements AttributeExtractor {
+public final class MustacheScopeExtractor  implements AttributeExtractor, HasSizedKeys<Object> {
     private final Map<String,Object> scope;
 
     public MustacheScopeExtractor(Map<String,Object> scope) {
@@ -41,6 +42,11 @@ public final class MustacheScopeExtractor  implements AttributeExtractor {
         return (Enumeration<String>) Collections.enumeration((Set<?>)scope.keySet());
     }
 
+    @Override
+    public int getKeyCount() {
+        return scope.size();
+    }
+
     @Override
     public Object getValue(String key) {
         return scope.get(key);
@@ -0,0 +1,360 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.MustacheFactory;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.render.cache.TinyLfuCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A size-bounded cache of compiled Mustache templates, that picks up the
+ * changes of the templates. The templates are read, in UTF-8, through
+ * {@link ApplicationContext#getResource(String)}, and their
+ * {@link ApplicationResource#getLastModified()} is checked at most once per
+ * interval.
+ * <p>
+ * A stale template is recompiled by the first caller that notices it, while
+ * the others keep using the previous version. If the recompilation fails,
+ * for instance because the template is being edited, the previous version is
+ * kept until the next check. When a template is not cached yet, concurrent
+ * callers wait for a single compilation.
+ * <p>
+ * Only the templates themselves are checked: the partials they include are
+ * compiled and cached by the {@link MustacheFactory}. Templates that the
+ * application context cannot find are compiled by the factory, and checked
+ * for a resource that would replace them. A template whose resource has been
+ * removed is evicted and loaded again, or fails to load.
+ *
+ * @version $Rev$ $Date$
+ */
+public class MustacheTemplateCache {
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(MustacheTemplateCache.class);
+
+    /**
+     * The factory that compiles the templates.
+     */
+    private final MustacheFactory factory;
+
+    /**
+     * The application context that finds the templates.
+     */
+    private final ApplicationContext applicationContext;
+
+    /**
+     * The interval between two checks of a template, in nanoseconds, or a
+     * negative value to never check.
+     */
+    private final long checkIntervalNanos;
+
+    /**
+     * The source of time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * The compiled templates, by path.
+     */
+    private final TinyLfuCache<String, CachedTemplate> cache;
+
+    /**
+     * The compilations in progress of the templates that are not cached.
+     */
+    private final ConcurrentMap<String, CompletableFuture<CachedTemplate>> loading =
+            new ConcurrentHashMap<String, CompletableFuture<CachedTemplate>>();
+
+    /**
+     * Constructor.
+     *
+     * @param factory The factory that compiles the templates.
+     * @param applicationContext The application context that finds the
+     * templates.
+     * @param maximumSize The maximum number of cached templates.
+     * @param checkInterval The minimum time between two checks of the
+     * modification of a template; zero to check at each use, negative to
+     * never check.
+     * @param unit The unit of the interval.
+     */
+    public MustacheTemplateCache(MustacheFactory factory, ApplicationContext applicationContext,
+            int maximumSize, long checkInterval, TimeUnit unit) {
+        this(factory, applicationContext, maximumSize, checkInterval, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param factory The factory that compiles the templates.
+     * @param applicationContext The application context that finds the
+     * templates.
+     * @param maximumSize The maximum number of cached templates.
+     * @param checkInterval The minimum time between two checks.
+     * @param unit The unit of the interval.
+     * @param ticker The source of time, in nanoseconds.
+     */
+    MustacheTemplateCache(MustacheFactory factory, ApplicationContext applicationContext,
+            int maximumSize, long checkInterval, TimeUnit unit, LongSupplier ticker) {
+        this.factory = factory;
+        this.applicationContext = applicationContext;
+        this.checkIntervalNanos = checkInterval < 0L ? -1L : unit.toNanos(checkInterval);
+        this.ticker = ticker;
+        this.cache = new TinyLfuCache<String, CachedTemplate>(maximumSize);
+    }
+
+    /**
+     * Returns a compiled template, compiling it or recompiling it if needed.
+     *
+     * @param path The path of the template.
+     * @return The compiled template.
+     * @throws IOException If the template cannot be read.
+     * @throws MustacheException If the template cannot be compiled.
+     */
+    public Mustache get(String path) throws IOException {
+        CachedTemplate cached = cache.get(path);
+        if (cached == null) {
+            return load(path).mustache;
+        }
+        if (cached.isCheckDue(ticker.getAsLong()) && cached.checking.compareAndSet(false, true)) {
+            try {
+                return refresh(path, cached).mustache;
+            } finally {
+                cached.checking.set(false);
+            }
+        }
+        return cached.mustache;
+    }
+
+    /**
+     * Removes a template, that will be compiled again at its next use.
+     *
+     * @param path The path of the template.
+     */
+    public void invalidate(String path) {
+        cache.invalidate(path);
+    }
+
+    /**
+     * Removes all the templates.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the number of cached templates.
+     *
+     * @return The number of templates.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Compiles a template that is not cached, or waits for the compilation
+     * that another thread is doing.
+     *
+     * @param path The path of the template.
+     * @return The compiled template.
+     * @throws IOException If the template cannot be read.
+     */
+    private CachedTemplate load(String path) throws IOException {
+        CompletableFuture<CachedTemplate> future = new CompletableFuture<CachedTemplate>();
+        CompletableFuture<CachedTemplate> existing = loading.putIfAbsent(path, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            CachedTemplate retValue = compile(path);
+            cache.put(path, retValue);
+            future.complete(retValue);
+            return retValue;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(path, future);
+        }
+    }
+
+    /**
+     * Recompiles a template if it has been modified, keeping the previous
+     * version if it cannot. A template whose resource has been removed is
+     * evicted, and loaded again.
+     *
+     * @param path The path of the template.
+     * @param cached The cached template.
+     * @return The template to use.
+     * @throws IOException If the resource has been removed and the template
+     * cannot be loaded again.
+     */
+    private CachedTemplate refresh(String path, CachedTemplate cached) throws IOException {
+        long now = ticker.getAsLong();
+        ApplicationResource resource = applicationContext.getResource(path);
+        if (resource == null && cached.found) {
+            cache.invalidate(path);
+            return load(path);
+        }
+        try {
+            if (resource != null && (!cached.found || resource.getLastModified() != cached.lastModified)) {
+                CachedTemplate retValue = compile(path);
+                cache.put(path, retValue);
+                return retValue;
+            }
+        } catch (IOException | MustacheException e) {
+            log.warn("Cannot recompile the template " + path + ", keeping the previous version", e);
+        }
+        cached.nextCheck = now + checkIntervalNanos;
+        return cached;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param path The path of the template.
+     * @return The compiled template.
+     * @throws IOException If the template cannot be read.
+     */
+    private CachedTemplate compile(String path) throws IOException {
+        long now = ticker.getAsLong();
+        boolean checked = checkIntervalNanos >= 0L;
+        ApplicationResource resource = applicationContext.getResource(path);
+        if (resource == null) {
+            return new CachedTemplate(factory.compile(path), false, 0L, checked, now + checkIntervalNanos);
+        }
+        long lastModified = resource.getLastModified();
+        Mustache mustache;
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            mustache = factory.compile(reader, path);
+        }
+        return new CachedTemplate(mustache, true, lastModified, checked, now + checkIntervalNanos);
+    }
+
+    /**
+     * Waits for the compilation of a template by another thread.
+     *
+     * @param future The result of the compilation.
+     * @return The compiled template.
+     * @throws IOException If the template cannot be read, or the thread is
+     * interrupted.
+     */
+    private static CachedTemplate await(CompletableFuture<CachedTemplate> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a template to compile");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Cannot compile the template", cause);
+        }
+    }
+
+    /**
+     * A compiled template, with the state of its resource.
+     */
+    private static final class CachedTemplate {
+
+        /**
+         * The compiled template.
+         */
+        private final Mustache mustache;
+
+        /**
+         * Whether it was compiled from a resource of the application context,
+         * and not by the factory alone.
+         */
+        private final boolean found;
+
+        /**
+         * The last modification time of the resource it was compiled from.
+         */
+        private final long lastModified;
+
+        /**
+         * Whether the resource of the template must be checked.
+         */
+        private final boolean checked;
+
+        /**
+         * The time of the next check.
+         */
+        private volatile long nextCheck;
+
+        /**
+         * Whether a thread is checking the template.
+         */
+        private final AtomicBoolean checking = new AtomicBoolean();
+
+        /**
+         * Constructor.
+         *
+         * @param mustache The compiled template.
+         * @param found Whether it was compiled from a resource.
+         * @param lastModified The last modification time of the resource.
+         * @param checked Whether the resource must be checked.
+         * @param nextCheck The time of the next check.
+         */
+        private CachedTemplate(Mustache mustache, boolean found, long lastModified, boolean checked,
+                long nextCheck) {
+            this.mustache = mustache;
+            this.found = found;
+            this.lastModified = lastModified;
+            this.checked = checked;
+            this.nextCheck = nextCheck;
+        }
+
+        /**
+         * Checks if the template must be checked.
+         *
+         * @param now The current time.
+         * @return <code>true</code> if the check is due.
+         */
+        private boolean isCheckDue(long now) {
+            return checked && now - nextCheck >= 0L;
+        }
+    }
+}
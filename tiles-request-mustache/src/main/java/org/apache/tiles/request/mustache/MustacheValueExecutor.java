@@ -0,0 +1,327 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.request.Request;
+
+/**
+ * The executor that resolves the <code>Callable</code> values of Mustache
+ * templates concurrently, on virtual threads by default. It must be set on
+ * the {@link com.github.mustachejava.DefaultMustacheFactory} before the
+ * templates are compiled, see
+ * {@link MustacheRenderer#setValueExecutor(MustacheValueExecutor, long, TimeUnit)}.
+ * <p>
+ * The values of a render resolve at most a given number at a time: the
+ * others wait for a permit on their own thread. A value submitted while
+ * resolving another value of the same render runs inline, on the thread that
+ * already holds a permit, so that nested values cannot wait for each other's
+ * permits. The renderer waits for all the values of a render, up to a
+ * timeout, and cancels them if it gives up. The values see the request of
+ * their render through {@link MustacheRenderer#getThreadLocalRequest()}.
+ *
+ * @version $Rev$ $Date$
+ */
+public class MustacheValueExecutor extends AbstractExecutorService {
+
+    /**
+     * The tasks of the render running in the current thread.
+     */
+    private static final ThreadLocal<RenderTasks> CURRENT = new ThreadLocal<RenderTasks>();
+
+    /**
+     * The tasks of the render whose permit the current thread holds.
+     */
+    private static final ThreadLocal<RenderTasks> RUNNING = new ThreadLocal<RenderTasks>();
+
+    /**
+     * The executor that runs the tasks.
+     */
+    private final ExecutorService delegate;
+
+    /**
+     * The maximum number of values of a render that resolve at the same time.
+     */
+    private final int maxConcurrencyPerRender;
+
+    /**
+     * Constructor, resolving on virtual threads.
+     *
+     * @param maxConcurrencyPerRender The maximum number of values of a render
+     * that resolve at the same time.
+     */
+    public MustacheValueExecutor(int maxConcurrencyPerRender) {
+        this(Executors.newVirtualThreadPerTaskExecutor(), maxConcurrencyPerRender);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The executor that runs the tasks.
+     * @param maxConcurrencyPerRender The maximum number of values of a render
+     * that resolve at the same time.
+     */
+    public MustacheValueExecutor(ExecutorService delegate, int maxConcurrencyPerRender) {
+        if (maxConcurrencyPerRender < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be positive: "
+                    + maxConcurrencyPerRender);
+        }
+        this.delegate = delegate;
+        this.maxConcurrencyPerRender = maxConcurrencyPerRender;
+    }
+
+    /**
+     * Returns the maximum number of values of a render that resolve at the
+     * same time.
+     *
+     * @return The maximum concurrency.
+     */
+    public int getMaxConcurrencyPerRender() {
+        return maxConcurrencyPerRender;
+    }
+
+    /**
+     * Starts tracking the tasks submitted by the current thread, until
+     * {@link RenderTasks#close()}. The tasks run with the request rendered by
+     * the current thread, if any.
+     *
+     * @return The tasks of the render.
+     */
+    RenderTasks begin() {
+        RenderTasks retValue = new RenderTasks(maxConcurrencyPerRender, CURRENT.get(),
+                MustacheRenderer.getThreadLocalRequest());
+        CURRENT.set(retValue);
+        return retValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tasks submitted outside of a render are not limited. Tasks submitted by
+     * a task of the same render run inline.
+     */
+    @Override
+    public void execute(Runnable command) {
+        RenderTasks tasks = CURRENT.get();
+        if (tasks == null) {
+            delegate.execute(command);
+        } else if (RUNNING.get() == tasks) {
+            command.run();
+        } else {
+            tasks.submit(delegate, command);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * The tasks of a render.
+     */
+    static final class RenderTasks implements AutoCloseable {
+
+        /**
+         * The permits to run.
+         */
+        private final Semaphore permits;
+
+        /**
+         * The tasks that are not finished.
+         */
+        private final Set<Future<?>> futures = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The tasks of the enclosing render, or <code>null</code>.
+         */
+        private final RenderTasks previous;
+
+        /**
+         * The request of the render, or <code>null</code>.
+         */
+        private final Request request;
+
+        /**
+         * The number of tasks that are not finished.
+         */
+        private int pending;
+
+        /**
+         * Constructor.
+         *
+         * @param maxConcurrency The maximum number of tasks running at the
+         * same time.
+         * @param previous The tasks of the enclosing render, or
+         * <code>null</code>.
+         * @param request The request of the render, or <code>null</code>.
+         */
+        private RenderTasks(int maxConcurrency, RenderTasks previous, Request request) {
+            permits = new Semaphore(maxConcurrency);
+            this.previous = previous;
+            this.request = request;
+        }
+
+        /**
+         * Waits for all the tasks to finish.
+         *
+         * @param timeout The maximum time to wait.
+         * @param unit The unit of the timeout.
+         * @return <code>true</code> if all the tasks are finished.
+         * @throws InterruptedIOException If the thread is interrupted.
+         */
+        synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedIOException {
+            long end = System.nanoTime() + unit.toNanos(timeout);
+            try {
+                while (pending > 0) {
+                    long remaining = end - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while resolving the template values");
+            }
+            return true;
+        }
+
+        /**
+         * Cancels the tasks that are not finished, interrupting those that
+         * are running.
+         */
+        void cancel() {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        /**
+         * Stops tracking the tasks submitted by the current thread, going back
+         * to the enclosing render, if any.
+         */
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+
+        /**
+         * Submits a task, that waits for a permit on its own thread.
+         *
+         * @param executor The executor.
+         * @param command The task.
+         */
+        private void submit(ExecutorService executor, Runnable command) {
+            synchronized (this) {
+                pending++;
+            }
+            try {
+                Future<?>[] holder = new Future<?>[1];
+                synchronized (holder) {
+                    holder[0] = executor.submit(() -> run(command, holder));
+                    futures.add(holder[0]);
+                }
+            } catch (RuntimeException e) {
+                finished();
+                throw e;
+            }
+        }
+
+        /**
+         * Runs a task with a permit, exposing the request of the render. The
+         * tasks it submits run inline, with the same permit.
+         *
+         * @param command The task.
+         * @param holder Holds the future of the task.
+         */
+        private void run(Runnable command, Future<?>[] holder) {
+            CURRENT.set(this);
+            Request previousRequest = MustacheRenderer.bindThreadLocalRequest(request);
+            try {
+                permits.acquire();
+                RUNNING.set(this);
+                try {
+                    command.run();
+                } finally {
+                    RUNNING.remove();
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                MustacheRenderer.bindThreadLocalRequest(previousRequest);
+                CURRENT.remove();
+                synchronized (holder) {
+                    futures.remove(holder[0]);
+                }
+                finished();
+            }
+        }
+
+        /**
+         * Records the end of a task.
+         */
+        private synchronized void finished() {
+            pending--;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.DefaultMustacheVisitor;
+import com.github.mustachejava.MustacheException;
+import com.github.mustachejava.MustacheResolver;
+import com.github.mustachejava.MustacheVisitor;
+import com.github.mustachejava.TemplateContext;
+import com.github.mustachejava.codes.WriteCode;
+
+/**
+ * A Mustache factory that encodes the static text of the templates once, when
+ * they are compiled. When a template is executed with an
+ * {@link EncodedOutputWriter} of the same charset, possibly behind the writer
+ * of a render that resolves its values concurrently, the static text is
+ * written as bytes, and only the values are encoded; with other writers, it is
+ * written as text.
+ *
+ * @version $Rev$ $Date$
+ */
+public class PreEncodedMustacheFactory extends DefaultMustacheFactory {
+
+    /**
+     * The charset of the static text.
+     */
+    private final Charset charset;
+
+    /**
+     * Constructor, reading the templates from the classpath.
+     *
+     * @param charset The charset of the output.
+     */
+    public PreEncodedMustacheFactory(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param charset The charset of the output.
+     * @param mustacheResolver The resolver of the templates.
+     */
+    public PreEncodedMustacheFactory(Charset charset, MustacheResolver mustacheResolver) {
+        super(mustacheResolver);
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the charset of the static text.
+     *
+     * @return The charset.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MustacheVisitor createMustacheVisitor() {
+        return new DefaultMustacheVisitor(this) {
+
+            @Override
+            public void write(TemplateContext tc, String text) {
+                if (text.length() > 0) {
+                    list.add(new PreEncodedWriteCode(tc, df, text, charset));
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes static text, encoded once.
+     */
+    private static final class PreEncodedWriteCode extends WriteCode {
+
+        /**
+         * The charset of the encoded text.
+         */
+        private final Charset charset;
+
+        /**
+         * The encoded text, once initialized.
+         */
+        private volatile byte[] encoded;
+
+        /**
+         * Constructor.
+         *
+         * @param tc The template context.
+         * @param df The factory.
+         * @param text The static text.
+         * @param charset The charset of the encoded text.
+         */
+        private PreEncodedWriteCode(TemplateContext tc, DefaultMustacheFactory df, String text,
+                Charset charset) {
+            super(tc, df, text);
+            this.charset = charset;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public synchronized void init() {
+            super.init();
+            encoded = appended != null ? appended.getBytes(charset) : new byte[0];
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Writer execute(Writer writer, List<Object> scopes) {
+            byte[] bytes = encoded;
+            if (bytes == null || !(writer instanceof PreEncodedWriter)
+                    || !charset.equals(((PreEncodedWriter) writer).getCharset())) {
+                return super.execute(writer, scopes);
+            }
+            try {
+                ((PreEncodedWriter) writer).writeEncoded(bytes);
+            } catch (IOException e) {
+                throw new MustacheException("Failed to write", e, tc);
+            }
+            return writer;
+        }
+    }
+}
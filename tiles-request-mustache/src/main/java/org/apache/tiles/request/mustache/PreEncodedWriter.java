@@ -0,0 +1,49 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * A writer that also accepts bytes already encoded in its charset, such as
+ * the static segments of the templates compiled by
+ * {@link PreEncodedMustacheFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+interface PreEncodedWriter {
+
+    /**
+     * Returns the charset of the encoded bytes this writer accepts.
+     *
+     * @return The charset, or <code>null</code> if it accepts none.
+     */
+    Charset getCharset();
+
+    /**
+     * Writes bytes that are already encoded in the charset of this writer.
+     *
+     * @param bytes The encoded bytes.
+     * @throws IOException If the bytes cannot be written.
+     */
+    void writeEncoded(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,96 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link EncodedOutputWriter}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class EncodedOutputWriterTest {
+
+    /**
+     * Tests writing characters and encoded bytes, in order.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedOutputWriter writer = new EncodedOutputWriter(out, StandardCharsets.UTF_8);
+        assertEquals(StandardCharsets.UTF_8, writer.getCharset());
+        writer.write("hé");
+        writer.writeEncoded("llo ".getBytes(StandardCharsets.UTF_8));
+        writer.write("wörld");
+        assertEquals(0, out.size());
+        writer.flushBuffer();
+        assertEquals("héllo wörld", out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests a surrogate pair split between two writes, and a lone surrogate.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSurrogates() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedOutputWriter writer = new EncodedOutputWriter(out, StandardCharsets.UTF_8);
+        String emoji = "😀";
+        writer.write(emoji.charAt(0));
+        writer.write(emoji.charAt(1));
+        writer.write('\ud83d');
+        writer.writeEncoded(new byte[] {'!'});
+        writer.close();
+        assertArrayEquals((emoji + "?!").getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    /**
+     * Tests writing more than the buffer holds.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testLargeWrites() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedOutputWriter writer = new EncodedOutputWriter(out, StandardCharsets.ISO_8859_1);
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'é');
+        byte[] bytes = new byte[10000];
+        Arrays.fill(bytes, (byte) 'a');
+        writer.write(chars);
+        writer.writeEncoded(bytes);
+        writer.write("€");
+        writer.flush();
+        assertEquals(new String(chars) + new String(bytes, StandardCharsets.ISO_8859_1) + "?",
+                out.toString(StandardCharsets.ISO_8859_1));
+    }
+}
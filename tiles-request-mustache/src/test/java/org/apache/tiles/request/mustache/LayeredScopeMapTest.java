@@ -0,0 +1,143 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import org.apache.tiles.request.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link LayeredScopeMap}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class LayeredScopeMapTest {
+
+    /**
+     * The request.
+     */
+    private Request request;
+
+    /**
+     * The request scope.
+     */
+    private Map<String, Object> requestScope;
+
+    /**
+     * The application scope.
+     */
+    private Map<String, Object> applicationScope;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        request = createMock(Request.class);
+        requestScope = new HashMap<String, Object>();
+        requestScope.put("shadowed", "request");
+        requestScope.put("nullValue", null);
+        applicationScope = new HashMap<String, Object>();
+        applicationScope.put("shadowed", "application");
+        applicationScope.put("nullValue", "application");
+        applicationScope.put("applicationOnly", "application");
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE, "session",
+                Request.APPLICATION_SCOPE));
+    }
+
+    /**
+     * Tests that a name found in the innermost scope does not fetch the outer
+     * ones.
+     */
+    @Test
+    void testGetInnermost() {
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope);
+
+        replay(request);
+        Map<String, Object> map = new LayeredScopeMap(request);
+        assertEquals("request", map.get("shadowed"));
+        assertNull(map.get("nullValue"));
+        assertTrue(map.containsKey("nullValue"));
+        verify(request);
+    }
+
+    /**
+     * Tests the look-up through all the scopes, each fetched once.
+     */
+    @Test
+    void testGetOuter() {
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope);
+        expect(request.getContext("session")).andReturn(new HashMap<String, Object>());
+        expect(request.getContext(Request.APPLICATION_SCOPE)).andReturn(applicationScope);
+
+        replay(request);
+        Map<String, Object> map = new LayeredScopeMap(request);
+        assertEquals("application", map.get("applicationOnly"));
+        assertNull(map.get("missing"));
+        assertFalse(map.containsKey("missing"));
+        assertEquals(3, map.size());
+        assertEquals("request", map.get("shadowed"));
+        verify(request);
+    }
+
+    /**
+     * Tests that values put and removed mask the scopes without modifying
+     * them.
+     */
+    @Test
+    void testPutAndRemove() {
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope);
+        expect(request.getContext("session")).andReturn(new HashMap<String, Object>());
+        expect(request.getContext(Request.APPLICATION_SCOPE)).andReturn(applicationScope);
+
+        replay(request);
+        Map<String, Object> map = new LayeredScopeMap(request);
+        assertNull(map.put("local", "value"));
+        assertEquals("value", map.get("local"));
+        assertEquals("request", map.remove("shadowed"));
+        assertNull(map.get("shadowed"));
+        assertFalse(map.containsKey("shadowed"));
+        assertNull(map.remove(1));
+        assertEquals("request", requestScope.get("shadowed"));
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("nullValue", null);
+        expected.put("applicationOnly", "application");
+        expected.put("local", "value");
+        assertEquals(expected, new HashMap<String, Object>(map));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(3, applicationScope.size());
+        verify(request);
+    }
+}
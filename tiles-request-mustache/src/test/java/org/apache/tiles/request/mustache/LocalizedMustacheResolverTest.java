@@ -0,0 +1,168 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link LocalizedMustacheResolver}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class LocalizedMustacheResolverTest {
+
+    /**
+     * The application context.
+     */
+    private ApplicationContext applicationContext;
+
+    /**
+     * The base template.
+     */
+    private ApplicationResource base;
+
+    /**
+     * The French template.
+     */
+    private ApplicationResource french;
+
+    /**
+     * The resolver to test.
+     */
+    private LocalizedMustacheResolver resolver;
+
+    /**
+     * Sets up the resolver.
+     */
+    @BeforeEach
+    void setUp() {
+        applicationContext = createMock(ApplicationContext.class);
+        base = createMock(ApplicationResource.class);
+        french = createMock(ApplicationResource.class);
+        resolver = new LocalizedMustacheResolver(applicationContext);
+    }
+
+    /**
+     * Tests that the variants fall back to the parent locales, and are looked
+     * up once.
+     */
+    @Test
+    void testResolve() {
+        expect(applicationContext.getResource("/page.html")).andReturn(base);
+        expect(applicationContext.getResource(base, Locale.CANADA_FRENCH)).andReturn(null);
+        expect(applicationContext.getResource(base, Locale.FRENCH)).andReturn(french);
+        expect(applicationContext.getResource(base, Locale.GERMAN)).andReturn(null);
+        expect(french.getLocalePath()).andReturn("/page_fr.html");
+
+        replay(applicationContext, base, french);
+        assertSame(french, resolver.resolve("/page.html", Locale.CANADA_FRENCH));
+        assertSame(french, resolver.resolve("/page.html", Locale.CANADA_FRENCH));
+        assertSame(french, resolver.resolve("/page.html", Locale.FRENCH));
+        assertSame(base, resolver.resolve("/page.html", Locale.GERMAN));
+        assertSame(base, resolver.resolve("/page.html", Locale.GERMAN));
+        assertSame(base, resolver.resolve("/page.html", null));
+        assertEquals("/page_fr.html", resolver.getLocalizedPath("/page.html", Locale.FRENCH));
+        verify(applicationContext, base, french);
+    }
+
+    /**
+     * Tests that missing templates are remembered, until invalidated.
+     */
+    @Test
+    void testResolveMissing() {
+        expect(applicationContext.getResource("/missing.html")).andReturn(null).times(2);
+
+        replay(applicationContext, base, french);
+        assertNull(resolver.resolve("/missing.html", Locale.FRENCH));
+        assertNull(resolver.resolve("/missing.html", Locale.CANADA_FRENCH));
+        assertNull(resolver.getLocalizedPath("/missing.html", Locale.ITALIAN));
+        resolver.invalidate("/missing.html");
+        assertNull(resolver.resolve("/missing.html", Locale.FRENCH));
+        resolver.invalidateAll();
+        verify(applicationContext, base, french);
+    }
+
+    /**
+     * Tests that the remembered locales of a template are bounded, and that
+     * the forgotten ones are looked up again.
+     */
+    @Test
+    void testResolveBounded() {
+        resolver = new LocalizedMustacheResolver(applicationContext, 16, 1);
+        expect(applicationContext.getResource("/page.html")).andReturn(base).anyTimes();
+        expect(applicationContext.getResource(base, Locale.GERMAN)).andReturn(null).times(2);
+        expect(applicationContext.getResource(base, Locale.ITALIAN)).andReturn(null);
+
+        replay(applicationContext, base, french);
+        assertSame(base, resolver.resolve("/page.html", Locale.GERMAN));
+        assertSame(base, resolver.resolve("/page.html", Locale.ITALIAN));
+        assertSame(base, resolver.resolve("/page.html", Locale.GERMAN));
+        verify(applicationContext, base, french);
+    }
+
+    /**
+     * Tests that the maximum number of locales must be positive.
+     */
+    @Test
+    void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LocalizedMustacheResolver(applicationContext, 16, 0));
+    }
+
+    /**
+     * Tests {@link LocalizedMustacheResolver#getReader(String)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGetReader() throws IOException {
+        expect(applicationContext.getResource("/page_fr.html")).andReturn(french);
+        expect(applicationContext.getResource("/none.html")).andReturn(null);
+        expect(french.getInputStream()).andReturn(
+                new ByteArrayInputStream("bonjour \u00e0 tous".getBytes(StandardCharsets.UTF_8)));
+
+        replay(applicationContext, base, french);
+        try (Reader reader = resolver.getReader("/page_fr.html")) {
+            assertEquals("bonjour \u00e0 tous", new BufferedReader(reader).readLine());
+        }
+        assertNull(resolver.getReader("/none.html"));
+        verify(applicationContext, base, french);
+    }
+}
@@ -22,21 +22,35 @@ package org.apache.tiles.request.mustache;
 
 
 import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheNotFoundException;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
+import org.apache.tiles.request.render.RenderCancelledException;
+import org.apache.tiles.request.render.RenderablePaths;
 import org.apache.tiles.request.render.Renderer;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static org.easymock.EasyMock.createMock;
@@ -46,6 +60,8 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -71,9 +87,7 @@ final class MustacheRendererTest {
 
         expect(applicationContext.getResource(isA(String.class))).andReturn(applicationResource).anyTimes();
         expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE, "session", Request.APPLICATION_SCOPE));
-        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context);
-        expect(request.getContext("session")).andReturn(Collections.emptyMap());
-        expect(request.getContext(Request.APPLICATION_SCOPE)).andReturn(Collections.emptyMap());
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(2);
         expect(request.getWriter()).andReturn(writer).anyTimes();
 
         replay(request, applicationContext, applicationResource);
@@ -103,6 +117,28 @@ final class MustacheRendererTest {
         }
     }
 
+    /**
+     * Tests that {@link MustacheRenderer#render(String, org.apache.tiles.request.Request)}
+     * does not leave its request on the thread when the template fails.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderFailedClearsRequest() throws IOException {
+        Request request = createMock(Request.class);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(new HashMap<String, Object>());
+        expect(request.getWriter()).andReturn(new StringWriter());
+        replay(request);
+        Renderer renderer = new MustacheRenderer(new DefaultMustacheFactory() {
+                @Override
+                public Reader getReader(String path) {
+                    throw new MustacheNotFoundException(path);
+                }
+            });
+        assertThrows(IOException.class, () -> renderer.render("/missing.html", request));
+        assertNull(MustacheRenderer.getThreadLocalRequest());
+        verify(request);
+    }
+
     /**
      * Test method for
      * {@link MustacheRenderer#isRenderable(String, org.apache.tiles.request.Request)}
@@ -119,4 +155,368 @@ final class MustacheRendererTest {
         assertFalse(renderer.isRenderable("my/template.html", null));
         assertFalse(renderer.isRenderable(null, null));
     }
+
+    /**
+     * Tests {@link MustacheRenderer#getRenderablePaths()}.
+     */
+    @Test
+    void testGetRenderablePaths() {
+        MustacheRenderer renderer = new MustacheRenderer();
+        assertTrue(renderer.getRenderablePaths().matches("my/template.html"));
+        final Pattern pattern = Pattern.compile("/.*");
+        renderer.setAcceptPattern(pattern);
+        RenderablePaths renderablePaths = renderer.getRenderablePaths();
+        assertSame(pattern, renderablePaths.getPattern());
+        assertSame(renderablePaths, renderer.getRenderablePaths());
+        assertFalse(renderablePaths.matches("my/template.html"));
+    }
+
+    /**
+     * Tests {@link MustacheRenderer#precompile(String)}.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testPrecompile() throws IOException {
+        List<String> compiled = new ArrayList<String>();
+        MustacheRenderer renderer = new MustacheRenderer(new DefaultMustacheFactory() {
+                @Override
+                public Reader getReader(String path) {
+                    compiled.add(path);
+                    InputStream stream = getClass().getResourceAsStream(path);
+                    if (stream == null) {
+                        throw new MustacheNotFoundException(path);
+                    }
+                    return new InputStreamReader(stream, StandardCharsets.UTF_8);
+                }
+            });
+        renderer.precompile("/test.html");
+        renderer.precompile("/test.html");
+        assertEquals(Arrays.asList("/test.html"), compiled);
+        assertThrows(IOException.class, () -> renderer.precompile("/missing.html"));
+    }
+
+    /**
+     * Tests {@link MustacheRenderer#render(String, org.apache.tiles.request.Request)}
+     * with a {@link MustacheTemplateCache}.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderTemplateCache() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource applicationResource = createMock(ApplicationResource.class);
+
+        Map<String,Object> context = Collections.singletonMap("testKey", "test value");
+
+        expect(applicationContext.getResource("/cached.html")).andReturn(applicationResource);
+        expect(applicationResource.getLastModified()).andReturn(1000L);
+        expect(applicationResource.getInputStream()).andReturn(
+                new ByteArrayInputStream("cached {{testKey}}".getBytes(StandardCharsets.UTF_8)));
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).times(2);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(4);
+        expect(request.getWriter()).andReturn(writer).anyTimes();
+
+        replay(request, applicationContext, applicationResource);
+        MustacheRenderer renderer = new MustacheRenderer();
+        renderer.setTemplateCache(new MustacheTemplateCache(new DefaultMustacheFactory(),
+                applicationContext, 10, -1, TimeUnit.SECONDS));
+        renderer.precompile("/cached.html");
+        renderer.render("/cached.html", request);
+        renderer.render("/cached.html", request);
+        verify(request, applicationContext, applicationResource);
+        assertEquals("cached test valuecached test value", writer.toString());
+    }
+
+    /**
+     * Tests {@link MustacheRenderer#render(String, org.apache.tiles.request.Request)}
+     * to the output stream.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderOutputStream() throws IOException {
+        Request request = createMock(Request.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Map<String,Object> context = new HashMap<String, Object>();
+        context.put("testKey", "t\u00eat");
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE));
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(4);
+        expect(request.getOutputStream()).andReturn(out);
+
+        replay(request);
+        MustacheRenderer.declareByteOutput(request, StandardCharsets.UTF_8);
+        MustacheRenderer renderer = new MustacheRenderer(new PreEncodedMustacheFactory(StandardCharsets.UTF_8) {
+                @Override
+                public Reader getReader(String path) {
+                    return new InputStreamReader(getClass().getResourceAsStream(path), StandardCharsets.UTF_8);
+                }
+            });
+        renderer.setOutputCharset(StandardCharsets.UTF_8);
+        renderer.render("/test.html", request);
+        verify(request);
+        assertEquals("test template with t\u00eat", out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests {@link MustacheRenderer#render(String, org.apache.tiles.request.Request)}
+     * to the writer when the response is not declared written only as bytes,
+     * or in another charset.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderOutputStreamNotDeclared() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+
+        Map<String,Object> context = new HashMap<String, Object>();
+        context.put("testKey", "t\u00eat");
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).times(2);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(7);
+        expect(request.getWriter()).andReturn(writer).times(2);
+
+        replay(request);
+        MustacheRenderer renderer = new MustacheRenderer(new StringMustacheFactory("{{testKey}}"));
+        renderer.setOutputCharset(StandardCharsets.UTF_8);
+        renderer.render("/test.html", request);
+        MustacheRenderer.declareByteOutput(request, StandardCharsets.ISO_8859_1);
+        renderer.render("/test.html", request);
+        verify(request);
+        assertEquals("t\u00eatt\u00eat", writer.toString());
+    }
+
+    /**
+     * Tests {@link MustacheRenderer#render(String, org.apache.tiles.request.Request)}
+     * to the writer when the output stream is not available.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderOutputStreamUnavailable() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+
+        Map<String,Object> context = new HashMap<String, Object>();
+        context.put("testKey", "t\u00eat");
+        context.put(MustacheRenderer.BYTE_OUTPUT_CHARSET_ATTRIBUTE, StandardCharsets.UTF_8);
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE));
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(3);
+        expect(request.getOutputStream()).andThrow(new IllegalStateException("getWriter() has been called"));
+        expect(request.getWriter()).andReturn(writer);
+
+        replay(request);
+        MustacheRenderer renderer = new MustacheRenderer(new StringMustacheFactory("test template with {{testKey}}"));
+        renderer.setOutputCharset(StandardCharsets.UTF_8);
+        renderer.render("/test.html", request);
+        verify(request);
+        assertEquals("test template with t\u00eat", writer.toString());
+    }
+
+    /**
+     * Tests that the static text of the templates is written as bytes when
+     * the values resolve concurrently.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRenderValueExecutorOutputStream() throws IOException {
+        Request request = createMock(Request.class);
+        List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes.add(len);
+                super.write(b, off, len);
+            }
+        };
+        char[] prefix = new char[10000];
+        Arrays.fill(prefix, 'a');
+        String template = new String(prefix) + "{{value}}";
+        Map<String,Object> context = new HashMap<String, Object>();
+        context.put("value", (Callable<String>) () -> "t\u00eat");
+        context.put(MustacheRenderer.BYTE_OUTPUT_CHARSET_ATTRIBUTE, StandardCharsets.UTF_8);
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).anyTimes();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).anyTimes();
+        expect(request.getOutputStream()).andReturn(out);
+
+        replay(request);
+        MustacheValueExecutor executor = new MustacheValueExecutor(2);
+        try {
+            MustacheRenderer renderer = new MustacheRenderer(new PreEncodedMustacheFactory(StandardCharsets.UTF_8) {
+                    @Override
+                    public Reader getReader(String path) {
+                        return new StringReader(template);
+                    }
+                });
+            renderer.setOutputCharset(StandardCharsets.UTF_8);
+            renderer.setValueExecutor(executor, 10, TimeUnit.SECONDS);
+            renderer.render("/test.html", request);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(request);
+        assertEquals(new String(prefix) + "t\u00eat", out.toString(StandardCharsets.UTF_8));
+        assertEquals(Integer.valueOf(prefix.length), writes.get(0));
+    }
+
+    @Test
+    void testRenderValueExecutor() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        Map<String,Object> context = new HashMap<>();
+        context.put("first", (Callable<String>) () -> {
+            Thread.sleep(20);
+            return "one";
+        });
+        context.put("second", (Callable<String>) () -> "two");
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).anyTimes();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+
+        replay(request);
+        MustacheValueExecutor executor = new MustacheValueExecutor(2);
+        try {
+            MustacheRenderer renderer = new MustacheRenderer(new StringMustacheFactory("{{first}}, {{second}}!"));
+            renderer.setValueExecutor(executor, 10, TimeUnit.SECONDS);
+            renderer.render("/test.html", request);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(request);
+        assertEquals("one, two!", writer.toString());
+    }
+
+    @Test
+    void testRenderValueExecutorSection() throws IOException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        Thread renderThread = Thread.currentThread();
+        List<Thread> contextThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        Request[] seen = new Request[1];
+        Map<String,Object> context = new HashMap<>();
+        context.put("greeting", "Hello");
+        context.put("items", (Callable<List<Map<String,String>>>) () -> {
+            seen[0] = MustacheRenderer.getThreadLocalRequest();
+            return Arrays.asList(Collections.singletonMap("name", "one"),
+                    Collections.singletonMap("name", "two"));
+        });
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).anyTimes();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andAnswer(() -> {
+            contextThreads.add(Thread.currentThread());
+            return context;
+        }).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+
+        replay(request);
+        MustacheValueExecutor executor = new MustacheValueExecutor(2);
+        try {
+            MustacheRenderer renderer = new MustacheRenderer(
+                    new StringMustacheFactory("{{#items}}{{greeting}} {{name}}; {{/items}}"));
+            renderer.setValueExecutor(executor, 10, TimeUnit.SECONDS);
+            renderer.render("/test.html", request);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(request);
+        assertEquals("Hello one; Hello two; ", writer.toString());
+        assertSame(request, seen[0]);
+        assertFalse(contextThreads.isEmpty());
+        for (Thread thread : contextThreads) {
+            assertSame(renderThread, thread);
+        }
+        assertNull(MustacheRenderer.getThreadLocalRequest());
+    }
+
+    @Test
+    void testRenderValueExecutorTimeout() throws IOException, InterruptedException {
+        Request request = createMock(Request.class);
+        StringWriter writer = new StringWriter();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Map<String,Object> context = new HashMap<>();
+        context.put("slow", (Callable<String>) () -> {
+            try {
+                new CountDownLatch(1).await();
+            } finally {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+
+        expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE)).anyTimes();
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).anyTimes();
+        expect(request.getWriter()).andReturn(writer);
+
+        replay(request);
+        MustacheValueExecutor executor = new MustacheValueExecutor(2);
+        try {
+            MustacheRenderer renderer = new MustacheRenderer(new StringMustacheFactory("[{{slow}}] after"));
+            renderer.setValueExecutor(executor, 50, TimeUnit.MILLISECONDS);
+            RenderCancelledException exception = assertThrows(RenderCancelledException.class,
+                    () -> renderer.render("/test.html", request));
+            assertEquals(RenderCancelledException.Reason.DEADLINE_EXCEEDED, exception.getReason());
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(request);
+        assertEquals("[", writer.toString());
+    }
+
+    private static class StringMustacheFactory extends DefaultMustacheFactory {
+
+        private final String template;
+
+        StringMustacheFactory(String template) {
+            this.template = template;
+        }
+
+        @Override
+        public Reader getReader(String path) {
+            return new StringReader(template);
+        }
+    }
+
+    @Test
+    void testRenderLocalized() throws IOException {
+        StringWriter writer = new StringWriter();
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        ApplicationResource base = createMock(ApplicationResource.class);
+        ApplicationResource french = createMock(ApplicationResource.class);
+
+        Map<String,Object> context = Collections.singletonMap("testKey", "Marie");
+
+        expect(applicationContext.getResource("/page.html")).andReturn(base);
+        expect(applicationContext.getResource(base, Locale.CANADA_FRENCH)).andReturn(null);
+        expect(applicationContext.getResource(base, Locale.FRENCH)).andReturn(french);
+        expect(applicationContext.getResource("/page_fr.html")).andReturn(french);
+        expect(french.getLocalePath()).andReturn("/page_fr.html").times(2);
+        expect(french.getInputStream()).andReturn(
+                new ByteArrayInputStream("bonjour {{testKey}} ".getBytes(StandardCharsets.UTF_8)));
+
+        List<Request> requests = new ArrayList<>();
+        for (Locale locale : Arrays.asList(Locale.CANADA_FRENCH, Locale.FRENCH)) {
+            Request request = createMock(Request.class);
+            expect(request.getRequestLocale()).andReturn(locale);
+            expect(request.getAvailableScopes()).andReturn(Arrays.asList(Request.REQUEST_SCOPE));
+            expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(context).times(2);
+            expect(request.getWriter()).andReturn(writer);
+            requests.add(request);
+        }
+
+        replay(applicationContext, base, french);
+        replay(requests.toArray());
+        LocalizedMustacheResolver resolver = new LocalizedMustacheResolver(applicationContext);
+        MustacheRenderer renderer = new MustacheRenderer(new DefaultMustacheFactory(resolver));
+        renderer.setLocalizedResolver(resolver);
+        for (Request request : requests) {
+            renderer.render("/page.html", request);
+        }
+        verify(applicationContext, base, french);
+        verify(requests.toArray());
+        assertEquals("bonjour Marie bonjour Marie ", writer.toString());
+    }
 }
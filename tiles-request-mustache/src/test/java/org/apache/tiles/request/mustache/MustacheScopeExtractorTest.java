@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MustacheScopeExtractor}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class MustacheScopeExtractorTest {
+
+    /**
+     * The scope.
+     */
+    private Map<String, Object> scope;
+
+    /**
+     * The extractor to test.
+     */
+    private MustacheScopeExtractor extractor;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        scope = new HashMap<String, Object>();
+        scope.put("one", 1);
+        extractor = new MustacheScopeExtractor(scope);
+    }
+
+    /**
+     * Tests {@link MustacheScopeExtractor#getKeys()}.
+     */
+    @Test
+    void testGetKeys() {
+        Enumeration<String> keys = extractor.getKeys();
+        assertTrue(keys.hasMoreElements());
+        assertEquals("one", keys.nextElement());
+        assertFalse(keys.hasMoreElements());
+    }
+
+    /**
+     * Tests {@link MustacheScopeExtractor#getKeyCount()}.
+     */
+    @Test
+    void testGetKeyCount() {
+        assertEquals(1, extractor.getKeyCount());
+        extractor.setValue("two", 2);
+        assertEquals(2, extractor.getKeyCount());
+        extractor.removeValue("one");
+        extractor.removeValue("two");
+        assertEquals(0, extractor.getKeyCount());
+    }
+
+    /**
+     * Tests {@link MustacheScopeExtractor#getValue(String)},
+     * {@link MustacheScopeExtractor#setValue(String, Object)} and
+     * {@link MustacheScopeExtractor#removeValue(String)}.
+     */
+    @Test
+    void testValues() {
+        assertEquals(1, extractor.getValue("one"));
+        extractor.setValue("one", 2);
+        assertEquals(2, scope.get("one"));
+        extractor.removeValue("one");
+        assertNull(extractor.getValue("one"));
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheException;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link MustacheTemplateCache}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class MustacheTemplateCacheTest {
+
+    /**
+     * The application context.
+     */
+    private ApplicationContext applicationContext;
+
+    /**
+     * The resource of the template.
+     */
+    private ApplicationResource resource;
+
+    /**
+     * Whether the resource of the template exists.
+     */
+    private AtomicBoolean available;
+
+    /**
+     * The content of the template.
+     */
+    private AtomicReference<String> content;
+
+    /**
+     * The last modification time of the template.
+     */
+    private AtomicLong lastModified;
+
+    /**
+     * The number of times the template has been read.
+     */
+    private AtomicInteger reads;
+
+    /**
+     * The current time.
+     */
+    private AtomicLong time;
+
+    /**
+     * The cache to test.
+     */
+    private MustacheTemplateCache cache;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        applicationContext = createMock(ApplicationContext.class);
+        resource = createMock(ApplicationResource.class);
+        available = new AtomicBoolean(true);
+        content = new AtomicReference<String>("first {{name}}");
+        lastModified = new AtomicLong(1000L);
+        reads = new AtomicInteger();
+        time = new AtomicLong();
+        expect(applicationContext.getResource("/template.html")).andAnswer(
+                () -> available.get() ? resource : null).anyTimes();
+        expect(resource.getLastModified()).andAnswer(() -> lastModified.get()).anyTimes();
+        expect(resource.getInputStream()).andAnswer(() -> {
+            reads.incrementAndGet();
+            return new ByteArrayInputStream(content.get().getBytes(StandardCharsets.UTF_8));
+        }).anyTimes();
+        cache = new MustacheTemplateCache(new DefaultMustacheFactory(), applicationContext, 10,
+                1, TimeUnit.SECONDS, time::get);
+    }
+
+    /**
+     * Tests that a template is compiled once, and recompiled only when it has
+     * been modified and the check interval has passed.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGet() throws IOException {
+        replay(applicationContext, resource);
+        Mustache first = cache.get("/template.html");
+        assertEquals("first value", execute(first));
+        assertSame(first, cache.get("/template.html"));
+        content.set("second {{name}}");
+        lastModified.set(2000L);
+        assertSame(first, cache.get("/template.html"));
+        time.set(TimeUnit.SECONDS.toNanos(1));
+        Mustache second = cache.get("/template.html");
+        assertNotSame(first, second);
+        assertEquals("second value", execute(second));
+        time.set(TimeUnit.SECONDS.toNanos(3));
+        assertSame(second, cache.get("/template.html"));
+        assertEquals(2, reads.get());
+        assertEquals(1, cache.size());
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Tests that the previous version is kept when the recompilation fails.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRefreshFailure() throws IOException {
+        replay(applicationContext, resource);
+        Mustache first = cache.get("/template.html");
+        content.set("broken {{#section}}");
+        lastModified.set(2000L);
+        time.set(TimeUnit.SECONDS.toNanos(1));
+        assertSame(first, cache.get("/template.html"));
+        assertSame(first, cache.get("/template.html"));
+        content.set("fixed {{name}}");
+        time.set(TimeUnit.SECONDS.toNanos(2));
+        assertEquals("fixed value", execute(cache.get("/template.html")));
+        assertEquals(3, reads.get());
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Tests the failure of the first compilation, and the invalidation.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testInvalidate() throws IOException {
+        replay(applicationContext, resource);
+        content.set("broken {{#section}}");
+        assertThrows(MustacheException.class, () -> cache.get("/template.html"));
+        assertEquals(0, cache.size());
+        content.set("first {{name}}");
+        Mustache first = cache.get("/template.html");
+        cache.invalidate("/template.html");
+        assertNotSame(first, cache.get("/template.html"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Tests that a template that the application context cannot find is
+     * compiled by the factory, and replaced when the application context
+     * finds it.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testNotFound() throws IOException {
+        AtomicReference<ApplicationResource> found = new AtomicReference<ApplicationResource>();
+        expect(applicationContext.getResource("/test.html")).andAnswer(() -> found.get()).anyTimes();
+
+        replay(applicationContext, resource);
+        cache = new MustacheTemplateCache(new DefaultMustacheFactory() {
+                @Override
+                public Reader getReader(String path) {
+                    return new InputStreamReader(getClass().getResourceAsStream(path), StandardCharsets.UTF_8);
+                }
+            }, applicationContext, 10, 1, TimeUnit.SECONDS, time::get);
+        Mustache mustache = cache.get("/test.html");
+        time.set(TimeUnit.MINUTES.toNanos(1));
+        assertSame(mustache, cache.get("/test.html"));
+        found.set(resource);
+        time.set(TimeUnit.MINUTES.toNanos(2));
+        assertEquals("first value", execute(cache.get("/test.html")));
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Tests that a template whose resource has been removed is evicted, and
+     * fails to load until the resource is back.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRemoved() throws IOException {
+        replay(applicationContext, resource);
+        Mustache first = cache.get("/template.html");
+        available.set(false);
+        time.set(TimeUnit.SECONDS.toNanos(1));
+        assertThrows(MustacheException.class, () -> cache.get("/template.html"));
+        assertEquals(0, cache.size());
+        available.set(true);
+        Mustache second = cache.get("/template.html");
+        assertNotSame(first, second);
+        assertEquals("first value", execute(second));
+        verify(applicationContext, resource);
+    }
+
+    /**
+     * Executes a template.
+     *
+     * @param mustache The template.
+     * @return The output.
+     */
+    private static String execute(Mustache mustache) {
+        StringWriter writer = new StringWriter();
+        mustache.execute(writer, Collections.singletonMap("name", "value"));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MustacheValueExecutor}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class MustacheValueExecutorTest {
+
+    /**
+     * The executor to test.
+     */
+    private MustacheValueExecutor executor;
+
+    /**
+     * Sets up the executor.
+     */
+    @BeforeEach
+    void setUp() {
+        executor = new MustacheValueExecutor(2);
+    }
+
+    /**
+     * Shuts down the executor.
+     */
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test method for {@link MustacheValueExecutor#MustacheValueExecutor(int)}.
+     */
+    @Test
+    void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new MustacheValueExecutor(0));
+        assertEquals(2, executor.getMaxConcurrencyPerRender());
+    }
+
+    /**
+     * Tests that the tasks of a render run at most two at a time.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testConcurrencyLimit() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        try (MustacheValueExecutor.RenderTasks tasks = executor.begin()) {
+            for (int i = 0; i < 6; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.incrementAndGet();
+                });
+            }
+            assertTrue(tasks.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(6, done.get());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    /**
+     * Tests that the tasks submitted outside of a render are not limited.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testOutsideRender() throws Exception {
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    /**
+     * Tests {@link MustacheValueExecutor.RenderTasks#cancel()}.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testTimeoutAndCancel() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (MustacheValueExecutor.RenderTasks tasks = executor.begin()) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertFalse(tasks.await(10, TimeUnit.MILLISECONDS));
+            tasks.cancel();
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+            assertTrue(tasks.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Tests that closing nested renders restores the enclosing one.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testNested() throws Exception {
+        AtomicInteger done = new AtomicInteger();
+        try (MustacheValueExecutor.RenderTasks outer = executor.begin()) {
+            try (MustacheValueExecutor.RenderTasks inner = executor.begin()) {
+                executor.execute(done::incrementAndGet);
+                assertTrue(inner.await(10, TimeUnit.SECONDS));
+            }
+            executor.execute(done::incrementAndGet);
+            assertTrue(outer.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, done.get());
+    }
+
+    /**
+     * Tests that a task that submits a task and waits for it does not wait
+     * for a permit it holds itself.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testTaskSubmitsTask() throws Exception {
+        executor = new MustacheValueExecutor(1);
+        AtomicInteger done = new AtomicInteger();
+        try (MustacheValueExecutor.RenderTasks tasks = executor.begin()) {
+            executor.execute(() -> {
+                Future<?> inner = executor.submit(done::incrementAndGet);
+                try {
+                    inner.get(10, TimeUnit.SECONDS);
+                    done.incrementAndGet();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertTrue(tasks.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, done.get());
+    }
+}
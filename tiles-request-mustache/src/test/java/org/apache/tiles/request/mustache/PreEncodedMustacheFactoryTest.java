@@ -0,0 +1,103 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.mustache;
+
+import com.github.mustachejava.Mustache;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link PreEncodedMustacheFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+final class PreEncodedMustacheFactoryTest {
+
+    /**
+     * The template.
+     */
+    private static final String TEMPLATE = "<p>Grüße {{name}}</p>{{#items}}<li>{{.}}</li>{{/items}}"
+            + "{{^items}}none{{/items}} à bientôt";
+
+    /**
+     * The expected output.
+     */
+    private static final String EXPECTED = "<p>Grüße J&amp;örg</p><li>a</li><li>é</li>"
+            + " à bientôt";
+
+    /**
+     * Tests the execution with a writer of the same charset.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testExecuteEncoded() throws IOException {
+        PreEncodedMustacheFactory factory = new PreEncodedMustacheFactory(StandardCharsets.ISO_8859_1);
+        assertEquals(StandardCharsets.ISO_8859_1, factory.getCharset());
+        Mustache mustache = factory.compile(new StringReader(TEMPLATE), "test");
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            EncodedOutputWriter writer = new EncodedOutputWriter(out, StandardCharsets.ISO_8859_1);
+            mustache.execute(writer, createScope()).flush();
+            assertEquals(EXPECTED, out.toString(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Tests the execution with writers that cannot take the encoded text.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testExecuteText() throws IOException {
+        Mustache mustache = new PreEncodedMustacheFactory(StandardCharsets.ISO_8859_1)
+                .compile(new StringReader(TEMPLATE), "test");
+        StringWriter stringWriter = new StringWriter();
+        mustache.execute(stringWriter, createScope());
+        assertEquals(EXPECTED, stringWriter.toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedOutputWriter writer = new EncodedOutputWriter(out, StandardCharsets.UTF_8);
+        mustache.execute(writer, createScope()).flush();
+        assertEquals(EXPECTED, out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates the scope of the template.
+     *
+     * @return The scope.
+     */
+    private static Map<String, Object> createScope() {
+        Map<String, Object> retValue = new HashMap<String, Object>();
+        retValue.put("name", "J&örg");
+        retValue.put("items", Arrays.asList("a", "é"));
+        return retValue;
+    }
+}
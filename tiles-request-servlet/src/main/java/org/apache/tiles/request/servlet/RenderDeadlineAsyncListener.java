@@ -0,0 +1,77 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+import org.apache.tiles.request.render.RenderDeadline;
+
+/**
+ * Aborts a {@link RenderDeadline} when the asynchronous context of the request
+ * is closed, by completion, timeout or error, so that renders still running
+ * for the request stop early. Register it with:
+ * <pre>
+ * httpRequest.getAsyncContext().addListener(new RenderDeadlineAsyncListener(deadline));
+ * </pre>
+ *
+ * @version $Rev$ $Date$
+ */
+public class RenderDeadlineAsyncListener implements AsyncListener {
+
+    /**
+     * The deadline to abort.
+     */
+    private final RenderDeadline deadline;
+
+    /**
+     * Constructor.
+     *
+     * @param deadline The deadline to abort.
+     */
+    public RenderDeadlineAsyncListener(RenderDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onComplete(AsyncEvent event) {
+        deadline.abort();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        deadline.abort();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(AsyncEvent event) {
+        deadline.abort();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        event.getAsyncContext().addListener(this);
+    }
+}
@@ -26,9 +26,11 @@ import java.io.PrintWriter;
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
@@ -43,7 +45,10 @@ import org.apache.tiles.request.collection.ReadOnlyEnumerationMap;
 import org.apache.tiles.request.collection.ScopeMap;
 import org.apache.tiles.request.servlet.extractor.ParameterExtractor;
 import org.apache.tiles.request.servlet.extractor.RequestScopeExtractor;
+import org.apache.tiles.request.servlet.extractor.RequestScopeOverlayExtractor;
+import org.apache.tiles.request.servlet.extractor.DirtyTrackingSessionScopeExtractor;
 import org.apache.tiles.request.servlet.extractor.HeaderExtractor;
+import org.apache.tiles.request.servlet.extractor.HeaderSnapshotExtractor;
 import org.apache.tiles.request.servlet.extractor.SessionScopeExtractor;
 
 /**
@@ -98,6 +103,15 @@ public class ServletRequest extends AbstractClientRequest {
      */
     private Map<String, String[]> headerValues = null;
 
+    /**
+     * Whether request headers are read from a snapshot taken once per request.
+     */
+    private boolean headerSnapshot = false;
+
+    /**
+     * The lazily instantiated snapshot of the request headers.
+     */
+    private HeaderSnapshotExtractor headerSnapshotExtractor = null;
 
     /**
      * <p>The lazily instantiated <code>Map</code> of request
@@ -112,12 +126,39 @@ public class ServletRequest extends AbstractClientRequest {
      */
     private Map<String, Object> requestScope = null;
 
+    /**
+     * Whether request scope changes are kept in an overlay until the next
+     * dispatch.
+     */
+    private boolean requestScopeOverlay = false;
+
+    /**
+     * The names of the request attributes that bypass the overlay.
+     */
+    private Set<String> containerVisibleAttributes = Collections.emptySet();
+
+    /**
+     * The lazily instantiated overlay of the request scope.
+     */
+    private RequestScopeOverlayExtractor requestScopeOverlayExtractor = null;
+
     /**
      * <p>The lazily instantiated <code>Map</code> of session scope
      * attributes.</p>
      */
     private Map<String, Object> sessionScope = null;
 
+    /**
+     * Whether session scope changes are written to the session once, when
+     * the scopes are flushed.
+     */
+    private boolean sessionDirtyTracking = false;
+
+    /**
+     * The lazily instantiated dirty-tracking session scope extractor.
+     */
+    private DirtyTrackingSessionScopeExtractor sessionScopeExtractor = null;
+
 
     /**
      * Creates a new instance of ServletTilesRequestContext.
@@ -134,11 +175,31 @@ public class ServletRequest extends AbstractClientRequest {
         this.response = response;
     }
 
+    /**
+     * Sets whether request headers are read from an immutable snapshot, taken
+     * the first time a header is requested, instead of being asked to the
+     * container on every access. Disabled by default: enable it when headers
+     * are read many times during a request and are not changed by filters
+     * or wrappers afterwards.
+     *
+     * @param headerSnapshot <code>true</code> to read headers from a snapshot.
+     */
+    public void setHeaderSnapshot(boolean headerSnapshot) {
+        this.headerSnapshot = headerSnapshot;
+        header = null;
+        headerValues = null;
+        headerSnapshotExtractor = null;
+    }
+
     /** {@inheritDoc} */
     public Map<String, String> getHeader() {
 
         if ((header == null) && (request != null)) {
-            header = new ReadOnlyEnumerationMap<String>(new HeaderExtractor(request, null));
+            if (headerSnapshot) {
+                header = new ReadOnlyEnumerationMap<String>(getHeaderSnapshotExtractor());
+            } else {
+                header = new ReadOnlyEnumerationMap<String>(new HeaderExtractor(request, null));
+            }
         }
         return (header);
 
@@ -158,12 +219,28 @@ public class ServletRequest extends AbstractClientRequest {
     public Map<String, String[]> getHeaderValues() {
 
         if ((headerValues == null) && (request != null)) {
-            headerValues = new HeaderValuesMap(new HeaderExtractor(request, response));
+            if (headerSnapshot) {
+                headerValues = new HeaderValuesMap(getHeaderSnapshotExtractor());
+            } else {
+                headerValues = new HeaderValuesMap(new HeaderExtractor(request, response));
+            }
         }
         return (headerValues);
 
     }
 
+    /**
+     * Returns the snapshot of the request headers, taking it if needed.
+     *
+     * @return The snapshot.
+     */
+    private HeaderSnapshotExtractor getHeaderSnapshotExtractor() {
+        if (headerSnapshotExtractor == null) {
+            headerSnapshotExtractor = new HeaderSnapshotExtractor(request, response);
+        }
+        return headerSnapshotExtractor;
+    }
+
 
     /** {@inheritDoc} */
     public Map<String, String> getParam() {
@@ -194,11 +271,87 @@ public class ServletRequest extends AbstractClientRequest {
         throw new IllegalArgumentException(scope + " does not exist. Call getAvailableScopes() first to check.");
     }
 
+    /**
+     * Sets whether changes to the request scope are kept in a request-local
+     * overlay, and written to the servlet request only when this request
+     * dispatches, or when {@link #flushScopes()} is called. Disabled by default:
+     * enable it when most request attributes are only shared between the
+     * parts of a page rendered through this request. Code that reads the
+     * servlet request directly sees the pending changes only after a flush.
+     *
+     * @param requestScopeOverlay <code>true</code> to use the overlay.
+     * @see #setContainerVisibleAttributes(Set)
+     */
+    public void setRequestScopeOverlay(boolean requestScopeOverlay) {
+        flushScopes();
+        this.requestScopeOverlay = requestScopeOverlay;
+        requestScope = null;
+        requestScopeOverlayExtractor = null;
+    }
+
+    /**
+     * Sets the names of the request attributes that are always written to the
+     * servlet request immediately, even when the request scope overlay is
+     * enabled. Attributes whose name starts with <code>jakarta.</code> or
+     * <code>javax.</code> always are.
+     *
+     * @param names The names of the attributes.
+     * @see #setRequestScopeOverlay(boolean)
+     */
+    public void setContainerVisibleAttributes(Set<String> names) {
+        flushScopes();
+        containerVisibleAttributes = new HashSet<String>(names);
+        requestScope = null;
+        requestScopeOverlayExtractor = null;
+    }
+
+    /**
+     * Sets whether changes to the session scope are tracked in a
+     * request-local overlay and written to the session only when this request
+     * dispatches, or when {@link #flushScopes()} is called, so that each
+     * changed attribute is written once. Writing the same instance an
+     * attribute already has is ignored. Disabled by default: enable it with
+     * containers that replicate the session on every write. The changes still
+     * pending at the end of the request are written by
+     * {@link SessionScopeFlushListener}, which the application must register.
+     *
+     * @param sessionDirtyTracking <code>true</code> to track the changes.
+     * @see DirtyTrackingSessionScopeExtractor
+     */
+    public void setSessionDirtyTracking(boolean sessionDirtyTracking) {
+        flushScopes();
+        this.sessionDirtyTracking = sessionDirtyTracking;
+        sessionScope = null;
+        sessionScopeExtractor = null;
+    }
+
+    /**
+     * Writes the pending changes of the scopes to the servlet request and
+     * session. It is called before dispatching; call it before handing the
+     * servlet request to code that reads its attributes directly. The session
+     * changes still pending at the end of the request are written by
+     * {@link SessionScopeFlushListener}.
+     */
+    public void flushScopes() {
+        if (requestScopeOverlayExtractor != null) {
+            requestScopeOverlayExtractor.flush();
+        }
+        if (sessionScopeExtractor != null) {
+            sessionScopeExtractor.flush();
+        }
+    }
+
     /** {@inheritDoc} */
     public Map<String, Object> getRequestScope() {
 
         if ((requestScope == null) && (request != null)) {
-            requestScope = new ScopeMap(new RequestScopeExtractor(request));
+            if (requestScopeOverlay) {
+                requestScopeOverlayExtractor = new RequestScopeOverlayExtractor(request,
+                        containerVisibleAttributes);
+                requestScope = new ScopeMap(requestScopeOverlayExtractor);
+            } else {
+                requestScope = new ScopeMap(new RequestScopeExtractor(request));
+            }
         }
         return (requestScope);
 
@@ -209,7 +362,12 @@ public class ServletRequest extends AbstractClientRequest {
     public Map<String, Object> getSessionScope() {
 
         if ((sessionScope == null) && (request != null)) {
-            sessionScope = new ScopeMap(new SessionScopeExtractor(request));
+            if (sessionDirtyTracking) {
+                sessionScopeExtractor = new DirtyTrackingSessionScopeExtractor(request);
+                sessionScope = new ScopeMap(sessionScopeExtractor);
+            } else {
+                sessionScope = new ScopeMap(new SessionScopeExtractor(request));
+            }
         }
         return (sessionScope);
 
@@ -239,6 +397,7 @@ public class ServletRequest extends AbstractClientRequest {
                     + path + "'");
         }
 
+        flushScopes();
         try {
             rd.include(request, response);
         } catch (ServletException ex) {
@@ -261,6 +420,7 @@ public class ServletRequest extends AbstractClientRequest {
                     + path + "'");
         }
 
+        flushScopes();
         try {
             rd.forward(request, response);
         } catch (ServletException ex) {
@@ -0,0 +1,65 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet;
+
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.tiles.request.servlet.extractor.DirtyTrackingSessionScopeExtractor;
+
+/**
+ * Writes, at the end of each request, the session changes that
+ * {@link DirtyTrackingSessionScopeExtractor}s still have pending, so that
+ * they are not lost when nobody calls {@link ServletRequest#flushScopes()}.
+ * Since session dirty tracking is opt-in, this listener is not registered
+ * automatically: declare it in <code>web.xml</code> of the applications that
+ * enable it:
+ * <pre>
+ * &lt;listener&gt;
+ *   &lt;listener-class&gt;org.apache.tiles.request.servlet.SessionScopeFlushListener&lt;/listener-class&gt;
+ * &lt;/listener&gt;
+ * </pre>
+ * or register it with
+ * <code>ServletContext.addListener(SessionScopeFlushListener.class)</code>
+ * from a <code>ServletContainerInitializer</code> or a
+ * <code>ServletContextListener</code>.
+ *
+ * @version $Rev$ $Date$
+ * @see ServletRequest#setSessionDirtyTracking(boolean)
+ */
+public class SessionScopeFlushListener implements ServletRequestListener {
+
+    /** {@inheritDoc} */
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+        // nothing to do
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        if (event.getServletRequest() instanceof HttpServletRequest) {
+            DirtyTrackingSessionScopeExtractor.flushPending(
+                    (HttpServletRequest) event.getServletRequest());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import java.util.Arrays;
+
+/**
+ * A small map from attribute names to values, with open addressing and linear
+ * probing. It is not synchronized: it is meant to be owned by a single request.
+ * A value may be {@link #REMOVED}, to remember that an attribute has been
+ * removed.
+ *
+ * @version $Rev$ $Date$
+ */
+final class AttributeOverlay {
+
+    /**
+     * The value of an attribute that has been removed.
+     */
+    static final Object REMOVED = new Object();
+
+    /**
+     * The initial capacity of the table.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The keys, <code>null</code> for empty slots. The length is a power of two.
+     */
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    /**
+     * The values, parallel to {@link #keys}.
+     */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /**
+     * The number of entries.
+     */
+    private int size;
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param key The key.
+     * @return The value, possibly {@link #REMOVED}, or <code>null</code> if
+     * there is no entry for the key.
+     */
+    Object get(String key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(key)) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of an entry.
+     *
+     * @param key The key.
+     * @param value The value, possibly {@link #REMOVED}.
+     */
+    void put(String key, Object value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            resize();
+        }
+    }
+
+    /**
+     * Removes an entry, shifting back the entries that follow it in the same
+     * run of slots.
+     *
+     * @param key The key.
+     */
+    void remove(String key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == null) {
+            return;
+        }
+        size--;
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = null;
+        values[free] = null;
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the number of slots, to be used with {@link #keyAt(int)} and
+     * {@link #valueAt(int)} to iterate the entries.
+     *
+     * @return The number of slots.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key in a slot.
+     *
+     * @param slot The slot.
+     * @return The key, or <code>null</code> if the slot is empty.
+     */
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the value in a slot.
+     *
+     * @param slot The slot.
+     * @return The value.
+     */
+    Object valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Doubles the capacity of the table.
+     */
+    private void resize() {
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the hash code of a key.
+     *
+     * @param key The key.
+     * @return The hash.
+     */
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
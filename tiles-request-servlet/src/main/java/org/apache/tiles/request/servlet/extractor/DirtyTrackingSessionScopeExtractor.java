@@ -0,0 +1,356 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts attributes from session scope, keeping the changes in a
+ * request-local overlay until {@link #flush()} is called, so that each changed
+ * attribute is written to the session once. This reduces the number of
+ * replication deltas of containers that replicate the session on every
+ * <code>setAttribute</code>.
+ * <p>
+ * The first time a change is pending, the extractor registers itself in the
+ * servlet request, so that {@link #flushPending(HttpServletRequest)}, called
+ * at the end of the request by
+ * {@link org.apache.tiles.request.servlet.SessionScopeFlushListener}, writes
+ * the changes nobody flushed.
+ * <p>
+ * Writing the very same instance an attribute already has, and removing an
+ * attribute that does not exist, are ignored: to replicate an object that has
+ * been changed in place, write it through the servlet session directly. The
+ * session is created, if needed, at the first write, since creating it may
+ * require setting a cookie on the response. The session is resolved once and
+ * kept for the request; if it turns out to be invalidated, it is resolved
+ * again, and the changes pending for it are discarded, with a warning, and
+ * never written to a session created afterwards.
+ * <p>
+ * Instances are not thread-safe: use one per request.
+ *
+ * @version $Rev$ $Date$
+ */
+public class DirtyTrackingSessionScopeExtractor implements BulkAttributeExtractor {
+
+    /**
+     * The name of the request attribute that holds the extractors with
+     * changes to flush at the end of the request.
+     */
+    public static final String PENDING_ATTRIBUTE_NAME =
+            DirtyTrackingSessionScopeExtractor.class.getName() + ".PENDING";
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(DirtyTrackingSessionScopeExtractor.class);
+
+    /**
+     * The servlet request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * The session of the request, which the pending changes are for,
+     * <code>null</code> if it has not been resolved or does not exist.
+     */
+    private HttpSession session;
+
+    /**
+     * The pending changes.
+     */
+    private AttributeOverlay overlay = new AttributeOverlay();
+
+    /**
+     * Whether this extractor is registered in the servlet request.
+     */
+    private boolean registered = false;
+
+    /**
+     * Constructor.
+     *
+     * @param request The servlet request.
+     */
+    public DirtyTrackingSessionScopeExtractor(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Flushes the extractors of a request that have pending changes. It is
+     * called at the end of the request.
+     *
+     * @param request The servlet request.
+     */
+    @SuppressWarnings("unchecked")
+    public static void flushPending(HttpServletRequest request) {
+        Object pending = request.getAttribute(PENDING_ATTRIBUTE_NAME);
+        if (pending instanceof List) {
+            request.removeAttribute(PENDING_ATTRIBUTE_NAME);
+            for (DirtyTrackingSessionScopeExtractor extractor
+                    : (List<DirtyTrackingSessionScopeExtractor>) pending) {
+                extractor.flush();
+            }
+        }
+    }
+
+    @Override
+    public void setValue(String name, Object value) {
+        if (value == null) {
+            removeValue(name);
+            return;
+        }
+        getSession(true);
+        Object pending = overlay.get(name);
+        if (pending == value) {
+            return;
+        }
+        if (pending == null && getSessionAttribute(name, true) == value) {
+            return;
+        }
+        overlay.put(name, value);
+        register();
+    }
+
+    @Override
+    public void removeValue(String name) {
+        if (getSession(false) == null) {
+            return;
+        }
+        Object pending = overlay.get(name);
+        if (pending == AttributeOverlay.REMOVED) {
+            return;
+        }
+        if (pending == null && getSessionAttribute(name, false) == null) {
+            return;
+        }
+        overlay.put(name, AttributeOverlay.REMOVED);
+        register();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Enumeration<String> getKeys() {
+        HttpSession currentSession = getSession(false);
+        Enumeration<String> sessionKeys = null;
+        if (currentSession != null) {
+            try {
+                sessionKeys = currentSession.getAttributeNames();
+            } catch (IllegalStateException e) {
+                currentSession = resolveInvalidatedSession(false);
+                if (currentSession != null) {
+                    sessionKeys = currentSession.getAttributeNames();
+                }
+            }
+        }
+        if (sessionKeys == null) {
+            return Collections.enumeration(Collections.<String>emptySet());
+        }
+        if (overlay.size() == 0) {
+            return sessionKeys;
+        }
+        Set<String> keys = new LinkedHashSet<String>();
+        while (sessionKeys.hasMoreElements()) {
+            String key = sessionKeys.nextElement();
+            if (overlay.get(key) != AttributeOverlay.REMOVED) {
+                keys.add(key);
+            }
+        }
+        for (int i = 0; i < overlay.capacity(); i++) {
+            String key = overlay.keyAt(i);
+            if (key != null && overlay.valueAt(i) != AttributeOverlay.REMOVED) {
+                keys.add(key);
+            }
+        }
+        return Collections.enumeration(keys);
+    }
+
+    @Override
+    public Object getValue(String key) {
+        if (getSession(false) == null) {
+            return null;
+        }
+        Object value = overlay.get(key);
+        if (value == null) {
+            return getSessionAttribute(key, false);
+        }
+        return value != AttributeOverlay.REMOVED ? value : null;
+    }
+
+    @Override
+    public void setValues(Map<? extends String, ?> values) {
+        for (Map.Entry<? extends String, ?> entry : values.entrySet()) {
+            setValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeValues(Collection<String> keys) {
+        for (String key : keys) {
+            removeValue(key);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAllValues() {
+        Map<String, Object> retValue = new LinkedHashMap<String, Object>();
+        Enumeration<String> keys = getKeys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            retValue.put(key, getValue(key));
+        }
+        return retValue;
+    }
+
+    /**
+     * Writes the pending changes to the session, and empties the overlay. If
+     * the session has been invalidated in the meantime, the changes that
+     * cannot be written are discarded, with a warning.
+     */
+    public void flush() {
+        if (overlay.size() == 0) {
+            return;
+        }
+        HttpSession currentSession = getSession(false);
+        for (int i = 0; i < overlay.capacity(); i++) {
+            String key = overlay.keyAt(i);
+            if (key != null) {
+                Object value = overlay.valueAt(i);
+                try {
+                    if (value == AttributeOverlay.REMOVED) {
+                        currentSession.removeAttribute(key);
+                    } else {
+                        currentSession.setAttribute(key, value);
+                    }
+                } catch (IllegalStateException e) {
+                    log.warn("The session has been invalidated while writing the attributes "
+                            + getPendingKeys(i) + ", their changes are discarded", e);
+                    session = null;
+                    break;
+                }
+            }
+        }
+        overlay.clear();
+    }
+
+    /**
+     * Returns the session of the request, resolving it the first time, or
+     * while it does not exist.
+     *
+     * @param create Whether to create the session if it does not exist.
+     * @return The session, or <code>null</code> if it does not exist and
+     * <code>create</code> is <code>false</code>.
+     */
+    private HttpSession getSession(boolean create) {
+        if (session == null) {
+            session = request.getSession(create);
+        }
+        return session;
+    }
+
+    /**
+     * Resolves the session again after it turned out to be invalidated,
+     * discarding the changes pending for it.
+     *
+     * @param create Whether to create the session if it does not exist.
+     * @return The session, or <code>null</code> if it does not exist and
+     * <code>create</code> is <code>false</code>.
+     */
+    private HttpSession resolveInvalidatedSession(boolean create) {
+        if (overlay.size() > 0) {
+            log.warn("The session has been invalidated, the changes to the attributes "
+                    + getPendingKeys(0) + " are discarded");
+            overlay.clear();
+        }
+        session = request.getSession(create);
+        return session;
+    }
+
+    /**
+     * Reads an attribute of the session, resolving the session again if it
+     * has been invalidated.
+     *
+     * @param name The name of the attribute.
+     * @param create Whether to create the session, if it has been invalidated.
+     * @return The value, or <code>null</code> if there is no such attribute
+     * or no session.
+     */
+    private Object getSessionAttribute(String name, boolean create) {
+        try {
+            return session.getAttribute(name);
+        } catch (IllegalStateException e) {
+            HttpSession currentSession = resolveInvalidatedSession(create);
+            return currentSession != null ? currentSession.getAttribute(name) : null;
+        }
+    }
+
+    /**
+     * Registers this extractor in the servlet request, to be flushed at the
+     * end of the request.
+     */
+    @SuppressWarnings("unchecked")
+    private void register() {
+        if (registered) {
+            return;
+        }
+        Object pending = request.getAttribute(PENDING_ATTRIBUTE_NAME);
+        List<DirtyTrackingSessionScopeExtractor> extractors;
+        if (pending instanceof List) {
+            extractors = (List<DirtyTrackingSessionScopeExtractor>) pending;
+        } else {
+            extractors = new ArrayList<DirtyTrackingSessionScopeExtractor>();
+            request.setAttribute(PENDING_ATTRIBUTE_NAME, extractors);
+        }
+        extractors.add(this);
+        registered = true;
+    }
+
+    /**
+     * Returns the keys of the pending changes, starting from a slot of the
+     * overlay.
+     *
+     * @param start The first slot.
+     * @return The keys.
+     */
+    private List<String> getPendingKeys(int start) {
+        List<String> retValue = new ArrayList<String>();
+        for (int i = start; i < overlay.capacity(); i++) {
+            String key = overlay.keyAt(i);
+            if (key != null) {
+                retValue.add(key);
+            }
+        }
+        return retValue;
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.tiles.request.attribute.ArrayValuesExtractor;
+import org.apache.tiles.request.attribute.HasSizedKeys;
+
+/**
+ * Extract header values from an immutable copy of the headers of an HTTP
+ * request, taken once when the extractor is created. Lookups are
+ * case-insensitive and do not call the container: the headers are kept in an
+ * open-addressing table, and the hashes of well-known header names are
+ * computed in advance.
+ * <p>
+ * Values are written to the response headers, as {@link HeaderExtractor} does.
+ *
+ * @version $Rev$ $Date$
+ */
+public class HeaderSnapshotExtractor implements ArrayValuesExtractor, HasSizedKeys<String> {
+
+    /**
+     * The header names whose hash is computed in advance.
+     */
+    private static final String[] WELL_KNOWN_NAMES = {
+        "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language",
+        "Authorization", "Cache-Control", "Connection", "Content-Length",
+        "Content-Type", "Cookie", "DNT", "Forwarded", "Host", "If-Match",
+        "If-Modified-Since", "If-None-Match", "If-Range", "If-Unmodified-Since",
+        "Origin", "Pragma", "Range", "Referer", "Sec-Fetch-Dest", "Sec-Fetch-Mode",
+        "Sec-Fetch-Site", "Sec-Fetch-User", "TE", "Upgrade",
+        "Upgrade-Insecure-Requests", "User-Agent", "Via", "X-Forwarded-For",
+        "X-Forwarded-Host", "X-Forwarded-Proto", "X-Requested-With",
+    };
+
+    /**
+     * Maps the well-known header names, both as written in
+     * {@link #WELL_KNOWN_NAMES} and in lower case, to their canonical instance
+     * and hash. Since strings cache their own hash code, resolving a name here
+     * does not scan its characters.
+     */
+    private static final Map<String, KnownName> KNOWN_NAMES = new HashMap<String, KnownName>();
+
+    static {
+        for (String name : WELL_KNOWN_NAMES) {
+            KnownName knownName = new KnownName(name, caseInsensitiveHash(name));
+            KNOWN_NAMES.put(name, knownName);
+            KNOWN_NAMES.put(name.toLowerCase(Locale.ROOT), knownName);
+        }
+    }
+
+    /**
+     * An empty array of values.
+     */
+    private static final String[] NO_VALUES = new String[0];
+
+    /**
+     * The response.
+     */
+    private HttpServletResponse response;
+
+    /**
+     * The header names, in the order given by the container.
+     */
+    private String[] names;
+
+    /**
+     * The header values, parallel to {@link #names}.
+     */
+    private String[][] values;
+
+    /**
+     * The number of headers.
+     */
+    private int count;
+
+    /**
+     * The table of the indexes in {@link #names} plus one, zero meaning an
+     * empty slot. Its length is a power of two.
+     */
+    private int[] table;
+
+    /**
+     * The case-insensitive hashes of the headers, parallel to {@link #names}.
+     */
+    private int[] hashes;
+
+    /**
+     * Constructor. Copies the headers of the request.
+     *
+     * @param request The request.
+     * @param response The response.
+     */
+    public HeaderSnapshotExtractor(HttpServletRequest request,
+            HttpServletResponse response) {
+        this.response = response;
+        List<String> nameList = new ArrayList<String>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        if (headerNames != null) {
+            while (headerNames.hasMoreElements()) {
+                nameList.add(headerNames.nextElement());
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(nameList.size(), 1) * 2 - 1) << 1;
+        names = new String[nameList.size()];
+        values = new String[nameList.size()][];
+        hashes = new int[nameList.size()];
+        table = new int[capacity];
+        for (String name : nameList) {
+            String[] headerValues = toArray(request.getHeaders(name));
+            KnownName knownName = KNOWN_NAMES.get(name);
+            int hash;
+            if (knownName != null) {
+                name = knownName.name;
+                hash = knownName.hash;
+            } else {
+                hash = caseInsensitiveHash(name);
+            }
+            int index = indexOf(name, hash);
+            if (index >= 0) {
+                values[index] = concat(values[index], headerValues);
+            } else {
+                add(name, hash, headerValues);
+            }
+        }
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        return new ArrayEnumeration(names, count);
+    }
+
+    @Override
+    public int getKeyCount() {
+        return count;
+    }
+
+    @Override
+    public String getValue(String key) {
+        int index = indexOf(key);
+        if (index >= 0 && values[index].length > 0) {
+            return values[index][0];
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getValues(String key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return new ArrayEnumeration(values[index], values[index].length);
+        }
+        return Collections.emptyEnumeration();
+    }
+
+    @Override
+    public String[] getValueArray(String key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return values[index];
+        }
+        return NO_VALUES;
+    }
+
+    @Override
+    public void setValue(String key, String value) {
+        response.setHeader(key, value);
+    }
+
+    /**
+     * Returns the index of a header.
+     *
+     * @param key The name of the header, in any case.
+     * @return The index, or <code>-1</code> if not present.
+     */
+    private int indexOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        KnownName knownName = KNOWN_NAMES.get(key);
+        return indexOf(key, knownName != null ? knownName.hash : caseInsensitiveHash(key));
+    }
+
+    /**
+     * Returns the index of a header.
+     *
+     * @param key The name of the header, in any case.
+     * @param hash The case-insensitive hash of the name.
+     * @return The index, or <code>-1</code> if not present.
+     */
+    private int indexOf(String key, int hash) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (hashes[index] == hash) {
+                String name = names[index];
+                if (name == key || name.equalsIgnoreCase(key)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a header. There is always a free slot, since the table is at least
+     * twice as large as the number of headers.
+     *
+     * @param name The name of the header.
+     * @param hash The case-insensitive hash of the name.
+     * @param headerValues The values.
+     */
+    private void add(String name, int hash, String[] headerValues) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        names[count] = name;
+        values[count] = headerValues;
+        hashes[count] = hash;
+        count++;
+        table[slot] = count;
+    }
+
+    /**
+     * Computes a hash of a string that does not depend on the case of its
+     * characters, consistently with {@link String#equalsIgnoreCase(String)}.
+     *
+     * @param name The string.
+     * @return The hash.
+     */
+    private static int caseInsensitiveHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            } else if (c >= 128) {
+                c = Character.toLowerCase(Character.toUpperCase(c));
+            }
+            hash = 31 * hash + c;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Copies an enumeration to an array.
+     *
+     * @param enumeration The enumeration, possibly <code>null</code>.
+     * @return The array.
+     */
+    private static String[] toArray(Enumeration<String> enumeration) {
+        if (enumeration == null || !enumeration.hasMoreElements()) {
+            return NO_VALUES;
+        }
+        String first = enumeration.nextElement();
+        if (!enumeration.hasMoreElements()) {
+            return new String[] {first};
+        }
+        List<String> list = new ArrayList<String>();
+        list.add(first);
+        while (enumeration.hasMoreElements()) {
+            list.add(enumeration.nextElement());
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Concatenates two arrays.
+     *
+     * @param first The first array.
+     * @param second The second array.
+     * @return The concatenation.
+     */
+    private static String[] concat(String[] first, String[] second) {
+        String[] retValue = new String[first.length + second.length];
+        System.arraycopy(first, 0, retValue, 0, first.length);
+        System.arraycopy(second, 0, retValue, first.length, second.length);
+        return retValue;
+    }
+
+    /**
+     * A well-known header name.
+     */
+    private static final class KnownName {
+
+        /**
+         * The canonical instance of the name.
+         */
+        private final String name;
+
+        /**
+         * The case-insensitive hash of the name.
+         */
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param name The canonical instance of the name.
+         * @param hash The case-insensitive hash of the name.
+         */
+        private KnownName(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Enumerates the beginning of an array.
+     */
+    private static final class ArrayEnumeration implements Enumeration<String> {
+
+        /**
+         * The array to enumerate.
+         */
+        private final String[] array;
+
+        /**
+         * The number of elements to enumerate.
+         */
+        private final int length;
+
+        /**
+         * The current index.
+         */
+        private int index;
+
+        /**
+         * Constructor.
+         *
+         * @param array The array to enumerate.
+         * @param length The number of elements to enumerate.
+         */
+        private ArrayEnumeration(String[] array, int length) {
+            this.array = array;
+            this.length = length;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return index < length;
+        }
+
+        @Override
+        public String nextElement() {
+            if (index >= length) {
+                throw new NoSuchElementException();
+            }
+            return array[index++];
+        }
+    }
+}
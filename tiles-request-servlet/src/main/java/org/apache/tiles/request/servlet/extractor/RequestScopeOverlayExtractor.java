@@ -0,0 +1,192 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
+
+/**
+ * Extracts attributes from request scope, keeping the changes in a
+ * request-local overlay until {@link #flush()} is called. Reads look at the
+ * overlay first, then at the servlet request.
+ * <p>
+ * Attributes whose name is registered as container-visible, or starts with
+ * <code>jakarta.</code> or <code>javax.</code>, are always written to the
+ * servlet request immediately. The other attributes are visible to code that
+ * reads the servlet request directly only after a flush, so the overlay must
+ * be flushed before dispatching the request.
+ * <p>
+ * Instances are not thread-safe: use one per request.
+ *
+ * @version $Rev$ $Date$
+ */
+public class RequestScopeOverlayExtractor implements BulkAttributeExtractor {
+
+    /**
+     * The servlet request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * The names of the attributes that are written to the servlet request
+     * immediately.
+     */
+    private Set<String> containerVisibleNames;
+
+    /**
+     * The pending changes.
+     */
+    private AttributeOverlay overlay = new AttributeOverlay();
+
+    /**
+     * Constructor.
+     *
+     * @param request The servlet request.
+     * @param containerVisibleNames The names of the attributes that are written
+     * to the servlet request immediately.
+     */
+    public RequestScopeOverlayExtractor(HttpServletRequest request,
+            Set<String> containerVisibleNames) {
+        this.request = request;
+        this.containerVisibleNames = containerVisibleNames;
+    }
+
+    @Override
+    public void setValue(String name, Object value) {
+        if (value == null) {
+            removeValue(name);
+        } else if (isContainerVisible(name)) {
+            overlay.remove(name);
+            request.setAttribute(name, value);
+        } else {
+            overlay.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeValue(String name) {
+        if (isContainerVisible(name)) {
+            overlay.remove(name);
+            request.removeAttribute(name);
+        } else {
+            overlay.put(name, AttributeOverlay.REMOVED);
+        }
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        Enumeration<String> containerKeys = request.getAttributeNames();
+        if (overlay.size() == 0) {
+            return containerKeys;
+        }
+        Set<String> keys = new LinkedHashSet<String>();
+        while (containerKeys.hasMoreElements()) {
+            String key = containerKeys.nextElement();
+            if (overlay.get(key) != AttributeOverlay.REMOVED) {
+                keys.add(key);
+            }
+        }
+        for (int i = 0; i < overlay.capacity(); i++) {
+            String key = overlay.keyAt(i);
+            if (key != null && overlay.valueAt(i) != AttributeOverlay.REMOVED) {
+                keys.add(key);
+            }
+        }
+        return Collections.enumeration(keys);
+    }
+
+    @Override
+    public Object getValue(String key) {
+        Object value = overlay.get(key);
+        if (value == null) {
+            return request.getAttribute(key);
+        }
+        return value != AttributeOverlay.REMOVED ? value : null;
+    }
+
+    @Override
+    public void setValues(Map<? extends String, ?> values) {
+        for (Map.Entry<? extends String, ?> entry : values.entrySet()) {
+            setValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeValues(Collection<String> keys) {
+        for (String key : keys) {
+            removeValue(key);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAllValues() {
+        Map<String, Object> retValue = new LinkedHashMap<String, Object>();
+        Enumeration<String> keys = getKeys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            retValue.put(key, getValue(key));
+        }
+        return retValue;
+    }
+
+    /**
+     * Writes the pending changes to the servlet request, and empties the
+     * overlay.
+     */
+    public void flush() {
+        if (overlay.size() == 0) {
+            return;
+        }
+        for (int i = 0; i < overlay.capacity(); i++) {
+            String key = overlay.keyAt(i);
+            if (key != null) {
+                Object value = overlay.valueAt(i);
+                if (value == AttributeOverlay.REMOVED) {
+                    request.removeAttribute(key);
+                } else {
+                    request.setAttribute(key, value);
+                }
+            }
+        }
+        overlay.clear();
+    }
+
+    /**
+     * Checks if an attribute must be written to the servlet request
+     * immediately.
+     *
+     * @param name The name of the attribute.
+     * @return <code>true</code> if the attribute is container-visible.
+     */
+    private boolean isContainerVisible(String name) {
+        return name.startsWith("jakarta.") || name.startsWith("javax.")
+                || containerVisibleNames.contains(name);
+    }
+}
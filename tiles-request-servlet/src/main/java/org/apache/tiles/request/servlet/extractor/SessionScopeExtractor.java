@@ -20,20 +20,24 @@
  */
 package org.apache.tiles.request.servlet.extractor;
 
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
-import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.BulkAttributeExtractor;
 
 /**
- * Extract attributes from session scope.
+ * Extract attributes from session scope. Bulk operations look up the session
+ * only once.
  *
  * @version $Rev$ $Date$
  */
-public class SessionScopeExtractor implements AttributeExtractor {
+public class SessionScopeExtractor implements BulkAttributeExtractor {
 
     /**
      * The servlet request.
@@ -80,4 +84,39 @@ public class SessionScopeExtractor implements AttributeExtractor {
         }
         return null;
     }
+
+    @Override
+    public void setValues(Map<? extends String, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        HttpSession session = request.getSession();
+        for (Map.Entry<? extends String, ?> entry : values.entrySet()) {
+            session.setAttribute(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeValues(Collection<String> keys) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            for (String key : keys) {
+                session.removeAttribute(key);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAllValues() {
+        Map<String, Object> retValue = new LinkedHashMap<String, Object>();
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            Enumeration<String> keys = session.getAttributeNames();
+            while (keys.hasMoreElements()) {
+                String key = keys.nextElement();
+                retValue.put(key, session.getAttribute(key));
+            }
+        }
+        return retValue;
+    }
 }
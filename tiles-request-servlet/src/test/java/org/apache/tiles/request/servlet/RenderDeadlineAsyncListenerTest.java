@@ -0,0 +1,76 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet;
+
+import org.apache.tiles.request.render.RenderDeadline;
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RenderDeadlineAsyncListener}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RenderDeadlineAsyncListenerTest {
+
+    /**
+     * Tests that closing the asynchronous context aborts the deadline.
+     */
+    @Test
+    void testOnComplete() {
+        RenderDeadline deadline = new RenderDeadline(1, TimeUnit.HOURS);
+        RenderDeadlineAsyncListener listener = new RenderDeadlineAsyncListener(deadline);
+        AsyncContext asyncContext = createMock(AsyncContext.class);
+        expect(asyncContext.getRequest()).andReturn(null).anyTimes();
+        expect(asyncContext.getResponse()).andReturn(null).anyTimes();
+        asyncContext.addListener(listener);
+
+        replay(asyncContext);
+        listener.onStartAsync(new AsyncEvent(asyncContext));
+        assertFalse(deadline.isAborted());
+        listener.onComplete(new AsyncEvent(asyncContext));
+        assertTrue(deadline.isAborted());
+        verify(asyncContext);
+    }
+
+    /**
+     * Tests that a timeout or an error aborts the deadline.
+     */
+    @Test
+    void testOnTimeoutAndError() {
+        RenderDeadline timedOut = new RenderDeadline(1, TimeUnit.HOURS);
+        new RenderDeadlineAsyncListener(timedOut).onTimeout(null);
+        assertTrue(timedOut.isAborted());
+        RenderDeadline failed = new RenderDeadline(1, TimeUnit.HOURS);
+        new RenderDeadlineAsyncListener(failed).onError(null);
+        assertTrue(failed.isAborted());
+    }
+}
@@ -20,10 +20,13 @@
  */
 package org.apache.tiles.request.servlet;
 
+import org.apache.tiles.request.AbstractRequest;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.FlushUtil;
 import org.apache.tiles.request.collection.HeaderValuesMap;
 import org.apache.tiles.request.collection.ReadOnlyEnumerationMap;
 import org.apache.tiles.request.collection.ScopeMap;
+import org.apache.tiles.request.servlet.extractor.DirtyTrackingSessionScopeExtractor;
 import org.apache.tiles.request.servlet.extractor.HeaderExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -33,16 +36,23 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -237,6 +247,23 @@ class ServletRequestTest {
         assertInstanceOf(HeaderValuesMap.class, req.getHeaderValues());
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.servlet.ServletRequest#setHeaderSnapshot(boolean)}.
+     */
+    @Test
+    void testSetHeaderSnapshot() {
+        expect(request.getHeaderNames()).andReturn(Collections.enumeration(Arrays.asList("Host")));
+        expect(request.getHeaders("Host")).andReturn(Collections.enumeration(Arrays.asList("localhost")));
+
+        replay(applicationContext, request, response);
+        req.setHeaderSnapshot(true);
+        assertEquals("localhost", req.getHeader().get("host"));
+        assertEquals("localhost", req.getHeader().get("HOST"));
+        assertArrayEquals(new String[] {"localhost"}, req.getHeaderValues().get("Host"));
+        assertEquals(1, req.getHeaderValues().size());
+        verify(applicationContext, request, response);
+    }
+
     /**
      * Test method for {@link org.apache.tiles.request.servlet.ServletRequest#getParam()}.
      */
@@ -267,6 +294,33 @@ class ServletRequestTest {
         assertInstanceOf(ScopeMap.class, req.getRequestScope());
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.servlet.ServletRequest#setRequestScopeOverlay(boolean)}.
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    void testSetRequestScopeOverlay() throws IOException, ServletException {
+        RequestDispatcher rd = createMock(RequestDispatcher.class);
+
+        expect(request.getAttribute("local")).andReturn(null);
+        expect(request.getAttribute("visible")).andReturn(null);
+        request.setAttribute("visible", "value");
+        expect(request.getRequestDispatcher("/my/path")).andReturn(rd);
+        request.setAttribute("local", "value");
+        rd.include(request, response);
+
+        replay(applicationContext, request, response, rd);
+        req.setRequestScopeOverlay(true);
+        req.setContainerVisibleAttributes(Collections.singleton("visible"));
+        Map<String, Object> scope = req.getRequestScope();
+        scope.put("local", "value");
+        scope.put("visible", "value");
+        assertEquals("value", scope.get("local"));
+        req.doInclude("/my/path");
+        verify(applicationContext, request, response, rd);
+    }
+
     /**
      * Test method for {@link org.apache.tiles.request.servlet.ServletRequest#getSessionScope()}.
      */
@@ -390,4 +444,58 @@ class ServletRequestTest {
         verify(applicationContext, request, response);
     }
 
+    /**
+     * Test method for {@link org.apache.tiles.request.servlet.ServletRequest#setSessionDirtyTracking(boolean)}.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    void testSetSessionDirtyTracking() throws IOException, ServletException {
+        HttpSession session = createMock(HttpSession.class);
+        RequestDispatcher rd = createMock(RequestDispatcher.class);
+
+        expect(request.getSession(true)).andReturn(session).anyTimes();
+        expect(request.getSession(false)).andReturn(session).anyTimes();
+        expect(session.getAttribute("name")).andReturn(null).anyTimes();
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andReturn(null);
+        request.setAttribute(eq(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME), isA(List.class));
+        expect(request.getRequestDispatcher("/my/path")).andReturn(rd);
+        session.setAttribute("name", "second");
+        rd.include(request, response);
+
+        replay(applicationContext, request, response, session, rd);
+        req.setSessionDirtyTracking(true);
+        Map<String, Object> scope = req.getSessionScope();
+        scope.put("name", "first");
+        scope.put("name", "second");
+        req.doInclude("/my/path");
+        verify(applicationContext, request, response, session, rd);
+    }
+
+    /**
+     * Tests that a dispatch after an early flush includes instead of
+     * forwarding.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws ServletException If something goes wrong.
+     */
+    @Test
+    void testDispatchAfterFlush() throws IOException, ServletException {
+        PrintWriter writer = createMock(PrintWriter.class);
+        RequestDispatcher rd = createMock(RequestDispatcher.class);
+
+        expect(request.getAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME)).andReturn(null);
+        request.setAttribute(AbstractRequest.FORCE_INCLUDE_ATTRIBUTE_NAME, true);
+        expect(response.getWriter()).andReturn(writer);
+        writer.flush();
+        expect(request.getRequestDispatcher("/my/path")).andReturn(rd);
+        rd.include(request, response);
+
+        replay(applicationContext, request, response, writer, rd);
+        FlushUtil.flush(req);
+        req.dispatch("/my/path");
+        verify(applicationContext, request, response, writer, rd);
+    }
 }
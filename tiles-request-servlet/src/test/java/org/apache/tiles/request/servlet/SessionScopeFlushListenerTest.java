@@ -0,0 +1,93 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet;
+
+import org.apache.tiles.request.servlet.extractor.DirtyTrackingSessionScopeExtractor;
+import org.easymock.Capture;
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ * Tests {@link SessionScopeFlushListener}.
+ *
+ * @version $Rev$ $Date$
+ */
+class SessionScopeFlushListenerTest {
+
+    /**
+     * Tests that the changes nobody flushed are written at the end of the
+     * request.
+     */
+    @Test
+    void testRequestDestroyed() {
+        ServletContext servletContext = createMock(ServletContext.class);
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        HttpSession session = createMock(HttpSession.class);
+        Capture<Object> pending = newCapture();
+
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("name")).andReturn(null);
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andReturn(null);
+        request.setAttribute(eq(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME),
+                capture(pending));
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andAnswer(pending::getValue);
+        request.removeAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME);
+        session.setAttribute("name", "value");
+
+        replay(servletContext, request, session);
+        new DirtyTrackingSessionScopeExtractor(request).setValue("name", "value");
+        SessionScopeFlushListener listener = new SessionScopeFlushListener();
+        ServletRequestEvent event = new ServletRequestEvent(servletContext, request);
+        listener.requestInitialized(event);
+        listener.requestDestroyed(event);
+        verify(servletContext, request, session);
+    }
+
+    /**
+     * Tests that requests without pending changes are left alone.
+     */
+    @Test
+    void testRequestDestroyedNothingPending() {
+        ServletContext servletContext = createMock(ServletContext.class);
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andReturn(null);
+
+        replay(servletContext, request);
+        new SessionScopeFlushListener().requestDestroyed(new ServletRequestEvent(servletContext, request));
+        verify(servletContext, request);
+    }
+}
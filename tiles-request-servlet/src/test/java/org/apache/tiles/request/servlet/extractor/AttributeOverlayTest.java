@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests {@link AttributeOverlay}.
+ *
+ * @version $Rev$ $Date$
+ */
+class AttributeOverlayTest {
+
+    /**
+     * Tests {@link AttributeOverlay#put(String, Object)} and {@link AttributeOverlay#get(String)}.
+     */
+    @Test
+    void testPutAndGet() {
+        AttributeOverlay overlay = new AttributeOverlay();
+        overlay.put("one", 1);
+        overlay.put("two", AttributeOverlay.REMOVED);
+        overlay.put("one", 11);
+        assertEquals(11, overlay.get("one"));
+        assertSame(AttributeOverlay.REMOVED, overlay.get("two"));
+        assertNull(overlay.get("three"));
+        assertEquals(2, overlay.size());
+    }
+
+    /**
+     * Tests {@link AttributeOverlay#clear()}.
+     */
+    @Test
+    void testClear() {
+        AttributeOverlay overlay = new AttributeOverlay();
+        overlay.put("one", 1);
+        overlay.clear();
+        assertNull(overlay.get("one"));
+        assertEquals(0, overlay.size());
+    }
+
+    /**
+     * Compares random operations, including resizes and removals, with a
+     * {@link HashMap}.
+     */
+    @Test
+    void testAgainstHashMap() {
+        AttributeOverlay overlay = new AttributeOverlay();
+        Map<String, Object> expected = new HashMap<String, Object>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            String key = "key" + random.nextInt(100);
+            if (random.nextInt(3) == 0) {
+                overlay.remove(key);
+                expected.remove(key);
+            } else {
+                overlay.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), overlay.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.get("key" + i), overlay.get("key" + i));
+        }
+        int count = 0;
+        for (int i = 0; i < overlay.capacity(); i++) {
+            if (overlay.keyAt(i) != null) {
+                assertEquals(expected.get(overlay.keyAt(i)), overlay.valueAt(i));
+                count++;
+            }
+        }
+        assertEquals(expected.size(), count);
+    }
+}
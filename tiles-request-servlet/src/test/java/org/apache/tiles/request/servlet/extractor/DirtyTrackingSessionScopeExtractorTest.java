@@ -0,0 +1,307 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import org.easymock.Capture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests {@link DirtyTrackingSessionScopeExtractor}.
+ *
+ * @version $Rev$ $Date$
+ */
+class DirtyTrackingSessionScopeExtractorTest {
+
+    /**
+     * The request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * The session.
+     */
+    private HttpSession session;
+
+    /**
+     * The extractor to test.
+     */
+    private DirtyTrackingSessionScopeExtractor extractor;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        request = createMock(HttpServletRequest.class);
+        session = createMock(HttpSession.class);
+        extractor = new DirtyTrackingSessionScopeExtractor(request);
+    }
+
+    /**
+     * Tests that repeated writes reach the session once, at the flush, and
+     * that the session is resolved once.
+     */
+    @Test
+    void testSetValueCoalesced() {
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("name")).andReturn("old");
+        expectRegistration();
+        session.setAttribute("name", "third");
+
+        replay(request, session);
+        extractor.setValue("name", "first");
+        extractor.setValue("name", "second");
+        extractor.setValue("name", "third");
+        assertEquals("third", extractor.getValue("name"));
+        extractor.flush();
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Tests that writing the instance already in the session is ignored.
+     */
+    @Test
+    void testSetValueIdentical() {
+        Object value = new Object();
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("name")).andReturn(value);
+
+        replay(request, session);
+        extractor.setValue("name", value);
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Tests reading through to the session.
+     */
+    @Test
+    void testGetValue() {
+        expect(request.getSession(false)).andReturn(session);
+        expect(session.getAttribute("one")).andReturn(1);
+        expect(session.getAttribute("two")).andReturn(2);
+
+        replay(request, session);
+        assertEquals(1, extractor.getValue("one"));
+        assertEquals(2, extractor.getValue("two"));
+        verify(request, session);
+    }
+
+    /**
+     * Tests reading when there is no session.
+     */
+    @Test
+    void testGetValueNoSession() {
+        expect(request.getSession(false)).andReturn(null).anyTimes();
+
+        replay(request, session);
+        assertNull(extractor.getValue("one"));
+        assertFalse(extractor.getKeys().hasMoreElements());
+        extractor.removeValue("one");
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Tests that removals are deferred, and that removing a missing
+     * attribute is ignored.
+     */
+    @Test
+    void testRemoveValue() {
+        expect(request.getSession(false)).andReturn(session).anyTimes();
+        expect(session.getAttribute("one")).andReturn(1);
+        expect(session.getAttribute("two")).andReturn(null);
+        expectRegistration();
+        session.removeAttribute("one");
+
+        replay(request, session);
+        extractor.removeValue("one");
+        extractor.removeValue("one");
+        extractor.removeValue("two");
+        assertNull(extractor.getValue("one"));
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Tests that the keys merge the session and the pending changes.
+     */
+    @Test
+    void testGetKeys() {
+        expect(request.getSession(false)).andReturn(session);
+        expect(session.getAttribute("one")).andReturn(1);
+        expect(session.getAttribute("three")).andReturn(null);
+        expect(session.getAttributeNames()).andAnswer(
+                () -> Collections.enumeration(Arrays.asList("one", "two"))).times(2);
+        expect(session.getAttribute("two")).andReturn(2);
+        expectRegistration();
+
+        replay(request, session);
+        extractor.removeValue("one");
+        extractor.setValue("three", 3);
+        assertEquals(Arrays.asList("two", "three"), Collections.list(extractor.getKeys()));
+        Map<String, Object> values = extractor.getAllValues();
+        assertEquals(2, values.size());
+        assertEquals(2, values.get("two"));
+        assertEquals(3, values.get("three"));
+        verify(request, session);
+    }
+
+    /**
+     * Tests that the pending changes are discarded if the session is
+     * invalidated while they are written.
+     */
+    @Test
+    void testFlushInvalidated() {
+        expect(request.getSession(true)).andReturn(session);
+        expect(request.getSession(false)).andReturn(session);
+        expect(session.getAttribute("name")).andReturn(null).times(2);
+        expectRegistration();
+        session.setAttribute("name", "value");
+        expectLastCall().andThrow(new IllegalStateException());
+
+        replay(request, session);
+        extractor.setValue("name", "value");
+        extractor.flush();
+        assertNull(extractor.getValue("name"));
+        verify(request, session);
+    }
+
+    /**
+     * Tests that the pending changes are discarded if the session is
+     * invalidated before they are written.
+     */
+    @Test
+    void testSessionInvalidated() {
+        expect(request.getSession(true)).andReturn(session);
+        expect(request.getSession(false)).andReturn(null).anyTimes();
+        expect(session.getAttribute("name")).andReturn(null);
+        expectRegistration();
+        expect(session.getAttribute("other")).andThrow(new IllegalStateException());
+
+        replay(request, session);
+        extractor.setValue("name", "value");
+        assertNull(extractor.getValue("other"));
+        assertNull(extractor.getValue("name"));
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Tests that the changes pending for an invalidated session are not
+     * written to the session that replaces it.
+     */
+    @Test
+    void testSessionReplaced() {
+        HttpSession newSession = createMock(HttpSession.class);
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("one")).andReturn(null);
+        expectRegistration();
+        expect(session.getAttribute("two")).andThrow(new IllegalStateException());
+        expect(request.getSession(true)).andReturn(newSession);
+        expect(newSession.getAttribute("two")).andReturn(null);
+        newSession.setAttribute("two", 2);
+
+        replay(request, session, newSession);
+        extractor.setValue("one", 1);
+        extractor.setValue("two", 2);
+        extractor.flush();
+        verify(request, session, newSession);
+    }
+
+    /**
+     * Tests {@link DirtyTrackingSessionScopeExtractor#flushPending(HttpServletRequest)}.
+     */
+    @Test
+    void testFlushPending() {
+        Capture<Object> pending = newCapture();
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("name")).andReturn(null);
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andReturn(null);
+        request.setAttribute(eq(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME),
+                capture(pending));
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andAnswer(pending::getValue);
+        request.removeAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME);
+        session.setAttribute("name", "value");
+
+        replay(request, session);
+        extractor.setValue("name", "value");
+        assertEquals(Collections.singletonList(extractor), pending.getValue());
+        DirtyTrackingSessionScopeExtractor.flushPending(request);
+        verify(request, session);
+    }
+
+    /**
+     * Tests bulk writes and removals.
+     */
+    @Test
+    void testSetValuesAndRemoveValues() {
+        expect(request.getSession(true)).andReturn(session);
+        expect(session.getAttribute("one")).andReturn(null);
+        expect(session.getAttribute("two")).andReturn(null);
+        expectRegistration();
+        session.removeAttribute("one");
+        session.setAttribute("two", 2);
+
+        replay(request, session);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("one", 1);
+        values.put("two", 2);
+        extractor.setValues(values);
+        extractor.removeValues(Arrays.asList("one"));
+        extractor.flush();
+        verify(request, session);
+    }
+
+    /**
+     * Expects the extractor to register itself in the request.
+     */
+    private void expectRegistration() {
+        expect(request.getAttribute(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME))
+                .andReturn(null);
+        request.setAttribute(eq(DirtyTrackingSessionScopeExtractor.PENDING_ATTRIBUTE_NAME), isA(List.class));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link HeaderSnapshotExtractor}.
+ *
+ * @version $Rev$ $Date$
+ */
+class HeaderSnapshotExtractorTest {
+
+    /**
+     * The request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * The response.
+     */
+    private HttpServletResponse response;
+
+    /**
+     * The extractor to test.
+     */
+    private HeaderSnapshotExtractor extractor;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        request = createMock(HttpServletRequest.class);
+        response = createMock(HttpServletResponse.class);
+        expect(request.getHeaderNames()).andReturn(Collections.enumeration(
+                Arrays.asList("accept-language", "X-Custom", "x-custom")));
+        expect(request.getHeaders("accept-language")).andReturn(
+                Collections.enumeration(Arrays.asList("it", "en")));
+        expect(request.getHeaders("X-Custom")).andReturn(
+                Collections.enumeration(Arrays.asList("one")));
+        expect(request.getHeaders("x-custom")).andReturn(
+                Collections.enumeration(Arrays.asList("two")));
+        replay(request, response);
+        extractor = new HeaderSnapshotExtractor(request, response);
+        verify(request, response);
+    }
+
+    /**
+     * Test method for {@link HeaderSnapshotExtractor#getKeys()}.
+     */
+    @Test
+    void testGetKeys() {
+        Enumeration<String> keys = extractor.getKeys();
+        assertTrue(keys.hasMoreElements());
+        assertEquals("Accept-Language", keys.nextElement());
+        assertTrue(keys.hasMoreElements());
+        assertEquals("X-Custom", keys.nextElement());
+        assertFalse(keys.hasMoreElements());
+        assertEquals(2, extractor.getKeyCount());
+    }
+
+    /**
+     * Test method for {@link HeaderSnapshotExtractor#getValue(String)}.
+     */
+    @Test
+    void testGetValue() {
+        assertEquals("it", extractor.getValue("Accept-Language"));
+        assertEquals("it", extractor.getValue("ACCEPT-LANGUAGE"));
+        assertEquals("one", extractor.getValue("x-CUSTOM"));
+        assertNull(extractor.getValue("Host"));
+        assertNull(extractor.getValue(null));
+    }
+
+    /**
+     * Test method for {@link HeaderSnapshotExtractor#getValues(String)}.
+     */
+    @Test
+    void testGetValues() {
+        Enumeration<String> values = extractor.getValues("accept-language");
+        assertEquals("it", values.nextElement());
+        assertEquals("en", values.nextElement());
+        assertFalse(values.hasMoreElements());
+        assertFalse(extractor.getValues("Host").hasMoreElements());
+    }
+
+    /**
+     * Test method for {@link HeaderSnapshotExtractor#getValueArray(String)}.
+     */
+    @Test
+    void testGetValueArray() {
+        assertArrayEquals(new String[] {"one", "two"}, extractor.getValueArray("X-Custom"));
+        assertSame(extractor.getValueArray("X-Custom"), extractor.getValueArray("x-custom"));
+        assertEquals(0, extractor.getValueArray("Host").length);
+    }
+
+    /**
+     * Test method for {@link HeaderSnapshotExtractor#setValue(String, String)}.
+     */
+    @Test
+    void testSetValue() {
+        HttpServletResponse otherResponse = createMock(HttpServletResponse.class);
+        HttpServletRequest otherRequest = createMock(HttpServletRequest.class);
+        expect(otherRequest.getHeaderNames()).andReturn(null);
+        otherResponse.setHeader("name", "value");
+
+        replay(otherRequest, otherResponse);
+        HeaderSnapshotExtractor other = new HeaderSnapshotExtractor(otherRequest, otherResponse);
+        assertEquals(0, other.getKeyCount());
+        other.setValue("name", "value");
+        verify(otherRequest, otherResponse);
+    }
+}
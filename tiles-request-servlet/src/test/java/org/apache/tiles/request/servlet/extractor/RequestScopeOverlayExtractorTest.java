@@ -0,0 +1,170 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.servlet.extractor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests {@link RequestScopeOverlayExtractor}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RequestScopeOverlayExtractorTest {
+
+    /**
+     * The request.
+     */
+    private HttpServletRequest request;
+
+    /**
+     * The extractor to test.
+     */
+    private RequestScopeOverlayExtractor extractor;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        request = createMock(HttpServletRequest.class);
+        extractor = new RequestScopeOverlayExtractor(request, Collections.singleton("visible"));
+    }
+
+    /**
+     * Tests that local attributes are kept in the overlay until the flush.
+     */
+    @Test
+    void testSetValueAndFlush() {
+        request.setAttribute("local", "value");
+
+        replay(request);
+        extractor.setValue("local", "value");
+        assertEquals("value", extractor.getValue("local"));
+        extractor.flush();
+        verify(request);
+    }
+
+    /**
+     * Tests that container-visible attributes are written immediately.
+     */
+    @Test
+    void testSetValueContainerVisible() {
+        request.setAttribute("visible", "value");
+        request.setAttribute("jakarta.servlet.error.message", "message");
+        request.removeAttribute("visible");
+
+        replay(request);
+        extractor.setValue("visible", "value");
+        extractor.setValue("jakarta.servlet.error.message", "message");
+        extractor.removeValue("visible");
+        extractor.flush();
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RequestScopeOverlayExtractor#getValue(String)}.
+     */
+    @Test
+    void testGetValue() {
+        expect(request.getAttribute("other")).andReturn("container");
+
+        replay(request);
+        assertEquals("container", extractor.getValue("other"));
+        extractor.setValue("other", "local");
+        assertEquals("local", extractor.getValue("other"));
+        extractor.removeValue("other");
+        assertNull(extractor.getValue("other"));
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RequestScopeOverlayExtractor#removeValue(String)} and the
+     * removal at flush.
+     */
+    @Test
+    void testRemoveValueAndFlush() {
+        request.removeAttribute("local");
+
+        replay(request);
+        extractor.setValue("local", "value");
+        extractor.setValue("local", null);
+        extractor.flush();
+        extractor.flush();
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RequestScopeOverlayExtractor#getKeys()}.
+     */
+    @Test
+    void testGetKeys() {
+        Enumeration<String> containerKeys = Collections.enumeration(Arrays.asList("one", "two"));
+        expect(request.getAttributeNames()).andReturn(containerKeys);
+        expect(request.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("one", "two")));
+
+        replay(request);
+        assertSame(containerKeys, extractor.getKeys());
+        extractor.removeValue("one");
+        extractor.setValue("three", 3);
+        Enumeration<String> keys = extractor.getKeys();
+        assertEquals("two", keys.nextElement());
+        assertEquals("three", keys.nextElement());
+        assertFalse(keys.hasMoreElements());
+        verify(request);
+    }
+
+    /**
+     * Tests {@link RequestScopeOverlayExtractor#setValues(Map)} and
+     * {@link RequestScopeOverlayExtractor#getAllValues()}.
+     */
+    @Test
+    void testSetValuesAndGetAllValues() {
+        expect(request.getAttributeNames()).andReturn(Collections.<String>emptyEnumeration());
+
+        replay(request);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("one", 1);
+        values.put("two", 2);
+        extractor.setValues(values);
+        extractor.removeValues(Arrays.asList("two"));
+        Map<String, Object> allValues = extractor.getAllValues();
+        assertEquals(1, allValues.size());
+        assertEquals(1, allValues.get("one"));
+        verify(request);
+    }
+}
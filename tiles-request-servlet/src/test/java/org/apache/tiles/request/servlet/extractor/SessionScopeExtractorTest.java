@@ -25,7 +25,11 @@ import org.junit.jupiter.api.Test;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
@@ -35,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests {@link SessionScopeExtractor}.
@@ -148,4 +153,55 @@ class SessionScopeExtractorTest {
         verify(request, session);
     }
 
+    /**
+     * Test method for {@link SessionScopeExtractor#setValues(java.util.Map)}.
+     */
+    @Test
+    void testSetValues() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("one", 1);
+        values.put("two", 2);
+        expect(request.getSession()).andReturn(session);
+        session.setAttribute("one", 1);
+        session.setAttribute("two", 2);
+
+        replay(request, session);
+        extractor.setValues(values);
+        extractor.setValues(Collections.<String, Object>emptyMap());
+        verify(request, session);
+    }
+
+    /**
+     * Test method for {@link SessionScopeExtractor#removeValues(java.util.Collection)}.
+     */
+    @Test
+    void testRemoveValues() {
+        expect(request.getSession(false)).andReturn(session);
+        session.removeAttribute("one");
+        session.removeAttribute("two");
+        expect(request.getSession(false)).andReturn(null);
+
+        replay(request, session);
+        extractor.removeValues(Arrays.asList("one", "two"));
+        extractor.removeValues(Arrays.asList("one", "two"));
+        verify(request, session);
+    }
+
+    /**
+     * Test method for {@link SessionScopeExtractor#getAllValues()}.
+     */
+    @Test
+    void testGetAllValues() {
+        expect(request.getSession(false)).andReturn(session);
+        expect(session.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("one")));
+        expect(session.getAttribute("one")).andReturn(1);
+        expect(request.getSession(false)).andReturn(null);
+
+        replay(request, session);
+        Map<String, Object> values = extractor.getAllValues();
+        assertEquals(1, values.size());
+        assertEquals(1, values.get("one"));
+        assertTrue(extractor.getAllValues().isEmpty());
+        verify(request, session);
+    }
 }
@@ -23,6 +23,7 @@ package org.apache.tiles.request.velocity.extractor;
 import java.util.Enumeration;
 
 import org.apache.tiles.request.attribute.AttributeExtractor;
+import org.apache.tiles.request.attribute.HasSizedKeys;
 import org.apache.velocity.context.Context;
 
 /**
@@ -30,7 +31,7 @@ import org.apache.velocity.context.Context;
  *
  * @version $Rev$ $Date$
  */
-public class VelocityScopeExtractor implements AttributeExtractor {
+public class VelocityScopeExtractor implements AttributeExtractor, HasSizedKeys<Object> {
 
     /**
      * The Velocity context.
@@ -56,6 +57,17 @@ public class VelocityScopeExtractor implements AttributeExtractor {
         return new KeyEnumeration(context.getKeys());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Velocity contexts do not expose their size, but they return their keys
+     * as an array, so counting does not need to enumerate them.
+     */
+    @Override
+    public int getKeyCount() {
+        return context.getKeys().length;
+    }
+
     @Override
     public Object getValue(String key) {
         return context.get(key);
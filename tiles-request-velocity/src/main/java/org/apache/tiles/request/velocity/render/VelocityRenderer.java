@@ -25,11 +25,14 @@ import java.io.IOException;
 
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
-import org.apache.tiles.request.render.Renderer;
+import org.apache.tiles.request.render.RenderDeadline;
+import org.apache.tiles.request.render.RenderablePaths;
+import org.apache.tiles.request.render.TemplatePrecompiler;
 import org.apache.tiles.request.servlet.ServletRequest;
 import org.apache.tiles.request.servlet.ServletUtil;
 import org.apache.velocity.Template;
 import org.apache.velocity.context.Context;
+import org.apache.velocity.exception.VelocityException;
 import org.apache.velocity.tools.view.VelocityView;
 
 /**
@@ -41,7 +44,12 @@ import org.apache.velocity.tools.view.VelocityView;
  *
  * @version $Rev$ $Date$
  */
-public class VelocityRenderer implements Renderer {
+public class VelocityRenderer implements TemplatePrecompiler {
+
+    /**
+     * The paths this renderer can render.
+     */
+    private static final RenderablePaths RENDERABLE_PATHS = new RenderablePaths("/", ".vm", null);
 
     /**
      * The VelocityView object to use.
@@ -63,6 +71,7 @@ public class VelocityRenderer implements Renderer {
         if (path == null) {
             throw new CannotRenderException("Cannot dispatch a null path");
         }
+        RenderDeadline.check(request);
 
         ServletRequest servletRequest = ServletUtil.getServletRequest(request);
         // then get a context
@@ -73,11 +82,31 @@ public class VelocityRenderer implements Renderer {
         Template template = velocityView.getTemplate((String) path);
 
         // merge the template and context into the writer
-        velocityView.merge(template, context, request.getWriter());
+        try {
+            velocityView.merge(template, context, request.getWriter());
+        } catch (IOException e) {
+            throw RenderDeadline.translate(request, e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void precompile(String path) throws IOException {
+        try {
+            velocityView.getTemplate(path);
+        } catch (VelocityException e) {
+            throw new IOException("Cannot precompile the Velocity template " + path, e);
+        }
     }
 
     /** {@inheritDoc} */
     public boolean isRenderable(String path, Request request) {
-        return path != null && path.startsWith("/") && path.endsWith(".vm");
+        return RENDERABLE_PATHS.matches(path);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RenderablePaths getRenderablePaths() {
+        return RENDERABLE_PATHS;
     }
 }
@@ -89,6 +89,18 @@ class VelocityScopeExtractorTest {
         verify(request);
     }
 
+    /**
+     * Test method for {@link VelocityScopeExtractor#getKeyCount()}.
+     */
+    @Test
+    void testGetKeyCount() {
+        expect(request.getKeys()).andReturn(new Object[] {"one", "two"});
+
+        replay(request);
+        assertEquals(2, extractor.getKeyCount());
+        verify(request);
+    }
+
     /**
      * Test method for {@link VelocityScopeExtractor#getValue(java.lang.String)}.
      */
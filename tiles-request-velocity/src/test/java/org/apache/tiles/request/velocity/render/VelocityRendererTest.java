@@ -20,10 +20,13 @@
  */
 package org.apache.tiles.request.velocity.render;
 
+import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
+import org.apache.tiles.request.render.RenderablePaths;
 import org.apache.tiles.request.render.Renderer;
 import org.apache.tiles.request.servlet.ServletRequest;
 import org.apache.velocity.Template;
+import org.apache.velocity.exception.ResourceNotFoundException;
 import org.apache.velocity.tools.view.VelocityView;
 import org.apache.velocity.tools.view.ViewToolContext;
 import org.junit.jupiter.api.Test;
@@ -32,11 +35,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collections;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createMockBuilder;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -55,13 +61,16 @@ class VelocityRendererTest {
     @Test
     void testRender() throws IOException {
         VelocityView view = createMock(VelocityView.class);
-        ServletRequest request = createMock(ServletRequest.class);
+        ServletRequest request = createMockBuilder(ServletRequest.class).addMockedMethods("getContext",
+                "getRequest", "getResponse", "getWriter").createMock();
         HttpServletRequest httpRequest = createMock(HttpServletRequest.class);
         HttpServletResponse response = createMock(HttpServletResponse.class);
         ViewToolContext context = createMock(ViewToolContext.class);
         Template template = createMock(Template.class);
         Writer writer = createMock(Writer.class);
 
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(Collections.<String, Object>emptyMap())
+                .anyTimes();
         expect(request.getRequest()).andReturn(httpRequest);
         expect(request.getResponse()).andReturn(response);
         expect(view.createContext(httpRequest, response)).andReturn(context);
@@ -108,4 +117,37 @@ class VelocityRendererTest {
         verify(view);
     }
 
+    /**
+     * Test method for {@link VelocityRenderer#getRenderablePaths()}.
+     */
+    @Test
+    void testGetRenderablePaths() {
+        VelocityView view = createMock(VelocityView.class);
+        replay(view);
+        RenderablePaths paths = new VelocityRenderer(view).getRenderablePaths();
+        assertEquals("/", paths.getPrefix());
+        assertEquals(".vm", paths.getSuffix());
+        assertTrue(paths.matches("/my/template.vm"));
+        assertFalse(paths.matches("my/template.vm"));
+        verify(view);
+    }
+
+    /**
+     * Tests {@link VelocityRenderer#precompile(String)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testPrecompile() throws IOException {
+        VelocityView view = createMock(VelocityView.class);
+        Template template = createMock(Template.class);
+        expect(view.getTemplate("/test.vm")).andReturn(template);
+        expect(view.getTemplate("/missing.vm")).andThrow(new ResourceNotFoundException("missing"));
+
+        replay(view, template);
+        VelocityRenderer renderer = new VelocityRenderer(view);
+        renderer.precompile("/test.vm");
+        assertThrows(IOException.class, () -> renderer.precompile("/missing.vm"));
+        verify(view, template);
+    }
 }